@@ -299,7 +299,7 @@ public class Buffer extends SharedResource {
     /**
      * Index within the buffer pool
      */
-    final private int _poolIndex;
+    private volatile int _poolIndex;
 
     /**
      * The page address of the page currently loaded in this buffer.
@@ -375,14 +375,22 @@ public class Buffer extends SharedResource {
 
     /**
      * Singly-linked list of Buffers current having the same hash code.
-     * (Maintained by BufferPool.)
+     * (Maintained by BufferPool, and read without locking by
+     * BufferPool#find.)
      */
-    private Buffer _next = null;
+    private volatile Buffer _next = null;
 
     private volatile long _lastPrunedTime;
 
     private volatile boolean _enqueuedForAntiValuePruning;
 
+    /**
+     * Approximate count of accesses since the page was loaded. Updated
+     * without synchronization, so concurrent increments may be lost; it is
+     * recorded in the buffer inventory only to order preloading.
+     */
+    private int _accessCount;
+
     /**
      * Construct a new buffer.
      * 
@@ -523,18 +531,32 @@ public class Buffer extends SharedResource {
         _persistit.checkFatal();
         final Volume volume = getVolume();
         if (volume != null) {
-            if (prune) {
-                pruneMvvValues(null, false, null);
-            }
-            clearSlack();
-            save();
+            prepareWritePage(prune);
             _vol.getStorage().writePage(this);
-            clearDirty();
-            volume.getStatistics().bumpWriteCounter();
-            _pool.bumpWriteCounter();
+            writePageCompleted();
         }
     }
 
+    /**
+     * Bring the page image up to date before it is written. Called by
+     * {@link #writePage(boolean)} and by {@link BufferPool} before it writes
+     * a run of pages.
+     */
+    void prepareWritePage(final boolean prune) throws PersistitException {
+        assert isOwnedAsWriterByMe();
+        if (prune) {
+            pruneMvvValues(null, false, null);
+        }
+        clearSlack();
+        save();
+    }
+
+    void writePageCompleted() {
+        clearDirty();
+        _vol.getStatistics().bumpWriteCounter();
+        _pool.bumpWriteCounter();
+    }
+
     @Override
     boolean clearDirty() {
         if (super.clearDirty()) {
@@ -587,6 +609,7 @@ public class Buffer extends SharedResource {
 
     void releaseTouched() {
         setTouched();
+        bumpAccessCount();
         release();
     }
 
@@ -731,6 +754,16 @@ public class Buffer extends SharedResource {
         return _poolIndex;
     }
 
+    /**
+     * Change the position of this buffer in its pool. Used only when the pool
+     * is resized.
+     * 
+     * @param index
+     */
+    void setIndex(final int index) {
+        _poolIndex = index;
+    }
+
     /**
      * Get the page address of the right sibling page
      * 
@@ -773,6 +806,21 @@ public class Buffer extends SharedResource {
         return _mvvCount;
     }
 
+    int getAccessCount() {
+        return _accessCount;
+    }
+
+    void bumpAccessCount() {
+        final int count = _accessCount;
+        if (count < Integer.MAX_VALUE) {
+            _accessCount = count + 1;
+        }
+    }
+
+    void clearAccessCount() {
+        _accessCount = 0;
+    }
+
     void setKeyBlockEnd(final int index) {
         Debug.$assert0.t(index >= KEY_BLOCK_START && index <= (_pool.getMaxKeys() * KEYBLOCK_LENGTH) + KEY_BLOCK_START
                 || (!isDataPage() && !isIndexPage() || !isValid()));
@@ -822,7 +870,15 @@ public class Buffer extends SharedResource {
      * @throws PersistitInterruptedException
      */
     int findKey(final Key key) throws PersistitInterruptedException {
-        final FastIndex fastIndex = getFastIndex();
+        return findKey(key, getFastIndex());
+    }
+
+    /**
+     * Variant of {@link #findKey(Key)} used by optimistic readers which must
+     * not recompute the {@link FastIndex}. The caller supplies a valid
+     * <code>FastIndex</code> obtained from {@link #getFastIndexIfValid()}.
+     */
+    int findKey(final Key key, final FastIndex fastIndex) {
         final byte[] kbytes = key.getEncodedBytes();
         final int klength = key.getEncodedSize();
         int depth = 0;
@@ -2887,6 +2943,14 @@ public class Buffer extends SharedResource {
         return _fastIndex;
     }
 
+    /**
+     * @return the <code>FastIndex</code> if it is currently valid, otherwise
+     *         <code>null</code>. Does not synchronize and does not recompute.
+     */
+    FastIndex getFastIndexIfValid() {
+        return _fastIndex.isValid() ? _fastIndex : null;
+    }
+
     private void reduceEbc(final int p, final int newEbc, final byte[] indexKeyBytes) {
         int kbData = getInt(p);
         final int oldDb = decodeKeyBlockDb(kbData);
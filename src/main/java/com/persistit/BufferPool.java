@@ -24,16 +24,19 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
 
-import com.persistit.JournalManager.PageNode;
 import com.persistit.exception.InUseException;
 import com.persistit.exception.InvalidPageAddressException;
 import com.persistit.exception.InvalidPageStructureException;
@@ -43,6 +46,7 @@ import com.persistit.exception.PersistitInterruptedException;
 import com.persistit.exception.RetryException;
 import com.persistit.exception.VolumeClosedException;
 import com.persistit.util.Debug;
+import com.persistit.util.StripedCounter;
 import com.persistit.util.Util;
 
 /**
@@ -60,6 +64,16 @@ public class BufferPool {
 
     private final static int PAGE_WRITER_TRANCHE_SIZE = 5000;
 
+    /**
+     * Maximum number of PAGE_WRITER threads per pool
+     */
+    public final static int MAXIMUM_PAGE_WRITER_COUNT = 64;
+
+    /**
+     * Maximum number of adjacent pages written as a single run
+     */
+    private final static int MAXIMUM_WRITE_RUN = 32;
+
     /**
      * Sleep time when buffers are exhausted
      */
@@ -70,6 +84,71 @@ public class BufferPool {
      */
     private final static int HASH_MULTIPLE = 3;
 
+    /**
+     * Maximum number of partitions
+     */
+    public final static int MAXIMUM_PARTITION_COUNT = 256;
+
+    /**
+     * Default maximum number of pages read ahead of a sequential scan
+     */
+    public final static int DEFAULT_READ_AHEAD_LIMIT = 32;
+
+    /**
+     * Upper bound on the read-ahead limit
+     */
+    public final static int MAXIMUM_READ_AHEAD_LIMIT = 1024;
+
+    /**
+     * Read-ahead is limited to one page per this many buffers in the pool so
+     * that pages read ahead do not displace the working set of a small pool
+     */
+    private final static int READ_AHEAD_BUFFER_RATIO = 16;
+
+    /**
+     * Maximum number of pending read-ahead requests; further requests are
+     * dropped
+     */
+    private final static int READ_AHEAD_QUEUE_SIZE = 64;
+
+    /**
+     * Polling interval for PageReader
+     */
+    private final static long READER_POLL_INTERVAL = 1000;
+
+    /**
+     * Default maximum number of threads per volume that read pages during
+     * buffer inventory preload
+     */
+    public final static int DEFAULT_PRELOAD_THREADS = 4;
+
+    /**
+     * Upper bound on the number of preload threads per volume
+     */
+    public final static int MAXIMUM_PRELOAD_THREADS = 64;
+
+    /**
+     * Number of groups into which preloaded pages are divided by access
+     * frequency. The first (most frequently accessed) group is loaded before
+     * startup completes; the others are loaded in the background.
+     */
+    private final static int PRELOAD_TRANCHES = 8;
+
+    /**
+     * Minimum number of pages in a preload group
+     */
+    private final static int MINIMUM_PRELOAD_TRANCHE_SIZE = 4096;
+
+    /**
+     * Minimum number of runs of adjacent pages assigned to each preload thread
+     */
+    private final static int MINIMUM_PRELOAD_RUNS_PER_THREAD = 16;
+
+    /**
+     * Maximum size in bytes of a single coalesced preload read
+     */
+    private final static int MAXIMUM_PRELOAD_READ_SIZE = 1024 * 1024;
+
     /**
      * Minimum number of buffers this pool may have
      */
@@ -84,6 +163,14 @@ public class BufferPool {
      */
     private final static int HASH_LOCKS = 4096;
 
+    /**
+     * Maximum number of Buffers visited by an unlocked hash chain search before
+     * falling back to the locked search. Chains are normally very short; the
+     * limit only guards against a traversal that is repeatedly diverted by
+     * Buffers being reassigned concurrently.
+     */
+    private final static int MAXIMUM_UNLOCKED_SEARCH = 64;
+
     /**
      * Ratio determines which of two volume invalidation algorithms to invoke.
      */
@@ -105,15 +192,108 @@ public class BufferPool {
      */
     private final static long INVENTORY_PRELOAD_LOG_MESSAGE_NS = 60L * NS_PER_S;
 
+    /**
+     * Maximum fraction of buffers that may be in the protected set of the
+     * {@link ReplacementPolicy#TWO_QUEUE} policy
+     */
+    private final static float MAXIMUM_HOT_FRACTION = 0.75f;
+
+    /**
+     * Algorithm used to select a buffer for replacement when a page must be
+     * loaded into a full pool. The policy is selected for each buffer size
+     * with the {@value Configuration#BUFFER_POLICY_PROPERTY_NAME}nnnn
+     * property. With either policy, a page loaded by a scan (see
+     * {@link Exchange#setScanAccess(boolean)}) and not subsequently used by any
+     * other operation is replaced the first time the clock reaches it.
+     */
+    public static enum ReplacementPolicy {
+        /**
+         * A buffer is replaced if it has not been touched since the clock last
+         * visited it. This approximates least-recently-used replacement.
+         */
+        CLOCK {
+            @Override
+            boolean isReplaceable(final BufferPool pool, final Buffer buffer) {
+                if (buffer.isScan()) {
+                    return true;
+                }
+                if (buffer.isTouched()) {
+                    buffer.clearTouched();
+                    return false;
+                }
+                return true;
+            }
+        },
+        /**
+         * A CLOCK approximation of the 2Q algorithm. A newly loaded page is on
+         * probation: the access that loaded it does not count, and it is
+         * replaced unless it is touched again before the clock visits it a
+         * second time. A page touched again is promoted to the protected set.
+         * A protected page that the clock finds untouched is demoted to
+         * probation rather than replaced. Pages that are read only once, as by
+         * a large range scan, therefore displace probationary pages rather
+         * than the frequently used pages in the protected set. At most
+         * {@value BufferPool#MAXIMUM_HOT_FRACTION} of the buffers may be
+         * protected.
+         */
+        TWO_QUEUE {
+            @Override
+            boolean isReplaceable(final BufferPool pool, final Buffer buffer) {
+                if (buffer.isScan()) {
+                    return true;
+                }
+                if (buffer.isHot()) {
+                    if (!buffer.isTouched() || pool._hotBufferCount.get() > pool._maximumHotBufferCount) {
+                        pool.demote(buffer);
+                    }
+                    buffer.clearTouched();
+                    return false;
+                }
+                if (buffer.isNew()) {
+                    buffer.clearNew();
+                    buffer.clearTouched();
+                    return false;
+                }
+                if (buffer.isTouched()) {
+                    buffer.clearTouched();
+                    if (buffer.setHot()) {
+                        pool._hotBufferCount.incrementAndGet();
+                    }
+                    return false;
+                }
+                return true;
+            }
+        };
+
+        /**
+         * Called when the clock reaches a valid, unclaimed buffer. May update
+         * the buffer's replacement state.
+         * 
+         * @return <code>true</code> if the buffer should be replaced
+         */
+        abstract boolean isReplaceable(BufferPool pool, Buffer buffer);
+
+        static ReplacementPolicy forName(final String policyName) {
+            for (final ReplacementPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(policyName)) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("No such ReplacementPolicy: " + policyName);
+        }
+    }
+
     /**
      * The Persistit instance that references this BufferPool.
      */
     private final Persistit _persistit;
 
     /**
-     * Hash table - fast access to buffer by hash of address.
+     * Hash table - fast access to buffer by hash of address. Chains are
+     * modified only while holding the corresponding hash lock, but may be
+     * traversed without it; see {@link #find(Volume, long, int, boolean)}.
      */
-    private final Buffer[] _hashTable;
+    private final AtomicReferenceArray<Buffer> _hashTable;
 
     /**
      * Locks used to lock hashtable entries.
@@ -121,13 +301,20 @@ public class BufferPool {
     private final ReentrantLock[] _hashLocks;
 
     /**
-     * All Buffers in this pool
+     * All Buffers in this pool. The array is replaced when the pool is
+     * resized; methods that iterate over it should read the field once and
+     * use the length of that array.
      */
-    private final Buffer[] _buffers;
+    private volatile Buffer[] _buffers;
     /**
      * Count of Buffers allocated to this pool.
      */
-    private final int _bufferCount;
+    private volatile int _bufferCount;
+
+    /**
+     * Serializes {@link #resize(int, long)} operations
+     */
+    private final Object _resizeLock = new Object();
 
     /**
      * Size of each buffer
@@ -139,7 +326,7 @@ public class BufferPool {
      * indicate buffers that have been invalidated and are therefore able to be
      * allocated without evicting a valid page.
      */
-    private final AtomicLongArray _availablePagesBits;
+    private volatile AtomicLongArray _availablePagesBits;
 
     private final AtomicBoolean _availablePages = new AtomicBoolean();
 
@@ -149,9 +336,72 @@ public class BufferPool {
     private final int _maxKeys;
 
     /**
-     * Pointer to next location to look for a replacement buffer
+     * Pointers to next location to look for a replacement buffer, one for
+     * each partition of the pool
+     */
+    private volatile AtomicInteger[] _clocks = new AtomicInteger[] { new AtomicInteger() };
+
+    /**
+     * Algorithm used to select buffers for replacement
      */
-    private final AtomicInteger _clock = new AtomicInteger();
+    private volatile ReplacementPolicy _replacementPolicy = ReplacementPolicy.CLOCK;
+
+    /**
+     * Count of buffers in the protected set of the
+     * {@link ReplacementPolicy#TWO_QUEUE} policy
+     */
+    private final AtomicInteger _hotBufferCount = new AtomicInteger();
+
+    private volatile int _maximumHotBufferCount;
+
+    /**
+     * Optional second-level cache of evicted page images held in direct
+     * memory
+     */
+    private volatile OffHeapPageCache _offHeapCache;
+
+    /**
+     * Maximum number of pages read ahead of a sequential scan, or zero to
+     * disable read-ahead
+     */
+    private volatile int _readAheadLimit = DEFAULT_READ_AHEAD_LIMIT;
+
+    /**
+     * Pending read-ahead requests, serviced by the PAGE_READER thread
+     */
+    private final Queue<ReadAheadRequest> _readAheadQueue = new ArrayBlockingQueue<ReadAheadRequest>(
+            READ_AHEAD_QUEUE_SIZE);
+
+    /**
+     * Count of pages loaded by read-ahead
+     */
+    private final AtomicLong _readAheadCounter = new AtomicLong();
+
+    /**
+     * Moving average of the elapsed time in nanoseconds to read a page from
+     * the volume or journal
+     */
+    private volatile long _readLatency;
+
+    /**
+     * Count of pages processed by the current or most recent buffer inventory
+     * preload, and the number of pages it intends to load
+     */
+    private final AtomicLong _preloadCounter = new AtomicLong();
+
+    private volatile long _preloadTotal;
+
+    private volatile boolean _preloading;
+
+    private volatile boolean _preloadStopped;
+
+    private final AtomicLong _preloadReportTime = new AtomicLong();
+
+    /**
+     * Thread that loads the less frequently accessed pages of the inventory
+     * after startup
+     */
+    private volatile Thread _preloadThread;
 
     /**
      * Count of buffer pool misses (buffer not found in pool)
@@ -163,6 +413,24 @@ public class BufferPool {
      */
     private final AtomicLong _hitCounter = new AtomicLong();
 
+    /**
+     * Count of pages read optimistically, without a claim, and successfully
+     * validated
+     */
+    private final StripedCounter _optimisticReadCounter = new StripedCounter();
+
+    /**
+     * Count of optimistic page reads that failed validation and were retried
+     * with a claim
+     */
+    private final StripedCounter _optimisticRetryCounter = new StripedCounter();
+
+    /**
+     * Indicates whether {@link Exchange} may read pages in this pool without
+     * claiming them
+     */
+    private volatile boolean _optimisticReadsEnabled;
+
     /**
      * Count of newly created pages
      */
@@ -216,9 +484,30 @@ public class BufferPool {
     private volatile int _pageWriterTrancheSize = PAGE_WRITER_TRANCHE_SIZE;
 
     /**
-     * The PAGE_WRITER IOTaskRunnable
+     * The PAGE_WRITER IOTaskRunnables. The first selects dirty buffers on each
+     * cycle; all of them write the selected buffers.
      */
-    private PageWriter _writer;
+    private PageWriter[] _writers;
+
+    /**
+     * Buffers selected on the current PAGE_WRITER cycle, or <code>null</code>
+     */
+    private volatile WriteBatch _writeBatch;
+
+    /**
+     * Count of selected pages not yet written on the current PAGE_WRITER cycle
+     */
+    private final AtomicInteger _writeQueueDepth = new AtomicInteger();
+
+    /**
+     * Moving average of the elapsed time in nanoseconds to write a page
+     */
+    private volatile long _writeLatency;
+
+    /**
+     * The PAGE_READER IOTaskRunnable
+     */
+    private PageReader _reader;
 
     /**
      * Construct a BufferPool with the specified count of <code>Buffer</code>s
@@ -251,11 +540,12 @@ public class BufferPool {
 
         _bufferCount = count;
         _bufferSize = size;
-        _buffers = new Buffer[_bufferCount];
+        final Buffer[] bufferArray = new Buffer[count];
         _availablePagesBits = new AtomicLongArray((count + 63) / 64);
-        _hashTable = new Buffer[_bufferCount * HASH_MULTIPLE];
+        _hashTable = new AtomicReferenceArray<Buffer>(count * HASH_MULTIPLE);
         _hashLocks = new ReentrantLock[HASH_LOCKS];
         _maxKeys = (_bufferSize - Buffer.HEADER_SIZE) / Buffer.MAX_KEY_RATIO;
+        _maximumHotBufferCount = (int) (count * MAXIMUM_HOT_FRACTION);
 
         for (int index = 0; index < HASH_LOCKS; index++) {
             _hashLocks[index] = new ReentrantLock();
@@ -268,9 +558,9 @@ public class BufferPool {
         //
         byte[] reserve = new byte[1024 * 1024];
         try {
-            for (int index = 0; index < _bufferCount; index++) {
+            for (int index = 0; index < count; index++) {
                 final Buffer buffer = new Buffer(size, index, this, _persistit);
-                _buffers[index] = buffer;
+                bufferArray[index] = buffer;
                 buffers++;
             }
         } catch (final OutOfMemoryError e) {
@@ -284,22 +574,34 @@ public class BufferPool {
             System.err.print(" bytes free after creating ");
             System.err.print(buffers);
             System.err.print("/");
-            System.err.print(_bufferCount);
+            System.err.print(count);
             System.err.print(" buffers from maximum heap ");
             System.err.println(_persistit.getAvailableHeap());
             throw e;
         }
-        _writer = new PageWriter();
+        _buffers = bufferArray;
+        _writers = new PageWriter[] { new PageWriter(0) };
+        _reader = new PageReader();
     }
 
     void startThreads() throws PersistitException {
-        _writer.start();
+        for (final PageWriter writer : _writers) {
+            writer.start();
+        }
+        _reader.start();
     }
 
     void close() {
         _closed.set(true);
-        _persistit.waitForIOTaskStop(_writer);
-        _writer = null;
+        stopPreload();
+        for (final PageWriter writer : _writers) {
+            _persistit.waitForIOTaskStop(writer);
+        }
+        _reader.kick();
+        _persistit.waitForIOTaskStop(_reader);
+        _reader = null;
+        _readAheadQueue.clear();
+        _offHeapCache = null;
     }
 
     /**
@@ -307,12 +609,16 @@ public class BufferPool {
      * collector threads. This method should be used only by tests.
      */
     void crash() {
-        IOTaskRunnable.crash(_writer);
+        for (final PageWriter writer : _writers) {
+            IOTaskRunnable.crash(writer);
+        }
+        IOTaskRunnable.crash(_reader);
+        _preloadStopped = true;
     }
 
     void flush(final long timestamp) throws PersistitInterruptedException {
         setFlushTimestamp(timestamp);
-        _writer.kick();
+        _writers[0].kick();
         while (isFlushing()) {
             Util.sleep(RETRY_SLEEP_TIME);
         }
@@ -323,13 +629,14 @@ public class BufferPool {
     }
 
     int hashIndex(final Volume vol, final long page) {
-        return (int) (((page ^ vol.hashCode()) & Integer.MAX_VALUE) % _hashTable.length);
+        return (int) (((page ^ vol.hashCode()) & Integer.MAX_VALUE) % _hashTable.length());
     }
 
     int countInUse(final Volume vol, final boolean writer) {
         int count = 0;
-        for (int i = 0; i < _bufferCount; i++) {
-            final Buffer buffer = _buffers[i];
+        final Buffer[] buffers = _buffers;
+        for (int i = 0; i < buffers.length; i++) {
+            final Buffer buffer = buffers[i];
             if ((vol == null || buffer.getVolume() == vol)
                     && ((buffer.getStatus() & SharedResource.CLAIMED_MASK) != 0 && (!writer || (buffer.getStatus() & SharedResource.WRITER_MASK) != 0))) {
                 count++;
@@ -339,7 +646,8 @@ public class BufferPool {
     }
 
     void populateBufferPoolInfo(final ManagementImpl.BufferPoolInfo info) {
-        info.bufferCount = _bufferCount;
+        final Buffer[] buffers = _buffers;
+        info.bufferCount = buffers.length;
         info.bufferSize = _bufferSize;
         info.missCount = _missCounter.get();
         info.hitCount = _hitCounter.get();
@@ -349,12 +657,26 @@ public class BufferPool {
         info.writeCount = _writeCounter.get();
         info.forcedCheckpointWriteCount = _forcedCheckpointWriteCounter.get();
         info.forcedWriteCount = _forcedWriteCounter.get();
+        info.optimisticReadCount = _optimisticReadCounter.get();
+        info.optimisticRetryCount = _optimisticRetryCounter.get();
+        info.offHeapPageCount = getOffHeapPageCount();
+        info.offHeapHitCount = getOffHeapHitCounter();
+        info.offHeapMissCount = getOffHeapMissCounter();
+        info.offHeapCompressionRatio = getOffHeapCompressionRatio();
+        info.readAheadCount = _readAheadCounter.get();
+        info.preloadCount = _preloadCounter.get();
+        info.preloadTotal = _preloadTotal;
+        info.preloading = _preloading;
+        info.pageWriterCount = _writers.length;
+        info.writeQueueDepth = _writeQueueDepth.get();
+        info.writeLatency = _writeLatency;
         int validPages = 0;
         int readerClaimedPages = 0;
         int writerClaimedPages = 0;
+        int pinnedPages = 0;
 
-        for (int index = 0; index < _bufferCount; index++) {
-            final Buffer buffer = _buffers[index];
+        for (int index = 0; index < buffers.length; index++) {
+            final Buffer buffer = buffers[index];
             final int status = buffer.getStatus();
             if ((status & SharedResource.VALID_MASK) != 0)
                 validPages++;
@@ -362,8 +684,26 @@ public class BufferPool {
                 writerClaimedPages++;
             else if ((status & SharedResource.CLAIMED_MASK) != 0)
                 readerClaimedPages++;
+            if ((status & SharedResource.PINNED_MASK) != 0)
+                pinnedPages++;
         }
         info.validPageCount = validPages;
+        info.pinnedPageCount = pinnedPages;
+        int reservedBuffers = 0;
+        final List<String> reservations = new ArrayList<String>();
+        for (final Volume volume : _persistit.getVolumes()) {
+            final int reserved = volume.getReservedBufferCount();
+            if (reserved > 0 && volume.isOpened() && volume.getPool() == this) {
+                final VolumeStatistics stats = volume.getStatistics();
+                final long gets = stats.getGetCounter();
+                final double hitRatio = gets == 0 ? 0.0 : ((double) (gets - stats.getMissCounter())) / gets;
+                reservedBuffers += reserved;
+                reservations.add(String.format("%s reserved=%d resident=%d hitRatio=%.4f", volume.getName(),
+                        reserved, volume.getResidentPageCount(), hitRatio));
+            }
+        }
+        info.reservedBufferCount = reservedBuffers;
+        info.reservations = reservations.toArray(new String[reservations.size()]);
         info.readerClaimedPageCount = readerClaimedPages;
         info.writerClaimedPageCount = writerClaimedPages;
         info.earliestDirtyTimestamp = getEarliestDirtyTimestamp();
@@ -376,8 +716,9 @@ public class BufferPool {
         int index = 0;
         switch (traveralType) {
         case 0:
-            for (int i = 0; i < _bufferCount; i++) {
-                final Buffer buffer = _buffers[i];
+            final Buffer[] buffers = _buffers;
+            for (int i = 0; i < buffers.length; i++) {
+                final Buffer buffer = buffers[i];
                 if (selected(buffer, includeMask, excludeMask)) {
                     populateInfo1(array, index, buffer);
                     index++;
@@ -419,6 +760,149 @@ public class BufferPool {
         return _bufferCount;
     }
 
+    /**
+     * <p>
+     * Change the number of <code>Buffer</code>s in this pool while it is in
+     * use. When the pool grows, new buffers are allocated and become available
+     * immediately. When it shrinks, buffers are removed from the end of the
+     * pool: dirty pages they hold are written, the pages are evicted, and the
+     * buffers are discarded so that their memory can be reclaimed. Buffers
+     * permanently holding volume head pages are retained.
+     * </p>
+     * <p>
+     * The hash table used to find pages retains the size computed when the
+     * pool was created, so growing a pool to many times its original size
+     * lengthens hash chains.
+     * </p>
+     * 
+     * @param count
+     *            the new buffer count
+     * @param timeout
+     *            maximum time in milliseconds to wait for other threads to
+     *            release each buffer being removed
+     * @throws InUseException
+     *             if a buffer being removed could not be claimed within the
+     *             timeout. The pool is left at its original size.
+     * @throws PersistitException
+     *             if a dirty page could not be written
+     */
+    public void resize(final int count, final long timeout) throws PersistitException {
+        Util.rangeCheck(count, MINIMUM_POOL_COUNT, MAXIMUM_POOL_COUNT);
+        synchronized (_resizeLock) {
+            final Buffer[] buffers = _buffers;
+            if (count > buffers.length) {
+                grow(buffers, count);
+            } else if (count < buffers.length) {
+                shrink(buffers, count, timeout);
+            }
+        }
+    }
+
+    private void grow(final Buffer[] buffers, final int count) {
+        final Buffer[] newBuffers = new Buffer[count];
+        System.arraycopy(buffers, 0, newBuffers, 0, buffers.length);
+        for (int index = buffers.length; index < count; index++) {
+            newBuffers[index] = new Buffer(_bufferSize, index, this, _persistit);
+        }
+        final AtomicLongArray availablePagesBits = _availablePagesBits;
+        final AtomicLongArray newAvailablePagesBits = new AtomicLongArray((count + 63) / 64);
+        for (int q = 0; q < availablePagesBits.length(); q++) {
+            newAvailablePagesBits.set(q, availablePagesBits.get(q));
+        }
+        for (int index = buffers.length; index < count; index++) {
+            final int q = index / 64;
+            newAvailablePagesBits.set(q, newAvailablePagesBits.get(q) | (1L << (index % 64)));
+        }
+        publish(newBuffers, newAvailablePagesBits);
+    }
+
+    private void shrink(final Buffer[] buffers, final int count, final long timeout) throws PersistitException {
+        /*
+         * Remove the highest-numbered buffers that are not fixed. Each one is
+         * claimed, written if dirty, evicted and then marked fixed so that no
+         * other thread still holding the old buffer array can allocate it.
+         */
+        final List<Buffer> retired = new ArrayList<Buffer>();
+        final boolean[] isRetired = new boolean[buffers.length];
+        boolean completed = false;
+        try {
+            for (int index = buffers.length; --index >= 0 && buffers.length - retired.size() > count;) {
+                final Buffer buffer = buffers[index];
+                if (buffer.isFixed()) {
+                    continue;
+                }
+                if (!buffer.claim(true, timeout)) {
+                    throw new InUseException("Unable to acquire claim on " + buffer + " to resize " + this);
+                }
+                try {
+                    if (buffer.isFixed()) {
+                        continue;
+                    }
+                    if (buffer.isValid()) {
+                        if (buffer.isDirty()) {
+                            buffer.writePage(false);
+                        }
+                        invalidate(buffer);
+                    } else {
+                        buffer.clearDirty();
+                    }
+                    demote(buffer);
+                    buffer.setFixed();
+                    retired.add(buffer);
+                    isRetired[index] = true;
+                } finally {
+                    buffer.release();
+                }
+            }
+            if (buffers.length - retired.size() > count) {
+                throw new InUseException("Unable to remove enough buffers to resize " + this);
+            }
+            final Buffer[] newBuffers = new Buffer[count];
+            final AtomicLongArray newAvailablePagesBits = new AtomicLongArray((count + 63) / 64);
+            int newIndex = 0;
+            for (int index = 0; index < buffers.length; index++) {
+                final Buffer buffer = buffers[index];
+                if (isRetired[index]) {
+                    continue;
+                }
+                if (buffer.getIndex() != newIndex) {
+                    //
+                    // Only a fixed buffer can be moved. It is never
+                    // allocated, and therefore never marked available.
+                    //
+                    Debug.$assert0.t(buffer.isFixed());
+                    buffer.setIndex(newIndex);
+                }
+                if (!buffer.isValid() && !buffer.isFixed()) {
+                    final int q = newIndex / 64;
+                    newAvailablePagesBits.set(q, newAvailablePagesBits.get(q) | (1L << (newIndex % 64)));
+                }
+                newBuffers[newIndex++] = buffer;
+            }
+            publish(newBuffers, newAvailablePagesBits);
+            completed = true;
+        } finally {
+            if (!completed) {
+                for (final Buffer buffer : retired) {
+                    buffer.clearFixed();
+                }
+            }
+        }
+    }
+
+    private void publish(final Buffer[] buffers, final AtomicLongArray availablePagesBits) {
+        if (buffers.length > _buffers.length) {
+            _availablePagesBits = availablePagesBits;
+            _buffers = buffers;
+        } else {
+            _buffers = buffers;
+            _availablePagesBits = availablePagesBits;
+        }
+        _bufferCount = buffers.length;
+        _maximumHotBufferCount = (int) (buffers.length * MAXIMUM_HOT_FRACTION);
+        _availablePages.set(true);
+    }
+
     /**
      * @return The count of lookup operations for pages images in this pool that
      *         required a physical read operation. This number, in comparison
@@ -472,6 +956,349 @@ public class BufferPool {
         return _forcedCheckpointWriteCounter.get();
     }
 
+    /**
+     * @return The count of page reads performed optimistically, without
+     *         claiming the page, that were successfully validated.
+     */
+    public long getOptimisticReadCounter() {
+        return _optimisticReadCounter.get();
+    }
+
+    /**
+     * @return The count of optimistic page reads that were invalidated by a
+     *         concurrent writer and were therefore repeated with a claim. A
+     *         large value relative to the optimistic read count indicates
+     *         heavy write contention on frequently read pages.
+     */
+    public long getOptimisticRetryCounter() {
+        return _optimisticRetryCounter.get();
+    }
+
+    /**
+     * @return the algorithm used to select buffers for replacement
+     */
+    public ReplacementPolicy getReplacementPolicy() {
+        return _replacementPolicy;
+    }
+
+    /**
+     * Set the algorithm used to select buffers for replacement. The policy may
+     * be changed while the pool is in use.
+     * 
+     * @param policy
+     */
+    public void setReplacementPolicy(final ReplacementPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("ReplacementPolicy may not be null");
+        }
+        _replacementPolicy = policy;
+    }
+
+    /**
+     * Allocate a second-level cache in direct memory to hold clean page images
+     * evicted from this pool. A page found there is copied back into the pool
+     * without reading the volume or journal file. Any previously allocated
+     * cache is discarded.
+     * 
+     * @param memory
+     *            size in bytes of the cache, or zero to remove it
+     * @param compressed
+     *            whether page images are compressed in the cache
+     */
+    void setOffHeapMemory(final long memory, final boolean compressed) {
+        _offHeapCache = memory > 0 ? new OffHeapPageCache(memory, _bufferSize, compressed) : null;
+    }
+
+    /**
+     * @return size in bytes of the off-heap page cache, or zero if there is
+     *         none
+     */
+    public long getOffHeapMemory() {
+        final OffHeapPageCache offHeapCache = _offHeapCache;
+        return offHeapCache == null ? 0 : offHeapCache.getMemory();
+    }
+
+    /**
+     * @return the number of pages currently held in the off-heap page cache
+     */
+    public long getOffHeapPageCount() {
+        final OffHeapPageCache offHeapCache = _offHeapCache;
+        return offHeapCache == null ? 0 : offHeapCache.getPageCount();
+    }
+
+    /**
+     * @return the count of pages loaded into this pool from the off-heap page
+     *         cache
+     */
+    public long getOffHeapHitCounter() {
+        final OffHeapPageCache offHeapCache = _offHeapCache;
+        return offHeapCache == null ? 0 : offHeapCache.getHitCounter();
+    }
+
+    /**
+     * @return the count of pages sought but not found in the off-heap page
+     *         cache
+     */
+    public long getOffHeapMissCounter() {
+        final OffHeapPageCache offHeapCache = _offHeapCache;
+        return offHeapCache == null ? 0 : offHeapCache.getMissCounter();
+    }
+
+    /**
+     * @return the ratio of the size of page images stored in the off-heap page
+     *         cache to the space they occupy there; 1.0 unless the cache
+     *         compresses pages
+     */
+    public double getOffHeapCompressionRatio() {
+        final OffHeapPageCache offHeapCache = _offHeapCache;
+        return offHeapCache == null ? 1.0 : offHeapCache.getCompressionRatio();
+    }
+
+    /**
+     * @return the number of partitions, each having its own clock, into which
+     *         buffers of this pool are divided
+     */
+    public int getPartitionCount() {
+        return _clocks.length;
+    }
+
+    /**
+     * Divide the buffers of this pool into partitions, each having its own
+     * clock hand and region of the available-buffer bit map. A page is loaded
+     * into a buffer of the partition selected by its hash index, which reduces
+     * contention among threads replacing pages concurrently. Because each
+     * partition is a whole number of 64-buffer groups, a small pool may use
+     * fewer partitions than specified.
+     * 
+     * @param partitionCount
+     */
+    void setPartitionCount(final int partitionCount) {
+        Util.rangeCheck(partitionCount, 1, MAXIMUM_PARTITION_COUNT);
+        final AtomicInteger[] clocks = new AtomicInteger[partitionCount];
+        for (int index = 0; index < partitionCount; index++) {
+            clocks[index] = new AtomicInteger();
+        }
+        _clocks = clocks;
+    }
+
+    /**
+     * @return the maximum number of pages read ahead of a sequential scan
+     */
+    public int getReadAheadLimit() {
+        return _readAheadLimit;
+    }
+
+    /**
+     * Set the maximum number of pages read ahead of a sequential scan. The
+     * number actually read ahead adapts to the measured page read latency and
+     * to the rate at which the scan consumes pages, and is further limited to
+     * one page per {@value #READ_AHEAD_BUFFER_RATIO} buffers in the pool.
+     * 
+     * @param limit
+     *            the limit, or zero to disable read-ahead
+     */
+    void setReadAheadLimit(final int limit) {
+        Util.rangeCheck(limit, 0, MAXIMUM_READ_AHEAD_LIMIT);
+        _readAheadLimit = limit;
+    }
+
+    /**
+     * @return the count of pages loaded into this pool by read-ahead
+     */
+    public long getReadAheadCounter() {
+        return _readAheadCounter.get();
+    }
+
+    /**
+     * @return the count of pages processed by the current or most recent
+     *         buffer inventory preload
+     */
+    public long getPreloadCounter() {
+        return _preloadCounter.get();
+    }
+
+    /**
+     * @return the number of pages the current or most recent buffer inventory
+     *         preload intends to load
+     */
+    public long getPreloadTotal() {
+        return _preloadTotal;
+    }
+
+    /**
+     * @return <code>true</code> if pages recorded in the buffer inventory are
+     *         still being loaded
+     */
+    public boolean isPreloading() {
+        return _preloading;
+    }
+
+    /**
+     * @return the number of PAGE_WRITER threads
+     */
+    public int getPageWriterCount() {
+        return _writers.length;
+    }
+
+    /**
+     * Set the number of PAGE_WRITER threads. Takes effect only before the
+     * pool's threads are started.
+     * 
+     * @param count
+     */
+    void setPageWriterCount(final int count) {
+        Util.rangeCheck(count, 1, MAXIMUM_PAGE_WRITER_COUNT);
+        final PageWriter[] writers = new PageWriter[count];
+        for (int index = 0; index < count; index++) {
+            writers[index] = new PageWriter(index);
+        }
+        _writers = writers;
+    }
+
+    /**
+     * @return the number of pages selected by the current PAGE_WRITER cycle
+     *         that have not yet been written
+     */
+    public int getWriteQueueDepth() {
+        return _writeQueueDepth.get();
+    }
+
+    /**
+     * @return moving average of the time in nanoseconds required by
+     *         PAGE_WRITER to write a page
+     */
+    public long getWriteLatency() {
+        return _writeLatency;
+    }
+
+    /**
+     * @return moving average of the time in nanoseconds required to read a
+     *         page
+     */
+    long getReadLatency() {
+        return _readLatency;
+    }
+
+    /**
+     * Compute the number of pages to read ahead of a sequential scan. Enough
+     * pages are requested to cover the latency of one page read at the rate
+     * the scan is consuming pages, with a minimum of two.
+     * 
+     * @param pageInterval
+     *            the average time in nanoseconds the scan spends on each page
+     * @return the number of pages, or zero if read-ahead is disabled
+     */
+    int readAheadWindow(final long pageInterval) {
+        final int limit = Math.min(_readAheadLimit, _bufferCount / READ_AHEAD_BUFFER_RATIO);
+        if (limit < 2) {
+            return 0;
+        }
+        final long latency = _readLatency;
+        final long window = pageInterval <= 0 ? limit : latency / pageInterval + 1;
+        return (int) Math.max(2, Math.min(limit, window));
+    }
+
+    /**
+     * Request asynchronous loading of a sequence of sibling data pages. The
+     * PAGE_READER thread loads the specified page and follows right sibling
+     * pointers until <code>count</code> pages have been visited. Pages
+     * already in the pool are skipped. The request is dropped if too many
+     * requests are already pending.
+     * 
+     * @param volume
+     * @param page
+     *            address of the first page
+     * @param count
+     *            number of pages
+     * @return <code>true</code> if the request was queued
+     */
+    boolean readAhead(final Volume volume, final long page, final int count) {
+        if (_closed.get() || !_readAheadQueue.offer(new ReadAheadRequest(volume, page, count))) {
+            return false;
+        }
+        final PageReader reader = _reader;
+        if (reader != null) {
+            reader.kick();
+        }
+        return true;
+    }
+
+    private void readAhead(final ReadAheadRequest request) {
+        long page = request._page;
+        for (int count = 0; count < request._count && page > 0 && !_closed.get(); count++) {
+            final boolean resident = isResident(request._volume, page);
+            final Buffer buffer;
+            try {
+                buffer = get(request._volume, page, false, true, 0, true);
+            } catch (final PersistitException e) {
+                //
+                // The page is claimed by another thread, or the volume has
+                // been closed. Abandon the rest of this request.
+                //
+                return;
+            }
+            try {
+                if (!buffer.isDataPage()) {
+                    return;
+                }
+                page = buffer.getRightSibling();
+            } finally {
+                buffer.release();
+            }
+            if (!resident) {
+                _readAheadCounter.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @param vol
+     * @param page
+     * @return <code>true</code> if the page appears to be in the pool. This is
+     *         determined without locking and may be stale.
+     */
+    private boolean isResident(final Volume vol, final long page) {
+        Buffer buffer = _hashTable.get(hashIndex(vol, page));
+        for (int steps = 0; buffer != null && steps < MAXIMUM_UNLOCKED_SEARCH; steps++) {
+            if (buffer.getPageAddress() == page && buffer.getVolume() == vol) {
+                return true;
+            }
+            buffer = buffer.getNext();
+        }
+        return false;
+    }
+
+    private void recordReadLatency(final long elapsed) {
+        final long latency = _readLatency;
+        _readLatency = latency == 0 ? elapsed : (latency * 7 + elapsed) / 8;
+    }
+
+    /**
+     * @return the count of buffers in the protected set of the
+     *         {@link ReplacementPolicy#TWO_QUEUE} policy
+     */
+    int getHotBufferCount() {
+        return _hotBufferCount.get();
+    }
+
+    /**
+     * @return <code>true</code> if {@link Exchange} may read pages in this
+     *         pool without claiming them
+     */
+    public boolean isOptimisticReadsEnabled() {
+        return _optimisticReadsEnabled;
+    }
+
+    /**
+     * Control whether {@link Exchange} may read pages in this pool without
+     * claiming them. See {@link Configuration#setOptimisticReadsEnabled}.
+     * 
+     * @param enabled
+     */
+    public void setOptimisticReadsEnabled(final boolean enabled) {
+        _optimisticReadsEnabled = enabled;
+    }
+
     /**
      * Resets the get and hit counters to zero.
      */
@@ -480,6 +1307,13 @@ public class BufferPool {
         _hitCounter.set(0);
         _newCounter.set(0);
         _evictCounter.set(0);
+        _optimisticReadCounter.reset();
+        _optimisticRetryCounter.reset();
+        _readAheadCounter.set(0);
+        final OffHeapPageCache offHeapCache = _offHeapCache;
+        if (offHeapCache != null) {
+            offHeapCache.resetCounters();
+        }
     }
 
     int getMaxKeys() {
@@ -498,6 +1332,14 @@ public class BufferPool {
         _newCounter.incrementAndGet();
     }
 
+    void bumpOptimisticReadCounter() {
+        _optimisticReadCounter.increment();
+    }
+
+    void bumpOptimisticRetryCounter() {
+        _optimisticRetryCounter.increment();
+    }
+
     void bumpWriteCounter() {
         _writeCounter.incrementAndGet();
     }
@@ -544,15 +1386,31 @@ public class BufferPool {
      */
     boolean invalidate(final Volume volume) throws PersistitException {
         final float ratio = (float) volume.getStorage().getNextAvailablePage() / (float) _bufferCount;
+        final boolean result;
         if (ratio < SMALL_VOLUME_RATIO) {
-            return invalidateSmallVolume(volume, false);
+            result = invalidateSmallVolume(volume, false);
         } else {
-            return invalidateLargeVolume(volume, false);
+            result = invalidateLargeVolume(volume, false);
         }
+        if (result) {
+            invalidateOffHeap(volume);
+        }
+        return result;
     }
 
     boolean evict(final Volume volume) throws PersistitException {
-        return invalidateSmallVolume(volume, true);
+        final boolean result = invalidateSmallVolume(volume, true);
+        if (result) {
+            invalidateOffHeap(volume);
+        }
+        return result;
+    }
+
+    private void invalidateOffHeap(final Volume volume) {
+        final OffHeapPageCache offHeapCache = _offHeapCache;
+        if (offHeapCache != null) {
+            offHeapCache.invalidate(volume);
+        }
     }
 
     boolean invalidateSmallVolume(final Volume volume, final boolean mustWrite) throws PersistitException {
@@ -562,7 +1420,7 @@ public class BufferPool {
             final int hashIndex = hashIndex(volume, page);
             _hashLocks[hashIndex % HASH_LOCKS].lock();
             try {
-                for (Buffer buffer = _hashTable[hashIndex]; buffer != null; buffer = buffer.getNext()) {
+                for (Buffer buffer = _hashTable.get(hashIndex); buffer != null; buffer = buffer.getNext()) {
                     if ((buffer.getVolume() == volume || volume == null) && !buffer.isFixed() && buffer.isValid()) {
                         if (buffer.claim(true, 0)) {
                             // re-check after claim
@@ -579,13 +1437,8 @@ public class BufferPool {
                             } finally {
                                 buffer.release();
                             }
-                            if (invalidated) {
-                                final int q = buffer.getIndex() / 64;
-                                final int p = buffer.getIndex() % 64;
-                                final long bits = _availablePagesBits.get(q);
-                                if (_availablePagesBits.compareAndSet(q, bits, bits | (1L << p))) {
-                                    markedAvailable++;
-                                }
+                            if (invalidated && markAvailable(buffer)) {
+                                markedAvailable++;
                             }
                         } else {
                             result = false;
@@ -606,8 +1459,9 @@ public class BufferPool {
     boolean invalidateLargeVolume(final Volume volume, final boolean mustWrite) throws PersistitException {
         boolean result = true;
         int markedAvailable = 0;
-        for (int index = 0; index < _bufferCount; index++) {
-            final Buffer buffer = _buffers[index];
+        final Buffer[] buffers = _buffers;
+        for (int index = 0; index < buffers.length; index++) {
+            final Buffer buffer = buffers[index];
             if ((buffer.getVolume() == volume || volume == null) && !buffer.isFixed() && buffer.isValid()) {
                 if (buffer.claim(true, 0)) {
                     // re-check after claim
@@ -623,13 +1477,8 @@ public class BufferPool {
                     } finally {
                         buffer.release();
                     }
-                    if (invalidated) {
-                        final int q = buffer.getIndex() / 64;
-                        final int p = buffer.getIndex() % 64;
-                        final long bits = _availablePagesBits.get(q);
-                        if (_availablePagesBits.compareAndSet(q, bits, bits | (1L << p))) {
-                            markedAvailable++;
-                        }
+                    if (invalidated && markAvailable(buffer)) {
+                        markedAvailable++;
                     }
                 } else {
                     result = false;
@@ -642,6 +1491,24 @@ public class BufferPool {
         return result;
     }
 
+    /**
+     * Set the bit indicating that an invalid buffer may be allocated without
+     * evicting a page.
+     * 
+     * @param buffer
+     * @return <code>true</code> if the bit was set
+     */
+    private boolean markAvailable(final Buffer buffer) {
+        final AtomicLongArray availablePagesBits = _availablePagesBits;
+        final int q = buffer.getIndex() / 64;
+        final int p = buffer.getIndex() % 64;
+        if (q >= availablePagesBits.length()) {
+            return false;
+        }
+        final long bits = availablePagesBits.get(q);
+        return availablePagesBits.compareAndSet(q, bits, bits | (1L << p));
+    }
+
     private void invalidate(final Buffer buffer) {
         Debug.$assert0.t(buffer.isValid() && buffer.isOwnedAsWriterByMe());
 
@@ -665,6 +1532,21 @@ public class BufferPool {
     }
 
     private boolean detach(final Buffer buffer) {
+        return detach(buffer, false);
+    }
+
+    /**
+     * Remove a buffer from the hash table.
+     * 
+     * @param buffer
+     *            the buffer, which must be claimed by this thread
+     * @param retain
+     *            <code>true</code> if the buffer is clean and its page image
+     *            should be retained in the off-heap cache, if there is one
+     * @return <code>true</code> if the buffer was detached, or
+     *         <code>false</code> if its hash lock was unavailable
+     */
+    private boolean detach(final Buffer buffer, final boolean retain) {
         final int hash = hashIndex(buffer.getVolume(), buffer.getPageAddress());
         if (!_hashLocks[hash % HASH_LOCKS].tryLock()) {
             return false;
@@ -673,10 +1555,10 @@ public class BufferPool {
 
             // Detach this buffer from the hash table.
             //
-            if (_hashTable[hash] == buffer) {
-                _hashTable[hash] = buffer.getNext();
+            if (_hashTable.get(hash) == buffer) {
+                _hashTable.set(hash, buffer.getNext());
             } else {
-                Buffer prev = _hashTable[hash];
+                Buffer prev = _hashTable.get(hash);
                 for (Buffer next = prev.getNext();; next = prev.getNext()) {
                     assert next != null : "Attempting to detach an unattached Buffer";
                     if (next == buffer) {
@@ -686,12 +1568,69 @@ public class BufferPool {
                     prev = next;
                 }
             }
+            buffer.getVolume().adjustResidentPageCount(-1);
+            final OffHeapPageCache offHeapCache = _offHeapCache;
+            if (retain && offHeapCache != null && !buffer.isScan()) {
+                Debug.$assert0.t(!buffer.isDirty());
+                offHeapCache.store(buffer.getVolume(), buffer.getPageAddress(), buffer.getBytes());
+            }
         } finally {
             _hashLocks[hash % HASH_LOCKS].unlock();
         }
         return true;
     }
 
+    /**
+     * <p>
+     * Look up and claim a resident page without acquiring its hash lock. This
+     * is the path taken by nearly every {@link #get} call, so it is written to
+     * avoid any shared write other than the claim itself.
+     * </p>
+     * <p>
+     * Chains are only modified under the hash lock, and a new Buffer is linked
+     * in only after its next pointer has been set, so a lock-free traversal
+     * always sees a well-formed list. However, a Buffer may be detached and
+     * reused for a different page while this method is examining it, which can
+     * lead the traversal into a different chain or cause it to miss the page.
+     * Therefore a match is confirmed only after the claim has been acquired:
+     * the claim excludes reassignment, and the Buffer must still be valid and
+     * hold the requested page. Any failure, including a claim that is not
+     * immediately available, returns <code>null</code> and the caller falls
+     * back to the locked path, which is authoritative.
+     * </p>
+     * 
+     * @param vol
+     *            The Volume
+     * @param page
+     *            The address of the page
+     * @param hash
+     *            the hash index of the page
+     * @param writer
+     *            <i>true</i> if a write lock is required.
+     * @return the claimed Buffer, or <code>null</code> if the page could not
+     *         be found and claimed without locking
+     * @throws PersistitInterruptedException
+     */
+    private Buffer find(final Volume vol, final long page, final int hash, final boolean writer)
+            throws PersistitInterruptedException {
+        Buffer buffer = _hashTable.get(hash);
+        for (int steps = 0; buffer != null && steps < MAXIMUM_UNLOCKED_SEARCH; steps++) {
+            if (buffer.getPageAddress() == page && buffer.getVolume() == vol) {
+                if (!buffer.claim(writer, 0)) {
+                    return null;
+                }
+                if (buffer.isValid() && buffer.getPageAddress() == page && buffer.getVolume() == vol) {
+                    assert !buffer.isOwnedAsWriterByOther();
+                    return buffer;
+                }
+                buffer.release();
+                return null;
+            }
+            buffer = buffer.getNext();
+        }
+        return null;
+    }
+
     /**
      * Find or load a page given its Volume and address. The returned page has a
      * reader or a writer lock, depending on whether the writer parameter is
@@ -740,14 +1679,54 @@ public class BufferPool {
      */
     Buffer get(final Volume vol, final long page, final boolean writer, final boolean wantRead, final long timeout)
             throws PersistitException {
+        return get(vol, page, writer, wantRead, timeout, false);
+    }
+
+    /**
+     * Find or load a page given its Volume and address. The returned page has a
+     * reader or a writer lock, depending on whether the writer parameter is
+     * true on entry.
+     * 
+     * @param vol
+     *            The Volume
+     * @param page
+     *            The address of the page
+     * @param writer
+     *            <i>true</i> if a write lock is required.
+     * @param wantRead
+     *            <i>true</i> if the caller wants the page read from disk.
+     *            <i>false</i> to allocate a new blank page.)
+     * @param timeout
+     *            maximum time to wait for the page to become available before
+     *            throwing an InUseException
+     * @param scan
+     *            <i>true</i> if the caller is scanning many pages that are
+     *            unlikely to be used again soon. A page loaded by a scan is
+     *            replaced first unless another operation uses it.
+     * @return Buffer The Buffer describing the buffer containing the page.
+     * @throws InUseException
+     *             if the specific lock could not be acquired within the
+     *             specified timeout
+     */
+    Buffer get(final Volume vol, final long page, final boolean writer, final boolean wantRead, final long timeout,
+            final boolean scan) throws PersistitException {
         final int hash = hashIndex(vol, page);
-        Buffer buffer = null;
+        Buffer buffer = find(vol, page, hash, writer);
+        if (buffer != null) {
+            vol.getStatistics().bumpGetCounter();
+            bumpHitCounter();
+            if (!scan && buffer.isScan()) {
+                buffer.clearScan();
+            }
+            return buffer;
+        }
 
         for (;;) {
             boolean mustClaim = false;
+            boolean cached = false;
             _hashLocks[hash % HASH_LOCKS].lock();
             try {
-                buffer = _hashTable[hash];
+                buffer = _hashTable.get(hash);
                 //
                 // Search for the page
                 //
@@ -760,6 +1739,9 @@ public class BufferPool {
                         if (buffer.claim(writer, 0)) {
                             vol.getStatistics().bumpGetCounter();
                             bumpHitCounter();
+                            if (!scan && buffer.isScan()) {
+                                buffer.clearScan();
+                            }
                             assert !buffer.isOwnedAsWriterByOther();
                             return buffer;
                         } else {
@@ -775,27 +1757,17 @@ public class BufferPool {
                     // Page not found. Allocate an available buffer and read
                     // in the page from the Volume.
                     //
-                    buffer = allocBuffer();
-                    Debug.$assert1.t(!buffer.isDirty());
-                    Debug.$assert0.t(buffer != _hashTable[hash]);
-                    Debug.$assert0.t(buffer.getNext() != buffer);
-
-                    buffer.setPageAddressAndVolume(page, vol);
-                    buffer.setNext(_hashTable[hash]);
-                    _hashTable[hash] = buffer;
+                    buffer = assign(vol, page, hash, scan);
                     //
-                    // It's not really valid yet, but it does have a writer
-                    // claim on it so no other Thread can access it. In the
-                    // meantime, any other Thread seeking access to the same
-                    // page will find it.
+                    // Take the page from the off-heap cache, if present,
+                    // while still holding the hash lock so that a concurrent
+                    // eviction of the same page cannot interleave. A new page
+                    // simply discards any cached image.
                     //
-                    buffer.setValid();
-                    if (vol.isTemporary() || vol.isLockVolume()) {
-                        buffer.setTemporary();
-                    } else {
-                        buffer.clearTemporary();
+                    final OffHeapPageCache offHeapCache = _offHeapCache;
+                    if (offHeapCache != null) {
+                        cached = offHeapCache.take(vol, page, wantRead ? buffer.getBytes() : null) && wantRead;
                     }
-                    Debug.$assert0.t(buffer.getNext() != buffer);
                 }
             } finally {
                 _hashLocks[hash % HASH_LOCKS].unlock();
@@ -828,6 +1800,9 @@ public class BufferPool {
                         //
                         vol.getStatistics().bumpGetCounter();
                         bumpHitCounter();
+                        if (!scan && buffer.isScan()) {
+                            buffer.clearScan();
+                        }
                         assert !buffer.isOwnedAsWriterByOther();
                         return buffer;
                     } else {
@@ -858,9 +1833,16 @@ public class BufferPool {
                     try {
                         Debug.$assert0.t(buffer.getPageAddress() == page && buffer.getVolume() == vol
                                 && hashIndex(buffer.getVolume(), buffer.getPageAddress()) == hash);
-                        buffer.load(vol, page);
+                        if (cached) {
+                            buffer.load();
+                        } else {
+                            final long start = System.nanoTime();
+                            buffer.load(vol, page);
+                            recordReadLatency(System.nanoTime() - start);
+                        }
                         loaded = true;
                         vol.getStatistics().bumpGetCounter();
+                        vol.getStatistics().bumpMissCounter();
                         bumpMissCounter();
                     } finally {
                         if (!loaded) {
@@ -881,6 +1863,47 @@ public class BufferPool {
         }
     }
 
+    /**
+     * Allocate a buffer for a page that is not in the pool and link it into
+     * the hash table. The caller must hold the hash lock. The returned buffer
+     * is marked valid and has a writer claim, so that any other Thread seeking
+     * the same page waits until the caller has loaded it.
+     * 
+     * @param vol
+     * @param page
+     * @param hash
+     * @param scan
+     * @return the claimed Buffer
+     * @throws PersistitException
+     */
+    private Buffer assign(final Volume vol, final long page, final int hash, final boolean scan)
+            throws PersistitException {
+        final Buffer buffer = allocBuffer(hash);
+        Debug.$assert1.t(!buffer.isDirty());
+        Debug.$assert0.t(buffer != _hashTable.get(hash));
+        Debug.$assert0.t(buffer.getNext() != buffer);
+
+        buffer.setPageAddressAndVolume(page, vol);
+        loaded(buffer, scan);
+        buffer.setNext(_hashTable.get(hash));
+        _hashTable.set(hash, buffer);
+        vol.adjustResidentPageCount(1);
+        //
+        // It's not really valid yet, but it does have a writer
+        // claim on it so no other Thread can access it. In the
+        // meantime, any other Thread seeking access to the same
+        // page will find it.
+        //
+        buffer.setValid();
+        if (vol.isTemporary() || vol.isLockVolume()) {
+            buffer.setTemporary();
+        } else {
+            buffer.clearTemporary();
+        }
+        Debug.$assert0.t(buffer.getNext() != buffer);
+        return buffer;
+    }
+
     /**
      * Returns a copy of Buffer. The returned buffer is newly created, is not a
      * member of the buffer pool, and is not claimed. There is no guarantee that
@@ -905,7 +1928,7 @@ public class BufferPool {
         Buffer buffer = null;
         _hashLocks[hash % HASH_LOCKS].lock();
         try {
-            buffer = _hashTable[hash];
+            buffer = _hashTable.get(hash);
             //
             // Search for the page
             //
@@ -937,18 +1960,57 @@ public class BufferPool {
     }
 
     public Buffer getBufferCopy(final int index) throws IllegalArgumentException {
-        if (index < 0 || index >= _bufferCount) {
+        final Buffer[] buffers = _buffers;
+        if (index < 0 || index >= buffers.length) {
             throw new IllegalArgumentException("Index " + index + " is out of range in " + this);
         }
-        return new Buffer(_buffers[index]);
+        return new Buffer(buffers[index]);
+    }
+
+    /**
+     * Reset the replacement state of a buffer that has just been assigned to
+     * a page.
+     * 
+     * @param buffer
+     * @param scan
+     *            <code>true</code> if the page is being loaded by a scan
+     */
+    private void loaded(final Buffer buffer, final boolean scan) {
+        demote(buffer);
+        buffer.clearTouched();
+        buffer.clearPinned();
+        buffer.clearAccessCount();
+        if (scan) {
+            buffer.setScan();
+            buffer.clearNew();
+        } else {
+            buffer.clearScan();
+            buffer.setNew();
+        }
+    }
+
+    /**
+     * Remove a buffer from the protected set of the
+     * {@link ReplacementPolicy#TWO_QUEUE} policy.
+     * 
+     * @param buffer
+     */
+    private void demote(final Buffer buffer) {
+        if (buffer.clearHot()) {
+            _hotBufferCount.decrementAndGet();
+        }
     }
 
     /**
      * Returns an available buffer. The replacement policy is to return a buffer
      * that's already been marked invalid, if available. Otherwise use the Clock
-     * algorithm to choose a page for replacement that is approximately the
-     * least-recently-used page.
+     * algorithm, as refined by the pool's {@link ReplacementPolicy}, to choose
+     * a page for replacement. The search starts in the partition selected by
+     * the page's hash index and proceeds to other partitions only if that
+     * partition has no replaceable buffer.
      * 
+     * @param hash
+     *            hash index of the page to be loaded
      * @return Buffer An available buffer, or <i>null</i> if no buffer is
      *         currently available. The buffer has a writer claim.
      * @throws PersistitException
@@ -956,31 +2018,37 @@ public class BufferPool {
      *             if there is no available buffer.
      */
 
-    private Buffer allocBuffer() throws PersistitException {
+    private Buffer allocBuffer(final int hash) throws PersistitException {
+        final Buffer[] buffers = _buffers;
+        final AtomicLongArray availablePagesBits = _availablePagesBits;
+        final AtomicInteger[] clocks = _clocks;
+        final int count = Math.min(buffers.length, availablePagesBits.length() * 64);
+        final int words = (count + 63) / 64;
+        final int partitions = Math.min(clocks.length, words);
+        final int partition = hash % partitions;
         //
-        // Start by searching for an invalid page. It's preferable
-        // since no valid page will need to be evicted.
+        // Start by searching for an invalid page, beginning with this
+        // partition's portion of the bit map. It's preferable since no valid
+        // page will need to be evicted.
         //
         if (_availablePages.get()) {
-            final int start = (_clock.get() / 64) * 64;
-            for (int q = start;;) {
-                q += 64;
-                if (q >= _bufferCount) {
-                    q = 0;
-                }
-                long bits = _availablePagesBits.get(q / 64);
+            final int start = partitionStart(partition, partitions, words);
+            for (int w = start;;) {
+                final int q = w * 64;
+                long bits = availablePagesBits.get(w);
                 if (bits != 0) {
-                    for (int p = 0; p < 64; p++) {
+                    for (int p = 0; p < 64 && q + p < count; p++) {
                         if ((bits & (1L << p)) != 0) {
-                            final Buffer buffer = _buffers[q + p];
+                            final Buffer buffer = buffers[q + p];
                             //
                             // Note: need to verify that there are no claims -
-                            // including those of the current thread.
+                            // including those of the current thread. A fixed
+                            // buffer may have been retired by a resize.
                             //
                             if ((buffer.getStatus() & SharedResource.CLAIMED_MASK) == 0 && buffer.claim(true, 0)) {
-                                if (!buffer.isValid()) {
-                                    bits = _availablePagesBits.get(q / 64);
-                                    if (_availablePagesBits.compareAndSet(q / 64, bits, bits & ~(1L << p))) {
+                                if (!buffer.isValid() && !buffer.isFixed()) {
+                                    bits = availablePagesBits.get(w);
+                                    if (availablePagesBits.compareAndSet(w, bits, bits & ~(1L << p))) {
                                         buffer.clearDirty();
                                         return buffer;
                                     }
@@ -990,26 +2058,69 @@ public class BufferPool {
                         }
                     }
                 }
-                if (q == start) {
+                w = (w + 1) % words;
+                if (w == start) {
                     break;
                 }
+            }
+            _availablePages.set(false);
+        }
+        //
+        // Look for a page to evict.
+        //
+        for (int attempt = 0; attempt < partitions; attempt++) {
+            final int p = (partition + attempt) % partitions;
+            final int from = partitionStart(p, partitions, words) * 64;
+            final int to = Math.min(partitionStart(p + 1, partitions, words) * 64, count);
+            final Buffer buffer = evictBuffer(buffers, from, to, clocks[p]);
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        throw new IllegalStateException("No available Buffers");
+    }
 
+    /**
+     * Use the clock algorithm to find a buffer to replace within one
+     * partition.
+     * 
+     * @param buffers
+     *            the buffer array
+     * @param from
+     *            index of the first buffer in the partition
+     * @param to
+     *            index following the last buffer in the partition
+     * @param clock
+     *            the partition's clock hand
+     * @return A buffer with a writer claim, or <code>null</code> if none
+     *         could be found after several revolutions of the clock.
+     * @throws PersistitException
+     */
+    private Buffer evictBuffer(final Buffer[] buffers, final int from, final int to, final AtomicInteger clock)
+            throws PersistitException {
+        final int limit = (to - from) * 4;
+        for (int retry = 0; retry < limit;) {
+            final int hand = clock.get();
+            if (hand < from || hand >= to) {
+                //
+                // The pool has been resized or repartitioned
+                //
+                clock.compareAndSet(hand, from);
+                continue;
+            }
+            if (!clock.compareAndSet(hand, hand + 1 < to ? hand + 1 : from)) {
+                continue;
             }
-            _availablePages.set(false);
-        }
-        //
-        // Look for a page to evict.
-        //
-        for (int retry = 0; retry < _bufferCount * 2;) {
-            final int clock = _clock.get();
-            assert clock < _bufferCount;
-            if (!_clock.compareAndSet(clock, (clock + 1) % _bufferCount)) {
+            final Buffer buffer = buffers[hand];
+            //
+            // Reserved pages are skipped during the first half of the search
+            // only, so that reservations cannot prevent allocation entirely.
+            //
+            if (buffer.isValid() && retry < limit / 2 && isReserved(buffer)) {
+                retry++;
                 continue;
             }
-            final Buffer buffer = _buffers[clock];
-            if (buffer.isTouched()) {
-                buffer.clearTouched();
-            } else {
+            if (!buffer.isValid() || _replacementPolicy.isReplaceable(this, buffer)) {
                 //
                 // Note: need to verify that there are no claims - including
                 // those of the current thread.
@@ -1028,7 +2139,7 @@ public class BufferPool {
                         // this context
                         try {
                             buffer.writePage(false);
-                            if (detach(buffer)) {
+                            if (detach(buffer, !buffer.isDirty())) {
                                 buffer.clearValid();
                                 _forcedWriteCounter.incrementAndGet();
                                 _evictCounter.incrementAndGet();
@@ -1043,7 +2154,7 @@ public class BufferPool {
                             }
                         }
                     } else {
-                        if (buffer.isValid() && detach(buffer)) {
+                        if (buffer.isValid() && detach(buffer, true)) {
                             buffer.clearValid();
                             _evictCounter.incrementAndGet();
                             _persistit.getIOMeter().chargeEvictPageFromPool(buffer.getVolume(),
@@ -1059,7 +2170,65 @@ public class BufferPool {
             }
             retry++;
         }
-        throw new IllegalStateException("No available Buffers");
+        return null;
+    }
+
+    /**
+     * @param buffer
+     * @return <code>true</code> if the buffer holds a pinned index page, or a
+     *         page of a Volume that does not have more pages resident than its
+     *         buffer reservation
+     */
+    private boolean isReserved(final Buffer buffer) {
+        if (buffer.isPinned()) {
+            return true;
+        }
+        final Volume volume = buffer.getVolume();
+        return volume != null && volume.isWithinReservation();
+    }
+
+    /**
+     * Release the pinned index pages of the specified Volume. See
+     * {@link Tree#setIndexPinned(boolean)}.
+     * 
+     * @param volume
+     */
+    void unpin(final Volume volume) {
+        final Buffer[] buffers = _buffers;
+        for (int index = 0; index < buffers.length; index++) {
+            final Buffer buffer = buffers[index];
+            if (buffer.isPinned() && buffer.getVolume() == volume) {
+                buffer.clearPinned();
+            }
+        }
+    }
+
+    /**
+     * Partitions are ranges of whole 64-bit words of the available page bit
+     * map.
+     * 
+     * @param partition
+     * @param partitions
+     *            number of partitions
+     * @param words
+     *            number of words in the bit map
+     * @return index of the first bit map word in the partition
+     */
+    static int partitionStart(final int partition, final int partitions, final int words) {
+        return (int) ((long) partition * words / partitions);
+    }
+
+    /**
+     * @param index
+     *            buffer index
+     * @param partitions
+     *            number of partitions
+     * @param words
+     *            number of words in the bit map
+     * @return the partition containing the buffer at the specified index
+     */
+    static int partitionOf(final int index, final int partitions, final int words) {
+        return (int) (((long) (index / 64 + 1) * partitions - 1) / words);
     }
 
     enum Result {
@@ -1114,26 +2283,93 @@ public class BufferPool {
         final int count = selectDirtyBuffers(priorities, selectedBuffers);
         if (count > 0) {
             Arrays.sort(selectedBuffers, 0, count);
-            for (int index = 0; index < count; index++) {
-                final BufferHolder holder = selectedBuffers[index];
+            final WriteBatch batch = new WriteBatch(selectedBuffers, count);
+            _writeQueueDepth.addAndGet(count);
+            _writeBatch = batch;
+            boolean written = false;
+            try {
+                for (int index = 1; index < _writers.length; index++) {
+                    _writers[index].kick();
+                }
+                batch.write(0);
+                batch.awaitCompletion();
+                written = true;
+            } finally {
+                /*
+                 * The batch refers to the holders in selectedBuffers, which
+                 * the next cycle overwrites. Don't return while a helper
+                 * writer may still be using them.
+                 */
+                if (!written) {
+                    batch.abort();
+                }
+                _writeBatch = null;
+            }
+        }
+    }
+
+    /**
+     * Write a run of adjacent pages selected by
+     * {@link #selectDirtyBuffers(int[], BufferHolder[])}. Pages that cannot
+     * be claimed immediately, or that have changed since they were selected,
+     * are skipped.
+     * 
+     * @param holders
+     *            the selected buffers, sorted by volume and page address
+     * @param from
+     *            index of the first holder in the run
+     * @param to
+     *            index after the last holder in the run
+     * @param claimed
+     *            array to receive the claimed Buffers
+     * @throws PersistitException
+     */
+    private void writeRun(final BufferHolder[] holders, final int from, final int to, final Buffer[] claimed)
+            throws PersistitException {
+        int count = 0;
+        try {
+            for (int index = from; index < to; index++) {
+                final BufferHolder holder = holders[index];
                 final Buffer buffer = holder._buffer;
                 if (buffer.claim(true, 0)) {
-                    try {
-                        if (holder.matches(buffer) && buffer.isDirty() && buffer.isValid()) {
-                            buffer.writePage();
-                        }
-                    } finally {
+                    if (holder.matches(buffer) && buffer.isDirty() && buffer.isValid()) {
+                        claimed[count++] = buffer;
+                    } else {
                         buffer.release();
                     }
                 }
             }
+            if (count > 0) {
+                _persistit.checkFatal();
+                final long start = System.nanoTime();
+                final boolean prune = _persistit.getJournalManager().isWritePagePruningEnabled();
+                for (int index = 0; index < count; index++) {
+                    claimed[index].prepareWritePage(prune);
+                }
+                claimed[0].getVolume().getStorage().writePages(claimed, count);
+                for (int index = 0; index < count; index++) {
+                    claimed[index].writePageCompleted();
+                }
+                recordWriteLatency((System.nanoTime() - start) / count);
+            }
+        } finally {
+            for (int index = 0; index < count; index++) {
+                claimed[index].release();
+                claimed[index] = null;
+            }
+            _writeQueueDepth.addAndGet(from - to);
         }
     }
 
+    private void recordWriteLatency(final long elapsed) {
+        final long latency = _writeLatency;
+        _writeLatency = latency == 0 ? elapsed : (latency * 7 + elapsed) / 8;
+    }
+
     int selectDirtyBuffers(final int[] priorities, final BufferHolder[] holders) throws PersistitException {
         Debug.suspend();
         int count = 0;
-        final int clock = _clock.get();
+        final int clock = _clocks[0].get();
 
         final long checkpointTimestamp = _persistit.getCurrentCheckpoint().getTimestamp();
         final long currentTimestamp = _persistit.getCurrentTimestamp();
@@ -1142,8 +2378,9 @@ public class BufferPool {
         final long flushTimestamp = _flushTimestamp.get();
 
         boolean flushed = true;
-        for (int index = clock; index < clock + _bufferCount; index++) {
-            final Buffer buffer = _buffers[index % _bufferCount];
+        final Buffer[] buffers = _buffers;
+        for (int index = clock; index < clock + buffers.length; index++) {
+            final Buffer buffer = buffers[index % buffers.length];
             long timestamp = buffer.getTimestamp();
             /*
              * The following is subtle timing dance. If the buffer claim is
@@ -1243,18 +2480,24 @@ public class BufferPool {
             return 0;
         }
         //
-        // compute "distance" between this buffer and the clock. A larger
-        // distance results in lower priority.
+        // compute "distance" between this buffer and the clock of its
+        // partition. A larger distance results in lower priority.
         //
-        int distance = (buffer.getIndex() - _clock.get() + _bufferCount) % _bufferCount;
+        final AtomicInteger[] clocks = _clocks;
+        final int words = (_bufferCount + 63) / 64;
+        final int partitions = Math.min(clocks.length, words);
+        final int partition = Math.min(partitionOf(buffer.getIndex(), partitions, words), partitions - 1);
+        final int bufferCount = Math.max(1, Math.min(partitionStart(partition + 1, partitions, words) * 64,
+                _bufferCount) - partitionStart(partition, partitions, words) * 64);
+        int distance = ((buffer.getIndex() - clocks[partition].get()) % bufferCount + bufferCount) % bufferCount;
         int age = 0;
         //
         // If this buffer has been touched, then it won't be evicted for at
-        // least another _bufferCount cycles, and its distance is therefore
-        // increased.
+        // least another full cycle of the partition's clock, and its distance
+        // is therefore increased.
         //
         if ((status & Buffer.TOUCHED_MASK) != 0) {
-            distance += _bufferCount;
+            distance += bufferCount;
         }
 
         if (!buffer.isTemporary()) {
@@ -1276,14 +2519,14 @@ public class BufferPool {
             // Temporary buffer - don't write it at all until the clock goes
             // through at least a full cycle.
             //
-            if (distance > _bufferCount) {
+            if (distance > bufferCount) {
                 return 0;
             }
         }
         //
         // Bias to a large positive integer (magnitude doesn't matter)
         //
-        return _bufferCount * 2 - distance + age;
+        return bufferCount * 2 - distance + age;
     }
 
     static class BufferHolder implements Comparable<BufferHolder> {
@@ -1346,23 +2589,34 @@ public class BufferPool {
     }
 
     /**
-     * Implementation of PAGE_WRITER thread.
+     * Implementation of PAGE_WRITER thread. The writer having index 0 selects
+     * dirty buffers; every writer writes runs of the selected buffers.
      */
     class PageWriter extends IOTaskRunnable {
 
+        final int _index;
         int[] _priorities = new int[0];
         BufferHolder[] _selectedBuffers = new BufferHolder[0];
 
-        PageWriter() {
+        PageWriter(final int index) {
             super(BufferPool.this._persistit);
+            _index = index;
         }
 
         void start() {
-            start("PAGE_WRITER:" + _bufferSize, _writerPollInterval);
+            start(_index == 0 ? "PAGE_WRITER:" + _bufferSize : "PAGE_WRITER:" + _bufferSize + ":" + _index,
+                    _writerPollInterval);
         }
 
         @Override
         public void runTask() throws PersistitException {
+            if (_index > 0) {
+                final WriteBatch batch = _writeBatch;
+                if (batch != null) {
+                    batch.write(_index);
+                }
+                return;
+            }
             final int size = _pageWriterTrancheSize;
             if (size != _priorities.length) {
                 _priorities = new int[size];
@@ -1388,6 +2642,225 @@ public class BufferPool {
         }
     }
 
+    /**
+     * Buffers selected for writing on one PAGE_WRITER cycle. The selected
+     * buffers, sorted by volume and page address, are divided into a queue
+     * of runs for each volume, where each run holds up to
+     * {@value #MAXIMUM_WRITE_RUN} adjacent pages. Each writer starts with a
+     * different volume's queue and moves on to the others when it is empty.
+     */
+    private class WriteBatch {
+
+        final BufferHolder[] _holders;
+        /*
+         * Start index in _holders of each run, followed by the end index of
+         * the last run
+         */
+        final int[] _runs;
+        /*
+         * Index in _runs of the first run of each volume, followed by the
+         * total number of runs
+         */
+        final int[] _volumes;
+        final AtomicInteger[] _cursors;
+        final AtomicInteger _remaining;
+        volatile boolean _aborted;
+
+        WriteBatch(final BufferHolder[] holders, final int count) {
+            _holders = holders;
+            final int[] runs = new int[count + 1];
+            final int[] volumes = new int[count + 1];
+            int runCount = 0;
+            int volumeCount = 0;
+            for (int index = 0; index < count; index++) {
+                final BufferHolder holder = holders[index];
+                final boolean newVolume = index == 0 || holder.getVolumeId() != holders[index - 1].getVolumeId();
+                if (newVolume) {
+                    volumes[volumeCount++] = runCount;
+                }
+                if (newVolume || holder.getPage() != holders[index - 1].getPage() + 1
+                        || index - runs[runCount - 1] >= MAXIMUM_WRITE_RUN) {
+                    runs[runCount++] = index;
+                }
+            }
+            runs[runCount] = count;
+            volumes[volumeCount] = runCount;
+            _runs = runs;
+            _volumes = Arrays.copyOf(volumes, volumeCount + 1);
+            _cursors = new AtomicInteger[volumeCount];
+            for (int volume = 0; volume < volumeCount; volume++) {
+                _cursors[volume] = new AtomicInteger(_volumes[volume]);
+            }
+            _remaining = new AtomicInteger(runCount);
+        }
+
+        void write(final int writer) throws PersistitException {
+            final Buffer[] claimed = new Buffer[MAXIMUM_WRITE_RUN];
+            final int volumeCount = _cursors.length;
+            for (int step = 0; step < volumeCount; step++) {
+                final int volume = (writer + step) % volumeCount;
+                int run;
+                while ((run = _cursors[volume].getAndIncrement()) < _volumes[volume + 1]) {
+                    try {
+                        if (!_aborted) {
+                            writeRun(_holders, _runs[run], _runs[run + 1], claimed);
+                        } else {
+                            skipRun(run);
+                        }
+                    } finally {
+                        runDone();
+                    }
+                }
+            }
+        }
+
+        /*
+         * Account for a run that will not be written; writeRun does this
+         * for runs that are.
+         */
+        private void skipRun(final int run) {
+            _writeQueueDepth.addAndGet(_runs[run] - _runs[run + 1]);
+        }
+
+        private void runDone() {
+            if (_remaining.decrementAndGet() == 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Abandon the runs no writer has started and wait for the ones in
+         * progress to finish. Called when the PAGE_WRITER that built this
+         * batch fails or is interrupted.
+         */
+        void abort() {
+            _aborted = true;
+            for (int volume = 0; volume < _cursors.length; volume++) {
+                int run;
+                while ((run = _cursors[volume].getAndIncrement()) < _volumes[volume + 1]) {
+                    skipRun(run);
+                    runDone();
+                }
+            }
+            boolean interrupted = false;
+            synchronized (this) {
+                while (_remaining.get() > 0) {
+                    try {
+                        wait(RETRY_SLEEP_TIME);
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized void awaitCompletion() throws PersistitInterruptedException {
+            while (_remaining.get() > 0) {
+                try {
+                    wait(RETRY_SLEEP_TIME);
+                } catch (final InterruptedException e) {
+                    throw new PersistitInterruptedException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A page recorded in the buffer inventory
+     */
+    private static class PreloadPage {
+
+        final static Comparator<PreloadPage> ACCESS_COUNT_COMPARATOR = new Comparator<PreloadPage>() {
+
+            @Override
+            public int compare(final PreloadPage a, final PreloadPage b) {
+                return a._accessCount > b._accessCount ? -1 : a._accessCount < b._accessCount ? 1 : 0;
+            }
+        };
+
+        final static Comparator<PreloadPage> ADDRESS_COMPARATOR = new Comparator<PreloadPage>() {
+
+            @Override
+            public int compare(final PreloadPage a, final PreloadPage b) {
+                if (a._volume != b._volume) {
+                    return a._volume.getHandle() < b._volume.getHandle() ? -1 : 1;
+                }
+                return a._page < b._page ? -1 : a._page > b._page ? 1 : 0;
+            }
+        };
+
+        final Volume _volume;
+        final long _page;
+        final int _accessCount;
+
+        PreloadPage(final Volume volume, final long page, final int accessCount) {
+            _volume = volume;
+            _page = page;
+            _accessCount = accessCount;
+        }
+    }
+
+    /**
+     * A run of adjacent pages of one volume to be preloaded
+     */
+    private static class PreloadRun {
+        final Volume _volume;
+        final long _page;
+        int _count = 1;
+
+        PreloadRun(final Volume volume, final long page) {
+            _volume = volume;
+            _page = page;
+        }
+    }
+
+    /**
+     * A request to load a sequence of sibling pages ahead of a scan
+     */
+    private static class ReadAheadRequest {
+        final Volume _volume;
+        final long _page;
+        final int _count;
+
+        ReadAheadRequest(final Volume volume, final long page, final int count) {
+            _volume = volume;
+            _page = page;
+            _count = count;
+        }
+    }
+
+    /**
+     * Loads pages requested by {@link BufferPool#readAhead(Volume, long, int)}
+     */
+    class PageReader extends IOTaskRunnable {
+
+        PageReader() {
+            super(BufferPool.this._persistit);
+        }
+
+        void start() {
+            start("PAGE_READER:" + _bufferSize, READER_POLL_INTERVAL);
+        }
+
+        @Override
+        public void runTask() {
+            ReadAheadRequest request;
+            while (!_closed.get() && (request = _readAheadQueue.poll()) != null) {
+                readAhead(request);
+            }
+        }
+
+        @Override
+        protected boolean shouldStop() {
+            return _closed.get();
+        }
+    }
+
     @Override
     public String toString() {
         return "BufferPool[" + _bufferCount + "@" + _bufferSize + (_closed.get() ? ":closed" : "") + "]";
@@ -1399,10 +2872,11 @@ public class BufferPool {
      * @return toString value for buffer at index <code>i</code>.
      */
     String toString(final int i, final boolean detail) {
+        final Buffer[] buffers = _buffers;
         if (detail) {
-            return _buffers[i].toStringDetail();
+            return buffers[i].toStringDetail();
         } else {
-            return _buffers[i].toString();
+            return buffers[i].toString();
         }
     }
 
@@ -1453,9 +2927,10 @@ public class BufferPool {
             int total = 0;
             exchange.clear().append(_bufferSize).append(timestamp).append(Key.BEFORE);
             final Value value = exchange.getValue();
-            final int clockValueBefore = _clock.get();
-            for (int index = 0; index < _buffers.length; index++) {
-                final Buffer buffer = _buffers[index];
+            final int clockValueBefore = _clocks[0].get();
+            final Buffer[] buffers = _buffers;
+            for (int index = 0; index < buffers.length; index++) {
+                final Buffer buffer = buffers[index];
                 long page1 = -1, page2 = -1;
                 Volume volume1 = null, volume2 = null;
                 if (buffer != null && buffer.isValid()) {
@@ -1473,15 +2948,16 @@ public class BufferPool {
                         value.clear().setStreamMode(true);
                         value.put(volume1.getHandle());
                         value.put(page1);
+                        value.put(buffer.getAccessCount());
                         exchange.to(index).store();
                         total++;
                     }
                 }
             }
-            final int clockValueAfter = _clock.get();
+            final int clockValueAfter = _clocks[0].get();
             exchange.cut();
             value.clear().setStreamMode(true);
-            value.put(_bufferCount);
+            value.put(buffers.length);
             value.put(total);
             value.put(clockValueBefore);
             value.put(clockValueAfter);
@@ -1498,82 +2974,311 @@ public class BufferPool {
         }
     }
 
+    /**
+     * <p>
+     * Load the pages recorded in the most recent buffer inventory. Pages are
+     * ordered by the access counts sampled when the inventory was recorded
+     * and divided into up to {@value #PRELOAD_TRANCHES} groups. The group of
+     * most frequently accessed pages is loaded before this method returns;
+     * the remaining groups are loaded by a background thread so that the
+     * application can proceed while the pool warms up.
+     * </p>
+     * <p>
+     * Within each group the pages of each volume are read in address order
+     * by up to {@link Configuration#getBufferPreloadThreads()} threads, and
+     * runs of adjacent pages are read from the volume file with a single
+     * request.
+     * </p>
+     */
     void preloadBufferInventory() {
-        int count = 0;
-        int total = 0;
-        final long startTime = System.nanoTime();
-        long reportTime = startTime;
-
+        final List<PreloadPage> pages;
         try {
-            final JournalManager jman = _persistit.getJournalManager();
-            final Exchange exchange = getBufferInventoryExchange();
-            final Value value = exchange.getValue();
-            final List<PageNode> pageNodes = new ArrayList<PageNode>();
-            boolean foundInventory = false;
-            exchange.clear().append(_bufferSize).append(Key.AFTER);
-            while (exchange.previous()) {
-                if (exchange.getValue().isDefined()) {
-                    foundInventory = true;
-                    break;
+            pages = readBufferInventory();
+        } catch (final PersistitException e) {
+            _persistit.getLogBase().bufferInventoryException.log(e);
+            return;
+        }
+        if (pages.isEmpty()) {
+            return;
+        }
+        Collections.sort(pages, PreloadPage.ACCESS_COUNT_COMPARATOR);
+        /*
+         * If the buffer pool is now smaller, no need to load more pages than
+         * it can hold
+         */
+        final int total = Math.min(pages.size(), _bufferCount);
+        final int trancheSize = Math.max(MINIMUM_PRELOAD_TRANCHE_SIZE, (total + PRELOAD_TRANCHES - 1)
+                / PRELOAD_TRANCHES);
+        final List<List<PreloadRun>> tranches = new ArrayList<List<PreloadRun>>();
+        for (int from = 0; from < total; from += trancheSize) {
+            tranches.add(preloadRuns(pages.subList(from, Math.min(total, from + trancheSize))));
+        }
+
+        _preloadCounter.set(0);
+        _preloadTotal = total;
+        _preloadReportTime.set(System.nanoTime());
+        _preloading = true;
+        preload(tranches.get(0));
+        if (tranches.size() > 1 && !_preloadStopped) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int index = 1; index < tranches.size() && !_preloadStopped; index++) {
+                            preload(tranches.get(index));
+                        }
+                    } finally {
+                        preloadDone();
+                    }
                 }
+            }, "BUFFER_PRELOAD:" + _bufferSize);
+            thread.setDaemon(true);
+            _preloadThread = thread;
+            thread.start();
+        } else {
+            preloadDone();
+        }
+    }
+
+    /**
+     * Stop a background preload and wait for its threads to exit
+     */
+    void stopPreload() {
+        _preloadStopped = true;
+        final Thread thread = _preloadThread;
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            if (!foundInventory) {
-                return;
+            _preloadThread = null;
+        }
+    }
+
+    private List<PreloadPage> readBufferInventory() throws PersistitException {
+        final List<PreloadPage> pages = new ArrayList<PreloadPage>();
+        final JournalManager jman = _persistit.getJournalManager();
+        final Exchange exchange = getBufferInventoryExchange();
+        final Value value = exchange.getValue();
+        boolean foundInventory = false;
+        exchange.clear().append(_bufferSize).append(Key.AFTER);
+        while (exchange.previous()) {
+            if (exchange.getValue().isDefined()) {
+                foundInventory = true;
+                break;
             }
-            value.setStreamMode(true);
-            /* int bufferCount = */value.getInt();
-            total = value.getInt();
-            /* int clockValueBefore = */value.getInt();
-            /* int clockValueAfter = */value.getInt();
-            final long systemTime = value.getLong();
+        }
+        if (!foundInventory) {
+            return pages;
+        }
+        value.setStreamMode(true);
+        /* int bufferCount = */value.getInt();
+        /* int total = */value.getInt();
+        /* int clockValueBefore = */value.getInt();
+        /* int clockValueAfter = */value.getInt();
+        final long systemTime = value.getLong();
+
+        _persistit.getLogBase().bufferInventoryLoad.log(systemTime);
 
-            _persistit.getLogBase().bufferInventoryLoad.log(systemTime);
+        exchange.append(Key.BEFORE);
 
-            exchange.append(Key.BEFORE);
+        while (exchange.next()) {
+            value.setStreamMode(true);
+            final int volumeHandle = value.getInt();
+            final long pageAddress = value.getLong();
+            /*
+             * Inventories recorded by earlier versions have no access count
+             */
+            final int accessCount = value.hasMoreItems() ? value.getInt() : 0;
+            final Volume volume = jman.volumeForHandle(volumeHandle);
+            if (volume != null) {
+                pages.add(new PreloadPage(volume, pageAddress, accessCount));
+            }
+        }
+        return pages;
+    }
 
-            while (exchange.next()) {
-                value.setStreamMode(true);
-                final int volumeHandle = value.getInt();
-                final long pageAddress = value.getLong();
-                final PageNode pn = new PageNode(volumeHandle, pageAddress);
-                pageNodes.add(pn);
+    /**
+     * Sort a group of pages by volume and address and combine adjacent pages
+     * into runs no larger than {@value #MAXIMUM_PRELOAD_READ_SIZE} bytes.
+     */
+    private List<PreloadRun> preloadRuns(final List<PreloadPage> pages) {
+        final List<PreloadPage> sorted = new ArrayList<PreloadPage>(pages);
+        Collections.sort(sorted, PreloadPage.ADDRESS_COMPARATOR);
+        final int maxRunPages = Math.max(1, MAXIMUM_PRELOAD_READ_SIZE / _bufferSize);
+        final List<PreloadRun> runs = new ArrayList<PreloadRun>();
+        PreloadRun run = null;
+        for (final PreloadPage page : sorted) {
+            if (run != null && run._volume == page._volume && run._page + run._count == page._page
+                    && run._count < maxRunPages) {
+                run._count++;
+            } else if (run == null || run._volume != page._volume || run._page + run._count <= page._page) {
+                run = new PreloadRun(page._volume, page._page);
+                runs.add(run);
             }
+        }
+        return runs;
+    }
 
-            Collections.sort(pageNodes, PageNode.READ_COMPARATOR);
-            for (final PageNode pn : pageNodes) {
-                final Volume vol = jman.volumeForHandle(pn.getVolumeHandle());
-                if (vol == null) {
-                    continue;
-                }
-                try {
-                    final Buffer buff = get(vol, pn.getPageAddress(), false, true);
-                    buff.release();
-                    count++;
-                    final long now = System.nanoTime();
-                    if (now - reportTime >= INVENTORY_PRELOAD_LOG_MESSAGE_NS) {
-                        _persistit.getLogBase().bufferInventoryProgress
-                                .log(count, total, (now - reportTime) / NS_PER_S);
-                        reportTime = now;
+    /**
+     * Load a group of runs sorted by volume and address. Each volume's runs
+     * are divided among up to {@link Configuration#getBufferPreloadThreads()}
+     * threads, each taking the next run in address order. A small group is
+     * loaded by the calling thread.
+     */
+    private void preload(final List<PreloadRun> runs) {
+        final int maxThreads = _persistit.getConfiguration().getBufferPreloadThreads();
+        final List<Runnable> workers = new ArrayList<Runnable>();
+        for (int from = 0; from < runs.size();) {
+            int to = from + 1;
+            while (to < runs.size() && runs.get(to)._volume == runs.get(from)._volume) {
+                to++;
+            }
+            final List<PreloadRun> volumeRuns = runs.subList(from, to);
+            final AtomicInteger cursor = new AtomicInteger();
+            final int threads = Math.max(1, Math.min(maxThreads, volumeRuns.size() / MINIMUM_PRELOAD_RUNS_PER_THREAD));
+            for (int count = 0; count < threads; count++) {
+                workers.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        final byte[] bytes = new byte[Math.max(1, MAXIMUM_PRELOAD_READ_SIZE / _bufferSize)
+                                * _bufferSize];
+                        int index;
+                        while (!_preloadStopped && (index = cursor.getAndIncrement()) < volumeRuns.size()) {
+                            preloadRun(volumeRuns.get(index), bytes);
+                        }
                     }
-                    if (count >= _bufferCount) {
-                        //
-                        // If the buffer pool is now smaller, no need to load
-                        // more pages
-                        //
-                        break;
+                });
+            }
+            from = to;
+        }
+        if (workers.size() == 1) {
+            workers.get(0).run();
+            return;
+        }
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (final Runnable worker : workers) {
+            final Thread thread = new Thread(worker, "BUFFER_PRELOAD:" + _bufferSize + ":" + threads.size());
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                _preloadStopped = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Load the pages of a run that are not already in the pool. Each
+     * sub-run of absent pages is read from the volume file with a single
+     * request. A page whose current version is in the journal, or which may
+     * have been written to the volume while the sub-run was read, is read
+     * again individually.
+     */
+    private void preloadRun(final PreloadRun run, final byte[] bytes) {
+        final Volume vol = run._volume;
+        final long end = run._page + run._count;
+        long page = run._page;
+        while (page < end && !_preloadStopped) {
+            long last = page;
+            while (last < end && !isResident(vol, last)) {
+                last++;
+            }
+            if (last == page) {
+                last++;
+            } else {
+                final int count = (int) (last - page);
+                try {
+                    final VolumeStorage storage = vol.getStorage();
+                    final long generation = storage.getWriteGeneration();
+                    final int read = storage.readPages(page, ByteBuffer.wrap(bytes, 0, count * _bufferSize));
+                    for (int index = 0; index < count; index++) {
+                        preloadPage(vol, page + index, index < read ? bytes : null, index * _bufferSize, generation);
                     }
                 } catch (final PersistitException e) {
                     // ignore it
                 }
             }
-        } catch (final PersistitException e) {
-            _persistit.getLogBase().bufferInventoryException.log(e);
+            preloadProgress(last - page);
+            page = last;
+        }
+    }
+
+    /**
+     * Install a page into the pool unless it is already present.
+     * 
+     * @param vol
+     * @param page
+     * @param image
+     *            array containing the page image read from the volume file,
+     *            or <code>null</code> to read the page normally
+     * @param offset
+     *            offset of the page image within the array
+     * @param generation
+     *            the volume's write generation sampled before the image was
+     *            read
+     * @throws PersistitException
+     */
+    private void preloadPage(final Volume vol, final long page, final byte[] image, final int offset,
+            final long generation) throws PersistitException {
+        final int hash = hashIndex(vol, page);
+        final Buffer buffer;
+        _hashLocks[hash % HASH_LOCKS].lock();
+        try {
+            for (Buffer b = _hashTable.get(hash); b != null; b = b.getNext()) {
+                if (b.getPageAddress() == page && b.getVolume() == vol) {
+                    return;
+                }
+            }
+            buffer = assign(vol, page, hash, false);
+            final OffHeapPageCache offHeapCache = _offHeapCache;
+            if (offHeapCache != null) {
+                offHeapCache.take(vol, page, null);
+            }
+        } finally {
+            _hashLocks[hash % HASH_LOCKS].unlock();
+        }
+        boolean loaded = false;
+        try {
+            if (image != null && vol.getStorage().getWriteGeneration() == generation
+                    && _persistit.getJournalManager().lookupUpPageNode(page, vol) == null) {
+                System.arraycopy(image, offset, buffer.getBytes(), 0, _bufferSize);
+                buffer.load();
+            } else {
+                buffer.load(vol, page);
+            }
+            loaded = true;
         } finally {
-            final long now = System.nanoTime();
-            _persistit.getLogBase().bufferInventoryProgress.log(count, total, (now - reportTime) / NS_PER_S);
+            if (!loaded) {
+                invalidate(buffer);
+            }
+            buffer.release();
+        }
+    }
+
+    private void preloadProgress(final long count) {
+        final long loaded = _preloadCounter.addAndGet(count);
+        final long now = System.nanoTime();
+        final long reportTime = _preloadReportTime.get();
+        if (now - reportTime >= INVENTORY_PRELOAD_LOG_MESSAGE_NS && _preloadReportTime.compareAndSet(reportTime, now)) {
+            _persistit.getLogBase().bufferInventoryProgress.log(loaded, _preloadTotal, (now - reportTime) / NS_PER_S);
         }
     }
 
+    private void preloadDone() {
+        _preloading = false;
+        _preloadThread = null;
+        final long now = System.nanoTime();
+        _persistit.getLogBase().bufferInventoryProgress.log(_preloadCounter.get(), _preloadTotal,
+                (now - _preloadReportTime.get()) / NS_PER_S);
+    }
+
     private Exchange getBufferInventoryExchange() throws PersistitException {
         final Volume sysvol = _persistit.getSystemVolume();
         return _persistit.getExchange(sysvol, INVENTORY_TREE_NAME, true);
@@ -173,6 +173,186 @@ class BufferPoolMXBeanImpl implements BufferPoolMXBean {
         return recent().getForcedWriteCount();
     }
 
+    /**
+     * Return count of page reads performed without claiming the page and
+     * subsequently validated
+     * 
+     * @return The optimistic read count
+     */
+    @Override
+    @Description("Count of page reads performed without claiming the page")
+    public long getOptimisticReadCount() {
+        return recent().getOptimisticReadCount();
+    }
+
+    /**
+     * Return count of optimistic page reads invalidated by a concurrent update
+     * and repeated with a claim
+     * 
+     * @return The optimistic retry count
+     */
+    @Override
+    @Description("Count of optimistic page reads repeated with a claim")
+    public long getOptimisticRetryCount() {
+        return recent().getOptimisticRetryCount();
+    }
+
+    /**
+     * Return the number of pages held in the off-heap page cache
+     * 
+     * @return The off-heap page count
+     */
+    @Override
+    @Description("Count of pages held in the off-heap page cache")
+    public long getOffHeapPageCount() {
+        return recent().getOffHeapPageCount();
+    }
+
+    /**
+     * Return count of pages loaded from the off-heap page cache rather than
+     * from disk
+     * 
+     * @return The off-heap hit count
+     */
+    @Override
+    @Description("Count of pages loaded from the off-heap page cache")
+    public long getOffHeapHitCount() {
+        return recent().getOffHeapHitCount();
+    }
+
+    /**
+     * Return count of pages sought but not found in the off-heap page cache
+     * 
+     * @return The off-heap miss count
+     */
+    @Override
+    @Description("Count of pages sought but not found in the off-heap page cache")
+    public long getOffHeapMissCount() {
+        return recent().getOffHeapMissCount();
+    }
+
+    /**
+     * Return the ratio of the size of page images stored in the off-heap page
+     * cache to the space they occupy there
+     * 
+     * @return The off-heap compression ratio
+     */
+    @Override
+    @Description("Ratio of page image size to stored size in the off-heap page cache")
+    public double getOffHeapCompressionRatio() {
+        return recent().getOffHeapCompressionRatio();
+    }
+
+    /**
+     * Return count of pages loaded by read-ahead
+     * 
+     * @return The read-ahead count
+     */
+    @Override
+    @Description("Count of pages loaded by read-ahead ahead of sequential scans")
+    public long getReadAheadCount() {
+        return recent().getReadAheadCount();
+    }
+
+    /**
+     * Return the number of buffers holding pinned index pages
+     * 
+     * @return The pinned page count
+     */
+    @Override
+    @Description("Count of buffers holding pinned index pages")
+    public int getPinnedPageCount() {
+        return recent().getPinnedPageCount();
+    }
+
+    /**
+     * Return the total number of buffers reserved for volumes
+     * 
+     * @return The reserved buffer count
+     */
+    @Override
+    @Description("Total number of buffers reserved for volumes")
+    public int getReservedBufferCount() {
+        return recent().getReservedBufferCount();
+    }
+
+    /**
+     * Return a description of each volume buffer reservation
+     * 
+     * @return The reservations
+     */
+    @Override
+    @Description("Volume buffer reservations with occupancy and hit ratio")
+    public String[] getReservations() {
+        return recent().getReservations();
+    }
+
+    /**
+     * Return the number of pages processed by buffer inventory preload
+     * 
+     * @return The preload count
+     */
+    @Override
+    @Description("Count of pages processed by the current or most recent buffer inventory preload")
+    public long getPreloadCount() {
+        return recent().getPreloadCount();
+    }
+
+    /**
+     * Return the number of pages buffer inventory preload intends to load
+     * 
+     * @return The preload total
+     */
+    @Override
+    @Description("Number of pages the current or most recent buffer inventory preload intends to load")
+    public long getPreloadTotal() {
+        return recent().getPreloadTotal();
+    }
+
+    /**
+     * Indicate whether buffer inventory preload is in progress
+     * 
+     * @return <code>true</code> if pages are still being preloaded
+     */
+    @Override
+    @Description("True if buffer inventory preload is in progress")
+    public boolean isPreloading() {
+        return recent().isPreloading();
+    }
+
+    /**
+     * Return the number of PAGE_WRITER threads
+     * 
+     * @return The page writer count
+     */
+    @Override
+    @Description("Number of PAGE_WRITER threads")
+    public int getPageWriterCount() {
+        return recent().getPageWriterCount();
+    }
+
+    /**
+     * Return the number of selected pages not yet written
+     * 
+     * @return The write queue depth
+     */
+    @Override
+    @Description("Number of pages selected by the current PAGE_WRITER cycle not yet written")
+    public int getWriteQueueDepth() {
+        return recent().getWriteQueueDepth();
+    }
+
+    /**
+     * Return the average time to write a page
+     * 
+     * @return The write latency in nanoseconds
+     */
+    @Override
+    @Description("Moving average of the time in nanoseconds to write a page")
+    public long getWriteLatency() {
+        return recent().getWriteLatency();
+    }
+
     /**
      * Get the "hit ratio" - the number of hits divided by the number of overall
      * gets. A value close to 1.0 indicates that most attempts to find data in
@@ -824,6 +824,35 @@ public class CLI {
         };
     }
 
+    @Cmd("resize")
+    Task resize(final @Arg("size|int:16384:1024:16384|Buffer size of the pool") int size,
+            final @Arg("count|int:0:0:2147483647|New buffer count") int count) throws Exception {
+        return new Task() {
+
+            @Override
+            public void runTask() throws Exception {
+                if (_persistit == null) {
+                    postMessage("Persistit not loaded", LOG_NORMAL);
+                    return;
+                }
+                final BufferPool pool = _persistit.getBufferPool(size);
+                if (pool == null) {
+                    postMessage("No buffer pool for buffer size " + size, LOG_NORMAL);
+                    return;
+                }
+                final int before = pool.getBufferCount();
+                pool.resize(count, SharedResource.DEFAULT_MAX_WAIT_TIME);
+                postMessage(String.format("Resized %s from %,d to %,d buffers", pool, before, pool.getBufferCount()),
+                        LOG_NORMAL);
+            }
+
+            @Override
+            public String getStatus() {
+                return "";
+            }
+        };
+    }
+
     @Cmd("jview")
     Task jview(final @Arg("path|string:|Journal file name") String path,
             final @Arg("start|long:0:0:10000000000000|Start journal address") long start,
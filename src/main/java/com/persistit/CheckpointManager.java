@@ -176,6 +176,7 @@ class CheckpointManager extends IOTaskRunnable implements CheckpointManagerMXBea
     }
 
     Checkpoint checkpoint() throws PersistitException {
+        _persistit.getRecoveryManager().awaitPendingReplay();
         final long timestamp = createCheckpoint().getTimestamp();
         _persistit.flushBuffers(timestamp);
 
@@ -217,11 +218,21 @@ class CheckpointManager extends IOTaskRunnable implements CheckpointManagerMXBea
      * each Accumulator and then serializes that value into the database. That
      * process is not threadsafe, and there is no use case for concurrent
      * checkpoints.
+     * </p>
+     * <p>
+     * While recovered transactions are still being applied in the background
+     * this method does nothing and returns the current checkpoint. A new
+     * checkpoint would cause a subsequent recovery to skip the unapplied
+     * transactions.
+     * </p>
      * 
      * @return The newly created Checkpoint
      * @throws PersistitException
      */
     synchronized Checkpoint createCheckpoint() throws PersistitException {
+        if (_persistit.getRecoveryManager().isReplayIncomplete()) {
+            return _currentCheckpoint;
+        }
         /*
          * Run within a transaction to get snapshot accumulator views. The
          * Checkpoint timestamp is the start timestamp of this transaction.
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2012 Akiban Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.persistit.exception.PersistitException;
+
+/**
+ * <p>
+ * Handle returned by {@link Transaction#commitAsync(Transaction.CommitPolicy)}
+ * which completes when the committed transaction has been written durably to
+ * the journal. The value of the future is the transaction's commit timestamp.
+ * </p>
+ * <p>
+ * A thread that issues many asynchronous commits may either wait for each
+ * handle with {@link #get()} or register a listener with
+ * {@link #addListener(Runnable)}. Listeners are run by the thread that
+ * completes the handle, normally the JOURNAL_FLUSHER thread, and therefore
+ * must be brief and must not block. A listener added after the handle has
+ * completed is run immediately by the calling thread.
+ * </p>
+ * <p>
+ * If Persistit is closed before the journal containing the transaction has
+ * been forced to disk, the handle completes with an
+ * {@link ExecutionException} whose cause is a <code>PersistitException</code>.
+ * A commit cannot be cancelled; {@link #cancel(boolean)} always returns
+ * <code>false</code>.
+ * </p>
+ */
+public class CommitFuture implements Future<Long> {
+
+    private final long _commitTimestamp;
+
+    private final long _flushedTimestamp;
+
+    private final CountDownLatch _latch = new CountDownLatch(1);
+
+    private List<Runnable> _listeners;
+
+    private volatile PersistitException _exception;
+
+    CommitFuture(final long commitTimestamp, final long flushedTimestamp) {
+        _commitTimestamp = commitTimestamp;
+        _flushedTimestamp = flushedTimestamp;
+    }
+
+    /**
+     * @return the commit timestamp of the transaction
+     */
+    public long getCommitTimestamp() {
+        return _commitTimestamp;
+    }
+
+    /**
+     * @return timestamp that a completed JOURNAL_FLUSHER cycle must have
+     *         started after for the transaction to be durable
+     */
+    long getFlushedTimestamp() {
+        return _flushedTimestamp;
+    }
+
+    /**
+     * Register a listener to be run when this handle completes, either
+     * normally or with an exception.
+     *
+     * @param listener
+     */
+    public void addListener(final Runnable listener) {
+        synchronized (this) {
+            if (_latch.getCount() > 0) {
+                if (_listeners == null) {
+                    _listeners = new ArrayList<Runnable>(1);
+                }
+                _listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return _latch.getCount() == 0;
+    }
+
+    /**
+     * @return <code>true</code> if this handle completed because the
+     *         transaction could not be made durable
+     */
+    public boolean isFailed() {
+        return isDone() && _exception != null;
+    }
+
+    @Override
+    public Long get() throws InterruptedException, ExecutionException {
+        _latch.await();
+        return result();
+    }
+
+    @Override
+    public Long get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException,
+            TimeoutException {
+        if (!_latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    /**
+     * Mark this handle as completed.
+     *
+     * @param exception
+     *            <code>null</code> if the transaction is durable, otherwise
+     *            the reason it could not be made durable
+     * @throws RuntimeException
+     *             the first exception thrown by a listener, after all
+     *             listeners have been run
+     */
+    void complete(final PersistitException exception) {
+        final List<Runnable> listeners;
+        synchronized (this) {
+            if (_latch.getCount() == 0) {
+                return;
+            }
+            _exception = exception;
+            _latch.countDown();
+            listeners = _listeners;
+            _listeners = null;
+        }
+        if (listeners != null) {
+            RuntimeException failure = null;
+            for (final Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (final RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private Long result() throws ExecutionException {
+        final PersistitException exception = _exception;
+        if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+        return Long.valueOf(_commitTimestamp);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CommitFuture(ts=%,d %s)", _commitTimestamp, isDone() ? isFailed() ? "failed"
+                : "durable" : "pending");
+    }
+}
@@ -39,6 +39,7 @@ import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.persistit.BufferPool.ReplacementPolicy;
 import com.persistit.Transaction.CommitPolicy;
 import com.persistit.exception.CorruptJournalException;
 import com.persistit.exception.InvalidVolumeSpecificationException;
@@ -141,6 +142,64 @@ public class Configuration {
      * specified memory allocation, including overhead for FastIndex elements.
      */
     public final static String BUFFER_MEM_PROPERTY_NAME = "buffer.memory.";
+    /**
+     * Property name prefix for specifying the
+     * {@link BufferPool.ReplacementPolicy} of a buffer pool. The full property
+     * name should be one of "1024", "2048", "4096", "8192" or "16384" appended
+     * to this string, e.g., "buffer.policy.8192". The value is the name of a
+     * policy, "clock" or "two_queue". The default is "clock".
+     */
+    public final static String BUFFER_POLICY_PROPERTY_NAME = "buffer.policy.";
+    /**
+     * Property name prefix for specifying the size of an off-heap page cache
+     * for a buffer pool. The full property name should be one of "1024",
+     * "2048", "4096", "8192" or "16384" appended to this string, e.g.,
+     * "buffer.offheap.16384". The value is a memory size such as "40G". Clean
+     * pages evicted from the buffer pool are retained in direct memory, outside
+     * the Java heap, and are copied back into the pool when next needed. The
+     * default is 0, meaning no off-heap cache. The JVM's
+     * <code>-XX:MaxDirectMemorySize</code> setting must permit the
+     * allocation.
+     */
+    public final static String BUFFER_OFFHEAP_PROPERTY_NAME = "buffer.offheap.";
+    /**
+     * Property name prefix for specifying whether page images held in the
+     * off-heap page cache of a buffer pool are compressed. The full property
+     * name should be one of "1024", "2048", "4096", "8192" or "16384" appended
+     * to this string, e.g., "buffer.compress.16384". Compression lets the
+     * cache hold several times as many pages in the same memory at the cost of
+     * compressing each evicted page and decompressing it when it is next
+     * needed. The default is false.
+     */
+    public final static String BUFFER_COMPRESS_PROPERTY_NAME = "buffer.compress.";
+    /**
+     * Property name prefix for specifying the number of partitions into which
+     * a buffer pool is divided. The full property name should be one of
+     * "1024", "2048", "4096", "8192" or "16384" appended to this string, e.g.,
+     * "buffer.partitions.16384". Each partition has its own clock for
+     * selecting buffers to replace, which reduces contention when many threads
+     * load pages concurrently. The default is 1.
+     */
+    public final static String BUFFER_PARTITIONS_PROPERTY_NAME = "buffer.partitions.";
+    /**
+     * Property name prefix for specifying the maximum number of pages read
+     * ahead of a sequential scan. The full property name should be one of
+     * "1024", "2048", "4096", "8192" or "16384" appended to this string, e.g.,
+     * "buffer.readahead.16384". When an {@link Exchange} traverses several
+     * consecutive data pages, a background thread loads the following sibling
+     * pages into the buffer pool. The number of pages adapts to measured read
+     * latency up to this limit. The default is 32; 0 disables read-ahead.
+     */
+    public final static String BUFFER_READAHEAD_PROPERTY_NAME = "buffer.readahead.";
+    /**
+     * Property name prefix for specifying the number of PAGE_WRITER threads
+     * that write dirty pages of a buffer pool. The full property name should
+     * be one of "1024", "2048", "4096", "8192" or "16384" appended to this
+     * string, e.g., "buffer.writers.16384". The pages selected on each cycle
+     * are divided into per-volume queues of adjacent pages which the writers
+     * drain concurrently. The default is 1.
+     */
+    public final static String BUFFER_WRITERS_PROPERTY_NAME = "buffer.writers.";
     /**
      * Property name prefix for specifying Volumes. The full property name
      * should be a unique ordinal number appended to this string, e.g.,
@@ -158,6 +217,55 @@ public class Configuration {
      */
     public final static String JOURNAL_BLOCKSIZE_PROPERTY_NAME = "journalsize";
 
+    /**
+     * Property name for enabling compression of page images written to the
+     * journal, e.g., "journalcompression=true".
+     */
+    public final static String JOURNAL_COMPRESSION_PROPERTY_NAME = "journalcompression";
+
+    /**
+     * Property name for the number of consecutive page delta records that may
+     * be written for a page before a full page image, e.g.,
+     * "journaldeltas=8".
+     */
+    public final static String JOURNAL_PAGE_DELTAS_PROPERTY_NAME = "journaldeltas";
+
+    /**
+     * Property name for the number of threads that copy pages from the
+     * journal to their volumes, e.g., "journalcopierthreads=4".
+     */
+    public final static String JOURNAL_COPIER_THREADS_PROPERTY_NAME = "journalcopierthreads";
+
+    /**
+     * Property name for the rate in megabytes per second at which pages are
+     * copied from the journal to their volumes, e.g., "journalcopierrate=50".
+     */
+    public final static String JOURNAL_COPIER_RATE_PROPERTY_NAME = "journalcopierrate";
+
+    /**
+     * Property name for the number of threads that apply recovered
+     * transactions, e.g., "recoverythreads=8".
+     */
+    public final static String RECOVERY_THREADS_PROPERTY_NAME = "recoverythreads";
+
+    /**
+     * Property name for opening the database before all recovered transactions
+     * have been applied, e.g., "recoveryearlyopen=true".
+     */
+    public final static String RECOVERY_EARLY_OPEN_PROPERTY_NAME = "recoveryearlyopen";
+
+    /**
+     * Property name for enabling memory-mapped reads of page images from
+     * completed journal files, e.g., "journalmappedreads=true".
+     */
+    public final static String JOURNAL_MAPPED_READS_PROPERTY_NAME = "journalmappedreads";
+
+    /**
+     * Property name for the number of zero-filled spare journal files kept
+     * ready for use, e.g., "journalspares=2".
+     */
+    public final static String JOURNAL_SPARES_PROPERTY_NAME = "journalspares";
+
     /**
      * Default path name for the journal. Note, sequence suffix in the form
      * .nnnnnnnnnnnnnnnn (16 digits, zero-filled) will be appended.
@@ -297,11 +405,23 @@ public class Configuration {
      */
     public final static String BUFFER_PRELOAD_PROPERTY_NAME = "bufferpreload";
 
+    /**
+     * Property name to specify the number of threads per volume that read
+     * pages during buffer preloading.
+     */
+    public final static String BUFFER_PRELOAD_THREADS_PROPERTY_NAME = "bufferpreloadthreads";
+
     /**
      * Property name to specify whether buffer inventory is enabled.
      */
     public final static String BUFFER_INVENTORY_PROPERTY_NAME = "bufferinventory";
 
+    /**
+     * Property name to specify whether pages may be read optimistically,
+     * without claiming them.
+     */
+    public final static String OPTIMISTIC_READS_PROPERTY_NAME = "optimisticreads";
+
     /**
      * Property name to specify the default {@link JoinPolicy}.
      */
@@ -379,6 +499,12 @@ public class Configuration {
         private long maximumMemory;
         private long reservedMemory;
         private float fraction;
+        private ReplacementPolicy replacementPolicy = ReplacementPolicy.CLOCK;
+        private long offHeapMemory;
+        private boolean offHeapCompressed;
+        private int partitionCount = 1;
+        private int readAheadLimit = BufferPool.DEFAULT_READ_AHEAD_LIMIT;
+        private int pageWriterCount = 1;
 
         private void reset() {
             minimumCount = 0;
@@ -504,6 +630,121 @@ public class Configuration {
             this.fraction = fraction;
         }
 
+        /**
+         * @return the replacementPolicy
+         */
+        public ReplacementPolicy getReplacementPolicy() {
+            return replacementPolicy;
+        }
+
+        /**
+         * @param replacementPolicy
+         *            the replacementPolicy to set
+         */
+        public void setReplacementPolicy(final ReplacementPolicy replacementPolicy) {
+            if (replacementPolicy == null) {
+                throw new IllegalArgumentException("ReplacementPolicy may not be null");
+            }
+            this.replacementPolicy = replacementPolicy;
+        }
+
+        /**
+         * Set the replacementPolicy by name
+         * 
+         * @param policyName
+         *            "clock" or "two_queue"
+         */
+        public void setReplacementPolicy(final String policyName) {
+            if (policyName != null) {
+                setReplacementPolicy(ReplacementPolicy.forName(policyName));
+            }
+        }
+
+        /**
+         * @return the size in bytes of the off-heap page cache
+         */
+        public long getOffHeapMemory() {
+            return offHeapMemory;
+        }
+
+        /**
+         * @param offHeapMemory
+         *            the size in bytes of the off-heap page cache, or zero for
+         *            none
+         */
+        public void setOffHeapMemory(final long offHeapMemory) {
+            Util.rangeCheck(offHeapMemory, 0, Long.MAX_VALUE);
+            this.offHeapMemory = offHeapMemory;
+        }
+
+        /**
+         * @return whether page images in the off-heap page cache are
+         *         compressed
+         */
+        public boolean isOffHeapCompressed() {
+            return offHeapCompressed;
+        }
+
+        /**
+         * @param offHeapCompressed
+         *            whether page images in the off-heap page cache are
+         *            compressed
+         */
+        public void setOffHeapCompressed(final boolean offHeapCompressed) {
+            this.offHeapCompressed = offHeapCompressed;
+        }
+
+        /**
+         * @return the number of partitions
+         */
+        public int getPartitionCount() {
+            return partitionCount;
+        }
+
+        /**
+         * @param partitionCount
+         *            the number of partitions into which the buffer pool is
+         *            divided
+         */
+        public void setPartitionCount(final int partitionCount) {
+            Util.rangeCheck(partitionCount, 1, BufferPool.MAXIMUM_PARTITION_COUNT);
+            this.partitionCount = partitionCount;
+        }
+
+        /**
+         * @return the maximum number of pages read ahead of a sequential scan
+         */
+        public int getReadAheadLimit() {
+            return readAheadLimit;
+        }
+
+        /**
+         * @param readAheadLimit
+         *            the maximum number of pages read ahead of a sequential
+         *            scan, or zero to disable read-ahead
+         */
+        public void setReadAheadLimit(final int readAheadLimit) {
+            Util.rangeCheck(readAheadLimit, 0, BufferPool.MAXIMUM_READ_AHEAD_LIMIT);
+            this.readAheadLimit = readAheadLimit;
+        }
+
+        /**
+         * @return the number of PAGE_WRITER threads
+         */
+        public int getPageWriterCount() {
+            return pageWriterCount;
+        }
+
+        /**
+         * @param pageWriterCount
+         *            the number of PAGE_WRITER threads that write dirty pages
+         *            of the pool
+         */
+        public void setPageWriterCount(final int pageWriterCount) {
+            Util.rangeCheck(pageWriterCount, 1, BufferPool.MAXIMUM_PAGE_WRITER_COUNT);
+            this.pageWriterCount = pageWriterCount;
+        }
+
         private final static String SIMPLE_COUNT_FORMAT = "count=%d";
         private final static String MIN_MAX_COUNT_FORMAT = "minCount=%d,maxCount=%d";
         private final static String MIN_MAX_MEMORY_FORMAT = "minMem=%s,maxMem=%s,reserved=%s,fraction=%s";
@@ -714,8 +955,18 @@ public class Configuration {
     private int rmiServerPort;
     private boolean jmx = true;
     private boolean appendOnly;
+    private boolean journalCompression;
+    private int journalPageDeltas;
+    private int journalCopierThreads = 1;
+    private int journalCopierRate;
+    private int journalSpares;
+    private boolean journalMappedReads;
+    private int recoveryThreads = 1;
+    private boolean recoveryEarlyOpen;
     private boolean bufferInventoryEnabled;
     private boolean bufferPreloadEnabled;
+    private int bufferPreloadThreads = BufferPool.DEFAULT_PRELOAD_THREADS;
+    private boolean optimisticReadsEnabled = true;
     private boolean ignoreMissingVolumes;
     private String tmpVolDir;
     private int tmpVolPageSize;
@@ -801,8 +1052,16 @@ public class Configuration {
         setIgnoreMissingVolumes(getBooleanProperty(IGNORE_MISSING_VOLUMES_PROPERTY, false));
         setJmxEnabled(getBooleanProperty(ENABLE_JMX_PROPERTY_NAME, true));
         setJoinPolicy(getProperty(JOIN_POLICY_PROPERTY_NAME));
+        setJournalCompression(getBooleanProperty(JOURNAL_COMPRESSION_PROPERTY_NAME, false));
+        setJournalCopierRate(getIntegerProperty(JOURNAL_COPIER_RATE_PROPERTY_NAME, 0));
+        setJournalCopierThreads(getIntegerProperty(JOURNAL_COPIER_THREADS_PROPERTY_NAME, 1));
+        setJournalPageDeltas(getIntegerProperty(JOURNAL_PAGE_DELTAS_PROPERTY_NAME, 0));
         setJournalPath(getProperty(JOURNAL_PATH_PROPERTY_NAME, DEFAULT_JOURNAL_PATH));
         setJournalSize(getLongProperty(JOURNAL_BLOCKSIZE_PROPERTY_NAME, JournalManager.DEFAULT_BLOCK_SIZE));
+        setJournalSpares(getIntegerProperty(JOURNAL_SPARES_PROPERTY_NAME, 0));
+        setJournalMappedReads(getBooleanProperty(JOURNAL_MAPPED_READS_PROPERTY_NAME, false));
+        setRecoveryThreads(getIntegerProperty(RECOVERY_THREADS_PROPERTY_NAME, 1));
+        setRecoveryEarlyOpen(getBooleanProperty(RECOVERY_EARLY_OPEN_PROPERTY_NAME, false));
         setLogFile(getProperty(LOGFILE_PROPERTY_NAME));
         setLogging(getProperty(LOGGING_PROPERTIES_NAME));
         setTmpVolDir(getProperty(TEMPORARY_VOLUME_DIR_PROPERTY_NAME));
@@ -817,6 +1076,9 @@ public class Configuration {
         setSysVolume(getProperty(SYSTEM_VOLUME_PROPERTY_NAME, DEFAULT_SYSTEM_VOLUME_NAME));
         setBufferInventoryEnabled(getBooleanProperty(BUFFER_INVENTORY_PROPERTY_NAME, false));
         setBufferPreloadEnabled(getBooleanProperty(BUFFER_PRELOAD_PROPERTY_NAME, false));
+        setBufferPreloadThreads(getIntegerProperty(BUFFER_PRELOAD_THREADS_PROPERTY_NAME,
+                BufferPool.DEFAULT_PRELOAD_THREADS));
+        setOptimisticReadsEnabled(getBooleanProperty(OPTIMISTIC_READS_PROPERTY_NAME, true));
         setUseOldVSpec(getBooleanProperty(USE_OLD_VSPEC, false));
 
         loadPropertiesBufferSpecifications();
@@ -850,6 +1112,13 @@ public class Configuration {
             } else if (count == 0) {
                 bpc.reset();
             }
+            bpc.setReplacementPolicy(getProperty(BUFFER_POLICY_PROPERTY_NAME + size, ReplacementPolicy.CLOCK.name()));
+            bpc.setOffHeapMemory(getLongProperty(BUFFER_OFFHEAP_PROPERTY_NAME + size, 0));
+            bpc.setOffHeapCompressed(getBooleanProperty(BUFFER_COMPRESS_PROPERTY_NAME + size, false));
+            bpc.setPartitionCount((int) getLongProperty(BUFFER_PARTITIONS_PROPERTY_NAME + size, 1));
+            bpc.setReadAheadLimit((int) getLongProperty(BUFFER_READAHEAD_PROPERTY_NAME + size,
+                    BufferPool.DEFAULT_READ_AHEAD_LIMIT));
+            bpc.setPageWriterCount((int) getLongProperty(BUFFER_WRITERS_PROPERTY_NAME + size, 1));
         }
     }
 
@@ -1418,6 +1687,269 @@ public class Configuration {
         this.journalSize = journalSize;
     }
 
+    /**
+     * Return the value defined by {@link #setJournalCompression}
+     * 
+     * @return <code>true</code> if page images are compressed when written to
+     *         the journal
+     */
+    public boolean isJournalCompression() {
+        return journalCompression;
+    }
+
+    /**
+     * <p>
+     * Control whether page images are compressed when written to the journal.
+     * A compressed page is marked as such in its journal record, so a journal
+     * may contain a mix of compressed and uncompressed pages and can be read
+     * regardless of this setting. A page is written uncompressed if
+     * compression would not make it smaller. This method changes only the
+     * initial state; use
+     * {@link com.persistit.mxbeans.JournalManagerMXBean#setCompressingPages(boolean)}
+     * to change it while the system is running.
+     * </p>
+     * <p>
+     * Default value is <code>false</code><br />
+     * Property name is {@value #JOURNAL_COMPRESSION_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param journalCompression
+     *            <code>true</code> to compress page images written to the
+     *            journal
+     */
+    public void setJournalCompression(final boolean journalCompression) {
+        this.journalCompression = journalCompression;
+    }
+
+    /**
+     * Return the value defined by {@link #setJournalPageDeltas}
+     * 
+     * @return the number of consecutive page delta records that may be
+     *         written for a page
+     */
+    public int getJournalPageDeltas() {
+        return journalPageDeltas;
+    }
+
+    /**
+     * <p>
+     * Set the number of consecutive page delta records that may be written
+     * for a page. When a page is written to the journal and an earlier image
+     * of it is in the current journal file, Persistit may write only the bytes
+     * that changed since that image. A full page image is written once this
+     * many deltas have been chained, when the earlier image is in a previous
+     * journal file, or when the changes amount to more than a quarter of the
+     * page. Zero disables page deltas. This method changes only the initial
+     * state; use
+     * {@link com.persistit.mxbeans.JournalManagerMXBean#setPageDeltaLimit(int)}
+     * to change it while the system is running.
+     * </p>
+     * <p>
+     * Default value is 0<br />
+     * Property name is {@value #JOURNAL_PAGE_DELTAS_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param journalPageDeltas
+     *            the number of consecutive page deltas to allow, or 0
+     */
+    public void setJournalPageDeltas(final int journalPageDeltas) {
+        Util.rangeCheck(journalPageDeltas, 0, JournalManager.MAXIMUM_PAGE_DELTA_LIMIT);
+        this.journalPageDeltas = journalPageDeltas;
+    }
+
+    /**
+     * Return the value defined by {@link #setJournalCopierThreads}
+     * 
+     * @return the number of threads that copy pages to their volumes
+     */
+    public int getJournalCopierThreads() {
+        return journalCopierThreads;
+    }
+
+    /**
+     * <p>
+     * Set the number of threads that copy pages from the journal to their
+     * volumes. Pages of any one volume are always copied by the same thread,
+     * so more threads than volumes provide no benefit. Additional threads are
+     * useful when volumes reside on separate devices. This method changes
+     * only the initial state; use
+     * {@link com.persistit.mxbeans.JournalManagerMXBean#setCopierThreadCount(int)}
+     * to change it while the system is running.
+     * </p>
+     * <p>
+     * Default value is 1<br />
+     * Property name is {@value #JOURNAL_COPIER_THREADS_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param journalCopierThreads
+     *            the number of copier threads
+     */
+    public void setJournalCopierThreads(final int journalCopierThreads) {
+        Util.rangeCheck(journalCopierThreads, 1, JournalManager.MAXIMUM_COPIER_THREAD_COUNT);
+        this.journalCopierThreads = journalCopierThreads;
+    }
+
+    /**
+     * Return the value defined by {@link #setJournalCopierRate}
+     * 
+     * @return the copier rate limit in megabytes per second
+     */
+    public int getJournalCopierRate() {
+        return journalCopierRate;
+    }
+
+    /**
+     * <p>
+     * Set the rate in megabytes per second at which pages are copied from the
+     * journal to their volumes. Limiting the rate leaves I/O capacity for
+     * foreground activity. As the journal grows and copying becomes more
+     * urgent the rate is raised automatically, and the limit is ignored
+     * entirely shortly before commits would otherwise be throttled. Zero
+     * means no limit. This method changes only the initial state; use
+     * {@link com.persistit.mxbeans.JournalManagerMXBean#setCopierRateLimit(int)}
+     * to change it while the system is running.
+     * </p>
+     * <p>
+     * Default value is 0<br />
+     * Property name is {@value #JOURNAL_COPIER_RATE_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param journalCopierRate
+     *            the rate limit in megabytes per second, or 0
+     */
+    public void setJournalCopierRate(final int journalCopierRate) {
+        Util.rangeCheck(journalCopierRate, 0, Integer.MAX_VALUE);
+        this.journalCopierRate = journalCopierRate;
+    }
+
+    /**
+     * Return the value defined by {@link #setJournalSpares}
+     * 
+     * @return the number of spare journal files
+     */
+    public int getJournalSpares() {
+        return journalSpares;
+    }
+
+    /**
+     * <p>
+     * Set the number of zero-filled spare journal files kept ready to become
+     * the next journal file. Starting a new journal file then does not extend
+     * a file while commits wait for it to be forced. Journal files that are
+     * no longer needed for recovery are zero-filled and reused as spares
+     * rather than deleted. Zero disables preallocation. This method changes
+     * only the initial state; use
+     * {@link com.persistit.mxbeans.JournalManagerMXBean#setSpareJournalFileLimit(int)}
+     * to change it while the system is running.
+     * </p>
+     * <p>
+     * Default value is 0<br />
+     * Property name is {@value #JOURNAL_SPARES_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param journalSpares
+     *            the number of spare journal files
+     */
+    public void setJournalSpares(final int journalSpares) {
+        Util.rangeCheck(journalSpares, 0, JournalManager.MAXIMUM_SPARE_JOURNAL_FILES);
+        this.journalSpares = journalSpares;
+    }
+
+    /**
+     * Return the value defined by {@link #setJournalMappedReads}
+     * 
+     * @return <code>true</code> if page images are read from memory-mapped
+     *         journal files
+     */
+    public boolean isJournalMappedReads() {
+        return journalMappedReads;
+    }
+
+    /**
+     * <p>
+     * Control whether page images are read from journal files that are no
+     * longer being written through a read-only memory mapping rather than by
+     * a system call for each read. This helps when many pages that have been
+     * evicted from the buffer pool are still waiting to be copied from the
+     * journal. The file currently being written is always read through its
+     * channel. This method changes only the initial state; use
+     * {@link com.persistit.mxbeans.JournalManagerMXBean#setMappingJournalFiles(boolean)}
+     * to change it while the system is running.
+     * </p>
+     * <p>
+     * Default value is false<br />
+     * Property name is {@value #JOURNAL_MAPPED_READS_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param journalMappedReads
+     *            <code>true</code> to read page images from memory-mapped
+     *            journal files
+     */
+    public void setJournalMappedReads(final boolean journalMappedReads) {
+        this.journalMappedReads = journalMappedReads;
+    }
+
+    /**
+     * Return the value defined by {@link #setRecoveryThreads}
+     * 
+     * @return the number of threads that apply recovered transactions
+     */
+    public int getRecoveryThreads() {
+        return recoveryThreads;
+    }
+
+    /**
+     * <p>
+     * Set the number of threads that apply committed transactions recovered
+     * from the journal during startup. Transactions that update disjoint sets
+     * of trees are applied concurrently; those that update a common tree are
+     * applied in their original commit order.
+     * </p>
+     * <p>
+     * Default value is 1<br />
+     * Property name is {@value #RECOVERY_THREADS_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param recoveryThreads
+     *            the number of recovery replay threads
+     */
+    public void setRecoveryThreads(final int recoveryThreads) {
+        Util.rangeCheck(recoveryThreads, 1, RecoveryManager.MAXIMUM_REPLAY_THREAD_COUNT);
+        this.recoveryThreads = recoveryThreads;
+    }
+
+    /**
+     * Return the value defined by {@link #setRecoveryEarlyOpen}
+     * 
+     * @return whether recovered transactions are applied in the background
+     */
+    public boolean isRecoveryEarlyOpen() {
+        return recoveryEarlyOpen;
+    }
+
+    /**
+     * <p>
+     * Control whether {@link Persistit#initialize()} returns before the
+     * transactions recovered from the journal have been applied. When
+     * <code>true</code> the remaining transactions are applied by a background
+     * thread. An application thread that requests an {@link Exchange} on a
+     * tree still awaiting recovered updates waits until they have been
+     * applied; other trees are available immediately. No checkpoint is written
+     * until all recovered transactions have been applied.
+     * </p>
+     * <p>
+     * Default value is <code>false</code><br />
+     * Property name is {@value #RECOVERY_EARLY_OPEN_PROPERTY_NAME}
+     * </p>
+     * 
+     * @param recoveryEarlyOpen
+     *            <code>true</code> to apply recovered transactions in the
+     *            background
+     */
+    public void setRecoveryEarlyOpen(final boolean recoveryEarlyOpen) {
+        this.recoveryEarlyOpen = recoveryEarlyOpen;
+    }
+
     /**
      * Return the value defined by {@link #setCheckpointInterval(long)}
      * 
@@ -2027,7 +2559,7 @@ public class Configuration {
      * </p>
      * <p>
      * Default value is <code>false</code><br />
-     * Property name is {@value #BUFFER_INVENTORY_PROPERTY_NAME}
+     * Property name is {@value #BUFFER_PRELOAD_PROPERTY_NAME}
      * 
      * @param bufferPreloadEnabled
      *            <code>true</code> to enable buffer pool preloading during
@@ -2037,6 +2569,65 @@ public class Configuration {
         this.bufferPreloadEnabled = bufferPreloadEnabled;
     }
 
+    /**
+     * Return the value defined by {@link #setBufferPreloadThreads}
+     * 
+     * @return the maximum number of threads per volume used to preload buffer
+     *         pools
+     */
+    public int getBufferPreloadThreads() {
+        return bufferPreloadThreads;
+    }
+
+    /**
+     * <p>
+     * Set the maximum number of threads that concurrently read pages of any
+     * one volume while preloading the buffer pools. Fewer threads are used
+     * when the inventory is small.
+     * </p>
+     * <p>
+     * Default value is {@value BufferPool#DEFAULT_PRELOAD_THREADS}<br />
+     * Property name is {@value #BUFFER_PRELOAD_THREADS_PROPERTY_NAME}
+     * 
+     * @param bufferPreloadThreads
+     *            the number of threads, between 1 and
+     *            {@value BufferPool#MAXIMUM_PRELOAD_THREADS}
+     */
+    public void setBufferPreloadThreads(final int bufferPreloadThreads) {
+        Util.rangeCheck(bufferPreloadThreads, 1, BufferPool.MAXIMUM_PRELOAD_THREADS);
+        this.bufferPreloadThreads = bufferPreloadThreads;
+    }
+
+    /**
+     * Return the value defined by {@link #setOptimisticReadsEnabled}
+     * 
+     * @return <code>true</code> if pages may be read without claiming them
+     */
+    public boolean isOptimisticReadsEnabled() {
+        return optimisticReadsEnabled;
+    }
+
+    /**
+     * <p>
+     * Control whether {@link Exchange#fetch} and {@link Exchange#traverse}
+     * operations may read pages optimistically. An optimistic read examines a
+     * page without acquiring a claim on it and then verifies that no writer
+     * modified the page in the interim; if one did, the operation is repeated
+     * using the conventional claim protocol. Optimistic reads avoid writing to
+     * shared memory on frequently read pages such as the root and upper index
+     * levels of a tree.
+     * </p>
+     * <p>
+     * Default value is <code>true</code><br />
+     * Property name is {@value #OPTIMISTIC_READS_PROPERTY_NAME}
+     * 
+     * @param optimisticReadsEnabled
+     *            <code>true</code> to enable optimistic page reads
+     */
+    public void setOptimisticReadsEnabled(final boolean optimisticReadsEnabled) {
+        this.optimisticReadsEnabled = optimisticReadsEnabled;
+    }
+
     /**
      * Return the value defined by {@link #setIgnoreMissingVolumes(boolean)}
      * 
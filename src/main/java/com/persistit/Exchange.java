@@ -259,6 +259,18 @@ public class Exchange implements ReadOnlyExchange {
 
     private final static int VERSIONS_OUT_OF_ORDER_RETRY_COUNT = 3;
 
+    /**
+     * Number of consecutive sibling data pages a traversal must visit before
+     * it is treated as a sequential scan and pages are read ahead.
+     */
+    private final static int READ_AHEAD_THRESHOLD = 3;
+
+    /**
+     * A traversal that spends longer than this on one page (in nanoseconds) is
+     * no longer treated as a sequential scan.
+     */
+    private final static long READ_AHEAD_RESET_INTERVAL = 1000000000L;
+
     private Persistit _persistit;
 
     private final Key _key;
@@ -273,6 +285,11 @@ public class Exchange implements ReadOnlyExchange {
 
     private volatile long _cachedTreeGeneration = -1;
     private volatile int _cacheDepth = 0;
+    /**
+     * Written before validating an optimistic read so that reads of the
+     * page are ordered before the volatile reads that validate it.
+     */
+    private volatile long _optimisticFence;
 
     private Key _spareKey1;
     private Key _spareKey2;
@@ -291,8 +308,17 @@ public class Exchange implements ReadOnlyExchange {
     private boolean _ignoreTransactions;
     private boolean _ignoreMVCCFetch;
     private boolean _storeCausedSplit;
+    private boolean _scanAccess;
     private int _keysVisitedDuringTraverse;
 
+    /*
+     * State of sequential scan detection for read-ahead
+     */
+    private int _sequentialPageCount;
+    private int _readAheadRemaining;
+    private long _lastSiblingTime;
+    private long _pageInterval;
+
     private Object _appCache;
 
     private ReentrantResourceHolder _treeHolder;
@@ -417,6 +443,9 @@ public class Exchange implements ReadOnlyExchange {
         if (volume == null) {
             throw new NullPointerException();
         }
+        if (!volume.isTemporary()) {
+            _persistit.getRecoveryManager().awaitTreeReplay(volume, treeName);
+        }
 
         final Tree tree = volume.getTree(treeName, create);
         if (tree == null) {
@@ -430,6 +459,7 @@ public class Exchange implements ReadOnlyExchange {
         final Volume volume = tree.getVolume();
         _ignoreTransactions = volume.isTemporary();
         _ignoreMVCCFetch = false;
+        _scanAccess = false;
         _pool = volume.getStructure().getPool();
 
         _transaction = _persistit.getTransaction();
@@ -454,6 +484,7 @@ public class Exchange implements ReadOnlyExchange {
         _volume = exchange._volume;
         _ignoreTransactions = _volume.isTemporary();
         _ignoreMVCCFetch = false;
+        _scanAccess = exchange._scanAccess;
         _tree = exchange._tree;
         _treeHolder = new ReentrantResourceHolder(_tree);
         _pool = exchange._pool;
@@ -484,6 +515,7 @@ public class Exchange implements ReadOnlyExchange {
         _transaction = null;
         _ignoreTransactions = false;
         _ignoreMVCCFetch = false;
+        _scanAccess = false;
         _splitPolicy = _persistit.getDefaultSplitPolicy();
         _joinPolicy = _persistit.getDefaultJoinPolicy();
         _treeHolder.verifyReleased();
@@ -1191,6 +1223,22 @@ public class Exchange implements ReadOnlyExchange {
                     corrupt("Volume " + _volume + " level=" + currentLevel + " page=" + pageAddress + " oldPage="
                             + oldPageAddress + " key=<" + key.toString() + "> " + " invalid page address");
                 }
+                //
+                // Index levels above the target may be read without a
+                // claim. The tree claim prevents pages from being removed
+                // from the tree, and if the page has split since the parent
+                // was read, the claimed search below walks right. Any buffer
+                // still claimed from a level above remains claimed until the
+                // next claimed level is reached.
+                //
+                if (currentLevel > toLevel) {
+                    final long childPageAddress = optimisticSearchLevel(key, pageAddress, currentLevel);
+                    if (childPageAddress > 0) {
+                        oldPageAddress = pageAddress;
+                        pageAddress = childPageAddress;
+                        continue;
+                    }
+                }
 
                 foundAt = searchLevel(key, false, pageAddress, currentLevel, writer && currentLevel == toLevel);
                 if (oldBuffer != null) {
@@ -1242,6 +1290,349 @@ public class Exchange implements ReadOnlyExchange {
         }
     }
 
+    /**
+     * Attempt to find the child page pointer for the supplied key in an index
+     * page without claiming it. The page must be the one cached in the
+     * LevelCache for this level. The result is used only if no writer claimed
+     * the page while it was being read.
+     * 
+     * @param key
+     *            Key to search for
+     * @param pageAddress
+     *            The address of the index page to search
+     * @param level
+     *            current level in the tree; must be greater than zero
+     * @return The child page address, or -1 if the optimistic read did not
+     *         succeed and the caller must search with a claim
+     */
+    private long optimisticSearchLevel(final Key key, final long pageAddress, final int level) {
+        if (!_pool.isOptimisticReadsEnabled()) {
+            return -1;
+        }
+        final LevelCache lc = _levelCache[level];
+        final Buffer buffer = lc._buffer;
+        if (buffer == null || lc._page != pageAddress) {
+            return -1;
+        }
+        final long stamp = buffer.getOptimisticStamp();
+        if (stamp < 0) {
+            _pool.bumpOptimisticRetryCounter();
+            return -1;
+        }
+        long childPageAddress = -1;
+        try {
+            if (isOptimisticCandidate(buffer, pageAddress, level)) {
+                final FastIndex fastIndex = buffer.getFastIndexIfValid();
+                if (fastIndex != null) {
+                    final int foundAt = buffer.findKey(key, fastIndex);
+                    if (!buffer.isBeforeLeftEdge(foundAt) && !buffer.isAfterRightEdge(foundAt)) {
+                        int p = foundAt & P_MASK;
+                        if ((foundAt & EXACT_MASK) == 0) {
+                            p -= KEYBLOCK_LENGTH;
+                        }
+                        childPageAddress = buffer.getPointer(p);
+                    }
+                }
+            }
+        } catch (final PersistitException e) {
+            childPageAddress = -1;
+        } catch (final RuntimeException e) {
+            childPageAddress = -1;
+        } catch (final AssertionError e) {
+            childPageAddress = -1;
+        }
+        if (!validateOptimisticRead(buffer, stamp)) {
+            _pool.bumpOptimisticRetryCounter();
+            return -1;
+        }
+        if (childPageAddress <= 0 || childPageAddress >= MAX_VALID_PAGE_ADDR) {
+            return -1;
+        }
+        optimisticReadSucceeded(buffer);
+        pinIndexPage(buffer, level);
+        return childPageAddress;
+    }
+
+    /**
+     * Look up the current key and fetch its value without claiming the tree
+     * or any page. This succeeds only if every level of the tree is present
+     * in the level cache, the value is not a long record, and no writer
+     * claimed the tree or any of the pages while they were being read.
+     * 
+     * @param value
+     *            The value to fetch into
+     * @param minimumBytes
+     *            As for {@link #fetchFromValueInternal(Value, int, Buffer)}
+     * @return <code>true</code> if the value was fetched, else
+     *         <code>false</code> in which case the caller must perform a
+     *         conventional search
+     * @throws PersistitException
+     */
+    private boolean optimisticFetch(final Value value, final int minimumBytes) throws PersistitException {
+        if (!_pool.isOptimisticReadsEnabled()) {
+            return false;
+        }
+        checkLevelCache();
+        final Tree tree = _tree;
+        final long treeStamp = tree.getOptimisticStamp();
+        final int depth = _cacheDepth;
+        if (treeStamp < 0 || depth <= 0 || _cachedTreeGeneration != tree.getGeneration()) {
+            return false;
+        }
+        long pageAddress = tree.getRootPageAddr();
+        for (int level = depth; --level > 0;) {
+            pageAddress = optimisticSearchLevel(_key, pageAddress, level);
+            if (pageAddress <= 0) {
+                return false;
+            }
+        }
+
+        final LevelCache lc = _levelCache[0];
+        final Buffer buffer = lc._buffer;
+        if (buffer == null || lc._page != pageAddress) {
+            return false;
+        }
+        final long stamp = buffer.getOptimisticStamp();
+        if (stamp < 0) {
+            _pool.bumpOptimisticRetryCounter();
+            return false;
+        }
+        boolean found = false;
+        try {
+            if (isOptimisticCandidate(buffer, pageAddress, 0)) {
+                final FastIndex fastIndex = buffer.getFastIndexIfValid();
+                if (fastIndex != null) {
+                    final int foundAt = buffer.findKey(_key, fastIndex);
+                    if (!buffer.isBeforeLeftEdge(foundAt) && !buffer.isAfterRightEdge(foundAt)) {
+                        buffer.fetch(foundAt, value);
+                        found = true;
+                    }
+                }
+            }
+        } catch (final RuntimeException e) {
+            found = false;
+        } catch (final AssertionError e) {
+            found = false;
+        }
+        if (!validateOptimisticRead(buffer, stamp) || !tree.validateOptimisticStamp(treeStamp)
+                || _cachedTreeGeneration != tree.getGeneration()) {
+            _pool.bumpOptimisticRetryCounter();
+            return false;
+        }
+        if (!found) {
+            return false;
+        }
+        optimisticReadSucceeded(buffer);
+        if (resolveOptimisticValue(buffer, value, minimumBytes) < 0) {
+            return false;
+        }
+        _volume.getStatistics().bumpFetchCounter();
+        _tree.getStatistics().bumpFetchCounter();
+        return true;
+    }
+
+    /**
+     * Attempt a GT or LT traversal from the position recorded in the level
+     * cache by the previous operation without claiming the page. Only the
+     * simple case is handled here: the next key must be in the same page, it
+     * must be visible, its value must not be a long record, and for a shallow
+     * traversal it must be a sibling of the current key. Otherwise this method
+     * returns <code>false</code> with the <code>Key</code> unchanged and the
+     * caller performs a conventional traversal.
+     * 
+     * @param direction
+     *            GT or LT
+     * @param deep
+     *            whether to traverse to the next physical key
+     * @param minimumBytes
+     *            minimum number of value bytes to fetch; must be non-negative
+     * @return <code>true</code> if the traversal found the next key
+     * @throws PersistitException
+     */
+    private boolean optimisticTraverse(final Direction direction, final boolean deep, final int minimumBytes)
+            throws PersistitException {
+        if (!_pool.isOptimisticReadsEnabled() || direction != GT && direction != LT || minimumBytes < 0
+                || _key.getEncodedSize() == 0) {
+            return false;
+        }
+        _key.testValidForTraverse();
+        checkLevelCache();
+        final LevelCache lc = _levelCache[0];
+        final Buffer buffer = lc._buffer;
+        final int startAt = lc._foundAt;
+        final long bufferGeneration = lc._bufferGeneration;
+        final boolean reverse = direction == LT;
+        if (buffer == null || startAt <= 0 || lc._keyGeneration != _key.getGeneration()
+                || reverse && (startAt & P_MASK) <= buffer.getKeyBlockStart()) {
+            return false;
+        }
+        final Key spareKey = _spareKey1;
+        final Value outValue = minimumBytes > 0 ? _value : _spareValue;
+
+        final long stamp = buffer.getOptimisticStamp();
+        if (stamp < 0) {
+            _pool.bumpOptimisticRetryCounter();
+            return false;
+        }
+        int foundAt = -1;
+        try {
+            if (isOptimisticCandidate(buffer, lc._page, 0) && buffer.getGeneration() == bufferGeneration
+                    && _cachedTreeGeneration == _tree.getGeneration()) {
+                _key.copyTo(spareKey);
+                foundAt = buffer.traverse(spareKey, direction, startAt);
+                if ((foundAt & P_MASK) == (startAt & P_MASK) || buffer.isAfterRightEdge(foundAt)) {
+                    foundAt = -1;
+                } else {
+                    buffer.fetch(foundAt, outValue);
+                }
+            }
+        } catch (final RuntimeException e) {
+            foundAt = -1;
+        } catch (final AssertionError e) {
+            foundAt = -1;
+        }
+        if (!validateOptimisticRead(buffer, stamp)) {
+            _pool.bumpOptimisticRetryCounter();
+            return false;
+        }
+        if (foundAt <= 0) {
+            return false;
+        }
+        optimisticReadSucceeded(buffer);
+
+        if (reverse ? spareKey.isLeftEdge() : spareKey.isRightEdge()) {
+            return false;
+        }
+        if (!deep) {
+            final int size = _key.getEncodedSize();
+            int parentIndex = _key.previousElementIndex(size);
+            if (parentIndex < 0) {
+                parentIndex = 0;
+            }
+            if (spareKey.compareKeyFragment(_key, 0, parentIndex) != 0
+                    || spareKey.nextElementIndex(parentIndex) != spareKey.getEncodedSize()
+                    || spareKey.compareKeyFragment(_key, 0, size) == 0) {
+                return false;
+            }
+        }
+        if (resolveOptimisticValue(buffer, outValue, minimumBytes) <= 0) {
+            return false;
+        }
+        spareKey.copyTo(_key);
+        lc._keyGeneration = _key.getGeneration();
+        lc._foundAt = foundAt;
+        _keysVisitedDuringTraverse = 1;
+        _volume.getStatistics().bumpTraverseCounter();
+        _tree.getStatistics().bumpTraverseCounter();
+        return true;
+    }
+
+    /**
+     * Verify, as part of an optimistic read, that the buffer holds the
+     * expected page at the expected level of this Exchange's tree.
+     */
+    private boolean isOptimisticCandidate(final Buffer buffer, final long pageAddress, final int level) {
+        return buffer.getPageAddress() == pageAddress && buffer.getVolume() == _volume && buffer.isValid()
+                && buffer.getPageType() == level + PAGE_TYPE_DATA;
+    }
+
+    private boolean validateOptimisticRead(final Buffer buffer, final long stamp) {
+        _optimisticFence = stamp;
+        return buffer.validateOptimisticStamp(stamp);
+    }
+
+    /**
+     * Called when a forward traversal steps from one data page to its right
+     * sibling. After {@value #READ_AHEAD_THRESHOLD} consecutive steps, ask the
+     * BufferPool to load the following sibling pages in the background. A new
+     * request is made when half of the previously requested pages have been
+     * consumed. The number of pages requested depends on how quickly this
+     * traversal consumes pages relative to the pool's read latency.
+     * 
+     * @param buffer
+     *            the data page just reached
+     */
+    private void readAhead(final Buffer buffer) {
+        final long now = System.nanoTime();
+        final long interval = now - _lastSiblingTime;
+        _lastSiblingTime = now;
+        if (interval > READ_AHEAD_RESET_INTERVAL || _sequentialPageCount == 0) {
+            _sequentialPageCount = 1;
+            _readAheadRemaining = 0;
+            _pageInterval = 0;
+            return;
+        }
+        _pageInterval = _pageInterval == 0 ? interval : (_pageInterval * 3 + interval) / 4;
+        if (++_sequentialPageCount < READ_AHEAD_THRESHOLD) {
+            return;
+        }
+        if (_readAheadRemaining > 0) {
+            _readAheadRemaining--;
+        }
+        final int window = _pool.readAheadWindow(_pageInterval);
+        if (window > 0 && _readAheadRemaining <= window / 2) {
+            final long page = buffer.getRightSibling();
+            if (page > 0 && _pool.readAhead(_volume, page, window)) {
+                _readAheadRemaining = window;
+            }
+        }
+    }
+
+    /**
+     * Mark an index page of a Tree whose index pages are pinned so that the
+     * BufferPool will not evict it. See {@link Tree#setIndexPinned(boolean)}.
+     */
+    private void pinIndexPage(final Buffer buffer, final int level) {
+        if (level > 0 && _tree.isIndexPinned() && !buffer.isPinned()) {
+            buffer.setPinned();
+        }
+    }
+
+    /**
+     * Record a successful optimistic read. The buffer is marked touched, as
+     * {@link Buffer#releaseTouched()} would, so that the page replacement
+     * algorithm sees it as recently used. The state is modified only if the
+     * bit is not already set.
+     */
+    private void optimisticReadSucceeded(final Buffer buffer) {
+        if (!buffer.isTouched()) {
+            buffer.setTouched();
+        }
+        buffer.bumpAccessCount();
+        _pool.bumpOptimisticReadCounter();
+    }
+
+    /**
+     * Equivalent of {@link #fetchFromValueInternal(Value, int, Buffer)} for a
+     * value read optimistically. Values that require reading a long record
+     * are not handled because reading one requires a claim on the page that
+     * refers to it.
+     * 
+     * @return 1 if the value is visible, 0 if not visible, or -1 if the value
+     *         must be fetched with the page claimed
+     */
+    private int resolveOptimisticValue(final Buffer buffer, final Value value, final int minimumBytes)
+            throws PersistitException {
+        if (isLongRecord(value) || isLongMVV(value)) {
+            return -1;
+        }
+        boolean visible = true;
+        if (!_ignoreMVCCFetch) {
+            if (MVV.isArrayMVV(value.getEncodedBytes(), 0, value.getEncodedSize())) {
+                buffer.enqueuePruningAction(_tree.getHandle());
+                visible = mvccFetch(value, minimumBytes);
+                if (minimumBytes >= 0 && isLongRecord(value)) {
+                    return -1;
+                }
+            }
+            if (value.isDefined() && value.isAntiValue()) {
+                value.clear();
+                visible = false;
+            }
+        }
+        return visible ? 1 : 0;
+    }
+
     /**
      * Search for the key in the specified page (data or index). This method
      * gets and claims the identified page. If the key is found to be after the
@@ -1287,9 +1678,15 @@ public class Exchange implements ReadOnlyExchange {
                 }
 
                 if (buffer == null) {
-                    buffer = _pool.get(_volume, pageAddress, writer, true, _timeoutMillis);
+                    //
+                    // Only data pages are marked as scanned: the few index
+                    // pages above them are likely to be needed again.
+                    //
+                    buffer = _pool.get(_volume, pageAddress, writer, true, _timeoutMillis, _scanAccess
+                            && currentLevel == 0);
                 }
                 checkPageType(buffer, currentLevel + PAGE_TYPE_DATA, true);
+                pinIndexPage(buffer, currentLevel);
 
                 //
                 // Release previous buffer after claiming this one. This
@@ -2080,6 +2477,10 @@ public class Exchange implements ReadOnlyExchange {
             final int minKeyDepth, final int matchUpToIndex, final TraverseVisitor visitor) throws PersistitException {
         assertCorrectThread(true);
         _persistit.checkClosed();
+        if (visitor == null && minKeyDepth == 0 && matchUpToIndex == 0
+                && optimisticTraverse(direction, deep, minimumBytes)) {
+            return true;
+        }
         final Key spareKey = _spareKey1;
         final boolean doFetch = minimumBytes > 0;
         final boolean doModify = minimumBytes >= 0;
@@ -2182,7 +2583,7 @@ public class Exchange implements ReadOnlyExchange {
                         Debug.$assert0.t(rightSiblingPage >= 0 && rightSiblingPage <= MAX_VALID_PAGE_ADDR);
                         if (rightSiblingPage > 0) {
                             final Buffer rightSibling = _pool.get(_volume, rightSiblingPage, false, true,
-                                    _timeoutMillis);
+                                    _timeoutMillis, _scanAccess);
                             buffer.releaseTouched();
                             //
                             // Reset foundAtNext to point to the first key block
@@ -2190,6 +2591,7 @@ public class Exchange implements ReadOnlyExchange {
                             //
                             buffer = rightSibling;
                             checkPageType(buffer, PAGE_TYPE_DATA, false);
+                            readAhead(buffer);
                             foundAt = buffer.traverse(_key, dir, buffer.toKeyBlock(0));
                             matches = !buffer.isAfterRightEdge(foundAt);
                         } else {
@@ -3144,6 +3546,9 @@ public class Exchange implements ReadOnlyExchange {
      *             As thrown from {@link #search(Key, boolean)}
      */
     private void searchAndFetchInternal(final Value value, final int minimumBytes) throws PersistitException {
+        if (optimisticFetch(value, minimumBytes)) {
+            return;
+        }
         Buffer buffer = null;
         try {
             final int foundAt = search(_key, false);
@@ -4203,6 +4608,32 @@ public class Exchange implements ReadOnlyExchange {
         return _isDirectoryExchange;
     }
 
+    /**
+     * Indicate whether this <code>Exchange</code> is being used to scan a
+     * large number of pages that are unlikely to be needed again soon, for
+     * example to export or check a tree. Pages read from disk by a scan are
+     * the first to be replaced in the buffer pool unless some other operation
+     * uses them, so that the scan does not displace frequently used pages.
+     * Pages already present in the buffer pool are not affected.
+     * 
+     * @param scanAccess
+     *            <code>true</code> to mark page accesses as part of a scan
+     */
+    public void setScanAccess(final boolean scanAccess) {
+        assertCorrectThread(true);
+        _scanAccess = scanAccess;
+    }
+
+    /**
+     * @return <code>true</code> if page accesses by this
+     *         <code>Exchange</code> are marked as part of a scan
+     * @see #setScanAccess(boolean)
+     */
+    public boolean isScanAccess() {
+        assertCorrectThread(true);
+        return _scanAccess;
+    }
+
     public void setSplitPolicy(final SplitPolicy policy) {
         assertCorrectThread(true);
         _splitPolicy = policy;
@@ -4249,7 +4680,8 @@ public class Exchange implements ReadOnlyExchange {
                 if (buffer.isAfterRightEdge(foundAt)) {
                     final long rightSiblingPage = buffer.getRightSibling();
                     if (rightSiblingPage > 0) {
-                        final Buffer rightSibling = _pool.get(_volume, rightSiblingPage, false, true, _timeoutMillis);
+                        final Buffer rightSibling = _pool.get(_volume, rightSiblingPage, false, true, _timeoutMillis,
+                                _scanAccess);
                         buffer.releaseTouched();
                         //
                         // Reset foundAtNext to point to the first key block
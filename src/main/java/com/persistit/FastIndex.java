@@ -147,9 +147,11 @@ class FastIndex {
      */
     private final short[] _findexElements;
     /**
-     * Indicates whether the _findexElements array is valid
+     * Indicates whether the _findexElements array is valid. Volatile so that
+     * an optimistic reader that sees <code>true</code> also sees the completed
+     * array.
      */
-    private boolean _isValid;
+    private volatile boolean _isValid;
 
     /**
      * The buffer this fast index is associated with.
@@ -1250,8 +1250,8 @@ public class IntegrityCheck extends Task {
         poll();
         final BufferPool pool = _currentVolume.getPool();
         try {
-            final Buffer buffer = pool
-                    .get(_currentVolume, page, isPruneEnabled() && !_currentVolume.isReadOnly(), true);
+            final Buffer buffer = pool.get(_currentVolume, page, isPruneEnabled() && !_currentVolume.isReadOnly(), true,
+                    SharedResource.DEFAULT_MAX_WAIT_TIME, true);
             return buffer;
         } catch (final PersistitException de) {
             throw de;
@@ -21,10 +21,13 @@ import static com.persistit.util.SequencerConstants.PAGE_MAP_READ_INVALIDATE_A;
 import static com.persistit.util.SequencerConstants.RECOVERY_PRUNING_B;
 import static com.persistit.util.ThreadSequencer.sequence;
 import static com.persistit.util.Util.NS_PER_MS;
+import static com.persistit.util.Util.NS_PER_S;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,10 +38,20 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -52,12 +65,14 @@ import com.persistit.JournalRecord.IV;
 import com.persistit.JournalRecord.JE;
 import com.persistit.JournalRecord.JH;
 import com.persistit.JournalRecord.PA;
+import com.persistit.JournalRecord.PD;
 import com.persistit.JournalRecord.PM;
 import com.persistit.JournalRecord.TM;
 import com.persistit.JournalRecord.TX;
 import com.persistit.Persistit.FatalErrorException;
 import com.persistit.TransactionPlayer.TransactionPlayerListener;
 import com.persistit.exception.CorruptJournalException;
+import com.persistit.exception.PersistitClosedException;
 import com.persistit.exception.PersistitException;
 import com.persistit.exception.PersistitIOException;
 import com.persistit.exception.PersistitInterruptedException;
@@ -65,6 +80,7 @@ import com.persistit.exception.RebalanceException;
 import com.persistit.exception.VolumeNotFoundException;
 import com.persistit.mxbeans.JournalManagerMXBean;
 import com.persistit.util.Debug;
+import com.persistit.util.LZCodec;
 import com.persistit.util.Util;
 
 /**
@@ -85,19 +101,52 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     private final static int TOO_MANY_WARN_THRESHOLD = 5;
     private final static int TOO_MANY_ERROR_THRESHOLD = 10;
     private final static long KILO = 1024;
+    /**
+     * A page delta record is written only if its changes are smaller than
+     * this fraction of the full page image
+     */
+    private final static int PAGE_DELTA_RATIO = 4;
+    /**
+     * Number of slots in the cache of recently written page images from which
+     * page deltas are computed
+     */
+    private final static int PAGE_IMAGE_CACHE_SIZE = 256;
+
+    /**
+     * Largest number of bytes the copier writes to a volume in one write
+     */
+    private final static int COPIER_RUN_SIZE = 1024 * 1024;
 
     /**
      * REGEX expression that recognizes the name of a journal file.
      */
     final static Pattern PATH_PATTERN = Pattern.compile("(.+)\\.(\\d{12})");
 
+    /**
+     * Format expressions defining the names of a spare journal file that is
+     * ready for use and of one that is waiting to be zero-filled. Neither
+     * matches {@link #PATH_PATTERN}, so recovery never reads them.
+     */
+    final static String SPARE_FORMAT = "%s.spare%d";
+    final static String RECYCLE_FORMAT = "%s.recycle%d";
+
+    /**
+     * REGEX expression that recognizes the name of a spare journal file.
+     */
+    final static Pattern SPARE_PATTERN = Pattern.compile("(.+)\\.(spare|recycle)(\\d+)");
+
+    /**
+     * Size of the zero-filled buffer used to preallocate spare journal files
+     */
+    private final static int PREALLOCATION_CHUNK_SIZE = 1024 * 1024;
+
     private long _journalCreatedTime;
 
-    private final Map<PageNode, PageNode> _pageMap = new HashMap<PageNode, PageNode>();
+    private final PageMap _pageMap = new PageMap();
 
     private final RangeRemovingArrayList<PageNode> _pageList = new RangeRemovingArrayList<PageNode>();
 
-    private final Map<PageNode, PageNode> _branchMap = new HashMap<PageNode, PageNode>();
+    private final PageMap _branchMap = new PageMap();
 
     private final Map<Volume, Integer> _volumeToHandleMap = new HashMap<Volume, Integer>();
 
@@ -118,6 +167,37 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private long _writeBufferAddress = Long.MAX_VALUE;
 
+    /*
+     * Write buffers rotate: while the JOURNAL_FLUSHER writes a filled buffer
+     * to the journal file without holding this JournalManager's monitor,
+     * appenders fill the other one. The following fields are guarded by
+     * _flushLock. _flushingBuffer holds bytes [0, _flushingLength) destined
+     * for journal address _flushingAddress; it remains set after a failed or
+     * incomplete write until the remaining bytes have been written.
+     */
+    private final Object _flushLock = new Object();
+
+    private ByteBuffer _spareWriteBuffer;
+
+    private ByteBuffer _flushingBuffer;
+
+    private FileChannel _flushingChannel;
+
+    private long _flushingAddress;
+
+    private int _flushingLength;
+
+    private boolean _flushInProgress;
+
+    /*
+     * Number of records whose space in _writeBuffer has been reserved but
+     * whose bytes are still being copied into it without holding the
+     * monitor. _writeBuffer must not be written, read or replaced until the
+     * count drops to zero; no new reservations can be made while the monitor
+     * is held, so waiting for it is brief.
+     */
+    private final AtomicInteger _pendingCopies = new AtomicInteger();
+
     private JournalFlusher _flusher;
 
     private JournalCopier _copier;
@@ -134,6 +214,26 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private final AtomicBoolean _ignoreMissingVolume = new AtomicBoolean();
 
+    private final AtomicBoolean _compressingPages = new AtomicBoolean();
+
+    private volatile int _pageDeltaLimit;
+
+    private volatile int _spareJournalFileLimit;
+
+    /*
+     * Spare journal files that are zero-filled and ready to become the next
+     * journal file, and those waiting to be zero-filled. Guarded by this.
+     */
+    private final List<File> _spareJournalFiles = new ArrayList<File>();
+
+    private final List<File> _recycledJournalFiles = new ArrayList<File>();
+
+    private int _spareJournalFileCounter;
+
+    private final AtomicLong _recycledJournalFileCount = new AtomicLong();
+
+    private JournalPreallocator _preallocator;
+
     private String _journalFilePath;
 
     /**
@@ -152,6 +252,18 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private final Map<Long, FileChannel> _journalFileChannels = new HashMap<Long, FileChannel>();
 
+    /*
+     * Read-only mappings of journal files that are no longer being written,
+     * keyed by generation. Read without locking; a mapping is added only
+     * while holding this, after confirming with isMappable that its file has
+     * not been released by the copier.
+     */
+    private final ConcurrentMap<Long, MappedByteBuffer> _journalFileMaps = new ConcurrentHashMap<Long, MappedByteBuffer>();
+
+    private final AtomicBoolean _mappingJournalFiles = new AtomicBoolean();
+
+    private final AtomicLong _mappedReadCount = new AtomicLong();
+
     /**
      * Counter used to assign internal handle values to Volume and Tree records.
      */
@@ -165,6 +277,13 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private long _deleteBoundaryAddress = 0;
 
+    /*
+     * Journal files below this address have been released by the copier and
+     * must not be mapped again. Unlike _deleteBoundaryAddress it advances
+     * before the files are deleted. Guarded by this.
+     */
+    private long _unmappedBoundaryAddress = 0;
+
     private int _lastReportedJournalFileCount = 0;
 
     private boolean _isNewEpoch = true;
@@ -173,7 +292,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private volatile long _readPageCount = 0;
 
-    private volatile long _copiedPageCount = 0;
+    private final AtomicLong _copiedPageCount = new AtomicLong();
 
     private volatile long _droppedPageCount = 0;
 
@@ -185,6 +304,90 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private final AtomicLong _totalFlushIoTime = new AtomicLong();
 
+    private final AtomicLong _appendStallCount = new AtomicLong();
+
+    private final AtomicLong _totalAppendStallTime = new AtomicLong();
+
+    private final AtomicLong _compressedPageCount = new AtomicLong();
+
+    private final AtomicLong _compressedPageBytesSaved = new AtomicLong();
+
+    private final AtomicLong _pageDeltaCount = new AtomicLong();
+
+    /*
+     * Per-thread working space for compressing page images before the
+     * monitor is acquired and for expanding compressed page images.
+     */
+    private final ThreadLocal<PageScratch> _pageScratch = new ThreadLocal<PageScratch>() {
+        @Override
+        protected PageScratch initialValue() {
+            return new PageScratch();
+        }
+    };
+
+    private static class PageScratch {
+        final byte[] _image = new byte[Buffer.MAX_BUFFER_SIZE];
+        final byte[] _compressed = new byte[Buffer.MAX_BUFFER_SIZE];
+        final int[] _table = new int[LZCodec.HASH_TABLE_SIZE];
+        final byte[] _base = new byte[Buffer.MAX_BUFFER_SIZE];
+    }
+
+    /*
+     * Cache of the most recently written image of pages, used as the base of
+     * page deltas so that computing a delta needs no journal read. A page maps
+     * to one slot by its volume handle and page address; each slot holds the
+     * last page written to it. Access to a slot is synchronized on it.
+     */
+    private final PageImage[] _pageImages = newPageImages();
+
+    private static class PageImage {
+        int _volumeHandle;
+        long _pageAddress;
+        long _journalAddress = -1;
+        int _deltaCount;
+        int _bufferSize;
+        byte[] _image;
+    }
+
+    /**
+     * Changes to a page relative to an earlier image of the page in the
+     * journal, computed before the monitor is acquired.
+     */
+    private static class PageDelta {
+        final long _baseAddress;
+        final int _deltaCount;
+        final byte[] _runs;
+        boolean _appended;
+
+        PageDelta(final long baseAddress, final int deltaCount, final byte[] runs) {
+            _baseAddress = baseAddress;
+            _deltaCount = deltaCount;
+            _runs = runs;
+        }
+    }
+
+    /*
+     * Handles returned by Transaction#commitAsync that are waiting for
+     * durability, ordered by the timestamp that must be covered by a
+     * completed JOURNAL_FLUSHER cycle.
+     */
+    private final PriorityQueue<CommitFuture> _commitFutures = new PriorityQueue<CommitFuture>(16,
+            new Comparator<CommitFuture>() {
+                @Override
+                public int compare(final CommitFuture a, final CommitFuture b) {
+                    final long x = a.getFlushedTimestamp();
+                    final long y = b.getFlushedTimestamp();
+                    return x < y ? -1 : x > y ? 1 : 0;
+                }
+            });
+
+    /*
+     * Start timestamp of the most recent JOURNAL_FLUSHER cycle that
+     * successfully forced the journal; every commit flushed before it is
+     * durable.
+     */
+    private volatile long _durableTimestamp;
+
     private volatile long _flushInterval = DEFAULT_FLUSH_INTERVAL_MS;
 
     private volatile long _slowIoAlertThreshold = DEFAULT_SLOW_IO_ALERT_THRESHOLD_MS;
@@ -206,6 +409,18 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     private volatile int _copiesPerCycle = DEFAULT_COPIES_PER_CYCLE;
 
+    private volatile int _copierThreadCount = 1;
+
+    private volatile int _copierRateLimit;
+
+    private final Object _copierRateLock = new Object();
+
+    /*
+     * System.nanoTime() at which the next copier write may start when the
+     * copier rate is limited. Guarded by _copierRateLock.
+     */
+    private long _copierRateAvailable;
+
     private volatile long _copierTimestampLimit = Long.MAX_VALUE;
 
     private volatile long _earliestCommittedTimestamp = Long.MAX_VALUE;
@@ -295,13 +510,16 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     public void startJournal() throws PersistitException {
         synchronized (this) {
+            findSpareJournalFiles();
             prepareWriteBuffer(JH.OVERHEAD);
         }
         _flusher = new JournalFlusher();
         _copier = new JournalCopier();
+        _preallocator = new JournalPreallocator();
 
         _copier.start();
         _flusher.start();
+        _preallocator.start();
     }
 
     /**
@@ -314,7 +532,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         if (_blockSize == 0) {
             return;
         }
-        info.copiedPageCount = _copiedPageCount;
+        info.copiedPageCount = _copiedPageCount.get();
         info.droppedPageCount = _droppedPageCount;
         info.copying = _copying.get();
         info.currentGeneration = _currentAddress;
@@ -391,6 +609,47 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         _appendOnly.set(appendOnly);
     }
 
+    @Override
+    public boolean isCompressingPages() {
+        return _compressingPages.get();
+    }
+
+    @Override
+    public void setCompressingPages(final boolean compress) {
+        _compressingPages.set(compress);
+    }
+
+    @Override
+    public boolean isMappingJournalFiles() {
+        return _mappingJournalFiles.get();
+    }
+
+    @Override
+    public void setMappingJournalFiles(final boolean mapping) {
+        _mappingJournalFiles.set(mapping);
+        if (!mapping) {
+            synchronized (this) {
+                _journalFileMaps.clear();
+            }
+        }
+    }
+
+    @Override
+    public long getMappedReadCount() {
+        return _mappedReadCount.get();
+    }
+
+    @Override
+    public int getPageDeltaLimit() {
+        return _pageDeltaLimit;
+    }
+
+    @Override
+    public void setPageDeltaLimit(final int limit) {
+        Util.rangeCheck(limit, 0, MAXIMUM_PAGE_DELTA_LIMIT);
+        _pageDeltaLimit = limit;
+    }
+
     @Override
     public void setIgnoreMissingVolumes(final boolean ignore) {
         _ignoreMissingVolume.set(ignore);
@@ -421,6 +680,28 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         _copier.setPollInterval(copierInterval);
     }
 
+    @Override
+    public int getCopierThreadCount() {
+        return _copierThreadCount;
+    }
+
+    @Override
+    public void setCopierThreadCount(final int count) {
+        Util.rangeCheck(count, 1, MAXIMUM_COPIER_THREAD_COUNT);
+        _copierThreadCount = count;
+    }
+
+    @Override
+    public int getCopierRateLimit() {
+        return _copierRateLimit;
+    }
+
+    @Override
+    public void setCopierRateLimit(final int mbPerSecond) {
+        Util.rangeCheck(mbPerSecond, 0, Integer.MAX_VALUE);
+        _copierRateLimit = mbPerSecond;
+    }
+
     @Override
     public void setRollbackPruningEnabled(final boolean rollbackPruning) {
         _rollbackPruning.set(rollbackPruning);
@@ -472,7 +753,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     @Override
     public long getCopiedPageCount() {
-        return _copiedPageCount;
+        return _copiedPageCount.get();
     }
 
     @Override
@@ -532,6 +813,56 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         return _totalCommitWaitTime.get() / NS_PER_MS;
     }
 
+    @Override
+    public long getAppendStallCount() {
+        return _appendStallCount.get();
+    }
+
+    @Override
+    public long getAppendStallTime() {
+        return _totalAppendStallTime.get() / NS_PER_MS;
+    }
+
+    @Override
+    public long getCompressedPageCount() {
+        return _compressedPageCount.get();
+    }
+
+    @Override
+    public long getCompressedPageBytesSaved() {
+        return _compressedPageBytesSaved.get();
+    }
+
+    @Override
+    public long getPageDeltaCount() {
+        return _pageDeltaCount.get();
+    }
+
+    @Override
+    public int getSpareJournalFileLimit() {
+        return _spareJournalFileLimit;
+    }
+
+    @Override
+    public void setSpareJournalFileLimit(final int limit) {
+        Util.rangeCheck(limit, 0, MAXIMUM_SPARE_JOURNAL_FILES);
+        _spareJournalFileLimit = limit;
+        final JournalPreallocator preallocator = _preallocator;
+        if (preallocator != null) {
+            preallocator.kick();
+        }
+    }
+
+    @Override
+    public synchronized int getSpareJournalFileCount() {
+        return _spareJournalFiles.size();
+    }
+
+    @Override
+    public long getRecycledJournalFileCount() {
+        return _recycledJournalFileCount.get();
+    }
+
     @Override
     public long getCurrentTimestamp() {
         return _persistit.getCurrentTimestamp();
@@ -698,14 +1029,16 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     private void readFully(final ByteBuffer bb, final long address) throws PersistitIOException,
             CorruptJournalException {
         //
-        // If necessary read the bytes out of the _writeBuffer
-        // before they have been written out to the file. This code
-        // requires the _writeBuffer to be a HeapByteBuffer.
+        // If necessary read the bytes out of the _writeBuffer, or
+        // the buffer currently being written, before they have been
+        // written out to the file.
         //
         final int position = bb.position();
         final int length = bb.remaining();
+        final boolean mappable;
         synchronized (this) {
             if (address >= _writeBufferAddress && address + length <= _currentAddress) {
+                awaitPendingCopies();
                 assert _writeBufferAddress + _writeBuffer.position() == _currentAddress : String.format(
                         "writeBufferAddress=%,d position=%,d currentAddress=%,d", _writeBufferAddress,
                         _writeBuffer.position(), _currentAddress);
@@ -719,6 +1052,22 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                 bb.position(position);
                 return;
             }
+            if (readFlushingBuffer(bb, address, length)) {
+                bb.position(position);
+                return;
+            }
+            mappable = _mappingJournalFiles.get() && isMappable(address);
+        }
+
+        if (mappable) {
+            final ByteBuffer mapped = getMappedBuffer(address, length);
+            if (mapped != null) {
+                bb.put(mapped);
+                bb.limit(bb.position());
+                bb.position(position);
+                _mappedReadCount.incrementAndGet();
+                return;
+            }
         }
 
         final FileChannel fc = getFileChannel(address);
@@ -774,7 +1123,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         synchronized (this) {
             final Integer volumeHandle = _volumeToHandleMap.get(volume);
             if (volumeHandle != null) {
-                pnLookup = _pageMap.get(new PageNode(volumeHandle, pageAddress, -1, -1));
+                pnLookup = _pageMap.get(volumeHandle, pageAddress);
             }
         }
 
@@ -808,6 +1157,9 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " is incomplete");
         }
         final int type = JournalRecord.getType(bb);
+        if (type == PD.TYPE) {
+            return readPageDeltaFromJournal(pn, bb);
+        }
         final int payloadSize = JournalRecord.getLength(bb) - PA.OVERHEAD;
         final int leftSize = PA.getLeftSize(bb);
         final int bufferSize = PA.getBufferSize(bb);
@@ -817,7 +1169,8 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " is not a PAGE record");
         }
 
-        if (leftSize < 0 || payloadSize < leftSize || payloadSize > bufferSize) {
+        final boolean compressed = PA.isCompressed(bb);
+        if (leftSize < 0 || (payloadSize < leftSize && !compressed) || payloadSize > bufferSize) {
             throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
                     + " invalid sizes: recordSize= " + payloadSize + " leftSize=" + leftSize + " bufferSize="
                     + bufferSize);
@@ -828,12 +1181,63 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                     + " mismatched page address: expected/actual=" + pn.getPageAddress() + "/" + pageAddress);
         }
 
-        bb.limit(at + payloadSize).position(at);
-        readFully(bb, pn.getJournalAddress() + PA.OVERHEAD);
+        if (compressed) {
+            final byte[] payload = _pageScratch.get()._compressed;
+            readFully(ByteBuffer.wrap(payload, 0, payloadSize), pn.getJournalAddress() + PA.OVERHEAD);
+            if (!PA.expand(payload, 0, payloadSize, leftSize, bufferSize, bb.array(), at)) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                        + " has malformed compressed page image");
+            }
+        } else {
+            bb.limit(at + payloadSize).position(at);
+            readFully(bb, pn.getJournalAddress() + PA.OVERHEAD);
+
+            final int rightSize = payloadSize - leftSize;
+            System.arraycopy(bb.array(), leftSize + at, bb.array(), bufferSize - rightSize + at, rightSize);
+            Arrays.fill(bb.array(), leftSize + at, bufferSize - rightSize + at, (byte) 0);
+        }
+        bb.limit(bb.capacity()).position(at).limit(at + bufferSize);
+        return pageAddress;
+    }
+
+    /**
+     * Read a page image from a PD record by reading the image it is based on
+     * and applying its changes.
+     */
+    private long readPageDeltaFromJournal(final PageNode pn, final ByteBuffer bb) throws PersistitIOException,
+            CorruptJournalException {
+        final int at = bb.position();
+        bb.limit(at + PD.OVERHEAD);
+        readFully(bb, pn.getJournalAddress());
+        if (bb.remaining() < PD.OVERHEAD) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " is incomplete");
+        }
+        final int payloadSize = JournalRecord.getLength(bb) - PD.OVERHEAD;
+        final int bufferSize = PD.getBufferSize(bb);
+        final long pageAddress = PD.getPageAddress(bb);
+        final long baseAddress = PD.getBaseAddress(bb);
+
+        if (payloadSize < 0 || payloadSize > bufferSize || baseAddress >= pn.getJournalAddress()
+                || bb.capacity() - at < bufferSize) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                    + " invalid sizes: recordSize= " + payloadSize + " bufferSize=" + bufferSize + " baseAddress="
+                    + baseAddress);
+        }
+
+        if (pageAddress != pn.getPageAddress() && pn.getPageAddress() != -1) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                    + " mismatched page address: expected/actual=" + pn.getPageAddress() + "/" + pageAddress);
+        }
+
+        final byte[] runs = new byte[payloadSize];
+        readFully(ByteBuffer.wrap(runs), pn.getJournalAddress() + PD.OVERHEAD);
 
-        final int rightSize = payloadSize - leftSize;
-        System.arraycopy(bb.array(), leftSize + at, bb.array(), bufferSize - rightSize + at, rightSize);
-        Arrays.fill(bb.array(), leftSize + at, bufferSize - rightSize + at, (byte) 0);
+        bb.limit(bb.capacity()).position(at);
+        readPageBufferFromJournal(new PageNode(pn.getVolumeHandle(), pageAddress, baseAddress, -1), bb);
+        if (bb.remaining() != bufferSize || !PD.apply(runs, 0, payloadSize, bb.array(), at, bufferSize)) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                    + " does not apply to the page image at " + baseAddress);
+        }
         bb.limit(bb.capacity()).position(at).limit(at + bufferSize);
         return pageAddress;
     }
@@ -856,13 +1260,17 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             return null;
         }
         final int type = JournalRecord.getType(bb);
+        if (type == PD.TYPE) {
+            return readPageDeltaBuffer(address, bb);
+        }
         final int payloadSize = JournalRecord.getLength(bb) - PA.OVERHEAD;
         final int leftSize = PA.getLeftSize(bb);
         final int bufferSize = PA.getBufferSize(bb);
         final long pageAddress = PA.getPageAddress(bb);
         final int volumeHandle = PA.getVolumeHandle(bb);
 
-        if (type != PA.TYPE || leftSize < 0 || payloadSize < leftSize || payloadSize > bufferSize) {
+        final boolean compressed = PA.isCompressed(bb);
+        if (type != PA.TYPE || leftSize < 0 || (payloadSize < leftSize && !compressed) || payloadSize > bufferSize) {
             return null;
         }
 
@@ -870,10 +1278,18 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         final Buffer buffer = new Buffer(bufferSize, -1, pool, _persistit);
         buffer.setPageAddressAndVolume(pageAddress, volumeForHandle(volumeHandle));
         bb = buffer.getByteBuffer();
-        bb.limit(payloadSize).position(0);
-        readFully(bb, address + PA.OVERHEAD);
+        if (compressed) {
+            final byte[] payload = _pageScratch.get()._compressed;
+            readFully(ByteBuffer.wrap(payload, 0, payloadSize), address + PA.OVERHEAD);
+            if (!PA.expand(payload, 0, payloadSize, leftSize, bufferSize, bb.array(), 0)) {
+                return null;
+            }
+        } else {
+            bb.limit(payloadSize).position(0);
+            readFully(bb, address + PA.OVERHEAD);
+        }
 
-        if (leftSize > 0) {
+        if (leftSize > 0 && !compressed) {
             final int rightSize = payloadSize - leftSize;
             System.arraycopy(bb.array(), leftSize, bb.array(), bufferSize - rightSize, rightSize);
             Arrays.fill(bb.array(), leftSize, bufferSize - rightSize, (byte) 0);
@@ -886,6 +1302,29 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         return buffer;
     }
 
+    private Buffer readPageDeltaBuffer(final long address, final ByteBuffer header) throws PersistitException {
+        final int bufferSize = PD.getBufferSize(header);
+        final long pageAddress = PD.getPageAddress(header);
+        final int volumeHandle = PD.getVolumeHandle(header);
+
+        final BufferPool pool = _persistit.getBufferPool(bufferSize);
+        final Buffer buffer = new Buffer(bufferSize, -1, pool, _persistit);
+        buffer.setPageAddressAndVolume(pageAddress, volumeForHandle(volumeHandle));
+        final ByteBuffer bb = buffer.getByteBuffer();
+        bb.limit(bb.capacity()).position(0);
+        try {
+            readPageBufferFromJournal(new PageNode(volumeHandle, pageAddress, address, -1), bb);
+        } catch (final CorruptJournalException e) {
+            return null;
+        }
+        bb.limit(bufferSize).position(0);
+        final boolean acquired = buffer.claim(true, 0);
+        assert acquired : "buffer in use";
+        buffer.load();
+        buffer.release();
+        return buffer;
+    }
+
     private void advance(final int recordSize) {
         Debug.$assert1.t(recordSize > 0 && recordSize + _writeBuffer.position() <= _writeBuffer.capacity());
         _currentAddress += recordSize;
@@ -1065,72 +1504,350 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     }
 
     void writePageToJournal(final Buffer buffer) throws PersistitException {
+        final PageDelta delta = computeDelta(buffer);
+        final byte[] compressed = delta == null ? compressPage(buffer) : null;
+        final long address;
+        synchronized (this) {
+            address = appendPageRecord(buffer, compressed, delta);
+        }
+        cachePageImage(buffer, address, delta);
+        _persistit.getIOMeter().chargeWritePageToJournal(buffer.getVolume(), buffer.getPageAddress(),
+                buffer.getBufferSize(), address, urgency(), buffer.getIndex());
+    }
 
-        final Volume volume;
-        final int recordSize;
-
+    /**
+     * Write a run of pages to the journal as consecutive PA records while
+     * holding the journal monitor once for the entire run.
+     * 
+     * @param buffers
+     *            Buffers each having a writer claim
+     * @param count
+     *            number of Buffers to write
+     * @throws PersistitException
+     */
+    void writePagesToJournal(final Buffer[] buffers, final int count) throws PersistitException {
+        final long[] addresses = new long[count];
+        final byte[][] compressed = new byte[count][];
+        final PageDelta[] deltas = new PageDelta[count];
+        for (int index = 0; index < count; index++) {
+            deltas[index] = computeDelta(buffers[index]);
+            if (deltas[index] == null) {
+                compressed[index] = compressPage(buffers[index]);
+            }
+        }
         synchronized (this) {
+            for (int index = 0; index < count; index++) {
+                addresses[index] = appendPageRecord(buffers[index], compressed[index], deltas[index]);
+            }
+        }
+        final int urgency = urgency();
+        for (int index = 0; index < count; index++) {
+            final Buffer buffer = buffers[index];
+            cachePageImage(buffer, addresses[index], deltas[index]);
+            _persistit.getIOMeter().chargeWritePageToJournal(buffer.getVolume(), buffer.getPageAddress(),
+                    buffer.getBufferSize(), addresses[index], urgency, buffer.getIndex());
+        }
+    }
 
-            if (!buffer.isTemporary() && buffer.getTimestamp() < _lastValidCheckpoint.getTimestamp()) {
-                _persistit.getLogBase().lateWrite.log(_lastValidCheckpoint, buffer);
+    /**
+     * @return size of the portion of the page image at the start of the page
+     *         that is written to the journal; the remainder of the page up to
+     *         the portion returned by {@link #rightSize(Buffer)} is empty
+     */
+    private static int leftSize(final Buffer buffer) {
+        if (buffer.isDataPage() || buffer.isIndexPage() || buffer.isGarbagePage()) {
+            return buffer.getKeyBlockEnd();
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * @return size of the portion of the page image at the end of the page
+     *         that is written to the journal
+     */
+    private static int rightSize(final Buffer buffer) {
+        if (buffer.isDataPage() || buffer.isIndexPage() || buffer.isGarbagePage()) {
+            return buffer.getBufferSize() - buffer.getAlloc();
+        } else {
+            return buffer.getBufferSize();
+        }
+    }
+
+    /**
+     * Compress the page image in the supplied Buffer if page compression is
+     * enabled. Called before the monitor is acquired; the caller's writer
+     * claim keeps the page image stable.
+     * 
+     * @return the compressed left and right portions of the page, or
+     *         <code>null</code> if the page is to be written uncompressed
+     */
+    private byte[] compressPage(final Buffer buffer) {
+        if (!_compressingPages.get()) {
+            return null;
+        }
+        final int leftSize = leftSize(buffer);
+        final int rightSize = rightSize(buffer);
+        final int size = leftSize + rightSize;
+        final PageScratch scratch = _pageScratch.get();
+        final byte[] bytes = buffer.getBytes();
+        byte[] image = bytes;
+        if (leftSize > 0) {
+            image = scratch._image;
+            System.arraycopy(bytes, 0, image, 0, leftSize);
+            System.arraycopy(bytes, buffer.getBufferSize() - rightSize, image, leftSize, rightSize);
+        }
+        final int length = LZCodec.compress(image, 0, size, scratch._compressed, 0, size - 1, scratch._table);
+        if (length < 0) {
+            return null;
+        }
+        _compressedPageCount.incrementAndGet();
+        _compressedPageBytesSaved.addAndGet(size - length);
+        return Arrays.copyOf(scratch._compressed, length);
+    }
+
+    /**
+     * Compute the changes to the page in the supplied Buffer relative to the
+     * most recent image of the page if page deltas are enabled, that image is
+     * in the current journal file and still held in the page image cache, and
+     * the changes are small enough. Called before the monitor is acquired;
+     * {@link #appendPageRecord(Buffer, byte[], PageDelta)} confirms that the
+     * image is still the most recent one.
+     * 
+     * @return the changes, or <code>null</code> if a full page image is to be
+     *         written
+     */
+    private PageDelta computeDelta(final Buffer buffer) {
+        final int limit = _pageDeltaLimit;
+        final Volume volume = buffer.getVolume();
+        if (limit == 0 || buffer.isTemporary() || volume.getHandle() == 0) {
+            return null;
+        }
+        final int handle = volume.getHandle();
+        final long pageAddress = buffer.getPageAddress();
+        final PageNode base;
+        synchronized (this) {
+            base = _pageMap.get(handle, pageAddress);
+        }
+        if (base == null || base.isInvalid() || !isInCurrentFile(base.getJournalAddress())) {
+            return null;
+        }
+        final int bufferSize = buffer.getBufferSize();
+        final PageScratch scratch = _pageScratch.get();
+        final int deltaCount;
+        final PageImage cached = pageImage(handle, pageAddress);
+        synchronized (cached) {
+            if (cached._journalAddress != base.getJournalAddress() || cached._volumeHandle != handle
+                    || cached._pageAddress != pageAddress || cached._bufferSize != bufferSize) {
+                return null;
             }
+            deltaCount = cached._deltaCount + 1;
+            if (deltaCount > limit) {
+                return null;
+            }
+            System.arraycopy(cached._image, 0, scratch._base, 0, bufferSize);
+        }
+        /*
+         * Compare with the image a PA record would hold, in which the space
+         * between the left and right portions is cleared.
+         */
+        final byte[] image = scratch._image;
+        copyPageImage(buffer, image);
+        final int length = PD.diff(scratch._base, image, bufferSize, scratch._compressed,
+                (leftSize(buffer) + rightSize(buffer)) / PAGE_DELTA_RATIO);
+        if (length < 0) {
+            return null;
+        }
+        return new PageDelta(base.getJournalAddress(), deltaCount, Arrays.copyOf(scratch._compressed, length));
+    }
 
-            volume = buffer.getVolume();
-            final int handle = handleForVolume(volume);
-            int leftSize;
-            int rightSize;
-            if (buffer.isDataPage() || buffer.isIndexPage() || buffer.isGarbagePage()) {
-                leftSize = buffer.getKeyBlockEnd();
-                rightSize = buffer.getBufferSize() - buffer.getAlloc();
-            } else {
-                leftSize = 0;
-                rightSize = buffer.getBufferSize();
+    /**
+     * Record the image of a page just written to the journal in the page image
+     * cache so that the next write of the page can be a delta relative to it.
+     * Called after the monitor is released; the caller's writer claim keeps
+     * the page image stable.
+     * 
+     * @param address
+     *            journal address of the record just written
+     * @param delta
+     *            the changes passed to
+     *            {@link #appendPageRecord(Buffer, byte[], PageDelta)}, or
+     *            <code>null</code>
+     */
+    private void cachePageImage(final Buffer buffer, final long address, final PageDelta delta) {
+        final Volume volume = buffer.getVolume();
+        if (_pageDeltaLimit == 0 || buffer.isTemporary() || volume.getHandle() == 0) {
+            return;
+        }
+        final int bufferSize = buffer.getBufferSize();
+        final PageImage cached = pageImage(volume.getHandle(), buffer.getPageAddress());
+        synchronized (cached) {
+            if (cached._image == null || cached._image.length != bufferSize) {
+                cached._image = new byte[bufferSize];
             }
+            copyPageImage(buffer, cached._image);
+            cached._volumeHandle = volume.getHandle();
+            cached._pageAddress = buffer.getPageAddress();
+            cached._journalAddress = address;
+            cached._deltaCount = delta != null && delta._appended ? delta._deltaCount : 0;
+            cached._bufferSize = bufferSize;
+        }
+    }
 
-            recordSize = PA.OVERHEAD + leftSize + rightSize;
+    private PageImage pageImage(final int handle, final long pageAddress) {
+        return _pageImages[(int) ((pageAddress * 31 + handle) & Integer.MAX_VALUE) % PAGE_IMAGE_CACHE_SIZE];
+    }
 
-            prepareWriteBuffer(recordSize);
-            Debug.$assert1.t(_writeBuffer.remaining() >= recordSize);
+    private static PageImage[] newPageImages() {
+        final PageImage[] pageImages = new PageImage[PAGE_IMAGE_CACHE_SIZE];
+        for (int slot = 0; slot < PAGE_IMAGE_CACHE_SIZE; slot++) {
+            pageImages[slot] = new PageImage();
+        }
+        return pageImages;
+    }
 
-            final long address = _currentAddress;
-            final int position = _writeBuffer.position();
-
-            JournalRecord.putLength(_writeBuffer, recordSize);
-            PA.putVolumeHandle(_writeBuffer, handle);
-            PA.putType(_writeBuffer);
-            JournalRecord.putTimestamp(_writeBuffer, buffer.isTemporary() ? -1 : buffer.getTimestamp());
-            PA.putLeftSize(_writeBuffer, leftSize);
-            PA.putBufferSize(_writeBuffer, buffer.getBufferSize());
-            PA.putPageAddress(_writeBuffer, buffer.getPageAddress());
-            advance(PA.OVERHEAD);
-
-            if (leftSize > 0) {
-                _writeBuffer.put(buffer.getBytes(), 0, leftSize);
-                _writeBuffer.put(buffer.getBytes(), buffer.getBufferSize() - rightSize, rightSize);
-            } else {
-                _writeBuffer.put(buffer.getBytes());
-            }
-            Debug.$assert0.t(_writeBuffer.position() - position == recordSize);
-            _currentAddress += recordSize - PA.OVERHEAD;
+    /**
+     * Copy the page in the supplied Buffer to the supplied array as a PA
+     * record would hold it, with the space between the left and right
+     * portions cleared.
+     */
+    private static void copyPageImage(final Buffer buffer, final byte[] image) {
+        final int bufferSize = buffer.getBufferSize();
+        final int leftSize = leftSize(buffer);
+        final int rightSize = rightSize(buffer);
+        final byte[] bytes = buffer.getBytes();
+        System.arraycopy(bytes, 0, image, 0, leftSize);
+        Arrays.fill(image, leftSize, bufferSize - rightSize, (byte) 0);
+        System.arraycopy(bytes, bufferSize - rightSize, image, bufferSize - rightSize, rightSize);
+    }
 
-            final PageNode pageNode = new PageNode(handle, buffer.getPageAddress(), address, buffer.getTimestamp());
-            _pageList.add(pageNode);
-            PageNode oldPageNode = _pageMap.put(pageNode, pageNode);
+    private boolean isInCurrentFile(final long address) {
+        return address / _blockSize == _currentAddress / _blockSize;
+    }
 
-            if (oldPageNode != null) {
-                assert oldPageNode.getTimestamp() <= pageNode.getTimestamp();
-            }
-            final long checkpointTimestamp = _persistit.getTimestampAllocator().getProposedCheckpointTimestamp();
-            if (oldPageNode != null && oldPageNode.getTimestamp() > checkpointTimestamp
-                    && buffer.getTimestamp() > checkpointTimestamp) {
-                oldPageNode.invalidate();
-                oldPageNode = oldPageNode.getPrevious();
+    /**
+     * Append a PA or PD record for the page in the supplied Buffer to the
+     * write buffer and record it in the page map. Caller must hold the
+     * monitor.
+     * 
+     * @param compressed
+     *            the page image produced by {@link #compressPage(Buffer)}, or
+     *            <code>null</code> to write the page uncompressed
+     * @param delta
+     *            changes produced by {@link #computeDelta(Buffer)}, or
+     *            <code>null</code> to write a full page image. If the delta
+     *            can no longer be applied a full page image is written,
+     *            compressed if page compression is enabled.
+     * @return the journal address of the record
+     */
+    private long appendPageRecord(final Buffer buffer, byte[] compressed, final PageDelta delta)
+            throws PersistitException {
+        assert Thread.holdsLock(this);
+        if (!buffer.isTemporary() && buffer.getTimestamp() < _lastValidCheckpoint.getTimestamp()) {
+            _persistit.getLogBase().lateWrite.log(_lastValidCheckpoint, buffer);
+        }
+
+        final Volume volume = buffer.getVolume();
+        final int handle = handleForVolume(volume);
+        final int leftSize = leftSize(buffer);
+        final int rightSize = rightSize(buffer);
+
+        if (delta != null) {
+            /*
+             * Make room for a full image first: doing so may start a new
+             * journal file, after which the delta's base is no longer usable.
+             */
+            prepareWriteBuffer(PA.OVERHEAD + leftSize + rightSize);
+            if (isInCurrentFile(delta._baseAddress)) {
+                final PageNode current = _pageMap.get(handle, buffer.getPageAddress());
+                if (current != null && current.getJournalAddress() == delta._baseAddress) {
+                    final long address = _currentAddress;
+                    appendPageDeltaRecord(buffer, handle, delta);
+                    delta._appended = true;
+                    return recordPageNode(buffer, handle, address);
+                }
             }
-            pageNode.setPrevious(oldPageNode);
-            _writePageCount++;
+            /*
+             * The base has been superseded or the journal has rolled over.
+             * This is rare, so compress the full image here rather than
+             * speculatively for every delta before acquiring the monitor.
+             */
+            compressed = compressPage(buffer);
         }
-        _persistit.getIOMeter().chargeWritePageToJournal(volume, buffer.getPageAddress(), buffer.getBufferSize(),
-                _currentAddress - recordSize, urgency(), buffer.getIndex());
+
+        final int recordSize = PA.OVERHEAD + (compressed == null ? leftSize + rightSize : compressed.length);
+
+        prepareWriteBuffer(recordSize);
+        Debug.$assert1.t(_writeBuffer.remaining() >= recordSize);
+
+        final long address = _currentAddress;
+        final int position = _writeBuffer.position();
+
+        JournalRecord.putLength(_writeBuffer, recordSize);
+        PA.putVolumeHandle(_writeBuffer, handle);
+        PA.putType(_writeBuffer);
+        JournalRecord.putTimestamp(_writeBuffer, buffer.isTemporary() ? -1 : buffer.getTimestamp());
+        PA.putLeftSize(_writeBuffer, leftSize);
+        PA.putBufferSize(_writeBuffer, buffer.getBufferSize());
+        PA.putPageAddress(_writeBuffer, buffer.getPageAddress());
+        if (compressed != null) {
+            PA.putFlags(_writeBuffer, PA.COMPRESSED);
+        }
+        advance(PA.OVERHEAD);
+
+        if (compressed != null) {
+            _writeBuffer.put(compressed);
+        } else if (leftSize > 0) {
+            _writeBuffer.put(buffer.getBytes(), 0, leftSize);
+            _writeBuffer.put(buffer.getBytes(), buffer.getBufferSize() - rightSize, rightSize);
+        } else {
+            _writeBuffer.put(buffer.getBytes());
+        }
+        Debug.$assert0.t(_writeBuffer.position() - position == recordSize);
+        _currentAddress += recordSize - PA.OVERHEAD;
+        return recordPageNode(buffer, handle, address);
+    }
+
+    private void appendPageDeltaRecord(final Buffer buffer, final int handle, final PageDelta delta) {
+        final int recordSize = PD.OVERHEAD + delta._runs.length;
+        JournalRecord.putLength(_writeBuffer, recordSize);
+        PD.putVolumeHandle(_writeBuffer, handle);
+        PD.putType(_writeBuffer);
+        JournalRecord.putTimestamp(_writeBuffer, buffer.getTimestamp());
+        PD.putPageAddress(_writeBuffer, buffer.getPageAddress());
+        PD.putDeltaCount(_writeBuffer, delta._deltaCount);
+        PD.putBufferSize(_writeBuffer, buffer.getBufferSize());
+        PD.putBaseAddress(_writeBuffer, delta._baseAddress);
+        advance(PD.OVERHEAD);
+        _writeBuffer.put(delta._runs);
+        _currentAddress += delta._runs.length;
+        _pageDeltaCount.incrementAndGet();
+    }
+
+    /**
+     * Add a PageNode for a page record just appended to the page map.
+     * 
+     * @return the journal address of the record
+     * @throws PersistitInterruptedException
+     */
+    private long recordPageNode(final Buffer buffer, final int handle, final long address)
+            throws PersistitInterruptedException {
+        final PageNode pageNode = new PageNode(handle, buffer.getPageAddress(), address, buffer.getTimestamp());
+        _pageList.add(pageNode);
+        PageNode oldPageNode = _pageMap.put(pageNode);
+
+        if (oldPageNode != null) {
+            assert oldPageNode.getTimestamp() <= pageNode.getTimestamp();
+        }
+        final long checkpointTimestamp = _persistit.getTimestampAllocator().getProposedCheckpointTimestamp();
+        if (oldPageNode != null && oldPageNode.getTimestamp() > checkpointTimestamp
+                && buffer.getTimestamp() > checkpointTimestamp) {
+            oldPageNode.invalidate();
+            oldPageNode = oldPageNode.getPrevious();
+        }
+        pageNode.setPrevious(oldPageNode);
+        _writePageCount++;
+        return address;
     }
 
     /**
@@ -1199,25 +1916,46 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
      * @return
      * @throws PersistitException
      */
-    synchronized long writeTransactionToJournal(final ByteBuffer buffer, final long startTimestamp,
-            final long commitTimestamp, final long backchainAddress) throws PersistitException {
+    long writeTransactionToJournal(final ByteBuffer buffer, final long startTimestamp, final long commitTimestamp,
+            final long backchainAddress) throws PersistitException {
         final int recordSize = TX.OVERHEAD + buffer.position();
-        prepareWriteBuffer(recordSize);
-        final long address = _currentAddress;
-        TX.putLength(_writeBuffer, recordSize);
-        TX.putType(_writeBuffer);
-        TX.putTimestamp(_writeBuffer, startTimestamp);
-        TX.putCommitTimestamp(_writeBuffer, commitTimestamp);
-        TX.putBackchainAddress(_writeBuffer, backchainAddress);
-        _persistit.getIOMeter().chargeWriteTXtoJournal(recordSize, _currentAddress);
-        advance(TX.OVERHEAD);
+        final ByteBuffer target;
+        final long address;
+        /*
+         * Reserve space for the record while holding the monitor, then copy
+         * the record into the reserved space after releasing it so that
+         * concurrent committers serialize only on the reservation. Nothing
+         * after the increment of _pendingCopies may throw before the try
+         * block that decrements it; otherwise awaitPendingCopies would wait
+         * forever while holding the monitor.
+         */
+        synchronized (this) {
+            prepareWriteBuffer(recordSize);
+            address = _currentAddress;
+            updateLiveTransactionMap(startTimestamp, commitTimestamp, backchainAddress, address);
+            target = _writeBuffer.duplicate();
+            _persistit.getIOMeter().chargeWriteTXtoJournal(recordSize, address);
+            advance(recordSize);
+            _pendingCopies.incrementAndGet();
+        }
         try {
+            TX.putLength(target, recordSize);
+            TX.putType(target);
+            TX.putTimestamp(target, startTimestamp);
+            TX.putCommitTimestamp(target, commitTimestamp);
+            TX.putBackchainAddress(target, backchainAddress);
+            target.position(target.position() + TX.OVERHEAD);
             buffer.flip();
-            _writeBuffer.put(buffer);
+            target.put(buffer);
         } finally {
             buffer.clear();
+            _pendingCopies.decrementAndGet();
         }
-        _currentAddress += recordSize - TX.OVERHEAD;
+        return address;
+    }
+
+    private void updateLiveTransactionMap(final long startTimestamp, final long commitTimestamp,
+            final long backchainAddress, final long address) {
         if (commitTimestamp != ABORTED) {
             final long key = Long.valueOf(startTimestamp);
             TransactionMapItem item = _liveTransactionMap.get(key);
@@ -1239,7 +1977,16 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             }
             item.setCommitTimestamp(commitTimestamp);
         }
-        return address;
+    }
+
+    /**
+     * Wait for records whose space has been reserved in the write buffer to
+     * be copied into it. Caller must hold this JournalManager's monitor.
+     */
+    private void awaitPendingCopies() {
+        while (_pendingCopies.get() != 0) {
+            Thread.yield();
+        }
     }
 
     static File journalPath(final String path) {
@@ -1290,12 +2037,14 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     public void close() throws PersistitException {
         _closed.set(true);
+        final long closeTimestamp = _persistit.getTimestampAllocator().updateTimestamp();
         rollover();
 
         final JournalCopier copier = _copier;
         _copier = null;
         if (copier != null) {
             _persistit.waitForIOTaskStop(copier);
+            copier.stopWorkers();
         }
 
         final JournalFlusher flusher = _flusher;
@@ -1304,6 +2053,18 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             _persistit.waitForIOTaskStop(flusher);
         }
 
+        final JournalPreallocator preallocator = _preallocator;
+        _preallocator = null;
+        if (preallocator != null) {
+            _persistit.waitForIOTaskStop(preallocator);
+        }
+        /*
+         * Commits flushed before the final rollover are durable; any later
+         * ones can no longer be made so.
+         */
+        completeCommitFutures(closeTimestamp, null);
+        completeCommitFutures(0, new PersistitClosedException("Journal closed before commit was durable"));
+
         synchronized (this) {
             try {
                 closeAllChannels();
@@ -1317,6 +2078,9 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                 _pageMap.clear();
                 _pageList.clear();
                 _writeBuffer = null;
+                synchronized (_flushLock) {
+                    _spareWriteBuffer = null;
+                }
             }
         }
     }
@@ -1332,6 +2096,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
             } finally {
                 _journalFileChannels.clear();
+                _journalFileMaps.clear();
             }
         }
     }
@@ -1343,6 +2108,10 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     void crash() throws IOException {
         IOTaskRunnable.crash(_flusher);
         IOTaskRunnable.crash(_copier);
+        IOTaskRunnable.crash(_preallocator);
+        if (_copier != null) {
+            _copier.stopWorkers();
+        }
         //
         // Even when simulating a crash do this to release
         // channels and therefore allow disk space to be returned to
@@ -1358,6 +2127,8 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
      */
     synchronized long flush() throws PersistitException {
         _persistit.checkFatal();
+        awaitPendingCopies();
+        awaitFlushing();
         final long address = _writeBufferAddress;
         if (address != Long.MAX_VALUE && _writeBuffer != null) {
 
@@ -1418,18 +2189,237 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                         }
                     }
 
-                    assert _writeBufferAddress + _writeBuffer.position() == _currentAddress : String.format(
-                            "writeBufferAddress=%,d position=%,d currentAddress=%,d", _writeBufferAddress,
-                            _writeBuffer.position(), _currentAddress);
+                    assert _writeBufferAddress + _writeBuffer.position() == _currentAddress : String.format(
+                            "writeBufferAddress=%,d position=%,d currentAddress=%,d", _writeBufferAddress,
+                            _writeBuffer.position(), _currentAddress);
+
+                    _persistit.getIOMeter().chargeFlushJournal(written, address);
+                    return _writeBufferAddress;
+                }
+            } catch (final IOException e) {
+                throw new PersistitIOException("Writing to file " + addressToFile(address), e);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Write the content of the write buffer to the journal file without
+     * holding this JournalManager's monitor during the I/O operation. The
+     * filled buffer is replaced by a spare so that other threads can continue
+     * to append journal records while it is being written. If another write
+     * is already in progress this method first waits for it to finish, also
+     * without holding the monitor.
+     * 
+     * @return the journal address up to which records have been written, or
+     *         Long.MAX_VALUE if there was nothing to write
+     * @throws PersistitException
+     */
+    long writeBehind() throws PersistitException {
+        final long address;
+        final int length;
+        while (true) {
+            awaitFlushing();
+            synchronized (this) {
+                _persistit.checkFatal();
+                if (_writeBufferAddress == Long.MAX_VALUE || _writeBuffer == null || _writeBuffer.position() == 0) {
+                    return flush();
+                }
+                final ByteBuffer spare = takeSpareWriteBuffer();
+                if (spare != null) {
+                    address = _writeBufferAddress;
+                    length = _writeBuffer.position();
+                    detachWriteBuffer(spare);
+                    break;
+                }
+            }
+        }
+        writeFlushingBuffer();
+        _persistit.getIOMeter().chargeFlushJournal(length, address);
+        return address + length;
+    }
+
+    /**
+     * Replace the filled write buffer with the supplied spare, making the
+     * filled buffer the one to be written by {@link #writeFlushingBuffer()}.
+     * Caller must hold this JournalManager's monitor.
+     */
+    private void detachWriteBuffer(final ByteBuffer spare) throws PersistitException {
+        awaitPendingCopies();
+        assert _writeBufferAddress + _writeBuffer.position() == _currentAddress : String.format(
+                "writeBufferAddress=%,d position=%,d currentAddress=%,d", _writeBufferAddress,
+                _writeBuffer.position(), _currentAddress);
+        final long address = _writeBufferAddress;
+        final FileChannel channel;
+        try {
+            channel = getFileChannel(address);
+            final long size = channel.size();
+            if (size < addressToOffset(address)) {
+                throw new CorruptJournalException(String.format(
+                        "Journal file %s size %,d does not match current address %,d", addressToFile(address), size,
+                        address));
+            }
+        } catch (final IOException e) {
+            synchronized (_flushLock) {
+                _spareWriteBuffer = spare;
+            }
+            throw new PersistitIOException("Writing to file " + addressToFile(address), e);
+        } catch (final PersistitException e) {
+            synchronized (_flushLock) {
+                _spareWriteBuffer = spare;
+            }
+            throw e;
+        }
+        final ByteBuffer buffer = _writeBuffer;
+        final int length = buffer.position();
+        buffer.flip();
+        synchronized (_flushLock) {
+            _flushingBuffer = buffer;
+            _flushingChannel = channel;
+            _flushingAddress = address;
+            _flushingLength = length;
+            _flushInProgress = true;
+        }
+        _writeBuffer = spare;
+        _writeBufferAddress = address + length;
+        final long remaining = _blockSize - (_writeBufferAddress % _blockSize);
+        if (remaining < _writeBuffer.limit()) {
+            _writeBuffer.limit((int) remaining);
+        }
+    }
+
+    /**
+     * @return a cleared spare write buffer, or <code>null</code> if the spare
+     *         is in use because a write is in progress or incomplete
+     */
+    private ByteBuffer takeSpareWriteBuffer() {
+        synchronized (_flushLock) {
+            if (_flushingBuffer != null) {
+                return null;
+            }
+            ByteBuffer spare = _spareWriteBuffer;
+            _spareWriteBuffer = null;
+            if (spare == null || spare.capacity() != _writeBufferSize) {
+                spare = ByteBuffer.allocate(_writeBufferSize);
+            }
+            spare.clear();
+            return spare;
+        }
+    }
+
+    /**
+     * Write the remaining bytes of _flushingBuffer. The caller must have set
+     * _flushInProgress. On successful completion the buffer becomes the
+     * spare; otherwise it is retained so that the write can be retried. This
+     * method must not acquire this JournalManager's monitor because threads
+     * holding it may be waiting in {@link #awaitFlushing()}.
+     */
+    private void writeFlushingBuffer() throws PersistitIOException {
+        final ByteBuffer buffer;
+        final FileChannel channel;
+        final long address;
+        synchronized (_flushLock) {
+            buffer = _flushingBuffer;
+            channel = _flushingChannel;
+            address = _flushingAddress;
+        }
+        try {
+            while (buffer.remaining() > 0) {
+                final int position = buffer.position();
+                channel.write(buffer, (address % _blockSize) + position);
+                if (buffer.position() == position) {
+                    throw new PersistitIOException(String.format("Incomplete write of %,d bytes to journal at %,d",
+                            buffer.remaining(), address + position));
+                }
+            }
+        } catch (final IOException e) {
+            throw new PersistitIOException("Writing to file " + addressToFile(address), e);
+        } finally {
+            synchronized (_flushLock) {
+                if (buffer.remaining() == 0) {
+                    _flushingBuffer = null;
+                    _flushingChannel = null;
+                    _spareWriteBuffer = buffer;
+                }
+                _flushInProgress = false;
+                _flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait for any write started by {@link #writeBehind()} to finish, and
+     * finish writing any bytes it failed to write. Upon normal return all
+     * records preceding _writeBufferAddress are in the journal file.
+     */
+    private void awaitFlushing() throws PersistitIOException, PersistitInterruptedException {
+        if (!awaitFlushing(true)) {
+            throw new PersistitInterruptedException(new InterruptedException());
+        }
+    }
 
-                    _persistit.getIOMeter().chargeFlushJournal(written, address);
-                    return _writeBufferAddress;
+    /**
+     * @param interruptible
+     *            whether to stop waiting if the thread is interrupted; if
+     *            not, the thread's interrupted status is restored on return
+     * @return <code>false</code> if interrupted while waiting
+     */
+    private boolean awaitFlushing(final boolean interruptible) throws PersistitIOException {
+        boolean interrupted = false;
+        try {
+            synchronized (_flushLock) {
+                while (_flushInProgress) {
+                    try {
+                        _flushLock.wait();
+                    } catch (final InterruptedException e) {
+                        if (interruptible) {
+                            return false;
+                        }
+                        interrupted = true;
+                    }
                 }
-            } catch (final IOException e) {
-                throw new PersistitIOException("Writing to file " + addressToFile(address), e);
+                if (_flushingBuffer == null) {
+                    return true;
+                }
+                _flushInProgress = true;
+            }
+            writeFlushingBuffer();
+            return true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
         }
-        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Copy bytes from the buffer being written by {@link #writeBehind()}, if
+     * it contains them.
+     * 
+     * @return <code>true</code> if the bytes were copied
+     */
+    private boolean readFlushingBuffer(final ByteBuffer bb, final long address, final int length)
+            throws PersistitIOException {
+        synchronized (_flushLock) {
+            final ByteBuffer buffer = _flushingBuffer;
+            if (buffer == null || address + length <= _flushingAddress
+                    || address >= _flushingAddress + _flushingLength) {
+                return false;
+            }
+            if (address >= _flushingAddress && address + length <= _flushingAddress + _flushingLength) {
+                final ByteBuffer source = buffer.duplicate();
+                source.limit((int) (address - _flushingAddress) + length);
+                source.position((int) (address - _flushingAddress));
+                bb.put(source);
+                return true;
+            }
+        }
+        /*
+         * The range straddles the buffer being written; wait for the write to
+         * finish and then read from the file.
+         */
+        awaitFlushing(false);
+        return false;
     }
 
     /**
@@ -1439,7 +2429,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     public void force() throws PersistitException {
         long address = Long.MAX_VALUE;
         try {
-            address = flush();
+            address = writeBehind();
             if (address != Long.MAX_VALUE) {
                 final FileChannel channel = getFileChannel(address);
                 channel.force(false);
@@ -1467,6 +2457,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         if (getCurrentJournalSize() == 0) {
             flush();
             _writeBufferAddress = _currentAddress;
+            prepareJournalFile(_currentAddress);
             startJournalFile();
             newJournalFile = true;
         }
@@ -1481,8 +2472,13 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             return newJournalFile;
         }
         //
-        // Otherwise, flush the write buffer and try again
+        // Otherwise, flush the write buffer and try again. Appenders wait
+        // while this happens.
+        //
+        final long stallStart = System.nanoTime();
         flush();
+        _appendStallCount.incrementAndGet();
+        _totalAppendStallTime.addAndGet(System.nanoTime() - stallStart);
 
         if (_writeBuffer.remaining() > size + JE.OVERHEAD) {
             return newJournalFile;
@@ -1531,7 +2527,11 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                 final boolean matches = length == (_writeBuffer.position() + _writeBufferAddress) % _blockSize;
                 final FileChannel channel = getFileChannel(_currentAddress);
                 Debug.$assert1.t(matches);
-                if (matches) {
+                /*
+                 * A file taken from the spare files keeps its zero-filled
+                 * tail so that it can be reused without being extended.
+                 */
+                if (matches && _spareJournalFileLimit == 0) {
                     channel.truncate(length);
                 }
                 channel.force(true);
@@ -1566,6 +2566,95 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         return _isNewEpoch ? getLastValidCheckpointTimestamp() : _persistit.getCurrentTimestamp();
     }
 
+    /**
+     * Make the file for a new journal generation ready to be written. A spare
+     * file is renamed to become the new file if one is available. Otherwise
+     * any file left at that name, which recovery has already rejected, is
+     * emptied so that none of its records can follow those about to be
+     * written.
+     */
+    private void prepareJournalFile(final long address) throws PersistitException {
+        final long generation = address / _blockSize;
+        if (_journalFileChannels.containsKey(generation)) {
+            return;
+        }
+        final File file = addressToFile(address);
+        if (file.exists() && !file.delete()) {
+            try {
+                final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.setLength(0);
+                } finally {
+                    raf.close();
+                }
+            } catch (final IOException ioe) {
+                throw new PersistitIOException("Writing to file " + file, ioe);
+            }
+            return;
+        }
+        if (!_spareJournalFiles.isEmpty()) {
+            final File spare = _spareJournalFiles.remove(_spareJournalFiles.size() - 1);
+            if (!spare.renameTo(file)) {
+                spare.delete();
+            }
+            final JournalPreallocator preallocator = _preallocator;
+            if (preallocator != null) {
+                preallocator.kick();
+            }
+        }
+    }
+
+    /**
+     * Keep a journal file that is no longer needed for recovery so that it can
+     * be reused after it has been zero-filled.
+     * 
+     * @return <code>true</code> if the file was kept
+     */
+    private boolean recycleJournalFile(final File file) {
+        final JournalPreallocator preallocator;
+        synchronized (this) {
+            preallocator = _preallocator;
+            if (preallocator == null
+                    || _spareJournalFiles.size() + _recycledJournalFiles.size() >= _spareJournalFileLimit) {
+                return false;
+            }
+            final File recycled = new File(String.format(RECYCLE_FORMAT, _journalFilePath,
+                    _spareJournalFileCounter++));
+            if (!file.renameTo(recycled)) {
+                return false;
+            }
+            _recycledJournalFiles.add(recycled);
+        }
+        _recycledJournalFileCount.incrementAndGet();
+        preallocator.kick();
+        return true;
+    }
+
+    /**
+     * Find spare journal files left by a previous instance. Those that were
+     * completely prepared are ready for use; the others are zero-filled again.
+     */
+    private void findSpareJournalFiles() {
+        final File path = new File(_journalFilePath);
+        final File directory = path.getParentFile() == null ? new File(".") : path.getParentFile();
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            final Matcher matcher = SPARE_PATTERN.matcher(file.getPath());
+            if (matcher.matches() && matcher.group(1).equals(_journalFilePath)) {
+                _spareJournalFileCounter = Math.max(_spareJournalFileCounter,
+                        Integer.parseInt(matcher.group(3)) + 1);
+                if ("spare".equals(matcher.group(2)) && file.length() == _blockSize) {
+                    _spareJournalFiles.add(file);
+                } else {
+                    _recycledJournalFiles.add(file);
+                }
+            }
+        }
+    }
+
     private void startJournalFile() throws PersistitException {
         //
         // Write the beginning of a new journal file.
@@ -1637,6 +2726,87 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         return channel;
     }
 
+    /**
+     * Return a view of a read-only mapping of the journal file containing the
+     * supplied address, positioned at that address and limited to the
+     * supplied length. Only a file that is no longer being written is mapped;
+     * its content cannot change until it is released by the copier, at which
+     * point the mapping is discarded. The caller has already confirmed with
+     * {@link #isMappable(long)} that the address is in such a file. The
+     * monitor is acquired only to publish the mapping the first time a file
+     * is mapped; the file is opened and mapped without holding it.
+     * 
+     * @return the view, or <code>null</code> if the bytes must be read through
+     *         the file channel
+     * @throws PersistitIOException
+     *             if the file cannot be mapped
+     */
+    private ByteBuffer getMappedBuffer(final long address, final int length) throws PersistitIOException {
+        final long generation = address / _blockSize;
+        MappedByteBuffer map = _journalFileMaps.get(generation);
+        if (map == null) {
+            map = mapJournalFile(address);
+            if (map == null) {
+                return null;
+            }
+            synchronized (this) {
+                if (!isMappable(address)) {
+                    return null;
+                }
+                final MappedByteBuffer existing = _journalFileMaps.putIfAbsent(generation, map);
+                if (existing != null) {
+                    map = existing;
+                }
+            }
+        }
+        final long offset = addressToOffset(address);
+        if (offset + length > map.capacity()) {
+            return null;
+        }
+        final ByteBuffer view = map.duplicate();
+        view.limit((int) offset + length).position((int) offset);
+        return view;
+    }
+
+    /**
+     * @return <code>true</code> if the journal file containing the supplied
+     *         address is no longer being written and has not been released by
+     *         the copier. Caller must hold the monitor.
+     */
+    private boolean isMappable(final long address) {
+        assert Thread.holdsLock(this);
+        return address >= _deleteBoundaryAddress && address >= _unmappedBoundaryAddress
+                && address / _blockSize < _currentAddress / _blockSize;
+    }
+
+    /**
+     * Map the journal file containing the supplied address. Called without
+     * holding the monitor.
+     * 
+     * @return the mapping, or <code>null</code> if the file does not exist or
+     *         is too large to map
+     */
+    private MappedByteBuffer mapJournalFile(final long address) throws PersistitIOException {
+        final File file = addressToFile(address);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                final long size = raf.length();
+                if (size > Integer.MAX_VALUE) {
+                    return null;
+                }
+                return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } finally {
+                raf.close();
+            }
+        } catch (final IOException ioe) {
+            throw new PersistitIOException("Mapping file " + file, ioe);
+        }
+    }
+
     /**
      * Set the copyFast flag and then wait until all checkpointed pages have
      * been copied to their respective volumes, allowing the journal files to be
@@ -1817,6 +2987,73 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         }
     }
 
+    /**
+     * Register a handle to be completed once a transaction whose records were
+     * flushed to the journal buffer at <code>flushedTimestamp</code> is
+     * durable. The handle is completed by the JOURNAL_FLUSHER thread at the
+     * end of the first I/O cycle that covers it, or immediately if one already
+     * has.
+     * 
+     * @param future
+     *            the handle
+     * @param urgent
+     *            <code>true</code> to start the I/O immediately rather than
+     *            on the JOURNAL_FLUSHER's next scheduled cycle
+     */
+    void registerCommitFuture(final CommitFuture future, final boolean urgent) {
+        final boolean durable;
+        final boolean closed;
+        synchronized (_commitFutures) {
+            durable = future.getFlushedTimestamp() < _durableTimestamp;
+            closed = !durable && _closed.get();
+            if (!durable && !closed) {
+                _commitFutures.add(future);
+            }
+        }
+        if (durable) {
+            future.complete(null);
+        } else if (closed) {
+            future.complete(new PersistitClosedException("Journal closed before commit was durable"));
+        } else if (urgent) {
+            final JournalFlusher flusher = _flusher;
+            if (flusher != null) {
+                flusher.kick();
+            }
+        }
+    }
+
+    /**
+     * @return the number of commit handles waiting for durability
+     */
+    int getPendingCommitFutureCount() {
+        synchronized (_commitFutures) {
+            return _commitFutures.size();
+        }
+    }
+
+    /**
+     * Complete registered commit handles. If <code>exception</code> is
+     * <code>null</code>, only those handles covered by
+     * <code>durableTimestamp</code> are completed; otherwise all pending
+     * handles fail with the supplied exception.
+     */
+    private void completeCommitFutures(final long durableTimestamp, final PersistitException exception) {
+        final List<CommitFuture> completed = new ArrayList<CommitFuture>();
+        synchronized (_commitFutures) {
+            while (!_commitFutures.isEmpty()
+                    && (exception != null || _commitFutures.peek().getFlushedTimestamp() < durableTimestamp)) {
+                completed.add(_commitFutures.poll());
+            }
+        }
+        for (final CommitFuture future : completed) {
+            try {
+                future.complete(exception);
+            } catch (final RuntimeException e) {
+                _persistit.getLogBase().txnCommitException.log(e, future);
+            }
+        }
+    }
+
     public static class TreeDescriptor {
 
         final int _volumeHandle;
@@ -2143,11 +3380,23 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     }
 
+    /**
+     * Copies pages from the journal to their volumes. Each cycle selects up to
+     * {@link #getCopiesPerCycle()} pages and divides them by volume among up
+     * to {@link #getCopierThreadCount()} threads. Each thread reads its pages
+     * in journal address order and then writes them in page address order,
+     * coalescing pages with consecutive addresses into single writes. The
+     * JOURNAL_COPIER thread handles one share itself and then cleans up the
+     * page map for the whole cycle.
+     */
     private class JournalCopier extends IOTaskRunnable {
 
         private volatile boolean _shouldStop = false;
-        private final ByteBuffer _bb = ByteBuffer.allocate(DEFAULT_COPY_BUFFER_SIZE);
+        private final ByteBuffer[] _buffers = new ByteBuffer[MAXIMUM_COPIER_THREAD_COUNT];
+        private final ByteBuffer[] _runBuffers = new ByteBuffer[MAXIMUM_COPIER_THREAD_COUNT];
         private final List<PageNode> _copyList = new ArrayList<PageNode>(_copiesPerCycle);
+        private volatile ExecutorService _workers;
+        private int _workerCount;
         int _lastCyclePagesWritten;
 
         JournalCopier() {
@@ -2167,10 +3416,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                 if (!_appendOnly.get()) {
                     selectForCopy(_copyList);
                     if (!_copyList.isEmpty()) {
-                        readForCopy(_copyList, _bb);
-                    }
-                    if (!_copyList.isEmpty()) {
-                        writeForCopy(_copyList, _bb);
+                        copy(_copyList);
                     }
                 }
                 cleanupForCopy(_copyList);
@@ -2202,6 +3448,116 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             return _closed.get() || _shouldStop;
         }
 
+        private void copy(final List<PageNode> list) throws Exception {
+            final List<List<PageNode>> shares = divide(list);
+            if (shares.size() == 1) {
+                copyShare(list, 0);
+                return;
+            }
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>(shares.size());
+            for (int index = 1; index < shares.size(); index++) {
+                final List<PageNode> share = shares.get(index);
+                final int slot = index;
+                futures.add(workers().submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        copyShare(share, slot);
+                        return null;
+                    }
+                }));
+            }
+            Exception exception = null;
+            try {
+                copyShare(shares.get(0), 0);
+            } catch (final Exception e) {
+                exception = e;
+            }
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    if (exception == null) {
+                        exception = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+            }
+            /*
+             * Pages removed from a share must not be cleaned up
+             */
+            list.clear();
+            for (final List<PageNode> share : shares) {
+                list.addAll(share);
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        }
+
+        private void copyShare(final List<PageNode> share, final int slot) throws PersistitException {
+            if (_buffers[slot] == null) {
+                _buffers[slot] = ByteBuffer.allocate(DEFAULT_COPY_BUFFER_SIZE);
+                _runBuffers[slot] = ByteBuffer.allocate(COPIER_RUN_SIZE);
+            }
+            readForCopy(share, _buffers[slot]);
+            if (!share.isEmpty()) {
+                writeForCopy(share, _buffers[slot], _runBuffers[slot]);
+            }
+        }
+
+        /**
+         * Divide the pages selected for copying among the copier threads. All
+         * pages of a volume go to the same thread.
+         */
+        private List<List<PageNode>> divide(final List<PageNode> list) {
+            final int threads = _copierThreadCount;
+            final List<List<PageNode>> shares = new ArrayList<List<PageNode>>(threads);
+            if (threads == 1) {
+                shares.add(list);
+                return shares;
+            }
+            final Map<Integer, List<PageNode>> byVolume = new HashMap<Integer, List<PageNode>>();
+            for (final PageNode pageNode : list) {
+                List<PageNode> share = byVolume.get(pageNode.getVolumeHandle());
+                if (share == null) {
+                    if (shares.size() < threads) {
+                        share = new ArrayList<PageNode>();
+                        shares.add(share);
+                    } else {
+                        share = shares.get(byVolume.size() % threads);
+                    }
+                    byVolume.put(pageNode.getVolumeHandle(), share);
+                }
+                share.add(pageNode);
+            }
+            return shares;
+        }
+
+        private ExecutorService workers() {
+            if (_workers == null || _workerCount != _copierThreadCount - 1) {
+                stopWorkers();
+                _workerCount = _copierThreadCount - 1;
+                _workers = Executors.newFixedThreadPool(_workerCount, new ThreadFactory() {
+                    private final AtomicInteger _counter = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "JOURNAL_COPIER_" + _counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return _workers;
+        }
+
+        void stopWorkers() {
+            final ExecutorService workers = _workers;
+            _workers = null;
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+        }
+
         /**
          * Return a nice interval, in milliseconds, to wait between copierCycle
          * invocations. The interval decreases as interval goes up, and becomes
@@ -2235,6 +3591,99 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         }
     }
 
+    /**
+     * Zero-fills spare journal files so that a new journal file can be
+     * started without extending a file, which on many file systems makes
+     * forcing the first writes to it slow. Spare files are made from journal
+     * files that are no longer needed for recovery. A new file is created only
+     * when no spare is ready, so that preallocation does not by itself make
+     * the journal occupy more disk space.
+     */
+    private class JournalPreallocator extends IOTaskRunnable {
+
+        private final ByteBuffer _zeros = ByteBuffer.allocate(PREALLOCATION_CHUNK_SIZE);
+
+        JournalPreallocator() {
+            super(JournalManager.this._persistit);
+        }
+
+        void start() {
+            start("JOURNAL_PREALLOCATOR", DEFAULT_PREALLOCATOR_INTERVAL_MS);
+        }
+
+        @Override
+        protected boolean shouldStop() {
+            return _closed.get();
+        }
+
+        @Override
+        protected void runTask() throws Exception {
+            while (!shouldStop()) {
+                final File file;
+                final long blockSize;
+                synchronized (JournalManager.this) {
+                    blockSize = _blockSize;
+                    if (!_recycledJournalFiles.isEmpty()) {
+                        file = _recycledJournalFiles.remove(0);
+                        if (_spareJournalFiles.size() >= _spareJournalFileLimit) {
+                            file.delete();
+                            continue;
+                        }
+                    } else if (_spareJournalFiles.isEmpty() && _spareJournalFileLimit > 0) {
+                        file = new File(String.format(RECYCLE_FORMAT, _journalFilePath, _spareJournalFileCounter++));
+                    } else {
+                        return;
+                    }
+                }
+                if (!zeroFill(file, blockSize)) {
+                    return;
+                }
+                final Matcher matcher = SPARE_PATTERN.matcher(file.getPath());
+                final File spare = new File(String.format(SPARE_FORMAT, _journalFilePath,
+                        matcher.matches() ? Integer.parseInt(matcher.group(3)) : 0));
+                synchronized (JournalManager.this) {
+                    if (_spareJournalFiles.size() >= _spareJournalFileLimit || blockSize != _blockSize
+                            || !file.renameTo(spare)) {
+                        file.delete();
+                    } else {
+                        _spareJournalFiles.add(spare);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Write zeros over the entire file and force them to disk.
+         * 
+         * @return <code>false</code> if stopped before finishing
+         */
+        private boolean zeroFill(final File file, final long blockSize) throws PersistitIOException {
+            try {
+                final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    final FileChannel channel = raf.getChannel();
+                    if (channel.size() > blockSize) {
+                        channel.truncate(blockSize);
+                    }
+                    for (long position = 0; position < blockSize;) {
+                        if (shouldStop()) {
+                            return false;
+                        }
+                        _zeros.clear();
+                        _zeros.limit((int) Math.min(_zeros.capacity(), blockSize - position));
+                        position += channel.write(_zeros, position);
+                    }
+                    channel.force(true);
+                } finally {
+                    raf.close();
+                }
+            } catch (final IOException ioe) {
+                throw new PersistitIOException("Writing to file " + file, ioe);
+            }
+            return true;
+        }
+    }
+
     private class JournalFlusher extends IOTaskRunnable {
 
         volatile long _lastExceptionTimestamp = 0;
@@ -2384,6 +3833,12 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                         _endTime = System.nanoTime();
                         _endTimestamp = _persistit.getTimestampAllocator().updateTimestamp();
                     }
+                    /*
+                     * The force succeeded: every commit flushed before this
+                     * cycle started is now durable.
+                     */
+                    _durableTimestamp = _startTimestamp;
+                    completeCommitFutures(_startTimestamp, null);
 
                     final long elapsed = _endTime - _startTime;
                     _totalFlushCycles.incrementAndGet();
@@ -2509,12 +3964,23 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         }
     }
 
-    void writeForCopy(final List<PageNode> list, final ByteBuffer bb) throws PersistitException {
+    /**
+     * Write pages read by {@link #readForCopy(List, ByteBuffer)} to their
+     * volumes in volume and page address order. Pages having consecutive
+     * addresses in the same volume are gathered into <code>run</code> and
+     * written with a single write.
+     */
+    void writeForCopy(final List<PageNode> list, final ByteBuffer bb, final ByteBuffer run)
+            throws PersistitException {
         Collections.sort(list, PageNode.WRITE_COMPARATOR);
         Volume volume = null;
         int handle = -1;
         final Set<Volume> volumes = new HashSet<Volume>();
 
+        Volume runVolume = null;
+        PageNode runStart = null;
+        int runCount = 0;
+
         for (final Iterator<PageNode> iterator = list.iterator(); iterator.hasNext();) {
             final PageNode pageNode = iterator.next();
 
@@ -2555,21 +4021,26 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
             final long pageAddress = pageNode.getPageAddress();
             volume.getStorage().extend(pageAddress);
             final int pageSize = volume.getPageSize();
+            if (runCount > 0
+                    && (volume != runVolume || pageAddress != runStart.getPageAddress() + runCount || run
+                            .remaining() < pageSize)) {
+                writeRunForCopy(runVolume, runStart, runCount, run);
+                volumes.add(runVolume);
+                runCount = 0;
+            }
+            if (runCount == 0) {
+                runVolume = volume;
+                runStart = pageNode;
+                run.clear();
+            }
             final int at = pageNode.getOffset();
             bb.limit(bb.capacity()).position(at).limit(at + pageSize);
-
-            try {
-                volume.getStorage().writePage(bb, pageAddress);
-                volumes.add(volume);
-            } catch (final PersistitException ioe) {
-                _persistit.getLogBase().copyException.log(ioe, volume, pageNode.getPageAddress(),
-                        pageNode.getJournalAddress());
-                throw ioe;
-            }
-
-            _copiedPageCount++;
-            _persistit.getIOMeter().chargeCopyPageToVolume(volume, pageAddress, volume.getPageSize(),
-                    pageNode.getJournalAddress(), urgency());
+            run.put(bb);
+            runCount++;
+        }
+        if (runCount > 0) {
+            writeRunForCopy(runVolume, runStart, runCount, run);
+            volumes.add(runVolume);
         }
 
         for (final Volume vol : volumes) {
@@ -2578,6 +4049,50 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
     }
 
+    private void writeRunForCopy(final Volume volume, final PageNode start, final int count, final ByteBuffer run)
+            throws PersistitException {
+        run.flip();
+        final int size = run.remaining();
+        throttleCopy(size);
+        try {
+            volume.getStorage().writePage(run, start.getPageAddress());
+        } catch (final PersistitException ioe) {
+            _persistit.getLogBase().copyException.log(ioe, volume, start.getPageAddress(), start.getJournalAddress());
+            throw ioe;
+        }
+
+        _copiedPageCount.addAndGet(count);
+        _persistit.getIOMeter().chargeCopyPageToVolume(volume, start.getPageAddress(), size,
+                start.getJournalAddress(), urgency());
+    }
+
+    /**
+     * Delay the calling copier thread so that pages are written to volumes at
+     * no more than the rate set by {@link #setCopierRateLimit(int)}. The rate
+     * doubles for each level of {@link #urgency()} above {@value #HALF_URGENT}
+     * and is unlimited from {@value #ALMOST_URGENT}, so that the copier can
+     * catch up before commits are throttled. Package-private for unit tests.
+     */
+    void throttleCopy(final int size) throws PersistitInterruptedException {
+        final int limit = _copierRateLimit;
+        final int urgency = urgency();
+        if (limit == 0 || urgency >= ALMOST_URGENT || _closed.get()) {
+            return;
+        }
+        final long rate = (limit * KILO * KILO) << Math.max(0, urgency - HALF_URGENT);
+        final long cost = size * NS_PER_S / rate;
+        final long now = System.nanoTime();
+        final long start;
+        synchronized (_copierRateLock) {
+            start = Math.max(now, _copierRateAvailable);
+            _copierRateAvailable = start + cost;
+        }
+        final long delay = (start - now) / NS_PER_MS;
+        if (delay > 0) {
+            Util.sleep(delay);
+        }
+    }
+
     private void cleanupForCopy(final List<PageNode> list) throws PersistitException {
         //
         // Files and FileChannels no longer needed for recovery.
@@ -2658,6 +4173,8 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
                 if (channel != null) {
                     obsoleteFileChannels.add(channel);
                 }
+                _unmappedBoundaryAddress = Math.max(_unmappedBoundaryAddress, deleteBoundary + _blockSize);
+                _journalFileMaps.remove(generation);
                 obsoleteFiles.add(addressToFile(deleteBoundary));
             }
             //
@@ -2694,7 +4211,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
 
         boolean deleted = true;
         for (final File file : obsoleteFiles) {
-            if (!file.delete()) {
+            if (!recycleJournalFile(file) && !file.delete()) {
                 deleted = false;
                 // TODO - log this.
                 // Ignored for now - this simply means we can't delete
@@ -2911,7 +4428,9 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
      * @param handleToVolumeMap
      */
     void unitTestInjectPageMap(final Map<PageNode, PageNode> pageMap) {
-        _pageMap.putAll(pageMap);
+        for (final PageNode pageNode : pageMap.values()) {
+            _pageMap.put(pageNode);
+        }
     }
 
     void unitTestInjectTransactionMap(final Map<Long, TransactionMapItem> transactionMap) {
@@ -2926,7 +4445,16 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
         return _currentAddress % _blockSize;
     }
 
+    /**
+     * @return the journal address up to which records have been written to
+     *         the journal file
+     */
     long getWriteBufferAddress() {
+        synchronized (_flushLock) {
+            if (_flushingBuffer != null) {
+                return _flushingAddress + _flushingBuffer.position();
+            }
+        }
         return _writeBufferAddress;
     }
 
@@ -2959,7 +4487,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     }
 
     public PageNode queryPageNode(final int volumeHandle, final long pageAddress) {
-        final PageNode pn = _pageMap.get(new PageNode(volumeHandle, pageAddress, -1, -1));
+        final PageNode pn = _pageMap.get(volumeHandle, pageAddress);
         if (pn != null) {
             return new PageNode(pn);
         } else {
@@ -2968,7 +4496,7 @@ class JournalManager implements JournalManagerMXBean, VolumeHandleLookup {
     }
 
     public PageNode queryBranchNode(final int volumeHandle, final long pageAddress) {
-        final PageNode pn = _branchMap.get(new PageNode(volumeHandle, pageAddress, -1, -1));
+        final PageNode pn = _branchMap.get(volumeHandle, pageAddress);
         if (pn != null) {
             return new PageNode(pn);
         } else {
@@ -18,7 +18,9 @@ package com.persistit;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
+import com.persistit.util.LZCodec;
 import com.persistit.util.Util;
 
 /**
@@ -185,9 +187,55 @@ import com.persistit.util.Util;
  * </tr>
  * <tr valign="top">
  * <td>+32</td>
+ * <td>flags (char) - {@link PA#COMPRESSED} if the bytes are compressed</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+34</td>
+ * <td>buffer size (char)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+36</td>
  * <td>bytes: the first leftSize bytes will go into the page at offset 0 the
  * remaining bytes will go to the end of the page; the middle of the page will
- * be cleared</td>
+ * be cleared. If the record is compressed these bytes are the left and right
+ * portions concatenated and encoded by {@link LZCodec}.</td>
+ * </tr>
+ * </table>
+ * </td>
+ * </tr>
+ * 
+ * <tr valign="top">
+ * <td>PD</td>
+ * <td>Page Delta: the changes to a page relative to an earlier PA or PD record
+ * for the same page in the same journal file
+ * <table>
+ * <tr valign="top">
+ * <td>+16</td>
+ * <td>Volume handle (int) - refers to a volume defined in a preceding IV record
+ * </td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+20</td>
+ * <td>page address (long)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+28</td>
+ * <td>delta count (char) - number of PD records between this one and the
+ * nearest PA record, including this one</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+30</td>
+ * <td>buffer size (char)</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+32</td>
+ * <td>base journal address (long) - address of the record to which the
+ * changes apply</td>
+ * </tr>
+ * <tr valign="top">
+ * <td>+40</td>
+ * <td>runs: offset within the page (char), length (char) and the bytes that
+ * replace those of the earlier image</td>
  * </tr>
  * </table>
  * </td>
@@ -441,8 +489,8 @@ public class JournalRecord {
 
     private final static Charset UTF8 = Charset.forName("UTF-8");
 
-    public final static int[] TYPES = new int[] { JE.TYPE, JH.TYPE, PA.TYPE, PM.TYPE, SR.TYPE, DR.TYPE, DT.TYPE,
-            TM.TYPE, CP.TYPE, IV.TYPE, IT.TYPE, D1.TYPE, D0.TYPE, TX.TYPE };
+    public final static int[] TYPES = new int[] { JE.TYPE, JH.TYPE, PA.TYPE, PD.TYPE, PM.TYPE, SR.TYPE, DR.TYPE,
+            DT.TYPE, TM.TYPE, CP.TYPE, IV.TYPE, IT.TYPE, D1.TYPE, D0.TYPE, TX.TYPE };
 
     public static boolean isValidType(final int t) {
         for (final int type : TYPES) {
@@ -816,6 +864,11 @@ public class JournalRecord {
 
         public final static int OVERHEAD = 36;
 
+        /**
+         * Flag indicating the page bytes are compressed
+         */
+        public final static int COMPRESSED = 1;
+
         public static void putType(final ByteBuffer bb) {
             putType(bb, TYPE);
         }
@@ -844,14 +897,202 @@ public class JournalRecord {
             putInt(bb, 28, leftSize);
         }
 
+        public static int getFlags(final ByteBuffer bb) {
+            return getChar(bb, 32);
+        }
+
+        /**
+         * Set the flags; must be called after
+         * {@link #putBufferSize(ByteBuffer, int)}, which clears them.
+         */
+        public static void putFlags(final ByteBuffer bb, final int flags) {
+            putChar(bb, 32, flags);
+        }
+
+        public static boolean isCompressed(final ByteBuffer bb) {
+            return (getFlags(bb) & COMPRESSED) != 0;
+        }
+
         public static int getBufferSize(final ByteBuffer bb) {
-            return getInt(bb, 32);
+            return getChar(bb, 34);
         }
 
         public static void putBufferSize(final ByteBuffer bb, final int bufferSize) {
             putInt(bb, 32, (char) bufferSize);
         }
 
+        /**
+         * Decode the payload of a compressed PA record into a page image: the
+         * left portion is placed at <code>dstOffset</code>, the right portion
+         * at the end of the page and the bytes between them are cleared.
+         * 
+         * @param src
+         *            array containing the compressed payload
+         * @param srcOffset
+         *            offset of the payload
+         * @param payloadSize
+         *            length of the compressed payload
+         * @param leftSize
+         *            size of the left portion of the page
+         * @param bufferSize
+         *            size of the page
+         * @param dst
+         *            array to receive the page image
+         * @param dstOffset
+         *            offset of the page image
+         * @return <code>true</code> if the payload was decoded, or
+         *         <code>false</code> if it is malformed
+         */
+        public static boolean expand(final byte[] src, final int srcOffset, final int payloadSize,
+                final int leftSize, final int bufferSize, final byte[] dst, final int dstOffset) {
+            final int size;
+            try {
+                size = LZCodec.decompress(src, srcOffset, payloadSize, dst, dstOffset, bufferSize);
+            } catch (final IllegalArgumentException e) {
+                return false;
+            }
+            if (size < leftSize) {
+                return false;
+            }
+            final int rightSize = size - leftSize;
+            System.arraycopy(dst, dstOffset + leftSize, dst, dstOffset + bufferSize - rightSize, rightSize);
+            Arrays.fill(dst, dstOffset + leftSize, dstOffset + bufferSize - rightSize, (byte) 0);
+            return true;
+        }
+
+    }
+
+    /**
+     * Page delta
+     */
+    static class PD extends JournalRecord {
+
+        public final static int TYPE = ('P' << 8) | 'D';
+
+        public final static int OVERHEAD = 40;
+
+        /**
+         * Size of the offset and length preceding the bytes of each run
+         */
+        public final static int RUN_OVERHEAD = 4;
+
+        public static void putType(final ByteBuffer bb) {
+            putType(bb, TYPE);
+        }
+
+        public static int getVolumeHandle(final ByteBuffer bb) {
+            return getInt(bb, 16);
+        }
+
+        public static void putVolumeHandle(final ByteBuffer bb, final int volumeHandle) {
+            putInt(bb, 16, volumeHandle);
+        }
+
+        public static long getPageAddress(final ByteBuffer bb) {
+            return getLong(bb, 20);
+        }
+
+        public static void putPageAddress(final ByteBuffer bb, final long pageAddress) {
+            putLong(bb, 20, pageAddress);
+        }
+
+        public static int getDeltaCount(final ByteBuffer bb) {
+            return getChar(bb, 28);
+        }
+
+        public static void putDeltaCount(final ByteBuffer bb, final int count) {
+            putChar(bb, 28, count);
+        }
+
+        public static int getBufferSize(final ByteBuffer bb) {
+            return getChar(bb, 30);
+        }
+
+        public static void putBufferSize(final ByteBuffer bb, final int bufferSize) {
+            putChar(bb, 30, bufferSize);
+        }
+
+        public static long getBaseAddress(final ByteBuffer bb) {
+            return getLong(bb, 32);
+        }
+
+        public static void putBaseAddress(final ByteBuffer bb, final long address) {
+            putLong(bb, 32, address);
+        }
+
+        /**
+         * Encode the differences between two page images as runs. Runs
+         * separated by fewer than {@link #RUN_OVERHEAD} unchanged bytes are
+         * merged.
+         * 
+         * @param base
+         *            array containing the earlier page image
+         * @param page
+         *            array containing the new page image
+         * @param bufferSize
+         *            size of the page
+         * @param dst
+         *            array to receive the runs
+         * @param dstLimit
+         *            maximum number of bytes to write
+         * @return the encoded length, or -1 if it would exceed
+         *         <code>dstLimit</code>
+         */
+        public static int diff(final byte[] base, final byte[] page, final int bufferSize, final byte[] dst,
+                final int dstLimit) {
+            int op = 0;
+            int index = 0;
+            while (index < bufferSize) {
+                if (base[index] == page[index]) {
+                    index++;
+                    continue;
+                }
+                final int start = index;
+                int end = index + 1;
+                for (int scan = end; scan < bufferSize && scan - end < RUN_OVERHEAD; scan++) {
+                    if (base[scan] != page[scan]) {
+                        end = scan + 1;
+                    }
+                }
+                final int length = end - start;
+                if (op + RUN_OVERHEAD + length > dstLimit) {
+                    return -1;
+                }
+                Util.putChar(dst, op, start);
+                Util.putChar(dst, op + 2, length);
+                System.arraycopy(page, start, dst, op + RUN_OVERHEAD, length);
+                op += RUN_OVERHEAD + length;
+                index = end;
+            }
+            return op;
+        }
+
+        /**
+         * Apply runs produced by {@link #diff(byte[], byte[], int, byte[], int)}
+         * to a page image.
+         * 
+         * @return <code>true</code> if the runs were applied, or
+         *         <code>false</code> if they are malformed
+         */
+        public static boolean apply(final byte[] src, final int srcOffset, final int length, final byte[] page,
+                final int pageOffset, final int bufferSize) {
+            final int end = srcOffset + length;
+            int ip = srcOffset;
+            while (ip < end) {
+                if (ip + RUN_OVERHEAD > end) {
+                    return false;
+                }
+                final int offset = Util.getChar(src, ip);
+                final int size = Util.getChar(src, ip + 2);
+                ip += RUN_OVERHEAD;
+                if (ip + size > end || offset + size > bufferSize) {
+                    return false;
+                }
+                System.arraycopy(src, ip, page, pageOffset + offset, size);
+                ip += size;
+            }
+            return true;
+        }
     }
 
     /**
@@ -47,6 +47,7 @@ import com.persistit.JournalRecord.IV;
 import com.persistit.JournalRecord.JE;
 import com.persistit.JournalRecord.JH;
 import com.persistit.JournalRecord.PA;
+import com.persistit.JournalRecord.PD;
 import com.persistit.JournalRecord.PM;
 import com.persistit.JournalRecord.SR;
 import com.persistit.JournalRecord.TM;
@@ -56,6 +57,7 @@ import com.persistit.exception.PersistitException;
 import com.persistit.exception.PersistitIOException;
 import com.persistit.mxbeans.JournalManagerMXBean;
 import com.persistit.util.ArgParser;
+import com.persistit.util.Util;
 
 /**
  * @author Peter Beaman
@@ -221,6 +223,8 @@ class JournalTool {
 
         public void pa(final long address, final long timestamp, final int recordSize) throws Exception;
 
+        public void pd(final long address, final long timestamp, final int recordSize) throws Exception;
+
         public void pm(final long address, final long timestamp, final int recordSize) throws Exception;
 
         public void tm(final long address, final long timestamp, final int recordSize) throws Exception;
@@ -427,6 +431,11 @@ class JournalTool {
         final int recordSize = getLength(_readBuffer);
         final int type = getType(_readBuffer);
         final long timestamp = getTimestamp(_readBuffer);
+        if (recordSize == 0 && type == 0) {
+            // Zero-filled tail of a preallocated journal file
+            _action.eof(from);
+            return EOF;
+        }
         _currentAddress = processOneRecord(from, timestamp, recordSize, type);
         return type;
     }
@@ -494,6 +503,12 @@ class JournalTool {
             }
             break;
 
+        case PD.TYPE:
+            if (_selectedTypes.get(type) && _selectedTimestamps.isSelected(timestamp)) {
+                _action.pd(address, timestamp, recordSize);
+            }
+            break;
+
         case PM.TYPE:
             if (_selectedTypes.get(type)) {
                 _action.pm(address, timestamp, recordSize);
@@ -841,11 +856,40 @@ class JournalTool {
                 return;
             }
             start(address, timestamp, "PA", recordSize);
-            final int type = JournalRecord.getByte(_readBuffer, PA.OVERHEAD + Buffer.TYPE_OFFSET);
+            byte[] image = _readBuffer.array();
+            int imageOffset = _readBuffer.position() + PA.OVERHEAD;
+            final boolean compressed = PA.isCompressed(_readBuffer);
+            if (compressed) {
+                final int bufferSize = PA.getBufferSize(_readBuffer);
+                image = new byte[bufferSize];
+                if (!PA.expand(_readBuffer.array(), imageOffset, recordSize - PA.OVERHEAD,
+                        PA.getLeftSize(_readBuffer), bufferSize, image, 0)) {
+                    appendf(" page %5d:%,12d malformed compressed image", volumeHandle, pageAddress);
+                    flush();
+                    return;
+                }
+                imageOffset = 0;
+            }
+            final int type = Util.getByte(image, imageOffset + Buffer.TYPE_OFFSET);
             final String typeString = Buffer.getPageTypeName(pageAddress, type);
-            final long rightSibling = pageAddress == 0 ? 0 : JournalRecord.getLong(_readBuffer, PA.OVERHEAD
+            final long rightSibling = pageAddress == 0 ? 0 : Util.getLong(image, imageOffset
                     + Buffer.RIGHT_SIBLING_OFFSET);
-            appendf(" page %5d:%,12d type %10s right %,12d", volumeHandle, pageAddress, typeString, rightSibling);
+            appendf(" page %5d:%,12d type %10s right %,12d%s", volumeHandle, pageAddress, typeString, rightSibling,
+                    compressed ? " compressed" : "");
+            flush();
+        }
+
+        @Override
+        public void pd(final long address, final long timestamp, final int recordSize) throws Exception {
+            read(address, PD.OVERHEAD);
+            final long pageAddress = PD.getPageAddress(_readBuffer);
+            final int volumeHandle = PD.getVolumeHandle(_readBuffer);
+            if (!_selectedPages.isSelected(pageAddress)) {
+                return;
+            }
+            start(address, timestamp, "PD", recordSize);
+            appendf(" page %5d:%,12d base %,d delta %d", volumeHandle, pageAddress, PD.getBaseAddress(_readBuffer),
+                    PD.getDeltaCount(_readBuffer));
             flush();
         }
 
@@ -943,6 +943,22 @@ public interface Management extends Remote, ManagementMXBean {
         int readerClaimedPageCount;
         int writerClaimedPageCount;
         long earliestDirtyTimestamp;
+        long optimisticReadCount;
+        long optimisticRetryCount;
+        long offHeapPageCount;
+        long offHeapHitCount;
+        long readAheadCount;
+        int pinnedPageCount;
+        int reservedBufferCount;
+        String[] reservations = new String[0];
+        long preloadCount;
+        long preloadTotal;
+        boolean preloading;
+        int pageWriterCount;
+        int writeQueueDepth;
+        long writeLatency;
+        long offHeapMissCount;
+        double offHeapCompressionRatio = 1.0;
 
         public BufferPoolInfo() {
 
@@ -950,12 +966,21 @@ public interface Management extends Remote, ManagementMXBean {
 
         @ConstructorProperties({ "bufferSize", "bufferCount", "missCount", "hitCount", "newCount", "evictCount",
                 "writeCount", "forcedWriteCount", "forcedCheckpointWriteCount", "validPageCount", "dirtyPageCount",
-                "readerClaimedPageCount", "writerClaimedPageCount", "earliestDirtyTimestamp" })
+                "readerClaimedPageCount", "writerClaimedPageCount", "earliestDirtyTimestamp", "optimisticReadCount",
+                "optimisticRetryCount", "offHeapPageCount", "offHeapHitCount", "readAheadCount",
+                "pinnedPageCount", "reservedBufferCount", "reservations", "preloadCount", "preloadTotal",
+                "preloading", "pageWriterCount", "writeQueueDepth", "writeLatency", "offHeapMissCount",
+                "offHeapCompressionRatio" })
         public BufferPoolInfo(final int bufferSize, final int bufferCount, final long missCount, final long hitCount,
                 final long newCount, final long writeCount, final long evictCount, final long forcedWriteCount,
                 final long forcedCheckpointWriteCount, final long readCounter, final int validPageCount,
                 final int dirtyPageCount, final int readerClaimedPageCount, final int writerClaimedPageCount,
-                final long earliestDirtyTimestamp) {
+                final long earliestDirtyTimestamp, final long optimisticReadCount, final long optimisticRetryCount,
+                final long offHeapPageCount, final long offHeapHitCount, final long readAheadCount,
+                final int pinnedPageCount, final int reservedBufferCount, final String[] reservations,
+                final long preloadCount, final long preloadTotal, final boolean preloading,
+                final int pageWriterCount, final int writeQueueDepth, final long writeLatency,
+                final long offHeapMissCount, final double offHeapCompressionRatio) {
             super();
             this.bufferSize = bufferSize;
             this.bufferCount = bufferCount;
@@ -971,6 +996,22 @@ public interface Management extends Remote, ManagementMXBean {
             this.readerClaimedPageCount = readerClaimedPageCount;
             this.writerClaimedPageCount = writerClaimedPageCount;
             this.earliestDirtyTimestamp = earliestDirtyTimestamp;
+            this.optimisticReadCount = optimisticReadCount;
+            this.optimisticRetryCount = optimisticRetryCount;
+            this.offHeapPageCount = offHeapPageCount;
+            this.offHeapHitCount = offHeapHitCount;
+            this.readAheadCount = readAheadCount;
+            this.pinnedPageCount = pinnedPageCount;
+            this.reservedBufferCount = reservedBufferCount;
+            this.reservations = reservations;
+            this.preloadCount = preloadCount;
+            this.preloadTotal = preloadTotal;
+            this.preloading = preloading;
+            this.pageWriterCount = pageWriterCount;
+            this.writeQueueDepth = writeQueueDepth;
+            this.writeLatency = writeLatency;
+            this.offHeapMissCount = offHeapMissCount;
+            this.offHeapCompressionRatio = offHeapCompressionRatio;
         }
 
         /**
@@ -1051,6 +1092,163 @@ public interface Management extends Remote, ManagementMXBean {
             return forcedWriteCount;
         }
 
+        /**
+         * Return count of page reads performed without claiming the page and
+         * subsequently validated
+         * 
+         * @return The optimistic read count
+         */
+        public long getOptimisticReadCount() {
+            return optimisticReadCount;
+        }
+
+        /**
+         * Return count of optimistic page reads invalidated by a concurrent
+         * update and repeated with a claim
+         * 
+         * @return The optimistic retry count
+         */
+        public long getOptimisticRetryCount() {
+            return optimisticRetryCount;
+        }
+
+        /**
+         * Return the number of pages held in the off-heap page cache
+         * 
+         * @return The off-heap page count
+         */
+        public long getOffHeapPageCount() {
+            return offHeapPageCount;
+        }
+
+        /**
+         * Return count of pages loaded from the off-heap page cache rather
+         * than from disk
+         * 
+         * @return The off-heap hit count
+         */
+        public long getOffHeapHitCount() {
+            return offHeapHitCount;
+        }
+
+        /**
+         * Return count of pages sought but not found in the off-heap page
+         * cache
+         * 
+         * @return The off-heap miss count
+         */
+        public long getOffHeapMissCount() {
+            return offHeapMissCount;
+        }
+
+        /**
+         * Return the ratio of the size of page images stored in the off-heap
+         * page cache to the space they occupy there
+         * 
+         * @return The off-heap compression ratio
+         */
+        public double getOffHeapCompressionRatio() {
+            return offHeapCompressionRatio;
+        }
+
+        /**
+         * Return count of pages loaded by read-ahead ahead of sequential
+         * scans
+         * 
+         * @return The read-ahead count
+         */
+        public long getReadAheadCount() {
+            return readAheadCount;
+        }
+
+        /**
+         * Return the number of buffers holding pinned index pages
+         * 
+         * @return The pinned page count
+         */
+        public int getPinnedPageCount() {
+            return pinnedPageCount;
+        }
+
+        /**
+         * Return the total number of buffers reserved for volumes using this
+         * pool
+         * 
+         * @return The reserved buffer count
+         */
+        public int getReservedBufferCount() {
+            return reservedBufferCount;
+        }
+
+        /**
+         * Return a description of each volume buffer reservation in this pool,
+         * including its size, the number of the volume's pages currently
+         * resident, and the hit ratio of lookups for pages of the volume.
+         * 
+         * @return The reservations
+         */
+        public String[] getReservations() {
+            return reservations;
+        }
+
+        /**
+         * Return the number of pages processed so far by the current or most
+         * recent buffer inventory preload
+         * 
+         * @return The preload count
+         */
+        public long getPreloadCount() {
+            return preloadCount;
+        }
+
+        /**
+         * Return the number of pages the current or most recent buffer
+         * inventory preload intends to load
+         * 
+         * @return The preload total
+         */
+        public long getPreloadTotal() {
+            return preloadTotal;
+        }
+
+        /**
+         * Indicate whether a buffer inventory preload is in progress
+         * 
+         * @return <code>true</code> if pages are still being preloaded
+         */
+        public boolean isPreloading() {
+            return preloading;
+        }
+
+        /**
+         * Return the number of PAGE_WRITER threads
+         * 
+         * @return The page writer count
+         */
+        public int getPageWriterCount() {
+            return pageWriterCount;
+        }
+
+        /**
+         * Return the number of pages selected by the current PAGE_WRITER cycle
+         * that have not yet been written
+         * 
+         * @return The write queue depth
+         */
+        public int getWriteQueueDepth() {
+            return writeQueueDepth;
+        }
+
+        /**
+         * Return the moving average of the time in nanoseconds required by
+         * PAGE_WRITER to write a page
+         * 
+         * @return The write latency
+         */
+        public long getWriteLatency() {
+            return writeLatency;
+        }
+
         /**
          * Return count of pages forced to be written due to an updated after a
          * checkpoint
@@ -324,6 +324,84 @@ class ManagementImpl implements Management {
         }
     }
 
+    /**
+     * Change the number of buffers in the buffer pool for the specified buffer
+     * size.
+     * 
+     * @param bufferSize
+     *            the buffer size of the pool
+     * @param bufferCount
+     *            the new number of buffers
+     * @throws RemoteException
+     */
+    @Override
+    public void resizeBufferPool(final int bufferSize, final int bufferCount) throws RemoteException {
+        final BufferPool pool = _persistit.getBufferPool(bufferSize);
+        if (pool == null) {
+            throw new WrappedRemoteException(new IllegalArgumentException("No buffer pool for buffer size "
+                    + bufferSize));
+        }
+        try {
+            pool.resize(bufferCount, SharedResource.DEFAULT_MAX_WAIT_TIME);
+        } catch (final PersistitException e) {
+            throw new WrappedRemoteException(e);
+        }
+    }
+
+    /**
+     * Reserve a minimum number of buffers in the buffer pool for pages of the
+     * specified volume.
+     * 
+     * @param volumeName
+     *            the name of the volume
+     * @param bufferCount
+     *            the number of buffers to reserve, or zero to remove the
+     *            reservation
+     * @throws RemoteException
+     */
+    @Override
+    public void setVolumeReservedBufferCount(final String volumeName, final int bufferCount) throws RemoteException {
+        final Volume volume = _persistit.getVolume(volumeName);
+        if (volume == null) {
+            throw new WrappedRemoteException(new IllegalArgumentException("No volume named " + volumeName));
+        }
+        try {
+            volume.setReservedBufferCount(bufferCount);
+        } catch (final IllegalArgumentException e) {
+            throw new WrappedRemoteException(e);
+        }
+    }
+
+    /**
+     * Pin or unpin the index pages of a tree in the buffer pool.
+     * 
+     * @param volumeName
+     *            the name of the volume containing the tree
+     * @param treeName
+     *            the name of the tree
+     * @param pinned
+     *            <code>true</code> to pin the tree's index pages
+     * @throws RemoteException
+     */
+    @Override
+    public void setTreeIndexPinned(final String volumeName, final String treeName, final boolean pinned)
+            throws RemoteException {
+        final Volume volume = _persistit.getVolume(volumeName);
+        if (volume == null) {
+            throw new WrappedRemoteException(new IllegalArgumentException("No volume named " + volumeName));
+        }
+        try {
+            final Tree tree = volume.getTree(treeName, false);
+            if (tree == null) {
+                throw new WrappedRemoteException(new IllegalArgumentException("No tree named " + treeName + " in "
+                        + volume));
+            }
+            tree.setIndexPinned(pinned);
+        } catch (final PersistitException e) {
+            throw new WrappedRemoteException(e);
+        }
+    }
+
     /**
      * Returns an array containing a <code>BufferPoolInfo</code> element for
      * each buffer pool. If Persistit is not initialized then this method
@@ -0,0 +1,548 @@
+/**
+ * Copyright 2012 Akiban Technologies, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.persistit.util.LZCodec;
+
+/**
+ * <p>
+ * A second-level page cache for a {@link BufferPool} whose page images are
+ * held in direct (off-heap) memory. The memory is allocated as a small number
+ * of large arenas, each carved into fixed-size page slots, so that the cache
+ * adds no per-page objects to the Java heap and does not contribute to
+ * garbage collection work regardless of its size.
+ * </p>
+ * <p>
+ * The cache is exclusive: a page is stored here only when the
+ * <code>BufferPool</code> evicts a clean copy of it, and is removed when the
+ * page is next brought back into the pool. Therefore a page is never present
+ * both here and in the pool, and the image held here is always identical to
+ * the page's durable state in the journal or volume file. The
+ * <code>BufferPool</code> calls {@link #store} and {@link #take} while
+ * holding the hash lock for the page, which serializes those operations for
+ * any one page.
+ * </p>
+ * <p>
+ * Each arena is managed as an independent segment with its own lock. Within
+ * a segment, pages are located through a chained hash table built from
+ * primitive arrays, and when all slots are full the oldest stored page is
+ * replaced.
+ * </p>
+ * <p>
+ * Optionally the cache compresses each page image with {@link LZCodec} before
+ * storing it. In that case an arena is managed as a ring of variable-length
+ * entries, each rounded up to a small block size: a new entry is written at
+ * the ring's tail, displacing whatever entries it overlaps, so that
+ * replacement remains approximately oldest-first. Compression and
+ * decompression are performed outside the segment lock. Pages that do not
+ * compress are stored as raw images.
+ * </p>
+ */
+class OffHeapPageCache {
+
+    /**
+     * Maximum size of a single arena. Must be less than Integer.MAX_VALUE.
+     */
+    private final static long MAXIMUM_ARENA_SIZE = 1024L * 1024L * 1024L;
+
+    /**
+     * Minimum number of segments, to reduce lock contention
+     */
+    private final static int MINIMUM_SEGMENT_COUNT = 16;
+
+    /**
+     * Minimum number of page slots in a segment
+     */
+    private final static int MINIMUM_SEGMENT_SLOTS = 8;
+
+    /**
+     * In compressed mode, maximum number of pages held per page-sized slot of
+     * memory
+     */
+    private final static int COMPRESSED_ENTRIES_PER_SLOT = 8;
+
+    /**
+     * In compressed mode, number of allocation blocks per page-sized slot of
+     * memory
+     */
+    private final static int COMPRESSED_BLOCKS_PER_SLOT = 16;
+
+    private final static int NONE = -1;
+
+    private final int _pageSize;
+
+    private final Segment[] _segments;
+
+    private final AtomicLong _hitCounter = new AtomicLong();
+
+    private final AtomicLong _storeCounter = new AtomicLong();
+
+    private final AtomicLong _missCounter = new AtomicLong();
+
+    private final AtomicLong _uncompressedBytes = new AtomicLong();
+
+    private final AtomicLong _compressedBytes = new AtomicLong();
+
+    private final boolean _compressed;
+
+    private final int _blockSize;
+
+    private final ThreadLocal<Scratch> _scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch(_pageSize);
+        }
+    };
+
+    private static class Scratch {
+        final byte[] _bytes;
+        final int[] _table = new int[LZCodec.HASH_TABLE_SIZE];
+
+        Scratch(final int pageSize) {
+            _bytes = new byte[pageSize];
+        }
+    }
+
+    private static class Segment {
+        final ByteBuffer _arena;
+        final int _slots;
+        final Volume[] _volumes;
+        final long[] _pages;
+        /*
+         * Link to next slot in the same hash chain, or in the free list
+         */
+        final int[] _next;
+        final int[] _heads;
+        int _free;
+        int _hand;
+        int _count;
+        /*
+         * Compressed mode only: starting block and length of each entry, the
+         * entry starting at each block, and the block at which the next entry
+         * will be written.
+         */
+        final int[] _offsets;
+        final int[] _lengths;
+        final int[] _owners;
+        int _tail;
+
+        Segment(final int slots, final int pageSize) {
+            this(slots, slots * pageSize, 0);
+        }
+
+        Segment(final int slots, final int arenaSize, final int blocks) {
+            _arena = ByteBuffer.allocateDirect(arenaSize);
+            _slots = slots;
+            _volumes = new Volume[slots];
+            _pages = new long[slots];
+            _next = new int[slots];
+            _heads = new int[slots];
+            for (int slot = 0; slot < slots; slot++) {
+                _heads[slot] = NONE;
+                _next[slot] = slot + 1 < slots ? slot + 1 : NONE;
+            }
+            _free = 0;
+            if (blocks > 0) {
+                _offsets = new int[slots];
+                _lengths = new int[slots];
+                _owners = new int[blocks];
+                for (int block = 0; block < blocks; block++) {
+                    _owners[block] = NONE;
+                }
+            } else {
+                _offsets = null;
+                _lengths = null;
+                _owners = null;
+            }
+        }
+    }
+
+    /**
+     * Construct a cache for pages of the specified size
+     * 
+     * @param memory
+     *            total size in bytes of the direct memory arenas
+     * @param pageSize
+     *            size of each page
+     * @throws IllegalArgumentException
+     *             if the memory size is too small to hold a useful number of
+     *             pages
+     */
+    OffHeapPageCache(final long memory, final int pageSize) {
+        this(memory, pageSize, false);
+    }
+
+    /**
+     * Construct a cache for pages of the specified size
+     * 
+     * @param memory
+     *            total size in bytes of the direct memory arenas
+     * @param pageSize
+     *            size of each page
+     * @param compressed
+     *            whether to compress page images
+     * @throws IllegalArgumentException
+     *             if the memory size is too small to hold a useful number of
+     *             pages
+     */
+    OffHeapPageCache(final long memory, final int pageSize, final boolean compressed) {
+        final long slots = memory / pageSize;
+        if (slots < MINIMUM_SEGMENT_COUNT * MINIMUM_SEGMENT_SLOTS) {
+            throw new IllegalArgumentException("Off-heap memory size " + memory + " is too small for page size "
+                    + pageSize);
+        }
+        final long slotsPerArena = MAXIMUM_ARENA_SIZE / pageSize;
+        int segmentCount = MINIMUM_SEGMENT_COUNT;
+        while (slots / segmentCount > slotsPerArena) {
+            segmentCount *= 2;
+        }
+        _pageSize = pageSize;
+        _compressed = compressed;
+        _blockSize = compressed ? pageSize / COMPRESSED_BLOCKS_PER_SLOT : pageSize;
+        _segments = new Segment[segmentCount];
+        final int segmentSlots = (int) (slots / segmentCount);
+        for (int index = 0; index < segmentCount; index++) {
+            if (compressed) {
+                _segments[index] = new Segment(segmentSlots * COMPRESSED_ENTRIES_PER_SLOT, segmentSlots * pageSize,
+                        segmentSlots * COMPRESSED_BLOCKS_PER_SLOT);
+            } else {
+                _segments[index] = new Segment(segmentSlots, pageSize);
+            }
+        }
+    }
+
+    int getPageSize() {
+        return _pageSize;
+    }
+
+    boolean isCompressed() {
+        return _compressed;
+    }
+
+    /**
+     * @return Total size in bytes of the direct memory arenas
+     */
+    long getMemory() {
+        return (long) _segments.length * _segments[0]._arena.capacity();
+    }
+
+    /**
+     * @return Maximum number of pages that can be held
+     */
+    long getCapacity() {
+        return (long) _segments.length * _segments[0]._slots;
+    }
+
+    /**
+     * @return Number of pages currently held
+     */
+    long getPageCount() {
+        long count = 0;
+        for (final Segment segment : _segments) {
+            synchronized (segment) {
+                count += segment._count;
+            }
+        }
+        return count;
+    }
+
+    long getHitCounter() {
+        return _hitCounter.get();
+    }
+
+    long getStoreCounter() {
+        return _storeCounter.get();
+    }
+
+    long getMissCounter() {
+        return _missCounter.get();
+    }
+
+    /**
+     * @return Ratio of the size of stored page images to their stored size, or
+     *         1.0 if no pages have been stored
+     */
+    double getCompressionRatio() {
+        final long compressed = _compressedBytes.get();
+        return compressed == 0 ? 1.0 : (double) _uncompressedBytes.get() / compressed;
+    }
+
+    void resetCounters() {
+        _hitCounter.set(0);
+        _storeCounter.set(0);
+        _missCounter.set(0);
+        _uncompressedBytes.set(0);
+        _compressedBytes.set(0);
+    }
+
+    /**
+     * Store a copy of a page image, replacing any copy already stored for the
+     * same page.
+     * 
+     * @param volume
+     * @param page
+     * @param bytes
+     *            the page image
+     */
+    void store(final Volume volume, final long page, final byte[] bytes) {
+        if (_compressed) {
+            storeCompressed(volume, page, bytes);
+            return;
+        }
+        final int hash = hash(volume, page);
+        final Segment segment = segment(hash);
+        synchronized (segment) {
+            int slot = find(segment, hash, volume, page);
+            if (slot == NONE) {
+                slot = segment._free;
+                if (slot != NONE) {
+                    segment._free = segment._next[slot];
+                    segment._count++;
+                } else {
+                    slot = segment._hand;
+                    segment._hand = (slot + 1) % segment._slots;
+                    unlink(segment, slot);
+                }
+                segment._volumes[slot] = volume;
+                segment._pages[slot] = page;
+                final int bucket = bucket(segment, hash);
+                segment._next[slot] = segment._heads[bucket];
+                segment._heads[bucket] = slot;
+            }
+            final ByteBuffer bb = segment._arena.duplicate();
+            bb.position(slot * _pageSize);
+            bb.put(bytes, 0, _pageSize);
+        }
+        _storeCounter.incrementAndGet();
+        _uncompressedBytes.addAndGet(_pageSize);
+        _compressedBytes.addAndGet(_pageSize);
+    }
+
+    private void storeCompressed(final Volume volume, final long page, final byte[] bytes) {
+        final Scratch scratch = _scratch.get();
+        int length = LZCodec.compress(bytes, 0, _pageSize, scratch._bytes, 0, _pageSize - 1, scratch._table);
+        final byte[] image;
+        if (length < 0) {
+            image = bytes;
+            length = _pageSize;
+        } else {
+            image = scratch._bytes;
+        }
+        final int blocks = (length + _blockSize - 1) / _blockSize;
+        final int hash = hash(volume, page);
+        final Segment segment = segment(hash);
+        synchronized (segment) {
+            int entry = find(segment, hash, volume, page);
+            if (entry != NONE) {
+                remove(segment, entry);
+            }
+            if (segment._tail + blocks > segment._owners.length) {
+                segment._tail = 0;
+            }
+            /*
+             * Displace entries written at these blocks during the previous
+             * trip around the ring
+             */
+            for (int block = segment._tail; block < segment._tail + blocks; block++) {
+                if (segment._owners[block] != NONE) {
+                    remove(segment, segment._owners[block]);
+                }
+            }
+            /*
+             * If all entries are in use, displace the next one in ring order
+             */
+            for (int block = segment._tail + blocks; segment._free == NONE; block++) {
+                if (block == segment._owners.length) {
+                    block = 0;
+                }
+                if (segment._owners[block] != NONE) {
+                    remove(segment, segment._owners[block]);
+                }
+            }
+            entry = segment._free;
+            segment._free = segment._next[entry];
+            segment._count++;
+            segment._volumes[entry] = volume;
+            segment._pages[entry] = page;
+            segment._offsets[entry] = segment._tail;
+            segment._lengths[entry] = length;
+            segment._owners[segment._tail] = entry;
+            final int bucket = bucket(segment, hash);
+            segment._next[entry] = segment._heads[bucket];
+            segment._heads[bucket] = entry;
+            final ByteBuffer bb = segment._arena.duplicate();
+            bb.position(segment._tail * _blockSize);
+            bb.put(image, 0, length);
+            segment._tail += blocks;
+        }
+        _storeCounter.incrementAndGet();
+        _uncompressedBytes.addAndGet(_pageSize);
+        _compressedBytes.addAndGet(length);
+    }
+
+    /**
+     * Remove a page from the cache, copying its image into the supplied byte
+     * array if there is one.
+     * 
+     * @param volume
+     * @param page
+     * @param bytes
+     *            array to receive the page image, or <code>null</code> if the
+     *            caller only needs to discard it
+     * @return <code>true</code> if the page was found
+     */
+    boolean take(final Volume volume, final long page, final byte[] bytes) {
+        if (_compressed) {
+            return takeCompressed(volume, page, bytes);
+        }
+        final int hash = hash(volume, page);
+        final Segment segment = segment(hash);
+        synchronized (segment) {
+            final int slot = find(segment, hash, volume, page);
+            if (slot == NONE) {
+                if (bytes != null) {
+                    _missCounter.incrementAndGet();
+                }
+                return false;
+            }
+            if (bytes != null) {
+                final ByteBuffer bb = segment._arena.duplicate();
+                bb.position(slot * _pageSize);
+                bb.get(bytes, 0, _pageSize);
+            }
+            remove(segment, slot);
+        }
+        if (bytes != null) {
+            _hitCounter.incrementAndGet();
+        }
+        return true;
+    }
+
+    private boolean takeCompressed(final Volume volume, final long page, final byte[] bytes) {
+        final int hash = hash(volume, page);
+        final Segment segment = segment(hash);
+        final byte[] image = bytes == null ? null : _scratch.get()._bytes;
+        final int length;
+        synchronized (segment) {
+            final int entry = find(segment, hash, volume, page);
+            if (entry == NONE) {
+                if (bytes != null) {
+                    _missCounter.incrementAndGet();
+                }
+                return false;
+            }
+            length = segment._lengths[entry];
+            if (bytes != null) {
+                final ByteBuffer bb = segment._arena.duplicate();
+                bb.position(segment._offsets[entry] * _blockSize);
+                bb.get(length == _pageSize ? bytes : image, 0, length);
+            }
+            remove(segment, entry);
+        }
+        if (bytes != null) {
+            if (length < _pageSize && LZCodec.decompress(image, 0, length, bytes, 0, _pageSize) != _pageSize) {
+                throw new IllegalStateException("Off-heap page " + page + " decompressed to wrong length");
+            }
+            _hitCounter.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Remove all pages belonging to the specified Volume, or all pages if the
+     * volume is <code>null</code>.
+     * 
+     * @param volume
+     */
+    void invalidate(final Volume volume) {
+        for (final Segment segment : _segments) {
+            synchronized (segment) {
+                for (int slot = 0; slot < segment._slots; slot++) {
+                    if (segment._volumes[slot] != null && (volume == null || segment._volumes[slot] == volume)) {
+                        remove(segment, slot);
+                    }
+                }
+            }
+        }
+    }
+
+    private int hash(final Volume volume, final long page) {
+        final long h = (page ^ volume.hashCode()) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & Integer.MAX_VALUE;
+    }
+
+    private Segment segment(final int hash) {
+        return _segments[hash & (_segments.length - 1)];
+    }
+
+    private int bucket(final Segment segment, final int hash) {
+        return (hash / _segments.length) % segment._slots;
+    }
+
+    private int find(final Segment segment, final int hash, final Volume volume, final long page) {
+        for (int slot = segment._heads[bucket(segment, hash)]; slot != NONE; slot = segment._next[slot]) {
+            if (segment._pages[slot] == page && segment._volumes[slot] == volume) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Remove an occupied slot from its hash chain. The slot's content is left
+     * in place.
+     */
+    private void unlink(final Segment segment, final int slot) {
+        final int bucket = bucket(segment, hash(segment._volumes[slot], segment._pages[slot]));
+        if (segment._heads[bucket] == slot) {
+            segment._heads[bucket] = segment._next[slot];
+        } else {
+            int prev = segment._heads[bucket];
+            while (segment._next[prev] != slot) {
+                prev = segment._next[prev];
+            }
+            segment._next[prev] = segment._next[slot];
+        }
+    }
+
+    private void remove(final Segment segment, final int slot) {
+        unlink(segment, slot);
+        free(segment, slot);
+    }
+
+    private void free(final Segment segment, final int slot) {
+        if (segment._owners != null) {
+            segment._owners[segment._offsets[slot]] = NONE;
+        }
+        segment._volumes[slot] = null;
+        segment._pages[slot] = 0;
+        segment._next[slot] = segment._free;
+        segment._free = slot;
+        segment._count--;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "OffHeapPageCache(pageSize=%,d capacity=%,d pages=%,d hits=%,d misses=%,d stores=%,d ratio=%.2f)",
+                _pageSize, getCapacity(), getPageCount(), getHitCounter(), getMissCounter(), getStoreCounter(),
+                getCompressionRatio());
+    }
+}
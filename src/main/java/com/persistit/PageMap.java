@@ -0,0 +1,286 @@
+/**
+ * Copyright 2012 Akiban Technologies, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.persistit.JournalManager.PageNode;
+
+/**
+ * <p>
+ * Map from (volume handle, page address) to the most recent {@link PageNode}
+ * for that page, used by {@link JournalManager} and {@link RecoveryManager} to
+ * locate page images in the journal. Earlier versions of the page are
+ * reachable through {@link PageNode#getPrevious()}.
+ * </p>
+ * <p>
+ * Keys are held in primitive arrays and located by open addressing with
+ * linear probing, so that the map costs about twenty bytes per page beyond
+ * the PageNode itself and lookups by volume handle and page address do not
+ * allocate. Removed entries leave a marker which is discarded when the table
+ * is next rebuilt.
+ * </p>
+ * <p>
+ * This class is not thread-safe. Iterators are fail-fast and support
+ * {@link Iterator#remove()}.
+ * </p>
+ */
+class PageMap {
+
+    private final static int INITIAL_CAPACITY = 64;
+
+    private final static long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Marks a slot whose entry has been removed. Probes continue past it.
+     */
+    private final static PageNode REMOVED = new PageNode(-1, -1, -1, -1);
+
+    private int[] _handles;
+
+    private long[] _pages;
+
+    private PageNode[] _nodes;
+
+    private int _shift;
+
+    private int _size;
+
+    private int _removed;
+
+    private int _modCount;
+
+    private final Iterable<PageNode> _values = new Iterable<PageNode>() {
+        @Override
+        public Iterator<PageNode> iterator() {
+            return new PageNodeIterator();
+        }
+    };
+
+    PageMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    int size() {
+        return _size;
+    }
+
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * @return the PageNode for the specified page, or <code>null</code> if
+     *         there is none
+     */
+    PageNode get(final int volumeHandle, final long pageAddress) {
+        final int index = find(volumeHandle, pageAddress);
+        return index < 0 ? null : _nodes[index];
+    }
+
+    /**
+     * @return the PageNode having the same volume handle and page address as
+     *         <code>key</code>, or <code>null</code> if there is none
+     */
+    PageNode get(final PageNode key) {
+        return get(key.getVolumeHandle(), key.getPageAddress());
+    }
+
+    /**
+     * Add or replace the entry for the page identified by
+     * <code>pageNode</code>.
+     * 
+     * @return the PageNode previously mapped for the page, or
+     *         <code>null</code> if there was none
+     */
+    PageNode put(final PageNode pageNode) {
+        final int volumeHandle = pageNode.getVolumeHandle();
+        final long pageAddress = pageNode.getPageAddress();
+        final int mask = _nodes.length - 1;
+        int free = -1;
+        for (int index = hash(volumeHandle, pageAddress);; index = (index + 1) & mask) {
+            final PageNode node = _nodes[index];
+            if (node == null) {
+                if (free < 0) {
+                    free = index;
+                }
+                break;
+            }
+            if (node == REMOVED) {
+                if (free < 0) {
+                    free = index;
+                }
+            } else if (_pages[index] == pageAddress && _handles[index] == volumeHandle) {
+                _nodes[index] = pageNode;
+                return node;
+            }
+        }
+        if (_nodes[free] == REMOVED) {
+            _removed--;
+        }
+        _handles[free] = volumeHandle;
+        _pages[free] = pageAddress;
+        _nodes[free] = pageNode;
+        _size++;
+        _modCount++;
+        if ((_size + _removed) * 4 > _nodes.length * 3) {
+            rebuild();
+        }
+        return null;
+    }
+
+    /**
+     * Remove the entry for the page identified by <code>key</code>.
+     * 
+     * @return the PageNode that was mapped for the page, or <code>null</code>
+     *         if there was none
+     */
+    PageNode remove(final PageNode key) {
+        final int index = find(key.getVolumeHandle(), key.getPageAddress());
+        if (index < 0) {
+            return null;
+        }
+        final PageNode node = _nodes[index];
+        removeAt(index);
+        return node;
+    }
+
+    void clear() {
+        Arrays.fill(_nodes, null);
+        _size = 0;
+        _removed = 0;
+        _modCount++;
+    }
+
+    /**
+     * @return the mapped PageNodes, one per page
+     */
+    Iterable<PageNode> values() {
+        return _values;
+    }
+
+    private int find(final int volumeHandle, final long pageAddress) {
+        final int mask = _nodes.length - 1;
+        for (int index = hash(volumeHandle, pageAddress);; index = (index + 1) & mask) {
+            final PageNode node = _nodes[index];
+            if (node == null) {
+                return -1;
+            }
+            if (node != REMOVED && _pages[index] == pageAddress && _handles[index] == volumeHandle) {
+                return index;
+            }
+        }
+    }
+
+    private void removeAt(final int index) {
+        _nodes[index] = REMOVED;
+        _size--;
+        _removed++;
+        _modCount++;
+    }
+
+    private int hash(final int volumeHandle, final long pageAddress) {
+        return (int) (((pageAddress + ((long) volumeHandle << 40)) * MULTIPLIER) >>> _shift);
+    }
+
+    private void allocate(final int capacity) {
+        _handles = new int[capacity];
+        _pages = new long[capacity];
+        _nodes = new PageNode[capacity];
+        _shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Rehash into a table large enough for twice the current size, dropping
+     * removed entries.
+     */
+    private void rebuild() {
+        final int[] handles = _handles;
+        final long[] pages = _pages;
+        final PageNode[] nodes = _nodes;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * 3 < _size * 8) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+        final int mask = capacity - 1;
+        for (int from = 0; from < nodes.length; from++) {
+            final PageNode node = nodes[from];
+            if (node != null && node != REMOVED) {
+                int index = hash(handles[from], pages[from]);
+                while (_nodes[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                _handles[index] = handles[from];
+                _pages[index] = pages[from];
+                _nodes[index] = node;
+            }
+        }
+        _removed = 0;
+    }
+
+    private class PageNodeIterator implements Iterator<PageNode> {
+
+        private final PageNode[] _table = _nodes;
+        private int _expectedModCount = _modCount;
+        private int _next = -1;
+        private int _current = -1;
+
+        PageNodeIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next < _table.length;
+        }
+
+        @Override
+        public PageNode next() {
+            if (_expectedModCount != _modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (_next >= _table.length) {
+                throw new NoSuchElementException();
+            }
+            _current = _next;
+            advance();
+            return _table[_current];
+        }
+
+        @Override
+        public void remove() {
+            if (_current < 0 || _table[_current] == REMOVED) {
+                throw new IllegalStateException();
+            }
+            if (_expectedModCount != _modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(_current);
+            _expectedModCount = _modCount;
+        }
+
+        private void advance() {
+            do {
+                _next++;
+            } while (_next < _table.length && (_table[_next] == null || _table[_next] == REMOVED));
+        }
+    }
+}
@@ -44,6 +44,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -237,12 +239,20 @@ public class Persistit {
         }
     };
 
-    private final Map<SessionId, Transaction> _transactionSessionMap = new HashMap<SessionId, Transaction>();
+    /*
+     * Concurrent maps so that getTransaction, getExchange and releaseExchange
+     * take no shared lock. A session's Transaction and pooled Exchanges are
+     * held until the thread that owns the SessionId has ended; cleanup() then
+     * removes them. See SessionId for this lifetime contract.
+     */
+    private final ConcurrentMap<SessionId, Transaction> _transactionSessionMap = new ConcurrentHashMap<SessionId, Transaction>();
 
     private ManagementImpl _management;
 
     private final RecoveryManager _recoveryManager = new RecoveryManager(this);
 
+    private volatile RecoveryReplayTask _recoveryReplayTask;
+
     private final JournalManager _journalManager = new JournalManager(this);
 
     private final TimestampAllocator _timestampAllocator = new TimestampAllocator();
@@ -257,7 +267,7 @@ public class Persistit {
 
     private final TransactionIndex _transactionIndex = new TransactionIndex(_timestampAllocator, TRANSACTION_INDEX_SIZE);
 
-    private final Map<SessionId, List<Exchange>> _exchangePoolMap = new WeakHashMap<SessionId, List<Exchange>>();
+    private final ConcurrentMap<SessionId, List<Exchange>> _exchangePoolMap = new ConcurrentHashMap<SessionId, List<Exchange>>();
 
     private final Map<ObjectName, Object> _mxbeans = new TreeMap<ObjectName, Object>();
 
@@ -445,16 +455,25 @@ public class Persistit {
             startBufferPools();
             preloadBufferPools();
             initializeClassIndex();
-            finishRecovery();
+            final boolean earlyOpen = _configuration.isRecoveryEarlyOpen() && _recoveryManager.beginPendingReplay();
+            if (!earlyOpen) {
+                finishRecovery();
+            }
             startTransactionIndexPollTask();
             flush();
-            _checkpointManager.checkpoint();
-            _journalManager.pruneObsoleteTransactions();
+            if (earlyOpen) {
+                startRecoveryReplay();
+            } else {
+                _checkpointManager.checkpoint();
+                _journalManager.pruneObsoleteTransactions();
+            }
             startCheckpointManager();
             startCleanupManager();
             _initialized.set(true);
         } finally {
             if (!isInitialized()) {
+                _recoveryManager.stopReplay();
+                awaitRecoveryReplay();
                 releaseAllResources();
                 _configuration = null;
             }
@@ -605,6 +624,7 @@ public class Persistit {
     private void initializeRecovery() throws PersistitException {
         final String journalPath = _configuration.getJournalPath();
         _recoveryManager.init(journalPath);
+        _recoveryManager.setReplayThreadCount(_configuration.getRecoveryThreads());
         _recoveryManager.buildRecoveryPlan();
     }
 
@@ -614,6 +634,12 @@ public class Persistit {
 
         _journalManager.init(_recoveryManager, journalPath, journalSize);
         _journalManager.setAppendOnly(_configuration.isAppendOnly());
+        _journalManager.setCompressingPages(_configuration.isJournalCompression());
+        _journalManager.setPageDeltaLimit(_configuration.getJournalPageDeltas());
+        _journalManager.setCopierThreadCount(_configuration.getJournalCopierThreads());
+        _journalManager.setCopierRateLimit(_configuration.getJournalCopierRate());
+        _journalManager.setSpareJournalFileLimit(_configuration.getJournalSpares());
+        _journalManager.setMappingJournalFiles(_configuration.isJournalMappedReads());
         _journalManager.setIgnoreMissingVolumes(_configuration.isIgnoreMissingVolumes());
     }
 
@@ -624,6 +650,12 @@ public class Persistit {
                 final int bufferSize = config.getBufferSize();
                 _logBase.allocateBuffers.log(poolSize, bufferSize);
                 final BufferPool pool = new BufferPool(poolSize, bufferSize, this);
+                pool.setOptimisticReadsEnabled(_configuration.isOptimisticReadsEnabled());
+                pool.setReplacementPolicy(config.getReplacementPolicy());
+                pool.setOffHeapMemory(config.getOffHeapMemory(), config.isOffHeapCompressed());
+                pool.setPartitionCount(config.getPartitionCount());
+                pool.setReadAheadLimit(config.getReadAheadLimit());
+                pool.setPageWriterCount(config.getPageWriterCount());
                 _bufferPoolTable.put(bufferSize, pool);
                 if (_configuration.isJmxEnabled()) {
                     registerBufferPoolMXBean(bufferSize);
@@ -733,6 +765,69 @@ public class Persistit {
                 _recoveryManager.getErrorCount());
     }
 
+    /**
+     * Background task that applies the remaining recovered transactions and
+     * then writes the first checkpoint. Until the replay has finished, a
+     * thread that requests an {@link Exchange} on a tree with unapplied
+     * transactions waits for them to be applied. If the replay fails, this
+     * Persistit instance is marked fatal; no checkpoint is written, so the
+     * next startup recovers the same transactions again.
+     */
+    private class RecoveryReplayTask extends IOTaskRunnable {
+
+        private volatile boolean _done;
+
+        RecoveryReplayTask() {
+            super(Persistit.this);
+        }
+
+        void start() {
+            start("RECOVERY_REPLAY", 0);
+        }
+
+        @Override
+        protected boolean shouldStop() {
+            return _done;
+        }
+
+        @Override
+        protected void runTask() throws Exception {
+            boolean completed = false;
+            try {
+                finishRecovery();
+                completed = !_recoveryManager.isReplayStopped();
+            } catch (final Exception e) {
+                if (!_recoveryManager.isReplayStopped()) {
+                    fatal("Recovered transactions could not be applied", e);
+                }
+                throw e;
+            } finally {
+                _done = true;
+                if (completed) {
+                    _recoveryManager.endPendingReplay();
+                } else {
+                    _recoveryManager.abandonPendingReplay();
+                }
+            }
+            _checkpointManager.checkpoint();
+            _journalManager.pruneObsoleteTransactions();
+        }
+    }
+
+    private void startRecoveryReplay() {
+        final RecoveryReplayTask task = new RecoveryReplayTask();
+        _recoveryReplayTask = task;
+        task.start();
+    }
+
+    private void awaitRecoveryReplay() {
+        final RecoveryReplayTask task = _recoveryReplayTask;
+        if (task != null) {
+            waitForIOTaskStop(task);
+            _recoveryReplayTask = null;
+        }
+    }
+
     /**
      * Reflectively attempts to load and execute the PersistitOpenMBean setup
      * method. This will work only if the persistit_jsaXXX_jmx.jar is on the
@@ -835,6 +930,15 @@ public class Persistit {
      * method, it should return it to the pool by invoking
      * {@link #releaseExchange} so that it can be reused.
      * </p>
+     * <p>
+     * There is one pool per {@link SessionId}. Like the session's
+     * {@link Transaction}, the pool is retained until the thread that owns the
+     * <code>SessionId</code> has ended and is then discarded by the next
+     * periodic cleanup. An application that creates a new
+     * <code>SessionId</code> for each request on long-lived threads therefore
+     * retains a pool of up to {@value #MAX_POOLED_EXCHANGES} Exchanges for
+     * every such session.
+     * </p>
      * 
      * @param volume
      *            The Volume
@@ -852,14 +956,13 @@ public class Persistit {
             throws PersistitException {
         if (volume == null)
             throw new VolumeNotFoundException();
-        List<Exchange> stack;
         final SessionId sessionId = getSessionId();
-
-        synchronized (_exchangePoolMap) {
-            stack = _exchangePoolMap.get(sessionId);
-            if (stack == null) {
-                stack = new ArrayList<Exchange>();
-                _exchangePoolMap.put(sessionId, stack);
+        List<Exchange> stack = _exchangePoolMap.get(sessionId);
+        if (stack == null) {
+            stack = new ArrayList<Exchange>();
+            final List<Exchange> existing = _exchangePoolMap.putIfAbsent(sessionId, stack);
+            if (existing != null) {
+                stack = existing;
             }
         }
         if (stack.isEmpty()) {
@@ -976,13 +1079,10 @@ public class Persistit {
         if (exchange == null) {
             return;
         }
-        List<Exchange> stack;
         final SessionId sessionId = getSessionId();
-        synchronized (_exchangePoolMap) {
-            stack = _exchangePoolMap.get(sessionId);
-            if (stack == null) {
-                throw new IllegalStateException("Release not preceded by get");
-            }
+        final List<Exchange> stack = _exchangePoolMap.get(sessionId);
+        if (stack == null) {
+            throw new IllegalStateException("Release not preceded by get");
         }
         if (stack.size() < MAX_POOLED_EXCHANGES) {
             exchange.removeState(secure);
@@ -1523,8 +1623,9 @@ public class Persistit {
     }
 
     /**
-     * Remove any sessions that have expired and close transactions associated
-     * with them. Also flush statistics for all known volumes.
+     * Remove any sessions that have expired and close transactions and release
+     * pooled Exchanges associated with them. Also flush statistics for all
+     * known volumes.
      */
     void cleanup() {
         closeZombieTransactions(false);
@@ -1646,6 +1747,13 @@ public class Persistit {
                     }
                 }
             }
+            if (!flush) {
+                _recoveryManager.stopReplay();
+            }
+            awaitRecoveryReplay();
+            for (final BufferPool pool : _bufferPoolTable.values()) {
+                pool.stopPreload();
+            }
             recordBufferPoolInventory();
             _cleanupManager.close(flush);
             waitForIOTaskStop(_cleanupManager);
@@ -1702,16 +1810,14 @@ public class Persistit {
     }
 
     private void closeZombieTransactions(final boolean removeAllSessions) {
-        final Set<SessionId> sessionIds;
-        synchronized (_transactionSessionMap) {
-            sessionIds = new HashSet<SessionId>(_transactionSessionMap.keySet());
+        for (final SessionId sessionId : _exchangePoolMap.keySet()) {
+            if (!sessionId.isAlive() || removeAllSessions) {
+                _exchangePoolMap.remove(sessionId);
+            }
         }
-        for (final SessionId sessionId : sessionIds) {
+        for (final SessionId sessionId : _transactionSessionMap.keySet()) {
             if (!sessionId.isAlive() || removeAllSessions) {
-                Transaction transaction = null;
-                synchronized (_transactionSessionMap) {
-                    transaction = _transactionSessionMap.remove(sessionId);
-                }
+                final Transaction transaction = _transactionSessionMap.remove(sessionId);
                 if (transaction != null) {
                     try {
                         transaction.close();
@@ -1727,11 +1833,7 @@ public class Persistit {
         final long expires = System.currentTimeMillis() + timeout;
         boolean remaining = false;
         do {
-            final Map<SessionId, Transaction> copy;
-            synchronized (_transactionSessionMap) {
-                copy = new HashMap<SessionId, Transaction>(_transactionSessionMap);
-            }
-            for (final Entry<SessionId, Transaction> entry : copy.entrySet()) {
+            for (final Entry<SessionId, Transaction> entry : _transactionSessionMap.entrySet()) {
                 final SessionId sessionId = entry.getKey();
                 final Transaction txn = entry.getValue();
                 if (sessionId.isAlive() && txn.isActive()) {
@@ -1752,6 +1854,9 @@ public class Persistit {
      * processes. This method should be used only by tests.
      */
     public void crash() {
+        _recoveryManager.stopReplay();
+        IOTaskRunnable.crash(_recoveryReplayTask);
+        _recoveryReplayTask = null;
         final JournalManager journalManager = _journalManager;
         if (journalManager != null) {
             try {
@@ -1849,12 +1954,8 @@ public class Persistit {
             _cleanupManager.clear();
             _configuration = null;
         }
-        synchronized (_exchangePoolMap) {
-            _exchangePoolMap.clear();
-        }
-        synchronized (_transactionSessionMap) {
-            _transactionSessionMap.clear();
-        }
+        _exchangePoolMap.clear();
+        _transactionSessionMap.clear();
         synchronized (_cliSessionMap) {
             _cliSessionMap.clear();
         }
@@ -1897,12 +1998,7 @@ public class Persistit {
     }
 
     void flushTransactions(final long checkpointTimestamp) throws PersistitException {
-        final List<Transaction> transactions;
-        synchronized (_transactionSessionMap) {
-            transactions = new ArrayList<Transaction>(_transactionSessionMap.values());
-        }
-
-        for (final Transaction transaction : transactions) {
+        for (final Transaction transaction : _transactionSessionMap.values()) {
             transaction.flushOnCheckpoint(checkpointTimestamp);
         }
     }
@@ -2024,10 +2120,8 @@ public class Persistit {
     void closeSession() throws PersistitException {
         final SessionId sessionId = _sessionIdThreadLocal.get();
         if (sessionId != null) {
-            final Transaction txn;
-            synchronized (_transactionSessionMap) {
-                txn = _transactionSessionMap.remove(sessionId);
-            }
+            _exchangePoolMap.remove(sessionId);
+            final Transaction txn = _transactionSessionMap.remove(sessionId);
             if (txn != null) {
                 txn.close();
             }
@@ -2045,14 +2139,15 @@ public class Persistit {
      */
     public Transaction getTransaction() {
         final SessionId sessionId = getSessionId();
-        synchronized (_transactionSessionMap) {
-            Transaction txn = _transactionSessionMap.get(sessionId);
-            if (txn == null) {
-                txn = new Transaction(this, sessionId);
-                _transactionSessionMap.put(sessionId, txn);
+        Transaction txn = _transactionSessionMap.get(sessionId);
+        if (txn == null) {
+            txn = new Transaction(this, sessionId);
+            final Transaction existing = _transactionSessionMap.putIfAbsent(sessionId, txn);
+            if (existing != null) {
+                txn = existing;
             }
-            return txn;
         }
+        return txn;
     }
 
     /**
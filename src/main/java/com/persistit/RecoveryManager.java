@@ -33,13 +33,28 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.persistit.CheckpointManager.Checkpoint;
 import com.persistit.JournalManager.PageNode;
@@ -55,12 +70,14 @@ import com.persistit.JournalRecord.IV;
 import com.persistit.JournalRecord.JE;
 import com.persistit.JournalRecord.JH;
 import com.persistit.JournalRecord.PA;
+import com.persistit.JournalRecord.PD;
 import com.persistit.JournalRecord.PM;
 import com.persistit.JournalRecord.SR;
 import com.persistit.JournalRecord.TM;
 import com.persistit.JournalRecord.TX;
 import com.persistit.TransactionPlayer.TransactionPlayerListener;
 import com.persistit.exception.CorruptJournalException;
+import com.persistit.exception.PersistitClosedException;
 import com.persistit.exception.PersistitException;
 import com.persistit.exception.PersistitIOException;
 import com.persistit.exception.PersistitInterruptedException;
@@ -135,6 +152,12 @@ import com.persistit.util.Util;
  * are already present in the recovered B-Trees.
  * </p>
  * <p>
+ * When more than one replay thread is configured, a transaction is applied as
+ * soon as every earlier transaction that updated any of the same trees has
+ * been applied. A transaction that removes a tree or updates a directory tree
+ * is applied only after all earlier transactions, and before any later one.
+ * </p>
+ * <p>
  * This class is not threadsafe; it is intended to be called only during the
  * single-threaded recovery process.
  * </p>
@@ -151,6 +174,19 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
      */
     private final static int APPLY_TRANSACTION_LOG_COUNT = 10000;
 
+    /**
+     * Maximum number of transactions handed to replay threads and not yet
+     * applied
+     */
+    private final static int MAXIMUM_PENDING_REPLAY_COUNT = 10000;
+
+    /**
+     * Number of bytes at the end of the read buffer that are read again at
+     * the start of the read-ahead buffer, so that a record straddling the end
+     * of one read is wholly contained in the next
+     */
+    private final static int READ_AHEAD_OVERLAP = DEFAULT_BUFFER_SIZE / 4;
+
     private final Persistit _persistit;
 
     //
@@ -162,9 +198,9 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     private final Map<Long, TransactionMapItem> _abortedTransactionMap = new HashMap<Long, TransactionMapItem>();
 
-    private final Map<PageNode, PageNode> _pageMap = new HashMap<PageNode, PageNode>();
+    private final PageMap _pageMap = new PageMap();
 
-    private final Map<PageNode, PageNode> _branchMap = new HashMap<PageNode, PageNode>();
+    private final PageMap _branchMap = new PageMap();
 
     private final Map<Volume, Integer> _volumeToHandleMap = new HashMap<Volume, Integer>();
 
@@ -184,11 +220,43 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     private volatile int _uncommittedTransactionCount;
 
-    private volatile int _appliedTransactionCount;
+    private final AtomicInteger _appliedTransactionCount = new AtomicInteger();
+
+    private final AtomicInteger _abortedTransactionCount = new AtomicInteger();
+
+    private final AtomicInteger _errorCount = new AtomicInteger();
+
+    private volatile int _replayThreadCount = 1;
 
-    private volatile int _abortedTransactionCount;
+    private volatile long _replayStartTime;
+
+    private volatile long _replayEndTime;
+
+    /*
+     * While recovered transactions are applied in the background, the number
+     * of unapplied transactions that update each tree, keyed by
+     * pendingTreeKey. Transactions whose trees could not be determined are
+     * held in _pendingBarrierTransactions and block access to every tree.
+     */
+    private final Map<String, Integer> _pendingTreeCounts = new HashMap<String, Integer>();
+
+    private final Map<Long, String[]> _pendingTreesByTransaction = new HashMap<Long, String[]>();
+
+    private final Set<Long> _pendingBarrierTransactions = new HashSet<Long>();
+
+    private volatile boolean _replayPending;
+
+    private volatile boolean _replayIncomplete;
+
+    private volatile boolean _replayStopped;
+
+    /*
+     * Set when a background replay ends without applying every recovered
+     * transaction. Trees that were still pending remain inaccessible.
+     */
+    private volatile boolean _replayAbandoned;
 
-    private volatile int _errorCount;
+    private final ThreadLocal<Boolean> _replayingThread = new ThreadLocal<Boolean>();
 
     private volatile boolean _recoveryDisabledForTestMode;
 
@@ -210,6 +278,21 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     private long _readBufferAddress;
 
+    /*
+     * While the keystone journal file is scanned, the next portion of the file
+     * is read into _readAheadBuffer by a background thread. The two buffers
+     * are swapped when the scan reaches it.
+     */
+    private ExecutorService _readAheadExecutor;
+
+    private ByteBuffer _readAheadBuffer;
+
+    private long _readAheadAddress;
+
+    private Future<Void> _readAheadFuture;
+
+    private volatile long _readAheadHitCount;
+
     private long _currentAddress;
 
     private final long _recoveryStatus = Long.MIN_VALUE;
@@ -390,6 +473,49 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         }
     }
 
+    /**
+     * Support for a thread that replays transactions concurrently with others.
+     * Each such thread reads through its own buffer; long records are
+     * assembled one at a time through the shared read buffer.
+     */
+    private class ReplayTransactionPlayerSupport implements TransactionPlayerSupport {
+
+        private final ByteBuffer _buffer = ByteBuffer.allocate(_readBufferSize);
+
+        private long _bufferAddress = -1;
+
+        @Override
+        public void read(final long address, final int size) throws PersistitIOException {
+            if (_bufferAddress >= 0 && address >= _bufferAddress && size + address - _bufferAddress <= _buffer.limit()) {
+                _buffer.position((int) (address - _bufferAddress));
+            } else {
+                fill(_buffer, address);
+                _bufferAddress = address;
+                if (_buffer.remaining() < size) {
+                    throw new CorruptJournalException("End of file at " + addressToString(address));
+                }
+            }
+        }
+
+        @Override
+        public ByteBuffer getReadBuffer() {
+            return _buffer;
+        }
+
+        @Override
+        public void convertToLongRecord(final Value value, final int treeHandle, final long address,
+                final long commitTimestamp) throws PersistitException {
+            synchronized (RecoveryManager.this) {
+                RecoveryManager.this.convertToLongRecord(value, treeHandle, address, commitTimestamp);
+            }
+        }
+
+        @Override
+        public Persistit getPersistit() {
+            return _persistit;
+        }
+    }
+
     static File[] files(final String pathName) {
         final File directory;
         final File path = new File(pathName);
@@ -460,7 +586,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         info.blockSize = _blockSize;
         info.pageMapSize = _pageMap.size();
         info.baseAddress = _baseAddress;
-        info.appliedTransactions = _appliedTransactionCount;
+        info.appliedTransactions = _appliedTransactionCount.get();
         info.committedTransactions = getCommittedCount();
         info.uncommittedTransactions = getUncommittedCount();
     }
@@ -468,6 +594,9 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
     public void init(final String path) throws PersistitException {
         _journalFilePath = JournalManager.journalPath(path).getAbsolutePath();
         _readBuffer = ByteBuffer.allocate(_readBufferSize);
+        _replayStopped = false;
+        _replayIncomplete = false;
+        _replayAbandoned = false;
     }
 
     @Override
@@ -499,12 +628,73 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     @Override
     public int getAppliedTransactionCount() {
-        return _appliedTransactionCount;
+        return _appliedTransactionCount.get();
+    }
+
+    @Override
+    public int getAbortedTransactionCount() {
+        return _abortedTransactionCount.get();
     }
 
     @Override
     public int getErrorCount() {
-        return _errorCount;
+        return _errorCount.get();
+    }
+
+    @Override
+    public long getReadAheadHitCount() {
+        return _readAheadHitCount;
+    }
+
+    @Override
+    public int getReplayThreadCount() {
+        return _replayThreadCount;
+    }
+
+    /**
+     * Set the number of threads that apply recovered transactions. Takes
+     * effect only if called before recovered transactions are applied.
+     * 
+     * @param count
+     *            the number of replay threads
+     */
+    public void setReplayThreadCount(final int count) {
+        Util.rangeCheck(count, 1, MAXIMUM_REPLAY_THREAD_COUNT);
+        _replayThreadCount = count;
+    }
+
+    @Override
+    public boolean isReplayPending() {
+        return _replayPending;
+    }
+
+    @Override
+    public int getPendingTreeCount() {
+        synchronized (_pendingTreeCounts) {
+            return _pendingTreeCounts.size();
+        }
+    }
+
+    @Override
+    public long getAppliedUpdateCount() {
+        return _player.getAppliedUpdates();
+    }
+
+    @Override
+    public long getReplayElapsedTime() {
+        final long start = _replayStartTime;
+        if (start == 0) {
+            return 0;
+        }
+        final long end = _replayEndTime;
+        return ((end == 0 ? System.nanoTime() : end) - start) / Util.NS_PER_MS;
+    }
+
+    @Override
+    public long getReplayRate() {
+        final long elapsed = getReplayElapsedTime();
+        final long count = _appliedTransactionCount.get() + _abortedTransactionCount.get();
+        return elapsed == 0 ? 0 : count * 1000 / elapsed;
     }
 
     public Checkpoint getLastValidCheckpoint() {
@@ -596,7 +786,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
      * 
      * @param pageMap
      */
-    void collectRecoveredPages(final Map<PageNode, PageNode> pageMap, final Map<PageNode, PageNode> branchMap) {
+    void collectRecoveredPages(final PageMap pageMap, final PageMap branchMap) {
         if (_lastValidCheckpoint != null) {
             final long lastValidTimestamp = _lastValidCheckpoint.getTimestamp();
 
@@ -609,11 +799,11 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
                         if (branched) {
                             previous.setPrevious(null);
                         }
-                        pageMap.put(pageNode, pageNode);
+                        pageMap.put(pageNode);
                         break;
                     } else {
                         if (!branched) {
-                            branchMap.put(pageNode, pageNode);
+                            branchMap.put(pageNode);
                             branched = true;
                         }
                         previous = pageNode;
@@ -807,23 +997,28 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
                 // _logWriter.println("Scanning records");
 
                 boolean checkpointFound = false;
-                while (true) {
-                    try {
-                        final int type = scanOneRecord();
-                        if (type == CP.TYPE) {
-                            checkpointFound = true;
-                        } else if (type == JE.TYPE) {
-                            break;
-                        }
-                    } catch (final CorruptJournalException cje) {
-                        _recoveryEndedException = cje.toString();
-                        _recoveryEndedAddress = _currentAddress;
-                        if (!checkpointFound) {
-                            throw cje;
-                        } else {
-                            break;
+                beginReadAhead();
+                try {
+                    while (true) {
+                        try {
+                            final int type = scanOneRecord();
+                            if (type == CP.TYPE) {
+                                checkpointFound = true;
+                            } else if (type == JE.TYPE || type == 0) {
+                                break;
+                            }
+                        } catch (final CorruptJournalException cje) {
+                            _recoveryEndedException = cje.toString();
+                            _recoveryEndedAddress = _currentAddress;
+                            if (!checkpointFound) {
+                                throw cje;
+                            } else {
+                                break;
+                            }
                         }
                     }
+                } finally {
+                    endReadAhead();
                 }
                 if (checkpointFound) {
                     _persistit.getLogBase().recoveryKeystone.log(addressToFile(_keystoneAddress), _currentAddress);
@@ -877,33 +1072,147 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
                 && size + address - _readBufferAddress <= _readBuffer.limit()) {
             _readBuffer.position((int) (address - _readBufferAddress));
         } else {
-            try {
-                final FileChannel fc = getFileChannel(address);
-                _readBuffer.clear();
+            if (!takeReadAhead(address, size)) {
+                fill(_readBuffer, address);
+                _readBufferAddress = address;
+            }
+            startReadAhead();
+            if (_readBuffer.remaining() < size) {
+                throw new CorruptJournalException("End of file at " + addressToString(address));
+            }
+        }
+    }
 
-                int maxSize = _readBuffer.capacity();
-                final long remainingInBlock = addressUp(address) - address;
-                if (remainingInBlock < maxSize) {
-                    maxSize = (int) remainingInBlock;
-                }
+    /**
+     * Start reading ahead sequentially. Used only while the keystone file is
+     * scanned; other reads are not sequential.
+     */
+    private void beginReadAhead() {
+        _readAheadBuffer = ByteBuffer.allocate(_readBufferSize);
+        _readAheadExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "RECOVERY_READ_AHEAD");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
 
-                _readBuffer.limit(maxSize);
-                int offset = 0;
-                while (_readBuffer.remaining() > 0) {
-                    final int readSize = fc.read(_readBuffer, offset + address % _blockSize);
-                    if (readSize < 0) {
-                        break;
-                    }
-                    offset += readSize;
+    private void endReadAhead() {
+        final ExecutorService executor = _readAheadExecutor;
+        _readAheadExecutor = null;
+        if (executor != null) {
+            awaitReadAhead();
+            executor.shutdown();
+        }
+        _readAheadBuffer = null;
+    }
+
+    /**
+     * Begin reading the portion of the journal file that follows the content
+     * of the read buffer into the read-ahead buffer.
+     */
+    private void startReadAhead() {
+        if (_readAheadExecutor == null || _readAheadFuture != null
+                || _readBuffer.limit() < _readBuffer.capacity()) {
+            // Not reading ahead, already reading ahead, or at end of file
+            return;
+        }
+        final long address = _readBufferAddress + _readBuffer.limit() - READ_AHEAD_OVERLAP;
+        if (address >= addressUp(_readBufferAddress)) {
+            return;
+        }
+        final ByteBuffer buffer = _readAheadBuffer;
+        _readAheadAddress = address;
+        _readAheadFuture = _readAheadExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws PersistitIOException {
+                fill(buffer, address);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Wait for a pending read-ahead to finish.
+     * 
+     * @return <code>true</code> if the read-ahead buffer holds valid content
+     */
+    private boolean awaitReadAhead() {
+        final Future<Void> future = _readAheadFuture;
+        if (future == null) {
+            return false;
+        }
+        _readAheadFuture = null;
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get();
+                    return true;
+                } catch (final InterruptedException e) {
+                    interrupted = true;
                 }
-                _readBufferAddress = address;
-                _readBuffer.flip();
-                if (_readBuffer.remaining() < size) {
-                    throw new CorruptJournalException("End of file at " + addressToString(address));
+            }
+        } catch (final ExecutionException e) {
+            // The requested bytes will be read again, reporting the error
+            return false;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Make the read-ahead buffer the read buffer if it holds the requested
+     * bytes.
+     * 
+     * @return <code>true</code> if the read buffer is now positioned at the
+     *         supplied address
+     */
+    private boolean takeReadAhead(final long address, final int size) {
+        if (!awaitReadAhead() || address < _readAheadAddress
+                || address + size > _readAheadAddress + _readAheadBuffer.limit()) {
+            return false;
+        }
+        final ByteBuffer buffer = _readBuffer;
+        _readBuffer = _readAheadBuffer;
+        _readAheadBuffer = buffer;
+        _readBufferAddress = _readAheadAddress;
+        _readBuffer.position((int) (address - _readBufferAddress));
+        _readAheadHitCount++;
+        return true;
+    }
+
+    /**
+     * Fill the supplied buffer with journal content starting at the supplied
+     * address, up to the end of the buffer or of the journal file.
+     */
+    private void fill(final ByteBuffer buffer, final long address) throws PersistitIOException {
+        try {
+            final FileChannel fc = getFileChannel(address);
+            buffer.clear();
+
+            int maxSize = buffer.capacity();
+            final long remainingInBlock = addressUp(address) - address;
+            if (remainingInBlock < maxSize) {
+                maxSize = (int) remainingInBlock;
+            }
+
+            buffer.limit(maxSize);
+            int offset = 0;
+            while (buffer.remaining() > 0) {
+                final int readSize = fc.read(buffer, offset + address % _blockSize);
+                if (readSize < 0) {
+                    break;
                 }
-            } catch (final IOException e) {
-                throw new PersistitIOException("Reading from " + addressToString(address), e);
+                offset += readSize;
             }
+            buffer.flip();
+        } catch (final IOException e) {
+            throw new PersistitIOException("Reading from " + addressToString(address), e);
         }
     }
 
@@ -915,7 +1224,8 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
      * 
      * @return The record type: one of the type values specified in
      *         {@link com.persistit.JournalRecord}), 0 if the journal file has
-     *         fewer than 16 bytes remaining or -t where t is an invalid type.
+     *         fewer than 16 bytes remaining or the record is the zero-filled
+     *         tail of a preallocated file, or -t where t is an invalid type.
      * @throws CorruptJournalException
      * @throws PersistitException
      * @throws JournalNotClosedException
@@ -927,6 +1237,13 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         final int recordSize = getLength(_readBuffer);
         final int type = getType(_readBuffer);
         final long timestamp = getTimestamp(_readBuffer);
+        if (recordSize == 0 && type == 0) {
+            //
+            // Zero-filled tail of a preallocated journal file: no more
+            // records were written to it.
+            //
+            return 0;
+        }
         _persistit.getTimestampAllocator().updateTimestamp(timestamp);
 
         if (recordSize >= _blockSize || recordSize < OVERHEAD) {
@@ -959,6 +1276,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             break;
 
         case PA.TYPE:
+        case PD.TYPE:
             scanLoadPage(from, timestamp, recordSize);
             break;
 
@@ -1086,7 +1404,7 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             final PageNode pageNode = new PageNode(volumeHandle, pageAddress, address, timestamp);
             final PageNode oldPageNode = _pageMap.get(pageNode);
             pageNode.setPrevious(oldPageNode);
-            _pageMap.put(pageNode, pageNode);
+            _pageMap.put(pageNode);
             _persistit.getLogBase().recoveryRecord.log("PA", pageNode.toStringJournalAddress(this),
                     pageNode.toStringPageAddress(this), timestamp);
         }
@@ -1161,14 +1479,14 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
                 lastPageNode = _branchMap.get(pageNode);
                 if (lastPageNode == null || journalAddress > lastPageNode.getJournalAddress()) {
                     pageNode.setPrevious(lastPageNode);
-                    _branchMap.put(pageNode, pageNode);
+                    _branchMap.put(pageNode);
                     linked = true;
                 }
             } else {
                 lastPageNode = _pageMap.get(pageNode);
                 if (lastPageNode == null || journalAddress > lastPageNode.getJournalAddress()) {
                     pageNode.setPrevious(lastPageNode);
-                    _pageMap.put(pageNode, pageNode);
+                    _pageMap.put(pageNode);
                     linked = true;
                 }
             }
@@ -1365,10 +1683,13 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         if (lastRequiredJournalAddress > startingAddress) {
             read(lastRequiredJournalAddress, PA.OVERHEAD);
             type = getType(_readBuffer);
-            validate(type, file, startingAddress, PA.TYPE, "Invalid record type %3$,d at %1$s:%2$d");
+            if (type != PD.TYPE) {
+                validate(type, file, startingAddress, PA.TYPE, "Invalid record type %3$,d at %1$s:%2$d");
+            }
             recordSize = getLength(_readBuffer);
-            validate(recordSize, file, startingAddress, PA.OVERHEAD + Buffer.HEADER_SIZE, PA.OVERHEAD
-                    + Buffer.MAX_BUFFER_SIZE, "PA record size %3$,d not in valid range "
+            final int minimumSize = type == PD.TYPE ? PD.OVERHEAD : PA.isCompressed(_readBuffer) ? PA.OVERHEAD + 1
+                    : PA.OVERHEAD + Buffer.HEADER_SIZE;
+            validate(recordSize, file, startingAddress, minimumSize, PA.OVERHEAD + Buffer.MAX_BUFFER_SIZE, "PA record size %3$,d not in valid range "
                     + "[%4$,d:%5$,d] at %1$s:%2$,d");
             final long pageAddress = PA.getPageAddress(_readBuffer);
             validate(pageAddress, file, startingAddress, lastRequiredPageNode.getPageAddress(),
@@ -1493,6 +1814,200 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
 
     // ---------------------------- Phase 3 ------------------------------------
 
+    /**
+     * Prepare to apply recovered transactions while application threads are
+     * already running. Determines which trees each recovered transaction
+     * updates so that {@link #awaitTreeReplay(Volume, String)} can admit
+     * access to a tree as soon as its last recovered transaction has been
+     * applied. Checkpoints are suppressed until
+     * {@link #endPendingReplay(boolean)} reports successful completion since a
+     * checkpoint would cause unapplied transactions to be skipped by a
+     * subsequent recovery.
+     * 
+     * @return <code>true</code> if there are recovered transactions to apply
+     */
+    boolean beginPendingReplay() {
+        if (_recoveryDisabledForTestMode || _recoveredTransactionMap.isEmpty()) {
+            return false;
+        }
+        final TransactionPlayer scanner = new TransactionPlayer(new ReplayTransactionPlayerSupport(), _player);
+        final JournalManager jman = _persistit.getJournalManager();
+        final Set<Integer> treeHandles = new HashSet<Integer>();
+        synchronized (_pendingTreeCounts) {
+            for (final TransactionMapItem item : _recoveredTransactionMap.values()) {
+                final Long key = Long.valueOf(item.getStartTimestamp());
+                treeHandles.clear();
+                boolean confined;
+                try {
+                    confined = scanner.collectTreeHandles(item, treeHandles);
+                } catch (final PersistitException e) {
+                    confined = false;
+                }
+                if (!confined) {
+                    _pendingBarrierTransactions.add(key);
+                    continue;
+                }
+                final List<String> trees = new ArrayList<String>(treeHandles.size());
+                for (final Integer treeHandle : treeHandles) {
+                    final TreeDescriptor td = jman.lookupTreeHandle(treeHandle.intValue());
+                    final Volume volume = jman.lookupVolumeHandle(td.getVolumeHandle());
+                    if (volume != null) {
+                        final String tree = pendingTreeKey(volume.getName(), td.getTreeName());
+                        final Integer count = _pendingTreeCounts.get(tree);
+                        _pendingTreeCounts.put(tree, count == null ? 1 : count + 1);
+                        trees.add(tree);
+                    }
+                }
+                _pendingTreesByTransaction.put(key, trees.toArray(new String[trees.size()]));
+            }
+            _replayStopped = false;
+            _replayAbandoned = false;
+            _replayIncomplete = true;
+            _replayPending = true;
+        }
+        return true;
+    }
+
+    /**
+     * Mark the successful end of a replay started by
+     * {@link #beginPendingReplay()}: every recovered transaction has been
+     * applied. Releases all threads waiting for trees to be replayed and
+     * permits checkpoints again.
+     */
+    void endPendingReplay() {
+        synchronized (_pendingTreeCounts) {
+            _pendingTreeCounts.clear();
+            _pendingTreesByTransaction.clear();
+            _pendingBarrierTransactions.clear();
+            _replayIncomplete = false;
+            _replayPending = false;
+            _pendingTreeCounts.notifyAll();
+        }
+    }
+
+    /**
+     * Mark the end of a replay started by {@link #beginPendingReplay()} that
+     * stopped or failed before every recovered transaction was applied. Trees
+     * with unapplied transactions remain inaccessible: threads waiting for
+     * them, and threads that request them later, receive the fatal error that
+     * ended the replay or a {@link PersistitClosedException}. Checkpoints
+     * remain suppressed so that the next startup recovers the same
+     * transactions again.
+     */
+    void abandonPendingReplay() {
+        synchronized (_pendingTreeCounts) {
+            _replayAbandoned = true;
+            _pendingTreeCounts.notifyAll();
+        }
+    }
+
+    /**
+     * Request a replay started by {@link #beginPendingReplay()} to stop after
+     * the transactions currently being applied.
+     */
+    void stopReplay() {
+        _replayStopped = true;
+    }
+
+    boolean isReplayStopped() {
+        return _replayStopped;
+    }
+
+    /**
+     * @return <code>true</code> if recovered transactions have not yet all been
+     *         applied, in which case no checkpoint may be written
+     */
+    boolean isReplayIncomplete() {
+        return _replayIncomplete;
+    }
+
+    /**
+     * Wait until every recovered transaction that updates the specified tree
+     * has been applied. Returns immediately if no replay is pending or if
+     * called by a thread that is applying recovered transactions.
+     * 
+     * @param volume
+     *            the Volume containing the tree
+     * @param treeName
+     *            the tree name
+     * @throws PersistitException
+     *             if the replay was abandoned before the tree was replayed
+     */
+    void awaitTreeReplay(final Volume volume, final String treeName) throws PersistitException {
+        if (!_replayPending || _replayingThread.get() != null) {
+            return;
+        }
+        final String tree = pendingTreeKey(volume.getName(), treeName);
+        synchronized (_pendingTreeCounts) {
+            while (!_pendingBarrierTransactions.isEmpty() || _pendingTreeCounts.containsKey(tree)) {
+                checkReplayAbandoned();
+                try {
+                    _pendingTreeCounts.wait();
+                } catch (final InterruptedException e) {
+                    throw new PersistitInterruptedException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until a replay started by {@link #beginPendingReplay()} has ended.
+     * 
+     * @throws PersistitException
+     *             if the replay was abandoned
+     */
+    void awaitPendingReplay() throws PersistitException {
+        if (!_replayPending || _replayingThread.get() != null) {
+            return;
+        }
+        synchronized (_pendingTreeCounts) {
+            while (_replayPending) {
+                checkReplayAbandoned();
+                try {
+                    _pendingTreeCounts.wait();
+                } catch (final InterruptedException e) {
+                    throw new PersistitInterruptedException(e);
+                }
+            }
+        }
+    }
+
+    private void checkReplayAbandoned() throws PersistitClosedException {
+        if (_replayAbandoned) {
+            _persistit.checkFatal();
+            throw new PersistitClosedException();
+        }
+    }
+
+    private void releasePendingTrees(final TransactionMapItem item) {
+        if (!_replayPending) {
+            return;
+        }
+        final Long key = Long.valueOf(item.getStartTimestamp());
+        synchronized (_pendingTreeCounts) {
+            boolean released = _pendingBarrierTransactions.remove(key) && _pendingBarrierTransactions.isEmpty();
+            final String[] trees = _pendingTreesByTransaction.remove(key);
+            if (trees != null) {
+                for (final String tree : trees) {
+                    final Integer count = _pendingTreeCounts.get(tree);
+                    if (count == null || count.intValue() <= 1) {
+                        _pendingTreeCounts.remove(tree);
+                        released = true;
+                    } else {
+                        _pendingTreeCounts.put(tree, count - 1);
+                    }
+                }
+            }
+            if (released) {
+                _pendingTreeCounts.notifyAll();
+            }
+        }
+    }
+
+    private static String pendingTreeKey(final String volumeName, final String treeName) {
+        return volumeName + ":" + treeName;
+    }
+
     public void applyAllRecoveredTransactions(final TransactionPlayerListener commitListener,
             final TransactionPlayerListener rollbackListener) throws TestException {
 
@@ -1520,35 +2035,232 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             assert last.getCommitTimestamp() <= _persistit.getTimestampAllocator().getCurrentTimestamp();
         }
 
-        for (final TransactionMapItem item : sorted) {
-            final TransactionPlayerListener listener = item.isCommitted() ? commitListener : rollbackListener;
-            try {
-                if (!started) {
-                    commitListener.startRecovery(item.getStartAddress(), item.getCommitTimestamp());
+        _replayStartTime = System.nanoTime();
+        try {
+            if (_replayThreadCount > 1 && sorted.size() > 1) {
+                final TransactionMapItem first = sorted.first();
+                try {
+                    commitListener.startRecovery(first.getStartAddress(), first.getCommitTimestamp());
                     started = true;
+                } catch (final Exception pe) {
+                    _persistit.getLogBase().recoveryException.log(pe, first);
+                    _errorCount.incrementAndGet();
+                }
+                if (started) {
+                    applyTransactionsConcurrently(sorted, commitListener, rollbackListener);
                 }
+            } else {
+                for (final TransactionMapItem item : sorted) {
+                    if (_replayStopped) {
+                        break;
+                    }
+                    try {
+                        if (!started) {
+                            commitListener.startRecovery(item.getStartAddress(), item.getCommitTimestamp());
+                            started = true;
+                        }
+                    } catch (final Exception pe) {
+                        _persistit.getLogBase().recoveryException.log(pe, item);
+                        _errorCount.incrementAndGet();
+                        continue;
+                    }
+                    applyTransaction(_player, item, commitListener, rollbackListener);
+                }
+            }
+        } finally {
+            _replayEndTime = System.nanoTime();
+        }
+        _branchMap.clear();
+    }
 
-                _player.applyTransaction(item, listener);
-                if (item.isCommitted()) {
-                    _appliedTransactionCount++;
+    private void applyTransaction(final TransactionPlayer player, final TransactionMapItem item,
+            final TransactionPlayerListener commitListener, final TransactionPlayerListener rollbackListener)
+            throws TestException {
+        final TransactionPlayerListener listener = item.isCommitted() ? commitListener : rollbackListener;
+        _replayingThread.set(Boolean.TRUE);
+        try {
+            player.applyTransaction(item, listener);
+            if (item.isCommitted()) {
+                _appliedTransactionCount.incrementAndGet();
+            } else {
+                _abortedTransactionCount.incrementAndGet();
+            }
+            final int applied = _appliedTransactionCount.get();
+            final int aborted = _abortedTransactionCount.get();
+            if ((applied + aborted) % APPLY_TRANSACTION_LOG_COUNT == 0) {
+                _persistit.getLogBase().recoveryProgress.log(applied, aborted,
+                        _recoveredTransactionMap.size() - applied - aborted);
+            }
+        } catch (final TestException te) {
+            // Exception thrown by a unit test to interrupt recovery
+            _persistit.getLogBase().recoveryException.log(te, item);
+            throw te;
+        } catch (final Exception pe) {
+            _persistit.getLogBase().recoveryException.log(pe, item);
+            _errorCount.incrementAndGet();
+        } finally {
+            _replayingThread.remove();
+        }
+        releasePendingTrees(item);
+    }
+
+    /**
+     * Apply transactions in commit order using several threads. Each
+     * transaction waits for the most recent earlier transaction to have
+     * updated each of its trees. Tasks are started in commit order, so every
+     * task a running one waits for has already been started.
+     */
+    private void applyTransactionsConcurrently(final SortedSet<TransactionMapItem> sorted,
+            final TransactionPlayerListener commitListener, final TransactionPlayerListener rollbackListener)
+            throws TestException {
+        final TransactionPlayer scanner = new TransactionPlayer(new ReplayTransactionPlayerSupport(), _player);
+        final AtomicReference<TestException> failure = new AtomicReference<TestException>();
+        final Semaphore pending = new Semaphore(MAXIMUM_PENDING_REPLAY_COUNT);
+        final Map<Integer, ReplayTask> lastTaskForTree = new HashMap<Integer, ReplayTask>();
+        final List<ReplayTask> sinceBarrier = new ArrayList<ReplayTask>();
+        final Set<Integer> treeHandles = new HashSet<Integer>();
+        ReplayTask barrier = null;
+
+        final ThreadLocal<TransactionPlayer> players = new ThreadLocal<TransactionPlayer>() {
+            @Override
+            protected TransactionPlayer initialValue() {
+                return new TransactionPlayer(new ReplayTransactionPlayerSupport(), _player);
+            }
+        };
+        final ExecutorService workers = Executors.newFixedThreadPool(_replayThreadCount, new ThreadFactory() {
+            private final AtomicInteger _counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "RECOVERY_REPLAY_" + _counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            for (final TransactionMapItem item : sorted) {
+                if (failure.get() != null || _replayStopped) {
+                    break;
+                }
+                treeHandles.clear();
+                boolean confined;
+                try {
+                    confined = scanner.collectTreeHandles(item, treeHandles);
+                } catch (final PersistitException e) {
+                    confined = false;
+                }
+                final List<ReplayTask> predecessors = new ArrayList<ReplayTask>();
+                if (barrier != null && !barrier.isDone()) {
+                    predecessors.add(barrier);
+                }
+                if (confined) {
+                    for (final Integer treeHandle : treeHandles) {
+                        final ReplayTask predecessor = lastTaskForTree.get(treeHandle);
+                        if (predecessor != null && !predecessor.isDone()) {
+                            predecessors.add(predecessor);
+                        }
+                    }
+                } else {
+                    predecessors.addAll(sinceBarrier);
+                }
+                final ReplayTask task = new ReplayTask(item, predecessors) {
+                    @Override
+                    void apply() {
+                        try {
+                            if (failure.get() == null && !_replayStopped) {
+                                applyTransaction(players.get(), _item, commitListener, rollbackListener);
+                            }
+                        } catch (final TestException te) {
+                            failure.compareAndSet(null, te);
+                        } finally {
+                            pending.release();
+                        }
+                    }
+                };
+                if (confined) {
+                    for (final Integer treeHandle : treeHandles) {
+                        lastTaskForTree.put(treeHandle, task);
+                    }
+                    if (sinceBarrier.size() >= MAXIMUM_PENDING_REPLAY_COUNT * 2) {
+                        for (final Iterator<ReplayTask> iterator = sinceBarrier.iterator(); iterator.hasNext();) {
+                            if (iterator.next().isDone()) {
+                                iterator.remove();
+                            }
+                        }
+                    }
+                    sinceBarrier.add(task);
                 } else {
-                    _abortedTransactionCount++;
+                    lastTaskForTree.clear();
+                    sinceBarrier.clear();
+                    barrier = task;
+                }
+                pending.acquireUninterruptibly();
+                workers.execute(task);
+            }
+        } finally {
+            workers.shutdown();
+            boolean interrupted = false;
+            while (!workers.isTerminated()) {
+                try {
+                    workers.awaitTermination(1, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    interrupted = true;
                 }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
 
-                if ((_appliedTransactionCount + _abortedTransactionCount) % APPLY_TRANSACTION_LOG_COUNT == 0) {
-                    _persistit.getLogBase().recoveryProgress.log(_appliedTransactionCount, _abortedTransactionCount,
-                            _recoveredTransactionMap.size() - _appliedTransactionCount - _abortedTransactionCount);
+    /**
+     * A transaction to be applied by a replay thread once the transactions it
+     * depends on have been applied.
+     */
+    private abstract static class ReplayTask implements Runnable {
+
+        final TransactionMapItem _item;
+
+        private final List<ReplayTask> _predecessors;
+
+        private final CountDownLatch _done = new CountDownLatch(1);
+
+        ReplayTask(final TransactionMapItem item, final List<ReplayTask> predecessors) {
+            _item = item;
+            _predecessors = predecessors;
+        }
+
+        abstract void apply();
+
+        boolean isDone() {
+            return _done.getCount() == 0;
+        }
+
+        @Override
+        public void run() {
+            boolean interrupted = false;
+            try {
+                for (final ReplayTask predecessor : _predecessors) {
+                    while (!predecessor.isDone()) {
+                        try {
+                            predecessor._done.await();
+                        } catch (final InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                }
+                _predecessors.clear();
+                apply();
+            } finally {
+                _done.countDown();
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
                 }
-            } catch (final TestException te) {
-                // Exception thrown by a unit test to interrupt recovery
-                _persistit.getLogBase().recoveryException.log(te, item);
-                throw te;
-            } catch (final Exception pe) {
-                _persistit.getLogBase().recoveryException.log(pe, item);
-                _errorCount++;
             }
         }
-        _branchMap.clear();
     }
 
     /**
@@ -1609,10 +2321,9 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             // Look for the latest version of the page which precedes the
             // record's timestamp.
             //
-            final PageNode key = new PageNode(volumeHandle, page, -1, -1);
-            PageNode pn = lastPageNodeBefore(_branchMap.get(key), timestamp);
+            PageNode pn = lastPageNodeBefore(_branchMap.get(volumeHandle, page), timestamp);
             if (pn == null) {
-                pn = lastPageNodeBefore(_pageMap.get(key), timestamp);
+                pn = lastPageNodeBefore(_pageMap.get(volumeHandle, page), timestamp);
             }
 
             if (pn == null) {
@@ -1621,37 +2332,11 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
             }
 
             _currentAddress = pn.getJournalAddress();
-            read(_currentAddress, PA.OVERHEAD);
-            final int type = PA.getType(_readBuffer);
-            final int recordSize = PA.getLength(_readBuffer);
-            final int payloadSize = recordSize - PA.OVERHEAD;
-            final int leftSize = PA.getLeftSize(_readBuffer);
-            final int bufferSize = PA.getBufferSize(_readBuffer);
-            final long pageAddress = PA.getPageAddress(_readBuffer);
-            //
-            // Verify that this is the valid and appropriate PA record
-            //
-            if (type != PA.TYPE) {
-                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
-                        + " is not a PAGE record");
-            }
-
-            if (leftSize < 0 || payloadSize < leftSize || payloadSize > bufferSize) {
-                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
-                        + " invalid sizes: recordSize= " + payloadSize + " leftSize=" + leftSize + " bufferSize="
-                        + bufferSize);
-            }
-
-            if (pageAddress != pn.getPageAddress()) {
-                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
-                        + " mismatched page address: expected/actual=" + pn.getPageAddress() + "/" + pageAddress);
-            }
-
+            final byte[] image = readPageImage(pn);
             //
             // Verify that this is a PAGE_TYPE_LONG_RECORD
             //
-            read(_currentAddress, recordSize);
-            final int pageType = JournalRecord.getByte(_readBuffer, PA.OVERHEAD + Buffer.TYPE_OFFSET);
+            final int pageType = Util.getByte(image, Buffer.TYPE_OFFSET);
 
             if (pageType != Buffer.PAGE_TYPE_LONG_RECORD) {
                 throw new CorruptJournalException("Long record chain contains invalid page type " + pageType
@@ -1659,15 +2344,14 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
                         + addressToString(from, timestamp));
             }
 
-            final int segmentSize = Math.min(remainingSize, payloadSize - Buffer.HEADER_SIZE);
+            final int segmentSize = Math.min(remainingSize, image.length - Buffer.HEADER_SIZE);
 
-            System.arraycopy(_readBuffer.array(), _readBuffer.position() + PA.OVERHEAD + Buffer.HEADER_SIZE,
-                    value.getEncodedBytes(), offset, segmentSize);
+            System.arraycopy(image, Buffer.HEADER_SIZE, value.getEncodedBytes(), offset, segmentSize);
             offset += segmentSize;
             remainingSize -= segmentSize;
 
             // Next page in chain
-            page = JournalRecord.getLong(_readBuffer, PA.OVERHEAD + Buffer.RIGHT_SIBLING_OFFSET);
+            page = Util.getLong(image, Buffer.RIGHT_SIBLING_OFFSET);
 
             if (count > Buffer.MAX_LONG_RECORD_CHAIN) {
                 throw new CorruptJournalException("Long record chain has more than " + Buffer.MAX_LONG_RECORD_CHAIN
@@ -1684,6 +2368,85 @@ public class RecoveryManager implements RecoveryManagerMXBean, VolumeHandleLooku
         value.setEncodedSize(size);
     }
 
+    /**
+     * Read the page image held in the PA or PD record identified by the
+     * supplied PageNode. A PD record is applied to the image it is based on.
+     * 
+     * @param pn
+     * @return the page image
+     * @throws PersistitIOException
+     */
+    private byte[] readPageImage(final PageNode pn) throws PersistitIOException {
+        final long address = pn.getJournalAddress();
+        read(address, PA.OVERHEAD);
+        final int type = getType(_readBuffer);
+        final int recordSize = getLength(_readBuffer);
+
+        if (type == PD.TYPE) {
+            read(address, PD.OVERHEAD);
+            final int payloadSize = recordSize - PD.OVERHEAD;
+            final int bufferSize = PD.getBufferSize(_readBuffer);
+            final long pageAddress = PD.getPageAddress(_readBuffer);
+            final long baseAddress = PD.getBaseAddress(_readBuffer);
+            if (payloadSize < 0 || payloadSize > bufferSize || baseAddress >= address) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                        + " invalid sizes: recordSize= " + payloadSize + " bufferSize=" + bufferSize
+                        + " baseAddress=" + baseAddress);
+            }
+            if (pageAddress != pn.getPageAddress()) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                        + " mismatched page address: expected/actual=" + pn.getPageAddress() + "/" + pageAddress);
+            }
+            read(address, recordSize);
+            final byte[] runs = new byte[payloadSize];
+            System.arraycopy(_readBuffer.array(), _readBuffer.position() + PD.OVERHEAD, runs, 0, payloadSize);
+            final byte[] image = readPageImage(new PageNode(pn.getVolumeHandle(), pageAddress, baseAddress, -1));
+            if (image.length != bufferSize || !PD.apply(runs, 0, payloadSize, image, 0, bufferSize)) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                        + " does not apply to the page image at " + baseAddress);
+            }
+            return image;
+        }
+
+        final int payloadSize = recordSize - PA.OVERHEAD;
+        final int leftSize = PA.getLeftSize(_readBuffer);
+        final int bufferSize = PA.getBufferSize(_readBuffer);
+        final long pageAddress = PA.getPageAddress(_readBuffer);
+        //
+        // Verify that this is the valid and appropriate PA record
+        //
+        if (type != PA.TYPE) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this) + " is not a PAGE record");
+        }
+
+        final boolean compressed = PA.isCompressed(_readBuffer);
+        if (leftSize < 0 || (payloadSize < leftSize && !compressed) || payloadSize > bufferSize) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                    + " invalid sizes: recordSize= " + payloadSize + " leftSize=" + leftSize + " bufferSize="
+                    + bufferSize);
+        }
+
+        if (pageAddress != pn.getPageAddress()) {
+            throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                    + " mismatched page address: expected/actual=" + pn.getPageAddress() + "/" + pageAddress);
+        }
+
+        read(address, recordSize);
+        final byte[] image = new byte[bufferSize];
+        final int payloadOffset = _readBuffer.position() + PA.OVERHEAD;
+        if (compressed) {
+            if (!PA.expand(_readBuffer.array(), payloadOffset, payloadSize, leftSize, bufferSize, image, 0)) {
+                throw new CorruptJournalException("Record at " + pn.toStringJournalAddress(this)
+                        + " has malformed compressed page image");
+            }
+        } else {
+            final int rightSize = payloadSize - leftSize;
+            System.arraycopy(_readBuffer.array(), payloadOffset, image, 0, leftSize);
+            System.arraycopy(_readBuffer.array(), payloadOffset + leftSize, image, bufferSize - rightSize, rightSize);
+        }
+        return image;
+    }
+
     private PageNode lastPageNodeBefore(final PageNode pageNode, final long timestamp) {
         PageNode pn = pageNode;
         while (pn != null) {
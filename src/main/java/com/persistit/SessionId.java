@@ -44,6 +44,15 @@ import java.util.concurrent.atomic.AtomicReference;
  * created during the lifetime of a <code>Persistit</code> instance and to
  * manage them appropriately.
  * </p>
+ * <p>
+ * Session resources are not released when the application drops its reference
+ * to a <code>SessionId</code>. The <code>Transaction</code> and the pooled
+ * <code>Exchange</code>s of a session are retained until the
+ * <code>Thread</code> currently associated with it is no longer alive, and are
+ * then released by the next periodic cleanup. Applications that switch
+ * sessions should reuse a bounded set of <code>SessionId</code> instances
+ * rather than creating one per request.
+ * </p>
  * 
  * @author peter
  * 
@@ -78,12 +78,37 @@ abstract class SharedResource {
      */
     final static int TOUCHED_MASK = 0x08000000;
 
+    /**
+     * Status field mask indicating a resource (a Buffer) has been re-used
+     * after it was loaded and belongs to the protected set of a scan-resistant
+     * page replacement policy.
+     */
+    final static int HOT_MASK = 0x10000000;
+
+    /**
+     * Status field mask indicating a resource (a Buffer) was loaded by a scan,
+     * such as a maintenance task, and should be replaced first.
+     */
+    final static int SCAN_MASK = 0x20000000;
+
+    /**
+     * Status field mask indicating a resource (a Buffer) has been loaded but
+     * not yet visited by the page replacement algorithm.
+     */
+    final static int NEW_MASK = 0x00800000;
+
     /**
      * Mask for bit field indicating that resource (a Buffer) should not be
      * replaced. The buffer houses a Volume's head page.
      */
     final static int FIXED_MASK = 0x40000000;
 
+    /**
+     * Status field mask indicating a resource (a Buffer) holds an index page of
+     * a Tree whose index pages are pinned, and should not be replaced.
+     */
+    final static int PINNED_MASK = 0x00040000;
+
     final static AtomicLong ACQUIRE_LOOPS = new AtomicLong();
     final static AtomicLong RELEASE_LOOPS = new AtomicLong();
     final static AtomicLong SET_BIT_LOOPS = new AtomicLong();
@@ -95,6 +120,13 @@ abstract class SharedResource {
     private static class Sync extends AbstractQueuedSynchronizer {
         private static final long serialVersionUID = 1L;
 
+        /**
+         * Count of writer claims released. Incremented by the thread that owns
+         * the writer claim just before the WRITER_MASK bit is cleared. Used to
+         * validate optimistic (unclaimed) reads.
+         */
+        private volatile long _writerStamp;
+
         @Override
         protected boolean tryAcquire(final int arg) {
             assert arg == 1;
@@ -193,6 +225,7 @@ abstract class SharedResource {
 
         private int releaseState(final int count) {
             assert count == 0 || count == 1;
+            boolean stamped = false;
             for (;;) {
                 final int state = getState();
                 if ((state & CLAIMED_MASK) == 1) {
@@ -200,6 +233,12 @@ abstract class SharedResource {
                     // Do this first so that another thread setting
                     // a writer claim does not lose its copy.
                     setExclusiveOwnerThread(null);
+                    // Must precede clearing the writer bit so that an
+                    // optimistic reader cannot miss this writer.
+                    if ((state & WRITER_MASK) != 0 && !stamped) {
+                        _writerStamp++;
+                        stamped = true;
+                    }
                     if (compareAndSetState(state, newState)) {
                         return newState;
                     }
@@ -227,6 +266,10 @@ abstract class SharedResource {
             return getExclusiveOwnerThread();
         }
 
+        private long writerStamp() {
+            return _writerStamp;
+        }
+
         private boolean setBitsInState(final int mask) {
             for (;;) {
                 final int state = getState();
@@ -339,6 +382,36 @@ abstract class SharedResource {
         return _sync.tryUpgrade();
     }
 
+    /**
+     * Begin an optimistic read of this resource. An optimistic read does not
+     * acquire a claim and therefore does not modify the synchronizer state;
+     * instead the caller reads the resource and then calls
+     * {@link #validateOptimisticStamp(long)} with the value returned by this
+     * method. If validation succeeds no writer held or acquired a writer claim
+     * during the read and the values read are consistent.
+     * 
+     * @return a stamp to be validated, or -1 if a writer claim is currently
+     *         held
+     */
+    long getOptimisticStamp() {
+        final long stamp = _sync.writerStamp();
+        return _sync.testBitsInState(WRITER_MASK) ? -1 : stamp;
+    }
+
+    /**
+     * Complete an optimistic read begun by {@link #getOptimisticStamp()}. The
+     * caller must ensure its reads of the resource are ordered before this
+     * call, for example by writing a volatile field it owns.
+     * 
+     * @param stamp
+     *            value returned by {@link #getOptimisticStamp()}
+     * @return <code>true</code> if no writer claim has been held since the
+     *         stamp was acquired
+     */
+    boolean validateOptimisticStamp(final long stamp) {
+        return stamp >= 0 && !_sync.testBitsInState(WRITER_MASK) && _sync.writerStamp() == stamp;
+    }
+
     void release() {
         _sync.release(1);
     }
@@ -375,6 +448,54 @@ abstract class SharedResource {
         return _sync.testBitsInState(TOUCHED_MASK);
     }
 
+    boolean setHot() {
+        return _sync.setBitsInState(HOT_MASK);
+    }
+
+    boolean clearHot() {
+        return _sync.clearBitsInState(HOT_MASK);
+    }
+
+    boolean isHot() {
+        return _sync.testBitsInState(HOT_MASK);
+    }
+
+    void setScan() {
+        _sync.setBitsInState(SCAN_MASK);
+    }
+
+    void clearScan() {
+        _sync.clearBitsInState(SCAN_MASK);
+    }
+
+    boolean isScan() {
+        return _sync.testBitsInState(SCAN_MASK);
+    }
+
+    void setNew() {
+        _sync.setBitsInState(NEW_MASK);
+    }
+
+    void clearNew() {
+        _sync.clearBitsInState(NEW_MASK);
+    }
+
+    boolean isNew() {
+        return _sync.testBitsInState(NEW_MASK);
+    }
+
+    void setPinned() {
+        _sync.setBitsInState(PINNED_MASK);
+    }
+
+    void clearPinned() {
+        _sync.clearBitsInState(PINNED_MASK);
+    }
+
+    boolean isPinned() {
+        return _sync.testBitsInState(PINNED_MASK);
+    }
+
     public long getGeneration() {
         return _generation.get();
     }
@@ -455,8 +455,14 @@ public class StreamSaver extends Task {
         }
         final Key key = exchange.getKey();
         key.clear().append(Key.BEFORE);
-        while (exchange.traverse(Key.GT, filter, Integer.MAX_VALUE) & !_stop) {
-            writeData(exchange);
+        final boolean scanAccess = exchange.isScanAccess();
+        exchange.setScanAccess(true);
+        try {
+            while (exchange.traverse(Key.GT, filter, Integer.MAX_VALUE) & !_stop) {
+                writeData(exchange);
+            }
+        } finally {
+            exchange.setScanAccess(scanAccess);
         }
         writeRecordCount(_dataRecordCount, _otherRecordCount);
         _dos.writeChar(RECORD_TYPE_END);
@@ -850,6 +850,74 @@ public class Transaction {
      * 
      */
     public void commit(final CommitPolicy policy) throws PersistitException {
+        final long flushedTimestamp = commitToJournal();
+        if (flushedTimestamp != 0) {
+            _persistit.getJournalManager().waitForDurability(flushedTimestamp,
+                    policy == CommitPolicy.SOFT ? _persistit.getTransactionCommitLeadTime() : 0,
+                    policy == CommitPolicy.GROUP ? _persistit.getTransactionCommitStallTime() : 0);
+        }
+    }
+
+    /**
+     * <p>
+     * Commit this transaction without waiting for its updates to become
+     * durable. This method performs all the work of {@link #commit(CommitPolicy)}
+     * except the wait: it returns a {@link CommitFuture} that completes once
+     * the journal records written by the transaction have been forced to disk
+     * by the JOURNAL_FLUSHER thread. Meanwhile the transaction's effects are
+     * visible to other transactions and the calling thread may proceed to call
+     * {@link #end()} and begin another transaction. A small number of threads
+     * can therefore keep many durable commits in flight.
+     * </p>
+     * <p>
+     * The <code>policy</code> determines when the JOURNAL_FLUSHER writes the
+     * journal. With {@link CommitPolicy#HARD} the flusher is started
+     * immediately; with {@link CommitPolicy#GROUP} or {@link CommitPolicy#SOFT}
+     * the commit completes on the flusher's next scheduled cycle along with
+     * other transactions committed in the same interval.
+     * </p>
+     * <p>
+     * If executed within the scope of an outer transaction this method returns
+     * a handle that has already completed; durability of the outermost
+     * transaction determines durability of its nested scopes.
+     * </p>
+     * 
+     * @param policy
+     *            Determines how promptly the journal is forced to disk
+     * @return a handle which completes when the transaction is durable
+     * 
+     * @throws PersistitIOException
+     *             if the transaction could not be written to the journal due to
+     *             an IOException. This exception also causes the transaction to
+     *             be rolled back.
+     * 
+     * @throws RollbackException
+     *             if the {@link #rollback()} was previously called
+     * 
+     * @throws IllegalStateException
+     *             if no transaction scope is active or this transaction scope
+     *             has already called <code>commit</code>
+     */
+    public CommitFuture commitAsync(final CommitPolicy policy) throws PersistitException {
+        final long flushedTimestamp = commitToJournal();
+        final CommitFuture future = new CommitFuture(_commitTimestamp, flushedTimestamp);
+        if (flushedTimestamp == 0) {
+            future.complete(null);
+        } else {
+            _persistit.getJournalManager().registerCommitFuture(future, policy == CommitPolicy.HARD);
+        }
+        return future;
+    }
+
+    /**
+     * Perform the commit operation up to, but not including, waiting for
+     * durability.
+     * 
+     * @return the timestamp at which the transaction's journal records were
+     *         flushed to the journal buffer, or zero if there is nothing to
+     *         wait for
+     */
+    private long commitToJournal() throws PersistitException {
         checkActive();
 
         if (_commitCompleted) {
@@ -890,12 +958,9 @@ public class Transaction {
             }
 
             _persistit.getJournalManager().throttle();
-            if (flushedTimetimestamp != 0) {
-                _persistit.getJournalManager().waitForDurability(flushedTimetimestamp,
-                        policy == CommitPolicy.SOFT ? _persistit.getTransactionCommitLeadTime() : 0,
-                        policy == CommitPolicy.GROUP ? _persistit.getTransactionCommitStallTime() : 0);
-            }
+            return flushedTimetimestamp;
         }
+        return 0;
     }
 
     /**
@@ -610,6 +610,9 @@ class TransactionIndex implements TransactionIndexMXBean {
     void notifyCompleted(final TransactionStatus status, final long timestamp) {
         final int hashIndex = hashIndex(status.getTs());
         final TransactionIndexBucket bucket = _hashTable[hashIndex];
+        if (bucket.notifyCompletedCurrent(status, timestamp)) {
+            return;
+        }
         bucket.lock();
         try {
             bucket.notifyCompleted(status, timestamp);
@@ -722,35 +725,55 @@ class TransactionIndex implements TransactionIndexMXBean {
         }
 
         /*
-         * There were members on at least one of the lists. Need to lock the
-         * bucket so we can traverse the lists.
+         * There were members on at least one of the lists. Traverse them
+         * without locking; the result stands if no other thread held the
+         * bucket lock meanwhile. Otherwise lock the bucket and traverse again.
          */
+        final int version = bucket.getVersion();
+        if ((version & 1) == 0) {
+            final TransactionStatus status = findStatus(bucket, tsv, version);
+            if (bucket.getVersion() == version) {
+                return status;
+            }
+        }
         bucket.lock();
         try {
-            /*
-             * > A transaction with a start timestamp less than or equal to the
-             * floor is committed unless it is found on either the aborted or
-             * longRunning lists.
-             */
-            if (tsv >= bucket.getFloor()) {
-                for (TransactionStatus s = bucket.getCurrent(); s != null; s = s.getNext()) {
-                    if (s.getTs() == tsv) {
-                        return s;
-                    }
-                }
-            }
-            for (TransactionStatus s = bucket.getAborted(); s != null; s = s.getNext()) {
+            return findStatus(bucket, tsv, bucket.getVersion());
+        } finally {
+            bucket.unlock();
+        }
+    }
+
+    /**
+     * Search the lists of a bucket for the TransactionStatus of the
+     * transaction that started at <code>tsv</code>, giving up if the bucket's
+     * version changes. Unless the caller holds the bucket lock, the result is
+     * valid only if the version is still the same afterward.
+     */
+    private TransactionStatus findStatus(final TransactionIndexBucket bucket, final long tsv, final int version) {
+        /*
+         * A transaction with a start timestamp less than or equal to the floor
+         * is committed unless it is found on either the aborted or longRunning
+         * lists.
+         */
+        if (tsv >= bucket.getFloor()) {
+            for (TransactionStatus s = bucket.getCurrent(); s != null && bucket.getVersion() == version; s = s
+                    .getNext()) {
                 if (s.getTs() == tsv) {
                     return s;
                 }
             }
-            for (TransactionStatus s = bucket.getLongRunning(); s != null; s = s.getNext()) {
-                if (s.getTs() == tsv) {
-                    return s;
-                }
+        }
+        for (TransactionStatus s = bucket.getAborted(); s != null && bucket.getVersion() == version; s = s.getNext()) {
+            if (s.getTs() == tsv) {
+                return s;
+            }
+        }
+        for (TransactionStatus s = bucket.getLongRunning(); s != null && bucket.getVersion() == version; s = s
+                .getNext()) {
+            if (s.getTs() == tsv) {
+                return s;
             }
-        } finally {
-            bucket.unlock();
         }
         return null;
     }
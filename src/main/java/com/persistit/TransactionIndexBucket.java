@@ -18,6 +18,8 @@ package com.persistit;
 
 import static com.persistit.TransactionStatus.ABORTED;
 import static com.persistit.TransactionStatus.UNCOMMITTED;
+import static com.persistit.util.SequencerConstants.TRANSACTION_INDEX_NOTIFY_A;
+import static com.persistit.util.ThreadSequencer.sequence;
 
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -146,9 +148,23 @@ class TransactionIndexBucket {
     long _activeTransactionFloor;
     /**
      * Lock used to prevent multi-threaded access to the lists in this
-     * structure. Fair to prevent barging.
+     * structure. Not fair: critical sections are short, and handing the lock
+     * off in strict FIFO order costs far more under contention than barging.
      */
-    ReentrantLock _lock = new ReentrantLock(true);
+    ReentrantLock _lock = new ReentrantLock();
+    /**
+     * Incremented when the lock is acquired and again when it is released, so
+     * that the value is odd while the lists may be changing. A thread can
+     * traverse the lists without locking and then use this value to confirm
+     * that no other thread held the lock in the meantime.
+     */
+    volatile int _version;
+    /**
+     * Set when a transaction completed without the lock needs the current
+     * list to be reduced but the lock was busy. The thread that releases the
+     * lock performs the reduction.
+     */
+    volatile boolean _reduceNeeded;
     /**
      * Singly-linked list of Delta objects available for reuse
      */
@@ -165,10 +181,45 @@ class TransactionIndexBucket {
 
     void lock() {
         _lock.lock();
+        if (_lock.getHoldCount() == 1) {
+            _version++;
+        }
+    }
+
+    boolean tryLock() {
+        if (_lock.tryLock()) {
+            if (_lock.getHoldCount() == 1) {
+                _version++;
+            }
+            return true;
+        }
+        return false;
     }
 
     void unlock() {
-        _lock.unlock();
+        if (_lock.getHoldCount() > 1) {
+            _lock.unlock();
+            return;
+        }
+        while (true) {
+            if (_reduceNeeded) {
+                _reduceNeeded = false;
+                reduce();
+            }
+            _version++;
+            _lock.unlock();
+            /*
+             * A request made after the check above, while the lock was still
+             * held, would otherwise be lost.
+             */
+            if (!_reduceNeeded || !tryLock()) {
+                return;
+            }
+        }
+    }
+
+    int getVersion() {
+        return _version;
     }
 
     TransactionStatus allocateTransactionStatus() throws InterruptedException {
@@ -253,6 +304,34 @@ class TransactionIndexBucket {
         return _activeTransactionFloor != _transactionIndex.getActiveTransactionFloor();
     }
 
+    /**
+     * Publish the commit or abort of a transaction whose
+     * <code>TransactionStatus</code> is on the current list. This is the
+     * common case and needs no lock: the status itself carries the outcome
+     * that MVCC visibility checks read. If the list needs to be reduced and
+     * the lock is busy, the thread holding it performs the reduction when it
+     * calls {@link #unlock()}.
+     * 
+     * @return <code>false</code> if the status has already been moved off the
+     *         current list, in which case the caller must lock the bucket and
+     *         call {@link #notifyCompleted(TransactionStatus, long)}
+     */
+    boolean notifyCompletedCurrent(final TransactionStatus status, final long timestamp) {
+        final long ts = status.getTs();
+        if (ts < getFloor()) {
+            return false;
+        }
+        sequence(TRANSACTION_INDEX_NOTIFY_A);
+        status.completeAndUnlock(timestamp);
+        if (ts == getFloor() || hasFloorMoved()) {
+            _reduceNeeded = true;
+            if (tryLock()) {
+                unlock();
+            }
+        }
+        return true;
+    }
+
     void notifyCompleted(final TransactionStatus status, final long timestamp) {
         assert _lock.isHeldByCurrentThread();
         final long ts = status.getTs();
@@ -466,7 +545,9 @@ class TransactionIndexBucket {
         }
         /*
          * Remove every long-running transaction whose commit timestamp is no
-         * longer concurrent with any active transaction.
+         * longer concurrent with any active transaction, and move any that
+         * aborted to the aborted list. A transaction completed without the
+         * lock may have been moved here just before it aborted.
          */
         previous = null;
         for (TransactionStatus status = _longRunning; status != null;) {
@@ -480,6 +561,17 @@ class TransactionIndexBucket {
                 }
                 _longRunningCount--;
                 free(status);
+            } else if (isAborted(status)) {
+                aggregate(status, false);
+                status.setNext(_aborted);
+                _aborted = status;
+                _abortedCount++;
+                if (previous == null) {
+                    _longRunning = next;
+                } else {
+                    previous.setNext(next);
+                }
+                _longRunningCount--;
             } else {
                 previous = status;
             }
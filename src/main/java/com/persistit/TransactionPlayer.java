@@ -21,6 +21,7 @@ import static com.persistit.TransactionIndex.ts2vh;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.persistit.AlertMonitor.AlertLevel;
@@ -44,9 +45,9 @@ import com.persistit.exception.VolumeNotFoundException;
 
 class TransactionPlayer {
 
-    private final AtomicLong appliedUpdates = new AtomicLong();
-    private final AtomicLong ignoredUpdates = new AtomicLong();
-    private final AtomicLong failedUpdates = new AtomicLong();
+    private final AtomicLong appliedUpdates;
+    private final AtomicLong ignoredUpdates;
+    private final AtomicLong failedUpdates;
 
     interface TransactionPlayerListener {
 
@@ -77,6 +78,21 @@ class TransactionPlayer {
 
     TransactionPlayer(final TransactionPlayerSupport support) {
         _support = support;
+        appliedUpdates = new AtomicLong();
+        ignoredUpdates = new AtomicLong();
+        failedUpdates = new AtomicLong();
+    }
+
+    /**
+     * Construct a TransactionPlayer that reads through its own support object
+     * but accumulates its update counts in those of another player. Used by
+     * threads that replay transactions concurrently.
+     */
+    TransactionPlayer(final TransactionPlayerSupport support, final TransactionPlayer counters) {
+        _support = support;
+        appliedUpdates = counters.appliedUpdates;
+        ignoredUpdates = counters.ignoredUpdates;
+        failedUpdates = counters.failedUpdates;
     }
 
     void applyTransaction(final TransactionMapItem item, final TransactionPlayerListener listener)
@@ -140,6 +156,70 @@ class TransactionPlayer {
 
     }
 
+    /**
+     * Add the handles of all trees updated by a transaction to the supplied
+     * set, reading every record of the transaction. A transaction that removes
+     * a tree, updates a directory tree or cannot be read does not update a
+     * well-defined set of trees.
+     * 
+     * @param item
+     *            the transaction
+     * @param treeHandles
+     *            set to which tree handles are added
+     * @return <code>true</code> if the transaction is confined to the trees
+     *         added to the set
+     * @throws PersistitException
+     */
+    boolean collectTreeHandles(final TransactionMapItem item, final Set<Integer> treeHandles)
+            throws PersistitException {
+        final JournalManager jman = _support.getPersistit().getJournalManager();
+        long address = item.getLastRecordAddress();
+        while (address != 0) {
+            _support.read(address, TX.OVERHEAD);
+            final int recordSize = TX.getLength(_support.getReadBuffer());
+            if (recordSize < TX.OVERHEAD || recordSize > Transaction.TRANSACTION_BUFFER_SIZE + TX.OVERHEAD
+                    || TX.getType(_support.getReadBuffer()) != TX.TYPE) {
+                return false;
+            }
+            _support.read(address, recordSize);
+            final ByteBuffer bb = _support.getReadBuffer();
+            final int start = bb.position();
+            final long backchainAddress = TX.getBackchainAddress(bb);
+            for (int position = start + TX.OVERHEAD; position < start + recordSize;) {
+                bb.position(position);
+                final int innerSize = JournalRecord.getLength(bb);
+                final int treeHandle;
+                switch (JournalRecord.getType(bb)) {
+                case SR.TYPE:
+                    treeHandle = SR.getTreeHandle(bb);
+                    break;
+                case DR.TYPE:
+                    treeHandle = DR.getTreeHandle(bb);
+                    break;
+                case D0.TYPE:
+                    treeHandle = D0.getTreeHandle(bb);
+                    break;
+                case D1.TYPE:
+                    treeHandle = D1.getTreeHandle(bb);
+                    break;
+                default:
+                    return false;
+                }
+                final TreeDescriptor td = jman.lookupTreeHandle(treeHandle);
+                if (td == null || innerSize <= 0 || VolumeStructure.DIRECTORY_TREE_NAME.equals(td.getTreeName())) {
+                    return false;
+                }
+                treeHandles.add(treeHandle);
+                position += innerSize;
+            }
+            if (backchainAddress >= address) {
+                return false;
+            }
+            address = backchainAddress;
+        }
+        return true;
+    }
+
     void applyTransactionUpdates(final ByteBuffer byteBuffer, final long address, final int recordSize,
             final long startTimestamp, final long commitTimestamp, final TransactionPlayerListener listener)
             throws PersistitException {
@@ -104,9 +104,11 @@ class TransactionStatus {
      */
     private final Semaphore _wwLock = new Semaphore(1);
     /**
-     * Pointer to next member of singly-linked list.
+     * Pointer to next member of singly-linked list. Volatile because
+     * {@link TransactionIndex#getStatus(long)} traverses the lists without
+     * locking.
      */
-    private TransactionStatus _next;
+    private volatile TransactionStatus _next;
 
     /**
      * Pointer to TransactionStatus on which we intend to claim a permit. (For
@@ -145,6 +147,13 @@ class TransactionStatus {
         this._ts = status._ts;
     }
 
+    /**
+     * @return The TransactionIndexBucket this TransactionStatus belongs to
+     */
+    TransactionIndexBucket getBucket() {
+        return _bucket;
+    }
+
     /**
      * @return The next TransactionStatus on linked list, or <code>null</code>
      *         if there is none
@@ -89,6 +89,7 @@ public class Tree extends SharedResource {
     private final Volume _volume;
     private final AtomicReference<Object> _appCache = new AtomicReference<Object>();
     private final AtomicInteger _handle = new AtomicInteger();
+    private volatile boolean _indexPinned;
 
     private final TimelyResource<TreeVersion> _timelyResource;
 
@@ -401,6 +402,32 @@ public class Tree extends SharedResource {
         return _appCache.get();
     }
 
+    /**
+     * @return <code>true</code> if the index pages of this <code>Tree</code>
+     *         are pinned in the {@link BufferPool}
+     */
+    public boolean isIndexPinned() {
+        return _indexPinned;
+    }
+
+    /**
+     * Pin or unpin the index pages of this <code>Tree</code>. Once pinned, an
+     * index page is not evicted from the {@link BufferPool} after it has been
+     * read, so that lookups in a small, latency-sensitive tree do not need to
+     * read index pages from disk. Data pages are not affected. Unpinning a tree
+     * releases the index pages of every tree in the same volume; those of other
+     * pinned trees are pinned again when they are next visited.
+     * 
+     * @param pinned
+     *            <code>true</code> to pin the index pages
+     */
+    public void setIndexPinned(final boolean pinned) {
+        _indexPinned = pinned;
+        if (!pinned) {
+            _volume.getPool().unpin(_volume);
+        }
+    }
+
     /**
      * @return The handle value used to identify this <code>Tree</code> in the
      *         journal
@@ -59,6 +59,8 @@ public class Volume {
     private final AtomicBoolean _closed = new AtomicBoolean();
     private final AtomicInteger _handle = new AtomicInteger();
     private final AtomicReference<Object> _appCache = new AtomicReference<Object>();
+    private final AtomicInteger _residentPageCount = new AtomicInteger();
+    private volatile int _reservedBufferCount;
 
     private VolumeSpecification _specification;
     private volatile VolumeStorage _storage;
@@ -335,6 +337,64 @@ public class Volume {
         return getStorage().getExtentedPageCount();
     }
 
+    /**
+     * @return The minimum number of buffers in the {@link BufferPool} reserved
+     *         for pages of this <code>Volume</code>
+     */
+    public int getReservedBufferCount() {
+        return _reservedBufferCount;
+    }
+
+    /**
+     * <p>
+     * Reserve a minimum number of buffers in the {@link BufferPool} for pages
+     * of this <code>Volume</code>. While no more than this number of the
+     * Volume's pages are resident in the pool, the page replacement algorithm
+     * chooses pages of other volumes to evict. A reservation is a preference,
+     * not a guarantee: if the pool cannot otherwise find a buffer to reuse, it
+     * will evict a reserved page rather than fail.
+     * </p>
+     * <p>
+     * The initial value is given by the <code>reservedBuffers</code> attribute
+     * of the {@link VolumeSpecification}.
+     * </p>
+     * 
+     * @param count
+     *            the number of buffers to reserve, or zero for no reservation
+     * @throws IllegalArgumentException
+     *             if the count is negative or is not less than half the number
+     *             of buffers in the pool
+     */
+    public void setReservedBufferCount(final int count) {
+        final BufferPool pool = getPool();
+        if (count < 0 || count > 0 && count >= pool.getBufferCount() / 2) {
+            throw new IllegalArgumentException("Reserved buffer count " + count + " is out of range for " + pool);
+        }
+        _reservedBufferCount = count;
+    }
+
+    /**
+     * @return The number of pages of this <code>Volume</code> currently
+     *         resident in the {@link BufferPool}
+     */
+    public int getResidentPageCount() {
+        return _residentPageCount.get();
+    }
+
+    void adjustResidentPageCount(final int delta) {
+        _residentPageCount.addAndGet(delta);
+    }
+
+    /**
+     * @return <code>true</code> if this <code>Volume</code> has a buffer
+     *         reservation and no more than the reserved number of its pages
+     *         are resident in the pool
+     */
+    boolean isWithinReservation() {
+        final int reserved = _reservedBufferCount;
+        return reserved > 0 && _residentPageCount.get() <= reserved;
+    }
+
     BufferPool getPool() {
         return getStructure().getPool();
     }
@@ -478,6 +538,7 @@ public class Volume {
 
         _structure = new VolumeStructure(persistit, this, _specification.getPageSize());
         _storage = new VolumeStorageV2(persistit, this);
+        _reservedBufferCount = _specification.getReservedBuffers();
         _statistics = new VolumeStatistics();
 
         boolean opened = false;
@@ -50,6 +50,8 @@ public class VolumeSpecification {
     private final static String ATTR_EXTENSION_PAGES = "extensionPages";
     private final static String ATTR_MAXIMUM_PAGES = "maximumPages";
 
+    private final static String ATTR_RESERVED_BUFFERS = "reservedBuffers";
+
     private String path;
     private String name = null;
     private boolean readOnly = false;
@@ -68,6 +70,8 @@ public class VolumeSpecification {
     private long extensionSize = -1;
     private long maximumSize = -1;
 
+    private int reservedBuffers = 0;
+
     public static String nameFromFile(final File file) {
         final String name = file.getName();
         final int p = name.lastIndexOf('.');
@@ -161,6 +165,11 @@ public class VolumeSpecification {
      * <dd><i>NNN</i> is the maximum number of pages to which this volume can
      * extend.</dd>
      * 
+     * <dt><code>reservedBuffers:<i>NNN</i></code></dt>
+     * <dd><i>NNN</i> is the minimum number of buffers in the buffer pool to
+     * reserve for pages of this volume. See
+     * {@link Volume#setReservedBufferCount(int)}.</dd>
+     * 
      * </dl>
      * <p>
      * 
@@ -213,6 +222,12 @@ public class VolumeSpecification {
                         extensionSize = value;
                     } else if (ATTR_MAXIMUM_SIZE.equals(attr)) {
                         maximumSize = value;
+                    } else if (ATTR_RESERVED_BUFFERS.equals(attr)) {
+                        if (value >= 0 && value < Integer.MAX_VALUE) {
+                            reservedBuffers = (int) value;
+                        } else {
+                            throw new InvalidVolumeSpecificationException("Invalid reservedBuffers " + specification);
+                        }
                     } else {
                         bad = true;
                     }
@@ -412,6 +427,14 @@ public class VolumeSpecification {
         this.maximumSize = roundSize(maximumSize);
     }
 
+    public int getReservedBuffers() {
+        return reservedBuffers;
+    }
+
+    public void setReservedBuffers(final int reservedBuffers) {
+        this.reservedBuffers = reservedBuffers;
+    }
+
     public int getVersion() {
         return version;
     }
@@ -435,6 +458,10 @@ public class VolumeSpecification {
         appendSize(sb, ATTR_MAXIMUM_SIZE, ATTR_MAXIMUM_PAGES, maximumSize, maximumPages);
         appendSize(sb, ATTR_EXTENSION_SIZE, ATTR_EXTENSION_PAGES, extensionSize, extensionPages);
 
+        if (reservedBuffers > 0) {
+            sb.append(',').append(ATTR_RESERVED_BUFFERS).append(':').append(reservedBuffers);
+        }
+
         if (readOnly) {
             sb.append(',').append(ATTR_READONLY);
         }
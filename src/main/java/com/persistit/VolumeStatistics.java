@@ -37,6 +37,7 @@ class VolumeStatistics {
     private final AtomicLong _readCounter = new AtomicLong();
     private final AtomicLong _writeCounter = new AtomicLong();
     private final AtomicLong _getCounter = new AtomicLong();
+    private final AtomicLong _missCounter = new AtomicLong();
     private final AtomicLong _fetchCounter = new AtomicLong();
     private final AtomicLong _traverseCounter = new AtomicLong();
     private final AtomicLong _storeCounter = new AtomicLong();
@@ -66,6 +67,15 @@ class VolumeStatistics {
         return _getCounter.get();
     }
 
+    /**
+     * @return the count of logical buffer fetches performed against this
+     *         <code>Volume</code> that did not find the page already present
+     *         in the buffer pool.
+     */
+    public long getMissCounter() {
+        return _missCounter.get();
+    }
+
     /**
      * @return the count of {@link Exchange#fetch} operations, including
      *         {@link Exchange#fetchAndStore} and
@@ -157,6 +167,7 @@ class VolumeStatistics {
         _readCounter.set(0);
         _writeCounter.set(0);
         _getCounter.set(0);
+        _missCounter.set(0);
         _fetchCounter.set(0);
         _traverseCounter.set(0);
         _storeCounter.set(0);
@@ -177,6 +188,10 @@ class VolumeStatistics {
         _getCounter.incrementAndGet();
     }
 
+    void bumpMissCounter() {
+        _missCounter.incrementAndGet();
+    }
+
     void bumpFetchCounter() {
         _fetchCounter.incrementAndGet();
     }
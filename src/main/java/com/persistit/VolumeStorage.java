@@ -152,8 +152,51 @@ abstract class VolumeStorage extends SharedResource {
     abstract void readPage(Buffer buffer) throws PersistitIOException, InvalidPageAddressException,
             VolumeClosedException, InUseException, PersistitInterruptedException;
 
+    /**
+     * Read a run of consecutive pages directly from the volume file with a
+     * single request, bypassing the journal. The caller is responsible for
+     * discarding the image of any page whose current version is held in the
+     * journal or was written after {@link #getWriteGeneration()} was sampled.
+     * 
+     * @param page
+     *            address of the first page
+     * @param bb
+     *            ByteBuffer to receive the page images; its remaining size
+     *            determines the number of pages read
+     * @return the number of pages read, or zero if this storage does not
+     *         support reading pages directly
+     * @throws PersistitException
+     */
+    int readPages(final long page, final ByteBuffer bb) throws PersistitException {
+        return 0;
+    }
+
+    /**
+     * @return a value that changes whenever a page is written to the volume
+     *         file
+     */
+    long getWriteGeneration() {
+        return 0;
+    }
+
     abstract void writePage(final Buffer buffer) throws PersistitException;
 
+    /**
+     * Write a run of pages of this volume. By default each page is written
+     * individually.
+     * 
+     * @param buffers
+     *            the Buffers, each having a writer claim
+     * @param count
+     *            the number of Buffers to write
+     * @throws PersistitException
+     */
+    void writePages(final Buffer[] buffers, final int count) throws PersistitException {
+        for (int index = 0; index < count; index++) {
+            writePage(buffers[index]);
+        }
+    }
+
     abstract void writePage(final ByteBuffer bb, final long page) throws PersistitException;
 
     abstract long allocNewPage() throws PersistitException;
@@ -56,6 +56,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.persistit.AlertMonitor.AlertLevel;
 import com.persistit.AlertMonitor.Event;
@@ -88,6 +89,8 @@ class VolumeStorageV2 extends VolumeStorage {
     private volatile boolean _opened;
     private volatile boolean _closed;
 
+    private final AtomicLong _writeGeneration = new AtomicLong();
+
     /**
      * Generate a random positive (non-zero) long value to be used as a
      * validation of a Volume's identity.
@@ -477,6 +480,49 @@ class VolumeStorageV2 extends VolumeStorage {
         }
     }
 
+    @Override
+    int readPages(final long page, final ByteBuffer bb) throws PersistitException {
+        if (!claim(false)) {
+            throw new InUseException("Unable to acquire claim on " + this);
+        }
+        try {
+            final int pageSize = _volume.getStructure().getPageSize();
+            final int count = bb.remaining() / pageSize;
+            if (page < 0 || page + count > _nextAvailablePage) {
+                throw new InvalidPageAddressException("Pages " + page + "-" + (page + count - 1) + " out of bounds [0-"
+                        + _nextAvailablePage + "]");
+            }
+            final int start = bb.position();
+            bb.limit(start + count * pageSize);
+            try {
+                while (bb.hasRemaining()) {
+                    final long position = page * pageSize + bb.position() - start;
+                    final int bytesRead = _channel.read(bb, position);
+                    if (bytesRead <= 0) {
+                        throw new PersistitIOException("Unable to read bytes at position " + position + " in " + this);
+                    }
+                }
+            } catch (final IOException ioe) {
+                _persistit.getAlertMonitor().post(
+                        new Event(AlertLevel.ERROR, _persistit.getLogBase().readException, ioe, _volume, page, -1),
+                        AlertMonitor.READ_PAGE_CATEGORY);
+                throw new PersistitIOException(ioe);
+            }
+            for (int index = 0; index < count; index++) {
+                _persistit.getIOMeter().chargeReadPageFromVolume(_volume, page + index, pageSize, -1);
+                _volume.getStatistics().bumpReadCounter();
+            }
+            return count;
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    long getWriteGeneration() {
+        return _writeGeneration.get();
+    }
+
     @Override
     void writePage(final Buffer buffer) throws PersistitException {
         /*
@@ -494,6 +540,18 @@ class VolumeStorageV2 extends VolumeStorage {
 
     }
 
+    @Override
+    void writePages(final Buffer[] buffers, final int count) throws PersistitException {
+        if (!claim(false)) {
+            throw new InUseException("Unable to acquire claim on " + this);
+        }
+        try {
+            _persistit.getJournalManager().writePagesToJournal(buffers, count);
+        } finally {
+            release();
+        }
+    }
+
     @Override
     void writePage(final ByteBuffer bb, final long page) throws PersistitIOException, InvalidPageAddressException,
             ReadOnlyVolumeException, VolumeClosedException {
@@ -505,6 +563,11 @@ class VolumeStorageV2 extends VolumeStorage {
             throw new ReadOnlyVolumeException(getPath());
         }
 
+        /*
+         * Changed both before and after the write so that a reader whose read
+         * overlaps the write always observes a change.
+         */
+        _writeGeneration.incrementAndGet();
         try {
             _channel.write(bb, page * _volume.getStructure().getPageSize());
         } catch (final IOException ioe) {
@@ -512,6 +575,8 @@ class VolumeStorageV2 extends VolumeStorage {
                     new Event(AlertLevel.ERROR, _persistit.getLogBase().writeException, ioe, _volume, page),
                     AlertMonitor.WRITE_PAGE_CATEGORY);
             throw new PersistitIOException(ioe);
+        } finally {
+            _writeGeneration.incrementAndGet();
         }
     }
 
@@ -96,6 +96,117 @@ public interface BufferPoolMXBean {
     @Description("The number of pages written to disk from this BufferPool due to eviction.")
     public long getForcedWriteCount();
 
+    /**
+     * @return The number of page reads performed without claiming the page
+     *         and subsequently validated.
+     */
+    @Description("The number of page reads performed without claiming the page and subsequently validated.")
+    public long getOptimisticReadCount();
+
+    /**
+     * @return The number of optimistic page reads invalidated by a concurrent
+     *         update and repeated with a claim.
+     */
+    @Description("The number of optimistic page reads invalidated by a concurrent update and repeated with a claim.")
+    public long getOptimisticRetryCount();
+
+    /**
+     * @return The number of pages held in the off-heap page cache.
+     */
+    @Description("The number of pages held in the off-heap page cache.")
+    public long getOffHeapPageCount();
+
+    /**
+     * @return The number of pages loaded from the off-heap page cache rather
+     *         than from disk.
+     */
+    @Description("The number of pages loaded from the off-heap page cache rather than from disk.")
+    public long getOffHeapHitCount();
+
+    /**
+     * @return The number of pages sought but not found in the off-heap page
+     *         cache.
+     */
+    @Description("The number of pages sought but not found in the off-heap page cache.")
+    public long getOffHeapMissCount();
+
+    /**
+     * @return The ratio of the size of page images stored in the off-heap page
+     *         cache to the space they occupy there.
+     */
+    @Description("The ratio of page image size to stored size in the off-heap page cache.")
+    public double getOffHeapCompressionRatio();
+
+    /**
+     * @return The number of pages loaded by read-ahead ahead of sequential
+     *         scans.
+     */
+    @Description("The number of pages loaded by read-ahead ahead of sequential scans.")
+    public long getReadAheadCount();
+
+    /**
+     * @return The number of buffers holding pinned index pages.
+     */
+    @Description("The number of buffers holding pinned index pages.")
+    public int getPinnedPageCount();
+
+    /**
+     * @return The total number of buffers reserved for volumes using this
+     *         pool.
+     */
+    @Description("The total number of buffers reserved for volumes using this pool.")
+    public int getReservedBufferCount();
+
+    /**
+     * @return For each volume having a buffer reservation, the volume name, the
+     *         number of reserved buffers, the number of the volume's pages
+     *         resident in the pool and the hit ratio for the volume's pages.
+     */
+    @Description("For each volume having a buffer reservation, the volume name, the number of reserved buffers, "
+            + "the number of the volume's pages resident in the pool and the hit ratio for the volume's pages.")
+    public String[] getReservations();
+
+    /**
+     * @return The number of pages processed so far by the current or most
+     *         recent buffer inventory preload.
+     */
+    @Description("The number of pages processed so far by the current or most recent buffer inventory preload.")
+    public long getPreloadCount();
+
+    /**
+     * @return The number of pages the current or most recent buffer inventory
+     *         preload intends to load.
+     */
+    @Description("The number of pages the current or most recent buffer inventory preload intends to load.")
+    public long getPreloadTotal();
+
+    /**
+     * @return <code>true</code> if pages recorded in the buffer inventory are
+     *         still being loaded.
+     */
+    @Description("True if pages recorded in the buffer inventory are still being loaded.")
+    public boolean isPreloading();
+
+    /**
+     * @return The number of PAGE_WRITER threads that write dirty pages.
+     */
+    @Description("The number of PAGE_WRITER threads that write dirty pages.")
+    public int getPageWriterCount();
+
+    /**
+     * @return The number of pages selected by the current PAGE_WRITER cycle
+     *         that have not yet been written.
+     */
+    @Description("The number of pages selected by the current PAGE_WRITER cycle that have not yet been written.")
+    public int getWriteQueueDepth();
+
+    /**
+     * @return Moving average of the time in nanoseconds required by
+     *         PAGE_WRITER to write a page.
+     */
+    @Description("Moving average of the time in nanoseconds required by PAGE_WRITER to write a page.")
+    public long getWriteLatency();
+
     /**
      * Get the "hit ratio" - the number of hits divided by the number of overall
      * gets. A value close to 1.0 indicates that most attempts to find data in
@@ -96,6 +96,23 @@ public interface JournalManagerMXBean {
      */
     final static int DEFAULT_COPIES_PER_CYCLE = 1000;
 
+    /**
+     * Maximum number of threads that copy pages from the journal to their
+     * volumes.
+     */
+    final static int MAXIMUM_COPIER_THREAD_COUNT = 16;
+
+    /**
+     * Maximum number of zero-filled spare journal files kept ready for use.
+     */
+    final static int MAXIMUM_SPARE_JOURNAL_FILES = 10;
+
+    /**
+     * Interval (in milliseconds) at which the preallocator checks for spare
+     * journal files to prepare.
+     */
+    final static long DEFAULT_PREALLOCATOR_INTERVAL_MS = 1000;
+
     /**
      * Default time interval (in milliseconds) for logging repetitive I/O
      * exceptions on attempts to write to the journal. Prevents excessively
@@ -113,6 +130,12 @@ public interface JournalManagerMXBean {
     final static long MINIMUM_SLOW_ALERT_THRESHOLD_MS = 100L;
     final static long MAXIMUM_SLOW_ALERT_THRESHOLD_MS = Long.MAX_VALUE;
 
+    /**
+     * Largest number of consecutive page delta records that may be written
+     * for one page before a full page image is required
+     */
+    final static int MAXIMUM_PAGE_DELTA_LIMIT = 100;
+
     /**
      * File name appended when journal path specifies only a directory
      */
@@ -145,6 +168,18 @@ public interface JournalManagerMXBean {
     @Description("True if copying of pages from the journal to their destination volumes is disabled")
     boolean isAppendOnly();
 
+    @Description("True if page images are compressed when written to the journal")
+    boolean isCompressingPages();
+
+    @Description("Number of consecutive page delta records written for a page before a full image; 0 disables page deltas")
+    int getPageDeltaLimit();
+
+    @Description("Number of zero-filled journal files kept ready to become the next journal file; 0 disables preallocation")
+    int getSpareJournalFileLimit();
+
+    @Description("True if page images are read from memory-mapped journal files that are no longer being written")
+    boolean isMappingJournalFiles();
+
     @Description("True to allow journal to lose pages from missing volumes")
     boolean isIgnoreMissingVolumes();
 
@@ -154,6 +189,18 @@ public interface JournalManagerMXBean {
     @Description("True if copying of pages from the journal to their destination volumes is disabled")
     void setAppendOnly(boolean appendOnly);
 
+    @Description("True if page images are compressed when written to the journal")
+    void setCompressingPages(boolean compress);
+
+    @Description("Number of consecutive page delta records written for a page before a full image; 0 disables page deltas")
+    void setPageDeltaLimit(int limit);
+
+    @Description("Number of zero-filled journal files kept ready to become the next journal file; 0 disables preallocation")
+    void setSpareJournalFileLimit(int limit);
+
+    @Description("True if page images are read from memory-mapped journal files that are no longer being written")
+    void setMappingJournalFiles(boolean mapping);
+
     @Description("True to allow journal to lose pages from missing volumes")
     void setIgnoreMissingVolumes(boolean ignore);
 
@@ -172,6 +219,18 @@ public interface JournalManagerMXBean {
     @Description("Interval between page copying cycles")
     void setCopierInterval(long copierInterval);
 
+    @Description("Number of threads that copy pages to their volumes, each handling a subset of the volumes")
+    int getCopierThreadCount();
+
+    @Description("Number of threads that copy pages to their volumes, each handling a subset of the volumes")
+    void setCopierThreadCount(int count);
+
+    @Description("Rate in MB/s at which pages are copied to their volumes when not urgent; 0 for no limit")
+    int getCopierRateLimit();
+
+    @Description("Rate in MB/s at which pages are copied to their volumes when not urgent; 0 for no limit")
+    void setCopierRateLimit(int mbPerSecond);
+
     @Description("True if the journal has been closed")
     boolean isClosed();
 
@@ -238,6 +297,30 @@ public interface JournalManagerMXBean {
     @Description("Total aggregate time spent waiting for durable commits in milliseconds")
     long getCommitCompletionWaitTime();
 
+    @Description("Number of times a thread appending to the journal waited for the write buffer to be written")
+    long getAppendStallCount();
+
+    @Description("Total aggregate time threads appending to the journal spent waiting for the write buffer to be written, in milliseconds")
+    long getAppendStallTime();
+
+    @Description("Number of page images written to the journal in compressed form")
+    long getCompressedPageCount();
+
+    @Description("Total number of bytes by which compression reduced the page images written to the journal")
+    long getCompressedPageBytesSaved();
+
+    @Description("Number of pages written to the journal as changes to an earlier image of the page")
+    long getPageDeltaCount();
+
+    @Description("Number of journal reads served from memory-mapped journal files")
+    long getMappedReadCount();
+
+    @Description("Number of zero-filled spare journal files ready for use")
+    int getSpareJournalFileCount();
+
+    @Description("Number of fully copied journal files kept for reuse rather than deleted")
+    long getRecycledJournalFileCount();
+
     @Description("Threshold in  milliseconds for warnings of long duration flush cycles")
     long getSlowIoAlertThreshold();
 
@@ -187,6 +187,48 @@ public interface ManagementMXBean {
      */
     void flushAndForce() throws RemoteException;
 
+    /**
+     * Change the number of buffers in the buffer pool for the specified buffer
+     * size while Persistit is running. When the pool shrinks, dirty pages in
+     * the buffers being removed are written and those pages are evicted. See
+     * {@link com.persistit.BufferPool#resize(int, long)}.
+     * 
+     * @param bufferSize
+     *            the buffer size of the pool, e.g., 16384
+     * @param bufferCount
+     *            the new number of buffers
+     * @throws RemoteException
+     */
+    void resizeBufferPool(int bufferSize, int bufferCount) throws RemoteException;
+
+    /**
+     * Reserve a minimum number of buffers in the buffer pool for pages of the
+     * specified volume. See
+     * {@link com.persistit.Volume#setReservedBufferCount(int)}.
+     * 
+     * @param volumeName
+     *            the name of the volume
+     * @param bufferCount
+     *            the number of buffers to reserve, or zero to remove the
+     *            reservation
+     * @throws RemoteException
+     */
+    void setVolumeReservedBufferCount(String volumeName, int bufferCount) throws RemoteException;
+
+    /**
+     * Pin or unpin the index pages of a tree in the buffer pool. See
+     * {@link com.persistit.Tree#setIndexPinned(boolean)}.
+     * 
+     * @param volumeName
+     *            the name of the volume containing the tree
+     * @param treeName
+     *            the name of the tree
+     * @param pinned
+     *            <code>true</code> to pin the tree's index pages
+     * @throws RemoteException
+     */
+    void setTreeIndexPinned(String volumeName, String treeName, boolean pinned) throws RemoteException;
+
     /**
      * Use a simple command-line processor to invoke a task. Allows task
      * invocation to be scripted through a command-line JMX client. This method
@@ -38,6 +38,11 @@ public interface RecoveryManagerMXBean {
      */
     final static int APPLY_TRANSACTION_LOG_COUNT = 1000;
 
+    /**
+     * Maximum number of threads that apply recovered transactions
+     */
+    final static int MAXIMUM_REPLAY_THREAD_COUNT = 64;
+
     public String getJournalFilePath();
 
     public int getCommittedCount();
@@ -46,8 +51,24 @@ public interface RecoveryManagerMXBean {
 
     public int getAppliedTransactionCount();
 
+    public int getAbortedTransactionCount();
+
     public int getErrorCount();
 
+    public int getReplayThreadCount();
+
+    public long getReadAheadHitCount();
+
+    public long getAppliedUpdateCount();
+
+    public long getReplayElapsedTime();
+
+    public long getReplayRate();
+
+    public boolean isReplayPending();
+
+    public int getPendingTreeCount();
+
     public long getLastValidCheckpointTimestamp();
 
     public long getLastValidCheckpointAddress();
@@ -0,0 +1,264 @@
+/**
+ * Copyright 2012 Akiban Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A small, fast LZ77-family compressor for page images. The encoded form is a
+ * sequence of blocks, each consisting of a token byte, a run of literal bytes
+ * and a back-reference to an earlier match:
+ * </p>
+ *
+ * <pre>
+ *   token        high four bits: literal length, low four bits: match length - 4
+ *   [length+]    further literal length bytes if the literal length is 15
+ *   literals
+ *   offset       two bytes, little-endian, distance back to the match
+ *   [length+]    further match length bytes if the match length field is 15
+ * </pre>
+ * <p>
+ * A length field value of 15 is followed by bytes which are added to it until
+ * a byte other than 255 is found. The final block has literals only. Matches
+ * are found through a hash table of four-byte sequences supplied by the
+ * caller so that no memory is allocated per call.
+ * </p>
+ */
+public class LZCodec {
+
+    /**
+     * Required size of the hash table passed to
+     * {@link #compress(byte[], int, int, byte[], int, int, int[])}
+     */
+    public final static int HASH_TABLE_SIZE = 1 << 12;
+
+    private final static int HASH_SHIFT = 32 - 12;
+
+    private final static int MIN_MATCH = 4;
+
+    private final static int MAX_OFFSET = 65535;
+
+    /**
+     * Input shorter than this is stored as literals only
+     */
+    private final static int MIN_LENGTH = 12;
+
+    /**
+     * No match may extend into the last bytes of the input
+     */
+    private final static int LAST_LITERALS = 5;
+
+    private final static int RUN_MASK = 15;
+
+    /**
+     * Compress bytes.
+     *
+     * @param src
+     *            source array
+     * @param srcOffset
+     *            offset of the first byte to compress
+     * @param length
+     *            number of bytes to compress
+     * @param dst
+     *            destination array
+     * @param dstOffset
+     *            offset at which to write the compressed bytes
+     * @param dstLimit
+     *            maximum number of compressed bytes to write
+     * @param table
+     *            hash table of at least {@value #HASH_TABLE_SIZE} elements;
+     *            its content on entry is ignored
+     * @return the compressed length, or -1 if the compressed form would
+     *         exceed <code>dstLimit</code> bytes
+     */
+    public static int compress(final byte[] src, final int srcOffset, final int length, final byte[] dst,
+            final int dstOffset, final int dstLimit, final int[] table) {
+        final int end = srcOffset + length;
+        final int opLimit = dstOffset + dstLimit;
+        int anchor = srcOffset;
+        int op = dstOffset;
+
+        if (length >= MIN_LENGTH) {
+            Arrays.fill(table, 0, HASH_TABLE_SIZE, -1);
+            final int matchLimit = end - LAST_LITERALS;
+            final int searchLimit = end - MIN_LENGTH;
+            int ip = srcOffset;
+            int misses = 0;
+            while (ip < searchLimit) {
+                final int sequence = readInt(src, ip);
+                final int hash = hash(sequence);
+                int ref = table[hash];
+                table[hash] = ip;
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    /*
+                     * Skip faster through input that does not compress
+                     */
+                    ip += 1 + (misses++ >>> 6);
+                    continue;
+                }
+                misses = 0;
+                while (ip > anchor && ref > srcOffset && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+                op = emit(src, anchor, ip - anchor, ip - ref, matchLength, dst, op, opLimit);
+                if (op < 0) {
+                    return -1;
+                }
+                ip += matchLength;
+                anchor = ip;
+                if (ip - 2 >= srcOffset && ip < searchLimit) {
+                    table[hash(readInt(src, ip - 2))] = ip - 2;
+                }
+            }
+        }
+        op = emit(src, anchor, end - anchor, 0, 0, dst, op, opLimit);
+        return op < 0 ? -1 : op - dstOffset;
+    }
+
+    /**
+     * Decompress bytes produced by
+     * {@link #compress(byte[], int, int, byte[], int, int, int[])}.
+     *
+     * @param src
+     *            array containing the compressed bytes
+     * @param srcOffset
+     *            offset of the first compressed byte
+     * @param length
+     *            number of compressed bytes
+     * @param dst
+     *            destination array
+     * @param dstOffset
+     *            offset at which to write the decompressed bytes
+     * @param dstLimit
+     *            maximum number of bytes to write
+     * @return the decompressed length
+     * @throws IllegalArgumentException
+     *             if the compressed bytes are malformed or would decompress
+     *             to more than <code>dstLimit</code> bytes
+     */
+    public static int decompress(final byte[] src, final int srcOffset, final int length, final byte[] dst,
+            final int dstOffset, final int dstLimit) {
+        final int end = srcOffset + length;
+        final int opLimit = dstOffset + dstLimit;
+        int ip = srcOffset;
+        int op = dstOffset;
+        while (ip < end) {
+            final int token = src[ip++] & 0xFF;
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    check(ip < end);
+                    b = src[ip++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            check(ip + literalLength <= end && op + literalLength <= opLimit);
+            System.arraycopy(src, ip, dst, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+            if (ip == end) {
+                break;
+            }
+            check(ip + 2 <= end);
+            final int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+            ip += 2;
+            check(offset > 0 && op - offset >= dstOffset);
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int b;
+                do {
+                    check(ip < end);
+                    b = src[ip++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            check(op + matchLength <= opLimit);
+            /*
+             * Byte by byte since the match may overlap the bytes it produces
+             */
+            for (int ref = op - offset; matchLength > 0; matchLength--) {
+                dst[op++] = dst[ref++];
+            }
+        }
+        return op - dstOffset;
+    }
+
+    private static int emit(final byte[] src, final int anchor, final int literalLength, final int offset,
+            final int matchLength, final byte[] dst, final int dstOffset, final int opLimit) {
+        int op = dstOffset;
+        if (op + 1 + literalLength + literalLength / 255 + 1 + 2 + matchLength / 255 + 1 > opLimit) {
+            return -1;
+        }
+        final int tokenPosition = op++;
+        int token;
+        if (literalLength >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            op = putLength(dst, op, literalLength - RUN_MASK);
+        } else {
+            token = literalLength << 4;
+        }
+        System.arraycopy(src, anchor, dst, op, literalLength);
+        op += literalLength;
+        if (matchLength > 0) {
+            dst[op++] = (byte) offset;
+            dst[op++] = (byte) (offset >>> 8);
+            final int code = matchLength - MIN_MATCH;
+            if (code >= RUN_MASK) {
+                token |= RUN_MASK;
+                op = putLength(dst, op, code - RUN_MASK);
+            } else {
+                token |= code;
+            }
+        }
+        dst[tokenPosition] = (byte) token;
+        return op;
+    }
+
+    private static int putLength(final byte[] dst, final int offset, final int length) {
+        int op = offset;
+        int remaining = length;
+        while (remaining >= 255) {
+            dst[op++] = (byte) 255;
+            remaining -= 255;
+        }
+        dst[op++] = (byte) remaining;
+        return op;
+    }
+
+    private static int readInt(final byte[] bytes, final int index) {
+        return (bytes[index] & 0xFF) | (bytes[index + 1] & 0xFF) << 8 | (bytes[index + 2] & 0xFF) << 16
+                | (bytes[index + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(final int sequence) {
+        return (sequence * -1640531535) >>> HASH_SHIFT;
+    }
+
+    private static void check(final boolean condition) {
+        if (!condition) {
+            throw new IllegalArgumentException("Malformed compressed data");
+        }
+    }
+}
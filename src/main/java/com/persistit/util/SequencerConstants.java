@@ -103,4 +103,16 @@ public interface SequencerConstants {
             array(ACCUMULATOR_CHECKPOINT_B), array(ACCUMULATOR_CHECKPOINT_A, ACCUMULATOR_CHECKPOINT_C),
             array(ACCUMULATOR_CHECKPOINT_A, ACCUMULATOR_CHECKPOINT_C) };
 
+    /*
+     * Used in testing a race between completing a transaction without the
+     * bucket lock and TransactionIndexBucket#reduce in TransactionIndexTest
+     */
+    int TRANSACTION_INDEX_NOTIFY_A = allocate("TRANSACTION_INDEX_NOTIFY_A");
+    int TRANSACTION_INDEX_NOTIFY_B = allocate("TRANSACTION_INDEX_NOTIFY_B");
+    int TRANSACTION_INDEX_NOTIFY_C = allocate("TRANSACTION_INDEX_NOTIFY_C");
+    int[][] TRANSACTION_INDEX_NOTIFY_SCHEDULED = new int[][] {
+            array(TRANSACTION_INDEX_NOTIFY_A, TRANSACTION_INDEX_NOTIFY_B), array(TRANSACTION_INDEX_NOTIFY_B),
+            array(TRANSACTION_INDEX_NOTIFY_A, TRANSACTION_INDEX_NOTIFY_C),
+            array(TRANSACTION_INDEX_NOTIFY_A, TRANSACTION_INDEX_NOTIFY_C) };
+
 }
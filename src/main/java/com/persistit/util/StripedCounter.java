@@ -0,0 +1,69 @@
+/**
+ * Copyright 2012 Akiban Technologies, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A statistics counter that may be incremented by many threads concurrently
+ * without contending for a single cache line. Each thread increments one of
+ * several stripes selected by its thread id; {@link #get()} sums the stripes.
+ * The sum is not an atomic snapshot, which is adequate for reporting.
+ */
+public class StripedCounter {
+
+    /**
+     * Must be a power of 2
+     */
+    private final static int STRIPES = 16;
+
+    /**
+     * Spacing between stripes, in longs, so that each stripe occupies its own
+     * cache line.
+     */
+    private final static int SPACING = 8;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(STRIPES * SPACING);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(final long delta) {
+        final int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+        _counts.addAndGet(stripe * SPACING, delta);
+    }
+
+    public long get() {
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            sum += _counts.get(stripe * SPACING);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            _counts.set(stripe * SPACING, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
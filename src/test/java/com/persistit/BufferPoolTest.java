@@ -17,16 +17,22 @@
 package com.persistit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.Arrays;
 import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
 import com.persistit.BufferPool.BufferHolder;
+import com.persistit.BufferPool.ReplacementPolicy;
+import com.persistit.Persistit.FatalErrorException;
 
 public class BufferPoolTest extends PersistitUnitTestCase {
 
@@ -185,4 +191,470 @@ public class BufferPoolTest extends PersistitUnitTestCase {
         }
     }
 
+    @Test
+    public void testReplacementPolicies() throws Exception {
+        final Volume vol = _persistit.createTemporaryVolume();
+        final Exchange ex = _persistit.getExchange(vol, "BufferPoolTest", true);
+        ex.append("k").store();
+        final BufferPool pool = vol.getPool();
+        final Buffer buffer = pool.get(vol, 2, false, true);
+        try {
+            buffer.clearNew();
+            buffer.clearScan();
+            buffer.clearTouched();
+            /*
+             * CLOCK: a touched buffer gets a second chance
+             */
+            buffer.setTouched();
+            assertFalse(ReplacementPolicy.CLOCK.isReplaceable(pool, buffer));
+            assertTrue(ReplacementPolicy.CLOCK.isReplaceable(pool, buffer));
+            buffer.setTouched();
+            buffer.setScan();
+            assertTrue(ReplacementPolicy.CLOCK.isReplaceable(pool, buffer));
+            buffer.clearScan();
+            buffer.clearTouched();
+            /*
+             * TWO_QUEUE: a new buffer survives one visit, then is replaced
+             * unless it was referenced again.
+             */
+            buffer.setNew();
+            assertFalse(ReplacementPolicy.TWO_QUEUE.isReplaceable(pool, buffer));
+            assertFalse(buffer.isNew());
+            assertTrue(ReplacementPolicy.TWO_QUEUE.isReplaceable(pool, buffer));
+            /*
+             * A re-referenced buffer is promoted to the protected set
+             */
+            final int hot = pool.getHotBufferCount();
+            buffer.setTouched();
+            assertFalse(ReplacementPolicy.TWO_QUEUE.isReplaceable(pool, buffer));
+            assertTrue(buffer.isHot());
+            assertEquals(hot + 1, pool.getHotBufferCount());
+            /*
+             * A protected buffer that is not referenced again is demoted
+             * rather than replaced.
+             */
+            assertFalse(ReplacementPolicy.TWO_QUEUE.isReplaceable(pool, buffer));
+            assertFalse(buffer.isHot());
+            assertEquals(hot, pool.getHotBufferCount());
+            assertTrue(ReplacementPolicy.TWO_QUEUE.isReplaceable(pool, buffer));
+            /*
+             * A buffer loaded by a scan is replaced immediately
+             */
+            buffer.setTouched();
+            buffer.setScan();
+            assertTrue(ReplacementPolicy.TWO_QUEUE.isReplaceable(pool, buffer));
+        } finally {
+            buffer.clearScan();
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testScanAccess() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest", true);
+        ex.getValue().put(RED_FOX);
+        for (int i = 0; i < 1000; i++) {
+            ex.to(i).store();
+        }
+        final BufferPool pool = ex.getVolume().getPool();
+        pool.setReplacementPolicy(ReplacementPolicy.TWO_QUEUE);
+        assertEquals(ReplacementPolicy.TWO_QUEUE, pool.getReplacementPolicy());
+        ex.setScanAccess(true);
+        ex.to(Key.BEFORE);
+        int count = 0;
+        while (ex.next()) {
+            count++;
+        }
+        assertEquals(1000, count);
+        ex.setScanAccess(false);
+        ex.to(500).fetch();
+        assertEquals(RED_FOX, ex.getValue().getString());
+        pool.setReplacementPolicy(ReplacementPolicy.CLOCK);
+    }
+
+    @Test
+    public void testResize() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest", true);
+        final BufferPool pool = ex.getVolume().getPool();
+        final int originalCount = pool.getBufferCount();
+        for (int i = 0; i < 2000; i++) {
+            ex.getValue().put(RED_FOX + i);
+            ex.to(i).store();
+        }
+        pool.resize(originalCount * 10, 1000);
+        assertEquals(originalCount * 10, pool.getBufferCount());
+        for (int i = 0; i < 2000; i++) {
+            ex.to(i).fetch();
+            assertEquals(RED_FOX + i, ex.getValue().getString());
+        }
+        assertTrue(pool.getDirtyPageCount() > 0);
+        pool.resize(originalCount / 2 + 6, 1000);
+        assertEquals(originalCount / 2 + 6, pool.getBufferCount());
+        for (int index = 0; index < pool.getBufferCount(); index++) {
+            assertEquals(index, pool.getBufferCopy(index).getIndex());
+        }
+        for (int i = 0; i < 2000; i++) {
+            ex.to(i).fetch();
+            assertEquals(RED_FOX + i, ex.getValue().getString());
+        }
+        try {
+            pool.resize(BufferPool.MINIMUM_POOL_COUNT - 1, 1000);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testResizeConcurrent() throws Exception {
+        final BufferPool pool = _persistit.getVolume("persistit").getPool();
+        final int originalCount = pool.getBufferCount();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger errors = new AtomicInteger();
+        final Thread[] threads = new Thread[3];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest" + seed, true);
+                        final Random random = new Random(seed);
+                        while (!done.get()) {
+                            final int key = random.nextInt(5000);
+                            ex.to(key).fetch();
+                            if (ex.getValue().isDefined() && !ex.getValue().getString().equals(RED_FOX + key)) {
+                                errors.incrementAndGet();
+                            }
+                            ex.getValue().put(RED_FOX + key);
+                            ex.store();
+                        }
+                    } catch (final Exception e) {
+                        e.printStackTrace();
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "BufferPoolTest_resize" + t);
+            threads[t].start();
+        }
+        final Random random = new Random(1);
+        for (int cycle = 0; cycle < 20; cycle++) {
+            pool.resize(originalCount + random.nextInt(originalCount * 4), 5000);
+            Thread.sleep(50);
+        }
+        done.set(true);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        pool.resize(originalCount, 5000);
+        assertEquals(0, errors.get());
+        assertEquals(originalCount, pool.getBufferCount());
+    }
+
+    @Test
+    public void testPartitionArithmetic() throws Exception {
+        for (int words = 1; words < 200; words++) {
+            for (int partitions = 1; partitions <= words && partitions <= 20; partitions++) {
+                int expected = 0;
+                for (int index = 0; index < words * 64; index++) {
+                    while (index / 64 >= BufferPool.partitionStart(expected + 1, partitions, words)) {
+                        expected++;
+                    }
+                    assertEquals(expected, BufferPool.partitionOf(index, partitions, words));
+                }
+                assertEquals(partitions - 1, expected);
+                assertEquals(words, BufferPool.partitionStart(partitions, partitions, words));
+            }
+        }
+    }
+
+    @Test
+    public void testPartitionedPool() throws Exception {
+        final BufferPool pool = _persistit.getVolume("persistit").getPool();
+        final int originalCount = pool.getBufferCount();
+        pool.resize(64 * 10, 1000);
+        pool.setPartitionCount(4);
+        assertEquals(4, pool.getPartitionCount());
+        final AtomicInteger errors = new AtomicInteger();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest" + seed, true);
+                        for (int i = 0; i < 10000; i++) {
+                            ex.getValue().put(RED_FOX + i);
+                            ex.to(i).store();
+                        }
+                        for (int i = 0; i < 10000; i++) {
+                            ex.to(i).fetch();
+                            if (!ex.getValue().getString().equals(RED_FOX + i)) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } catch (final Exception e) {
+                        e.printStackTrace();
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "BufferPoolTest_partition" + t);
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        final int[] validCounts = new int[4];
+        for (int index = 0; index < pool.getBufferCount(); index++) {
+            if (pool.getBufferCopy(index).isValid()) {
+                validCounts[BufferPool.partitionOf(index, 4, 10)]++;
+            }
+        }
+        for (final int validCount : validCounts) {
+            assertTrue("Every partition should hold pages", validCount > 0);
+        }
+        pool.setPartitionCount(1);
+        pool.resize(originalCount, 5000);
+    }
+
+    @Test
+    public void testUnlockedLookup() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest", true);
+        for (int i = 0; i < 2000; i++) {
+            ex.getValue().put(RED_FOX + i);
+            ex.to(i).store();
+        }
+        final Volume volume = ex.getVolume();
+        final BufferPool pool = volume.getPool();
+        final long pageCount = volume.getStorage().getNextAvailablePage();
+        final AtomicInteger errors = new AtomicInteger();
+        final AtomicBoolean done = new AtomicBoolean();
+        final Thread churner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest_churn", true);
+                    for (int i = 0; !done.get(); i++) {
+                        ex.getValue().put(RED_FOX + i);
+                        ex.to(i % 5000).store();
+                    }
+                } catch (final Exception e) {
+                    e.printStackTrace();
+                    errors.incrementAndGet();
+                }
+            }
+        }, "BufferPoolTest_churn");
+        churner.start();
+        try {
+            for (int pass = 0; pass < 20; pass++) {
+                for (long page = 1; page < pageCount; page++) {
+                    final Buffer buffer = pool.get(volume, page, pass % 2 == 0, true);
+                    try {
+                        if (buffer.getPageAddress() != page || buffer.getVolume() != volume || !buffer.isValid()) {
+                            errors.incrementAndGet();
+                        }
+                    } finally {
+                        buffer.release();
+                    }
+                }
+            }
+        } finally {
+            done.set(true);
+            churner.join();
+        }
+        assertEquals(0, errors.get());
+
+        final Buffer buffer = pool.get(volume, 1, false, true);
+        buffer.release();
+        final long hits = pool.getHitCounter();
+        pool.get(volume, 1, false, true).release();
+        assertEquals(hits + 1, pool.getHitCounter());
+    }
+
+    @Test
+    public void testVolumeReservation() throws Exception {
+        final VolumeSpecification spec = new VolumeSpecification("${datapath}/reserved,reservedBuffers:30");
+        assertEquals(30, spec.getReservedBuffers());
+        assertTrue(spec.toString().contains("reservedBuffers:30"));
+
+        final Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest", true);
+        final Volume volume = ex.getVolume();
+        final BufferPool pool = volume.getPool();
+        final int originalCount = pool.getBufferCount();
+        pool.resize(200, 1000);
+        try {
+            try {
+                volume.setReservedBufferCount(100);
+                fail("Expected IllegalArgumentException");
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+            for (int i = 0; i < 1000; i++) {
+                ex.getValue().put(RED_FOX + i);
+                ex.to(i).store();
+            }
+            final int resident = volume.getResidentPageCount();
+            assertTrue(resident > 0);
+            volume.setReservedBufferCount(resident + 10);
+
+            final Exchange temp = _persistit.getExchange(_persistit.createTemporaryVolume(), "BufferPoolTest", true);
+            for (int i = 0; i < 20000; i++) {
+                temp.getValue().put(RED_FOX + i);
+                temp.to(i).store();
+            }
+            assertEquals(resident, volume.getResidentPageCount());
+
+            final Management.BufferPoolInfo info = new Management.BufferPoolInfo();
+            pool.populateBufferPoolInfo(info);
+            assertEquals(resident + 10, info.getReservedBufferCount());
+            assertEquals(1, info.getReservations().length);
+            assertTrue(info.getReservations()[0].startsWith(volume.getName() + " reserved=" + (resident + 10)));
+        } finally {
+            volume.setReservedBufferCount(0);
+            pool.resize(originalCount, 5000);
+        }
+    }
+
+    @Test
+    public void testPinnedIndexPages() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest", true);
+        final BufferPool pool = ex.getVolume().getPool();
+        for (int i = 0; i < 5000; i++) {
+            ex.getValue().put(RED_FOX + i);
+            ex.to(i).store();
+        }
+        assertTrue(ex.getTree().getDepth() > 1);
+        ex.getTree().setIndexPinned(true);
+        for (int i = 0; i < 5000; i += 100) {
+            ex.to(i).fetch();
+        }
+        final Management.BufferPoolInfo info = new Management.BufferPoolInfo();
+        pool.populateBufferPoolInfo(info);
+        final int pinned = info.getPinnedPageCount();
+        assertTrue(pinned > 0);
+
+        final Exchange temp = _persistit.getExchange(_persistit.createTemporaryVolume(), "BufferPoolTest", true);
+        for (int i = 0; i < 20000; i++) {
+            temp.getValue().put(RED_FOX + i);
+            temp.to(i).store();
+        }
+        pool.populateBufferPoolInfo(info);
+        assertEquals(pinned, info.getPinnedPageCount());
+
+        ex.getTree().setIndexPinned(false);
+        pool.populateBufferPoolInfo(info);
+        assertEquals(0, info.getPinnedPageCount());
+    }
+
+    @Test
+    public void testReadAhead() throws Exception {
+        final Volume volume = _persistit.createTemporaryVolume();
+        final Exchange ex = _persistit.getExchange(volume, "BufferPoolTest", true);
+        final BufferPool pool = volume.getPool();
+        final int originalCount = pool.getBufferCount();
+        pool.resize(640, 1000);
+        try {
+            assertEquals(BufferPool.DEFAULT_READ_AHEAD_LIMIT, pool.readAheadWindow(0));
+            for (int i = 0; i < 10000; i++) {
+                ex.getValue().put(RED_FOX + i);
+                ex.to(i).store();
+            }
+            ex.to(0).fetch();
+            final long firstPage = ex.fetchBufferCopy(0).getPageAddress();
+            pool.evict(volume);
+            pool.resetCounters();
+
+            assertTrue(pool.readAhead(volume, firstPage, 8));
+            final long expires = System.currentTimeMillis() + 10000;
+            while (pool.getReadAheadCounter() < 8 && System.currentTimeMillis() < expires) {
+                Thread.sleep(10);
+            }
+            assertEquals(8, pool.getReadAheadCounter());
+            final long misses = pool.getMissCounter();
+            ex.to(0).fetch();
+            assertEquals(RED_FOX + 0, ex.getValue().getString());
+            assertTrue("First data page should have been read ahead", pool.getMissCounter() - misses <= 1);
+
+            pool.evict(volume);
+            ex.to(Key.BEFORE);
+            int count = 0;
+            while (ex.next()) {
+                assertEquals(count, ex.getKey().decodeInt());
+                assertEquals(RED_FOX + count, ex.getValue().getString());
+                count++;
+            }
+            assertEquals(10000, count);
+        } finally {
+            pool.resize(originalCount, 5000);
+        }
+    }
+
+    @Test
+    public void testMultiplePageWriters() throws Exception {
+        _persistit.close();
+        _config.getBufferPoolMap().get(16384).setPageWriterCount(4);
+        _persistit = new Persistit(_config);
+
+        Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest", true);
+        final BufferPool pool = ex.getBufferPool();
+        assertEquals(4, pool.getPageWriterCount());
+        for (int i = 0; i < 20000; i++) {
+            ex.getValue().put(RED_FOX + i);
+            ex.to(i).store();
+        }
+        _persistit.flush();
+        assertTrue(ex.getVolume().getStatistics().getWriteCounter() > 0);
+        assertTrue(pool.getWriteLatency() > 0);
+        assertEquals(0, pool.getWriteQueueDepth());
+        assertEquals(0, pool.getDirtyPageCount());
+
+        ex = null;
+        _persistit.close();
+        _config.getBufferPoolMap().get(16384).setPageWriterCount(1);
+        _persistit = new Persistit(_config);
+        ex = _persistit.getExchange("persistit", "BufferPoolTest", false);
+        for (int i = 0; i < 20000; i++) {
+            ex.to(i).fetch();
+            assertEquals(RED_FOX + i, ex.getValue().getString());
+        }
+    }
+
+    @Test
+    public void testWriteQueueDepthAfterFailedWrite() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "BufferPoolTest", true);
+        final BufferPool pool = ex.getBufferPool();
+        pool.resize(640, 1000);
+        for (int i = 0; i < 50000; i++) {
+            ex.getValue().put(RED_FOX + i);
+            ex.to(i).store();
+        }
+        /*
+         * A fatal error makes the first run of the batch fail; the runs
+         * behind it are abandoned and must still be removed from the queue
+         * depth.
+         */
+        try {
+            _persistit.fatal("Injected failure", null);
+        } catch (final FatalErrorException e) {
+            // expected
+        }
+        final int size = 1000;
+        final int[] priorities = new int[size];
+        final BufferHolder[] holders = new BufferHolder[size];
+        for (int index = 0; index < size; index++) {
+            holders[index] = new BufferHolder();
+        }
+        try {
+            pool.writeDirtyBuffers(priorities, holders);
+            fail("Expected FatalErrorException");
+        } catch (final FatalErrorException e) {
+            // expected
+        }
+        assertEquals(0, pool.getWriteQueueDepth());
+        _persistit.crash();
+        _persistit = new Persistit(_config);
+    }
+
 }
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2012 Akiban Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.persistit.Transaction.CommitPolicy;
+
+public class CommitFutureTest extends PersistitUnitTestCase {
+
+    @Test
+    public void asyncCommitsComplete() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "CommitFutureTest", true);
+        final Transaction txn = ex.getTransaction();
+        final List<CommitFuture> futures = new ArrayList<CommitFuture>();
+        final AtomicInteger completed = new AtomicInteger();
+        final Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                completed.incrementAndGet();
+            }
+        };
+        for (int i = 0; i < 1000; i++) {
+            txn.begin();
+            try {
+                ex.getValue().put(i);
+                ex.to(i).store();
+                final CommitFuture future = txn.commitAsync(CommitPolicy.GROUP);
+                future.addListener(listener);
+                futures.add(future);
+            } finally {
+                txn.end();
+            }
+        }
+        long previous = 0;
+        for (final CommitFuture future : futures) {
+            final long ts = future.get(10, TimeUnit.SECONDS);
+            assertTrue(future.isDone());
+            assertFalse(future.isFailed());
+            assertTrue(ts > previous);
+            previous = ts;
+        }
+        assertEquals(futures.size(), completed.get());
+        assertEquals(0, _persistit.getJournalManager().getPendingCommitFutureCount());
+
+        final AtomicInteger late = new AtomicInteger();
+        futures.get(0).addListener(new Runnable() {
+            @Override
+            public void run() {
+                late.incrementAndGet();
+            }
+        });
+        assertEquals("Listener added after completion should run immediately", 1, late.get());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, ex.to(i).fetch().getValue().getInt());
+        }
+    }
+
+    @Test
+    public void hardPolicyStartsFlush() throws Exception {
+        _persistit.getJournalManager().setFlushInterval(60000);
+        final Exchange ex = _persistit.getExchange("persistit", "CommitFutureTest", true);
+        final Transaction txn = ex.getTransaction();
+        txn.begin();
+        final CommitFuture future;
+        try {
+            ex.getValue().put("hard");
+            ex.to(1).store();
+            future = txn.commitAsync(CommitPolicy.HARD);
+        } finally {
+            txn.end();
+        }
+        assertEquals(txn.getCommitTimestamp(), future.get(10, TimeUnit.SECONDS).longValue());
+        assertFalse(future.isFailed());
+    }
+
+    @Test
+    public void closeCompletesPendingCommits() throws Exception {
+        _persistit.getJournalManager().setFlushInterval(60000);
+        final Exchange ex = _persistit.getExchange("persistit", "CommitFutureTest", true);
+        final Transaction txn = ex.getTransaction();
+        final List<CommitFuture> futures = new ArrayList<CommitFuture>();
+        for (int i = 0; i < 10; i++) {
+            txn.begin();
+            try {
+                ex.getValue().put(i);
+                ex.to(i).store();
+                futures.add(txn.commitAsync(CommitPolicy.GROUP));
+            } finally {
+                txn.end();
+            }
+        }
+        _persistit.close();
+        for (final CommitFuture future : futures) {
+            assertTrue(future.isDone());
+            assertFalse("Commits flushed before close are durable", future.isFailed());
+        }
+        _persistit = new Persistit(_config);
+        final Exchange ex2 = _persistit.getExchange("persistit", "CommitFutureTest", false);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, ex2.to(i).fetch().getValue().getInt());
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.util.Properties;
 
 import org.junit.Test;
 
+import com.persistit.BufferPool.ReplacementPolicy;
 import com.persistit.Configuration.BufferPoolConfiguration;
 
 public class ConfigurationTest extends PersistitUnitTestCase {
@@ -204,6 +205,23 @@ public class ConfigurationTest extends PersistitUnitTestCase {
         }
     }
 
+    @Test
+    public void testLoadPropertiesReplacementPolicy() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("buffer.count.8192", "500");
+        properties.put("buffer.policy.8192", "two_queue");
+        final Configuration configuration = testLoadPropertiesBufferSpecificationsHelper(properties);
+        assertEquals(ReplacementPolicy.TWO_QUEUE, configuration.getBufferPoolMap().get(8192).getReplacementPolicy());
+        assertEquals(ReplacementPolicy.CLOCK, configuration.getBufferPoolMap().get(16384).getReplacementPolicy());
+        properties.put("buffer.policy.16384", "fifo");
+        try {
+            testLoadPropertiesBufferSpecificationsHelper(properties);
+            fail("Exception not thrown");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testBrokenServerConfiguration() throws Exception {
         final BufferPoolConfiguration bpc = new Configuration().getBufferPoolMap().get(16384);
@@ -30,21 +30,26 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
 import com.persistit.Accumulator.SumAccumulator;
 import com.persistit.CheckpointManager.Checkpoint;
 import com.persistit.JournalManager.PageNode;
+import com.persistit.Transaction.CommitPolicy;
 import com.persistit.TransactionPlayer.TransactionPlayerListener;
 import com.persistit.exception.PersistitException;
 import com.persistit.unit.ConcurrentUtil.ThrowingRunnable;
@@ -165,8 +170,8 @@ public class JournalManagerTest extends PersistitUnitTestCase {
         rman.buildRecoveryPlan();
         assertTrue(rman.getKeystoneAddress() != -1);
         assertEquals(checkpoint2.getTimestamp(), rman.getLastValidCheckpoint().getTimestamp());
-        final Map<PageNode, PageNode> pageMap = new HashMap<PageNode, PageNode>();
-        final Map<PageNode, PageNode> branchMap = new HashMap<PageNode, PageNode>();
+        final PageMap pageMap = new PageMap();
+        final PageMap branchMap = new PageMap();
 
         rman.collectRecoveredPages(pageMap, branchMap);
         assertEquals(pages, pageMap.size());
@@ -685,6 +690,349 @@ public class JournalManagerTest extends PersistitUnitTestCase {
         return count1;
     }
 
+    @Test
+    public void appendsProceedDuringWriteBehind() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setFlushInterval(60000);
+        final Exchange exchange = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
+        for (int i = 0; i < 100; i++) {
+            exchange.to(i).getValue().put(RED_FOX);
+            exchange.store();
+        }
+        _persistit.flushBuffers(_persistit.getCurrentTimestamp());
+        final long rootPage = exchange.getTree().getRootPageAddr();
+        final PageNode pn = jman.lookupUpPageNode(rootPage, exchange.getVolume());
+        assertTrue("Root page should be in the journal", pn != null);
+
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ErrorInjectingFileChannel blocking = new ErrorInjectingFileChannel() {
+            @Override
+            public int write(final ByteBuffer byteBuffer, final long position) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return super.write(byteBuffer, position);
+            }
+        };
+        ((MediatedFileChannel) jman.getFileChannel(jman.getCurrentAddress())).injectChannelForTests(blocking);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    jman.writeBehind();
+                } catch (final Exception e) {
+                    failure.set(e);
+                }
+            }
+        });
+        /*
+         * While the write is blocked, other threads can append records and
+         * read page images held in the buffer being written.
+         */
+        final Thread appender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Transaction txn = _persistit.getTransaction();
+                    final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
+                    txn.begin();
+                    try {
+                        ex.to("appended").getValue().put(RED_FOX);
+                        ex.store();
+                        txn.commitAsync(CommitPolicy.GROUP);
+                    } finally {
+                        txn.end();
+                    }
+                    final Buffer buffer = jman.readPageBuffer(pn.getJournalAddress());
+                    assertEquals(rootPage, buffer.getPageAddress());
+                } catch (final Exception e) {
+                    failure.set(e);
+                }
+            }
+        });
+        final boolean appended;
+        try {
+            writer.start();
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+            appender.start();
+            appender.join(10000);
+            appended = !appender.isAlive();
+        } finally {
+            release.countDown();
+        }
+        writer.join(10000);
+        assertTrue("Appender should not wait for journal write", appended);
+        assertEquals(null, failure.get());
+        assertTrue(jman.getWriteBufferAddress() > pn.getJournalAddress());
+        jman.force();
+    }
+
+    @Test
+    public void concurrentTransactionWritersAreRecovered() throws Exception {
+        final int threadCount = 8;
+        final int perThread = 2000;
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int base = t * perThread;
+            threads[t] = createThread("TXN_WRITER_" + t, new ThrowingRunnable() {
+                @Override
+                public void run() throws Exception {
+                    final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
+                    final Transaction txn = ex.getTransaction();
+                    for (int i = base; i < base + perThread; i++) {
+                        txn.begin();
+                        try {
+                            ex.to(i).getValue().put(RED_FOX + i);
+                            ex.store();
+                            txn.commit(CommitPolicy.SOFT);
+                        } finally {
+                            txn.end();
+                        }
+                    }
+                }
+            });
+        }
+        startAndJoinAssertSuccess(60000, threads);
+        _persistit.getJournalManager().force();
+        _persistit.crash();
+        _persistit = new Persistit(_config);
+        final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest1", false);
+        for (int i = 0; i < threadCount * perThread; i++) {
+            assertEquals(RED_FOX + i, ex.to(i).fetch().getValue().getString());
+        }
+    }
+
+    @Test
+    public void compressedPageImages() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setCompressingPages(true);
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 50000) {
+            sb.append(RED_FOX);
+        }
+        final Exchange exchange = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
+        final Transaction txn = _persistit.getTransaction();
+        txn.begin();
+        try {
+            for (int i = 0; i < 2000; i++) {
+                exchange.to(i).getValue().put(RED_FOX + i);
+                exchange.store();
+            }
+            txn.commit();
+        } finally {
+            txn.end();
+        }
+        exchange.to("long").getValue().put(sb.toString());
+        exchange.store();
+        _persistit.checkpoint();
+        assertTrue("Pages should have been compressed", jman.getCompressedPageCount() > 0);
+        assertTrue(jman.getCompressedPageBytesSaved() > 0);
+
+        final long rootPage = exchange.getTree().getRootPageAddr();
+        final PageNode pn = jman.lookupUpPageNode(rootPage, exchange.getVolume());
+        assertTrue("Root page should be in the journal", pn != null);
+        final Buffer buffer = jman.readPageBuffer(pn.getJournalAddress());
+        assertTrue("Compressed page should be readable", buffer != null);
+        assertEquals(rootPage, buffer.getPageAddress());
+
+        _persistit.crash();
+        _persistit = new Persistit(_config);
+        final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest1", false);
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(RED_FOX + i, ex.to(i).fetch().getValue().getString());
+        }
+        assertEquals(sb.toString(), ex.to("long").fetch().getValue().getString());
+    }
+
+    @Test
+    public void pageDeltas() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setPageDeltaLimit(8);
+        final Exchange exchange = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
+        for (int i = 0; i < 2000; i++) {
+            exchange.to(i).getValue().put(RED_FOX + i);
+            exchange.store();
+        }
+        _persistit.checkpoint();
+        for (int round = 1; round <= 12; round++) {
+            for (int i = round; i < 2000; i += 200) {
+                exchange.to(i).getValue().put(RED_FOX + i + "/" + round);
+                exchange.store();
+            }
+            _persistit.checkpoint();
+        }
+        assertTrue("Small page changes should have been written as deltas", jman.getPageDeltaCount() > 0);
+
+        for (int i = 0; i < 2000; i += 100) {
+            exchange.to(i).fetch();
+            final long page = exchange.fetchBufferCopy(0).getPageAddress();
+            final PageNode pn = jman.lookupUpPageNode(page, exchange.getVolume());
+            if (pn != null) {
+                final Buffer buffer = jman.readPageBuffer(pn.getJournalAddress());
+                assertTrue("Page should be readable from the journal", buffer != null);
+                assertEquals(page, buffer.getPageAddress());
+            }
+        }
+
+        _persistit.crash();
+        _persistit = new Persistit(_config);
+        final Exchange ex = _persistit.getExchange(_volumeName, "JournalManagerTest1", false);
+        for (int i = 0; i < 2000; i++) {
+            final int round = i % 200;
+            final String expected = round >= 1 && round <= 12 ? RED_FOX + i + "/" + round : RED_FOX + i;
+            assertEquals(expected, ex.to(i).fetch().getValue().getString());
+        }
+    }
+
+    @Test
+    public void rejectedPageDeltaIsCompressed() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setAppendOnly(true);
+        jman.setPageDeltaLimit(8);
+        jman.setCompressingPages(true);
+        final Exchange exchange = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
+        for (int i = 0; i < 200; i++) {
+            exchange.to(i).getValue().put(RED_FOX + i);
+            exchange.store();
+        }
+        _persistit.checkpoint();
+        final Buffer copy = exchange.to(100).fetchBufferCopy(0);
+        final long deltas = jman.getPageDeltaCount();
+        final long compressed = jman.getCompressedPageCount();
+        /*
+         * Both deltas are computed against the same base. Appending the first
+         * supersedes that base, so the second is written as a full image.
+         */
+        jman.writePagesToJournal(new Buffer[] { copy, copy }, 2);
+        assertEquals(deltas + 1, jman.getPageDeltaCount());
+        assertEquals("Full image replacing a delta should be compressed", compressed + 1,
+                jman.getCompressedPageCount());
+
+        final PageNode pn = jman.lookupUpPageNode(copy.getPageAddress(), exchange.getVolume());
+        final Buffer buffer = jman.readPageBuffer(pn.getJournalAddress());
+        assertTrue(Arrays.equals(copy.getBytes(), buffer.getBytes()));
+        jman.setAppendOnly(false);
+    }
+
+    @Test
+    public void parallelCopierCopiesAllVolumes() throws Exception {
+        final String spec = "${datapath}/copier2,create,pageSize:16384,initialPages:1,extensionPages:1,"
+                + "maximumPages:25000";
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setCopierThreadCount(3);
+        final Volume volume2 = _persistit.loadVolume(_config.volumeSpecification(spec));
+        final Exchange ex1 = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
+        final Exchange ex2 = _persistit.getExchange(volume2, "JournalManagerTest2", true);
+        for (int i = 0; i < 20000; i++) {
+            ex1.to(i).getValue().put(RED_FOX + i);
+            ex1.store();
+            ex2.to(i).getValue().put(i + RED_FOX);
+            ex2.store();
+        }
+        _persistit.checkpoint();
+        _persistit.copyBackPages();
+        assertEquals("All pages should have been copied", 0, jman.getPageMapSize());
+        assertTrue(jman.getCopiedPageCount() > 0);
+
+        _persistit.crash();
+        _persistit = new Persistit(_config);
+        final Volume reloaded = _persistit.loadVolume(_config.volumeSpecification(spec));
+        final Exchange check1 = _persistit.getExchange(_volumeName, "JournalManagerTest1", false);
+        final Exchange check2 = _persistit.getExchange(reloaded, "JournalManagerTest2", false);
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(RED_FOX + i, check1.to(i).fetch().getValue().getString());
+            assertEquals(i + RED_FOX, check2.to(i).fetch().getValue().getString());
+        }
+    }
+
+    @Test
+    public void copierRateLimit() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        final int size = 256 * 1024;
+        jman.setCopierRateLimit(1);
+        assertEquals(1, jman.getCopierRateLimit());
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            jman.throttleCopy(size);
+        }
+        assertTrue("Writes should be paced at 1MB/s", System.nanoTime() - start >= 900L * Util.NS_PER_MS);
+
+        jman.setCopyingFast(true);
+        start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            jman.throttleCopy(size);
+        }
+        assertTrue("Urgent copying should not be rate-limited", System.nanoTime() - start < 500L * Util.NS_PER_MS);
+        jman.setCopyingFast(false);
+
+        try {
+            jman.setCopierRateLimit(-1);
+            fail("Negative rate limit should be rejected");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void mappedJournalReads() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setAppendOnly(true);
+        jman.setMappingJournalFiles(true);
+        final Exchange exchange = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
+        for (int i = 0; i < 2000; i++) {
+            exchange.to(i).getValue().put(RED_FOX + i);
+            exchange.store();
+        }
+        _persistit.checkpoint();
+        final long rootPage = exchange.getTree().getRootPageAddr();
+        final PageNode pn = jman.lookupUpPageNode(rootPage, exchange.getVolume());
+        assertTrue("Root page should be in the journal", pn != null);
+
+        Buffer buffer = jman.readPageBuffer(pn.getJournalAddress());
+        assertEquals(rootPage, buffer.getPageAddress());
+        assertEquals("Current journal file should not be mapped", 0, jman.getMappedReadCount());
+
+        jman.rollover();
+        final Buffer mapped = jman.readPageBuffer(pn.getJournalAddress());
+        assertTrue("Completed journal file should be mapped", jman.getMappedReadCount() > 0);
+        assertTrue("Mapped page image should match", Arrays.equals(buffer.getBytes(), mapped.getBytes()));
+
+        jman.setMappingJournalFiles(false);
+        final long count = jman.getMappedReadCount();
+        buffer = jman.readPageBuffer(pn.getJournalAddress());
+        assertEquals(count, jman.getMappedReadCount());
+        assertTrue(Arrays.equals(buffer.getBytes(), mapped.getBytes()));
+        jman.setAppendOnly(false);
+    }
+
+    @Test
+    public void rejectedTransactionRecordReleasesReservation() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        final long timestamp = _persistit.getTimestampAllocator().updateTimestamp();
+        try {
+            /*
+             * A back-chained record for a transaction the journal has never
+             * seen is rejected by updateLiveTransactionMap.
+             */
+            jman.writeTransactionToJournal(ByteBuffer.allocate(64), timestamp, timestamp + 1, 12345);
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        final Thread flusher = createThread("FLUSH_THREAD", new ThrowingRunnable() {
+            @Override
+            public void run() throws Exception {
+                jman.flush();
+            }
+        });
+        startAndJoinAssertSuccess(10000, flusher);
+    }
+
     private void store1() throws PersistitException {
         final Exchange exchange = _persistit.getExchange(_volumeName, "JournalManagerTest1", true);
         exchange.removeAll();
@@ -0,0 +1,286 @@
+/**
+ * Copyright 2012 Akiban Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.persistit.util.LZCodec;
+
+public class OffHeapPageCacheTest extends PersistitUnitTestCase {
+
+    private final static int PAGE_SIZE = 1024;
+
+    @Override
+    protected Properties getProperties(final boolean cleanup) {
+        final Properties p = super.getProperties(cleanup);
+        p.setProperty("buffer.offheap.16384", "8M");
+        return p;
+    }
+
+    @Test
+    public void storeAndTake() throws Exception {
+        final Volume volume1 = _persistit.getVolume("persistit");
+        final Volume volume2 = _persistit.createTemporaryVolume();
+        final OffHeapPageCache cache = new OffHeapPageCache(PAGE_SIZE * 256, PAGE_SIZE);
+        assertEquals(256, cache.getCapacity());
+        final byte[] bytes = new byte[PAGE_SIZE];
+        for (int page = 1; page <= 100; page++) {
+            cache.store(volume1, page, pageImage(page, 1));
+            cache.store(volume2, page, pageImage(page, 2));
+        }
+        assertEquals(200, cache.getPageCount());
+        assertTrue(cache.take(volume1, 17, bytes));
+        assertTrue(Arrays.equals(pageImage(17, 1), bytes));
+        assertFalse("Page should have been removed", cache.take(volume1, 17, bytes));
+        assertTrue(cache.take(volume2, 17, bytes));
+        assertTrue(Arrays.equals(pageImage(17, 2), bytes));
+        assertEquals(2, cache.getHitCounter());
+
+        cache.store(volume1, 18, pageImage(18, 3));
+        assertEquals(198, cache.getPageCount());
+        assertTrue(cache.take(volume1, 18, bytes));
+        assertTrue(Arrays.equals(pageImage(18, 3), bytes));
+
+        assertTrue(cache.take(volume1, 19, null));
+        assertFalse(cache.take(volume1, 19, bytes));
+
+        cache.invalidate(volume2);
+        assertEquals(97, cache.getPageCount());
+        assertFalse(cache.take(volume2, 20, bytes));
+        assertTrue(cache.take(volume1, 20, bytes));
+        cache.invalidate(null);
+        assertEquals(0, cache.getPageCount());
+    }
+
+    @Test
+    public void replacement() throws Exception {
+        final Volume volume = _persistit.getVolume("persistit");
+        final OffHeapPageCache cache = new OffHeapPageCache(PAGE_SIZE * 256, PAGE_SIZE);
+        final byte[] bytes = new byte[PAGE_SIZE];
+        for (int page = 1; page <= 10000; page++) {
+            cache.store(volume, page, pageImage(page, 0));
+        }
+        assertEquals(cache.getCapacity(), cache.getPageCount());
+        int found = 0;
+        for (int page = 1; page <= 10000; page++) {
+            if (cache.take(volume, page, bytes)) {
+                assertTrue(Arrays.equals(pageImage(page, 0), bytes));
+                found++;
+            }
+        }
+        assertEquals(cache.getCapacity(), found);
+        assertEquals(0, cache.getPageCount());
+    }
+
+    @Test
+    public void bufferPoolUsesOffHeapCache() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "OffHeapPageCacheTest", true);
+        final BufferPool pool = ex.getVolume().getPool();
+        assertTrue(pool.getOffHeapMemory() > 0);
+        final int count = 5000;
+        for (int i = 0; i < count; i++) {
+            ex.getValue().put(createString(200) + i);
+            ex.to(i).store();
+        }
+        assertTrue("Expected evicted pages to be retained", pool.getOffHeapPageCount() > 0);
+        pool.resetCounters();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                ex.to(i).fetch();
+                assertEquals(createString(200) + i, ex.getValue().getString());
+            }
+        }
+        assertTrue("Expected off-heap hits", pool.getOffHeapHitCounter() > 0);
+        ex.removeAll();
+        for (int i = 0; i < count; i++) {
+            ex.to(i).fetch();
+            assertFalse(ex.getValue().isDefined());
+        }
+    }
+
+    @Test
+    public void truncateInvalidatesOffHeapPages() throws Exception {
+        final Volume volume = _persistit.createTemporaryVolume();
+        final Exchange ex = _persistit.getExchange(volume, "OffHeapPageCacheTest", true);
+        for (int i = 0; i < 5000; i++) {
+            ex.getValue().put(createString(200) + i);
+            ex.to(i).store();
+        }
+        volume.truncate();
+        final Exchange ex2 = _persistit.getExchange(volume, "OffHeapPageCacheTest", true);
+        for (int i = 0; i < 5000; i++) {
+            ex2.to(i).fetch();
+            assertFalse(ex2.getValue().isDefined());
+        }
+    }
+
+    @Test
+    public void codecRoundTrip() throws Exception {
+        final Random random = new Random(1);
+        final int[] table = new int[LZCodec.HASH_TABLE_SIZE];
+        final byte[] compressed = new byte[PAGE_SIZE * 2];
+        final byte[] restored = new byte[PAGE_SIZE];
+        for (int iteration = 0; iteration < 1000; iteration++) {
+            final byte[] bytes = new byte[random.nextInt(PAGE_SIZE)];
+            /*
+             * Mix of repeated runs, copied fragments and random bytes
+             */
+            int index = 0;
+            while (index < bytes.length) {
+                final int run = Math.min(bytes.length - index, random.nextInt(300) + 1);
+                switch (random.nextInt(3)) {
+                case 0:
+                    Arrays.fill(bytes, index, index + run, (byte) random.nextInt());
+                    break;
+                case 1:
+                    for (int i = 0; i < run; i++) {
+                        bytes[index + i] = index > 0 ? bytes[random.nextInt(index)] : 0;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < run; i++) {
+                        bytes[index + i] = (byte) random.nextInt();
+                    }
+                }
+                index += run;
+            }
+            final int length = LZCodec.compress(bytes, 0, bytes.length, compressed, 3, compressed.length - 3, table);
+            assertTrue(length > 0);
+            assertEquals(bytes.length, LZCodec.decompress(compressed, 3, length, restored, 0, PAGE_SIZE));
+            assertTrue(Arrays.equals(bytes, Arrays.copyOf(restored, bytes.length)));
+        }
+        final byte[] zeros = new byte[PAGE_SIZE];
+        final int length = LZCodec.compress(zeros, 0, PAGE_SIZE, compressed, 0, compressed.length, table);
+        assertTrue("Expected a page of zeros to compress well", length < 32);
+        assertEquals(-1, LZCodec.compress(zeros, 0, PAGE_SIZE, compressed, 0, length - 1, table));
+    }
+
+    @Test
+    public void compressedStoreAndTake() throws Exception {
+        final Volume volume1 = _persistit.getVolume("persistit");
+        final Volume volume2 = _persistit.createTemporaryVolume();
+        final OffHeapPageCache cache = new OffHeapPageCache(PAGE_SIZE * 256, PAGE_SIZE, true);
+        assertTrue(cache.isCompressed());
+        assertEquals(PAGE_SIZE * 256, cache.getMemory());
+        final byte[] bytes = new byte[PAGE_SIZE];
+        final Random random = new Random(1);
+        final byte[] noise = new byte[PAGE_SIZE];
+        random.nextBytes(noise);
+        for (int page = 1; page <= 500; page++) {
+            cache.store(volume1, page, sparsePageImage(page, 1));
+        }
+        cache.store(volume2, 1, noise);
+        assertEquals("Expected compressed pages to exceed slot count", 501, cache.getPageCount());
+        assertTrue(cache.getCompressionRatio() > 4.0);
+        for (int page = 1; page <= 500; page++) {
+            assertTrue(cache.take(volume1, page, bytes));
+            assertTrue(Arrays.equals(sparsePageImage(page, 1), bytes));
+        }
+        assertTrue(cache.take(volume2, 1, bytes));
+        assertTrue("Incompressible page stored raw", Arrays.equals(noise, bytes));
+        assertFalse(cache.take(volume1, 1, bytes));
+        assertEquals(501, cache.getHitCounter());
+        assertEquals(1, cache.getMissCounter());
+        assertEquals(0, cache.getPageCount());
+
+        cache.store(volume1, 18, sparsePageImage(18, 2));
+        cache.store(volume1, 18, sparsePageImage(18, 3));
+        cache.store(volume2, 18, noise);
+        assertEquals(2, cache.getPageCount());
+        cache.invalidate(volume2);
+        assertEquals(1, cache.getPageCount());
+        assertTrue(cache.take(volume1, 18, bytes));
+        assertTrue(Arrays.equals(sparsePageImage(18, 3), bytes));
+    }
+
+    @Test
+    public void compressedReplacement() throws Exception {
+        final Volume volume = _persistit.getVolume("persistit");
+        final OffHeapPageCache cache = new OffHeapPageCache(PAGE_SIZE * 256, PAGE_SIZE, true);
+        final byte[] bytes = new byte[PAGE_SIZE];
+        for (int page = 1; page <= 10000; page++) {
+            cache.store(volume, page, page % 3 == 0 ? pageImage(page, 0) : sparsePageImage(page, 0));
+        }
+        final long held = cache.getPageCount();
+        assertTrue(held > 256 && held <= cache.getCapacity());
+        int found = 0;
+        for (int page = 10000; page >= 1; page--) {
+            if (cache.take(volume, page, bytes)) {
+                assertTrue(Arrays.equals(page % 3 == 0 ? pageImage(page, 0) : sparsePageImage(page, 0), bytes));
+                found++;
+            }
+        }
+        assertEquals(held, found);
+        assertTrue("Expected most recently stored page to be retained", cache.getHitCounter() > 0);
+        assertEquals(0, cache.getPageCount());
+    }
+
+    @Test
+    public void bufferPoolUsesCompressedOffHeapCache() throws Exception {
+        _persistit.close();
+        _config.getBufferPoolMap().get(16384).setOffHeapCompressed(true);
+        _persistit = new Persistit(_config);
+        final Exchange ex = _persistit.getExchange("persistit", "OffHeapPageCacheTest", true);
+        final BufferPool pool = ex.getVolume().getPool();
+        final int count = 5000;
+        for (int i = 0; i < count; i++) {
+            ex.getValue().put(createString(200) + i);
+            ex.to(i).store();
+        }
+        assertTrue("Expected evicted pages to be retained", pool.getOffHeapPageCount() > 0);
+        assertTrue(pool.getOffHeapCompressionRatio() > 1.0);
+        pool.resetCounters();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                ex.to(i).fetch();
+                assertEquals(createString(200) + i, ex.getValue().getString());
+            }
+        }
+        assertTrue("Expected off-heap hits", pool.getOffHeapHitCounter() > 0);
+        final Management.BufferPoolInfo info = new Management.BufferPoolInfo();
+        pool.populateBufferPoolInfo(info);
+        assertEquals(pool.getOffHeapMissCounter(), info.getOffHeapMissCount());
+        assertTrue(info.getOffHeapCompressionRatio() >= 1.0);
+    }
+
+    /**
+     * A page image that is mostly empty, as a partly filled page would be
+     */
+    private static byte[] sparsePageImage(final long page, final int version) {
+        final byte[] bytes = new byte[PAGE_SIZE];
+        for (int i = 0; i < 64; i++) {
+            bytes[i] = (byte) (page * 31 + version * 7 + i * (page >>> 3));
+        }
+        return bytes;
+    }
+
+    private static byte[] pageImage(final long page, final int version) {
+        final byte[] bytes = new byte[PAGE_SIZE];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (page * 31 + version * 7 + i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2012 Akiban Technologies, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class OptimisticReadTest extends PersistitUnitTestCase {
+
+    private final static int COUNT = 10000;
+
+    private final static long DURATION = 3000;
+
+    @Test
+    public void fetchAndTraverse() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "OptimisticReadTest", true);
+        final BufferPool pool = ex.getVolume().getPool();
+        assertTrue(pool.isOptimisticReadsEnabled());
+        for (int i = 0; i < COUNT; i++) {
+            ex.getValue().put(valueFor(i, 0));
+            ex.to(i).store();
+        }
+        pool.resetCounters();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < COUNT; i++) {
+                ex.to(i).fetch();
+                assertEquals(valueFor(i, 0), ex.getValue().getString());
+            }
+        }
+        assertTrue("Expected optimistic reads", pool.getOptimisticReadCounter() > 0);
+
+        pool.resetCounters();
+        ex.clear().append(Key.BEFORE);
+        int count = 0;
+        while (ex.next()) {
+            assertEquals(count, ex.getKey().decodeInt());
+            assertEquals(valueFor(count, 0), ex.getValue().getString());
+            count++;
+        }
+        assertEquals(COUNT, count);
+        assertTrue("Expected optimistic reads", pool.getOptimisticReadCounter() > 0);
+
+        ex.clear().append(Key.AFTER);
+        while (ex.previous()) {
+            count--;
+            assertEquals(count, ex.getKey().decodeInt());
+            assertEquals(valueFor(count, 0), ex.getValue().getString());
+        }
+        assertEquals(0, count);
+    }
+
+    @Test
+    public void shallowTraverseSkipsChildren() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "OptimisticReadTest", true);
+        for (int i = 0; i < 100; i++) {
+            ex.getValue().put(valueFor(i, 0));
+            ex.clear().append(i).store();
+            if (i % 3 == 0) {
+                ex.append("child").store();
+            }
+        }
+        ex.clear().append(Key.BEFORE);
+        int count = 0;
+        while (ex.next()) {
+            assertEquals(1, ex.getKey().getDepth());
+            assertEquals(count, ex.getKey().decodeInt());
+            assertEquals(valueFor(count, 0), ex.getValue().getString());
+            count++;
+        }
+        assertEquals(100, count);
+
+        count = 0;
+        ex.clear().append(Key.BEFORE);
+        while (ex.next(true)) {
+            count++;
+        }
+        assertEquals(134, count);
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "OptimisticReadTest", true);
+        final BufferPool pool = ex.getVolume().getPool();
+        for (int i = 0; i < COUNT; i++) {
+            ex.getValue().put(valueFor(i, 0));
+            ex.to(i).store();
+        }
+        pool.setOptimisticReadsEnabled(false);
+        pool.resetCounters();
+        for (int i = 0; i < COUNT; i++) {
+            ex.to(i).fetch();
+            assertEquals(valueFor(i, 0), ex.getValue().getString());
+        }
+        ex.clear().append(Key.BEFORE);
+        while (ex.next()) {
+        }
+        assertEquals(0, pool.getOptimisticReadCounter());
+        assertEquals(0, pool.getOptimisticRetryCounter());
+    }
+
+    @Test
+    public void concurrentReadersAndWriter() throws Exception {
+        final Exchange ex = _persistit.getExchange("persistit", "OptimisticReadTest", true);
+        final BufferPool pool = ex.getVolume().getPool();
+        for (int i = 0; i < COUNT; i++) {
+            ex.getValue().put(valueFor(i, 0));
+            ex.to(i).store();
+        }
+        pool.resetCounters();
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger errors = new AtomicInteger();
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Exchange wex = _persistit.getExchange("persistit", "OptimisticReadTest", false);
+                    final Transaction txn = _persistit.getTransaction();
+                    final Random random = new Random(1);
+                    int generation = 0;
+                    while (!done.get()) {
+                        final int key = random.nextInt(COUNT);
+                        generation++;
+                        // Vary the value length so that updates move records
+                        // within the page and occasionally split it
+                        wex.getValue().put(valueFor(key, generation));
+                        if (generation % 2 == 0) {
+                            txn.begin();
+                            try {
+                                wex.to(key).store();
+                                txn.commit();
+                            } finally {
+                                txn.end();
+                            }
+                        } else {
+                            wex.to(key).store();
+                        }
+                    }
+                } catch (final Exception e) {
+                    e.printStackTrace();
+                    errors.incrementAndGet();
+                }
+            }
+        }, "OptimisticReadTest_writer");
+
+        final Thread[] readers = new Thread[4];
+        for (int index = 0; index < readers.length; index++) {
+            final int seed = index;
+            readers[index] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final Exchange rex = _persistit.getExchange("persistit", "OptimisticReadTest", false);
+                        final Random random = new Random(seed);
+                        while (!done.get()) {
+                            final int key = random.nextInt(COUNT);
+                            rex.to(key).fetch();
+                            if (!isValueFor(key, rex.getValue().getString())) {
+                                errors.incrementAndGet();
+                            }
+                            for (int step = 0; step < 10 && rex.next(); step++) {
+                                if (!isValueFor(rex.getKey().decodeInt(), rex.getValue().getString())) {
+                                    errors.incrementAndGet();
+                                }
+                            }
+                        }
+                    } catch (final Exception e) {
+                        e.printStackTrace();
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "OptimisticReadTest_reader" + index);
+        }
+
+        writer.start();
+        for (final Thread thread : readers) {
+            thread.start();
+        }
+        Thread.sleep(DURATION);
+        done.set(true);
+        writer.join();
+        for (final Thread thread : readers) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        assertTrue("Expected optimistic reads", pool.getOptimisticReadCounter() > 0);
+    }
+
+    private static String valueFor(final int key, final int generation) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(key).append(':');
+        for (int i = generation % 17; --i >= 0;) {
+            sb.append('x');
+        }
+        return sb.toString();
+    }
+
+    private static boolean isValueFor(final int key, final String value) {
+        return value != null && value.startsWith(key + ":");
+    }
+}
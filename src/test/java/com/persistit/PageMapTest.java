@@ -0,0 +1,87 @@
+/**
+ * Copyright 2012 Akiban Technologies, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.persistit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.persistit.JournalManager.PageNode;
+
+public class PageMapTest {
+
+    @Test
+    public void matchesHashMap() {
+        final Random random = new Random(1);
+        final PageMap pageMap = new PageMap();
+        final Map<PageNode, PageNode> expected = new HashMap<PageNode, PageNode>();
+        for (int i = 0; i < 200000; i++) {
+            final PageNode pageNode = new PageNode(random.nextInt(4) + 1, random.nextInt(20000), i, i);
+            switch (random.nextInt(4)) {
+            case 0:
+                assertSame(expected.remove(pageNode), pageMap.remove(pageNode));
+                break;
+            case 1:
+                assertSame(expected.get(pageNode),
+                        pageMap.get(pageNode.getVolumeHandle(), pageNode.getPageAddress()));
+                break;
+            default:
+                assertSame(expected.put(pageNode, pageNode), pageMap.put(pageNode));
+            }
+            assertEquals(expected.size(), pageMap.size());
+        }
+        int count = 0;
+        for (final PageNode pageNode : pageMap.values()) {
+            assertSame(expected.get(pageNode), pageNode);
+            count++;
+        }
+        assertEquals(expected.size(), count);
+    }
+
+    @Test
+    public void iteratorRemove() {
+        final PageMap pageMap = new PageMap();
+        for (int page = 0; page < 10000; page++) {
+            pageMap.put(new PageNode(1, page, page, page));
+        }
+        for (final Iterator<PageNode> iterator = pageMap.values().iterator(); iterator.hasNext();) {
+            if (iterator.next().getPageAddress() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(5000, pageMap.size());
+        for (int page = 0; page < 10000; page++) {
+            final PageNode pageNode = pageMap.get(1, page);
+            if (page % 2 == 0) {
+                assertNull(pageNode);
+            } else {
+                assertEquals(page, pageNode.getJournalAddress());
+            }
+        }
+        pageMap.clear();
+        assertTrue(pageMap.isEmpty());
+        assertNull(pageMap.get(1, 1));
+    }
+}
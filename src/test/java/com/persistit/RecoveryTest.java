@@ -18,6 +18,7 @@ package com.persistit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.util.HashMap;
@@ -35,10 +36,13 @@ import org.junit.Test;
 import com.persistit.CheckpointManager.Checkpoint;
 import com.persistit.JournalManager.PageNode;
 import com.persistit.JournalManager.TreeDescriptor;
+import com.persistit.Persistit.FatalErrorException;
 import com.persistit.TransactionPlayer.TransactionPlayerListener;
 import com.persistit.exception.PersistitException;
 import com.persistit.exception.RollbackException;
+import com.persistit.exception.TestException;
 import com.persistit.exception.TransactionFailedException;
+import com.persistit.util.Util;
 import com.persistit.unit.UnitTestProperties;
 
 public class RecoveryTest extends PersistitUnitTestCase {
@@ -79,6 +83,22 @@ public class RecoveryTest extends PersistitUnitTestCase {
         fetch1b();
     }
 
+    @Test
+    public void testKeystoneScanReadsAhead() throws Exception {
+        _persistit.getJournalManager().setAppendOnly(true);
+        for (int i = 0; i < 3; i++) {
+            store1();
+            _persistit.checkpoint();
+        }
+        _persistit.getJournalManager().flush();
+        _persistit.crash();
+        _persistit = new Persistit(_config);
+        assertTrue("Keystone scan should use read-ahead buffers",
+                _persistit.getRecoveryManager().getReadAheadHitCount() > 0);
+        fetch1a();
+        fetch1b();
+    }
+
     @Test
     public void testCopierCleansUpJournals() throws Exception {
         store1();
@@ -95,6 +115,49 @@ public class RecoveryTest extends PersistitUnitTestCase {
         fetch1b();
     }
 
+    @Test
+    public void testSpareJournalFilesAreReused() throws Exception {
+        final JournalManager jman = _persistit.getJournalManager();
+        jman.setSpareJournalFileLimit(2);
+        for (int wait = 0; jman.getSpareJournalFileCount() < 1 && wait < 300; wait++) {
+            Util.sleep(100);
+        }
+        assertEquals("A new spare file should be created", 1, jman.getSpareJournalFileCount());
+        for (int i = 0; i < 3; i++) {
+            store1();
+            jman.rollover();
+        }
+        _persistit.copyBackPages();
+        /*
+         * Files are released only after a checkpoint records the new base
+         * address.
+         */
+        _persistit.checkpoint();
+        jman.copyBack();
+        assertTrue("Copied journal files should be recycled", jman.getRecycledJournalFileCount() > 0);
+        for (int wait = 0; jman.getSpareJournalFileCount() < 2 && wait < 300; wait++) {
+            Util.sleep(100);
+        }
+        assertEquals(2, jman.getSpareJournalFileCount());
+        int spares = 0;
+        for (final File file : new File(jman.getJournalFilePath()).getParentFile().listFiles()) {
+            if (JournalManager.SPARE_PATTERN.matcher(file.getPath()).matches()) {
+                assertEquals("Spare file should be preallocated", jman.getBlockSize(), file.length());
+                spares++;
+            }
+        }
+        assertEquals(2, spares);
+        for (int i = 0; i < 3; i++) {
+            store1();
+            jman.rollover();
+        }
+        _persistit.checkpoint();
+        _persistit.crash();
+        _persistit = new Persistit(_config);
+        fetch1a();
+        fetch1b();
+    }
+
     @Test
     public void testRecoverCommittedTransactions() throws Exception {
         // create 10 transactions on the journal
@@ -188,6 +251,187 @@ public class RecoveryTest extends PersistitUnitTestCase {
         fetch3();
     }
 
+    @Test
+    public void testConcurrentTransactionReplay() throws Exception {
+        _persistit.getJournalManager().setAppendOnly(true);
+        final Exchange[] exchanges = new Exchange[4];
+        for (int t = 0; t < exchanges.length; t++) {
+            exchanges[t] = _persistit.getExchange(_volumeName, "RecoveryTest" + t, true);
+        }
+        final Transaction txn = _persistit.getTransaction();
+        for (int i = 0; i < 1000; i++) {
+            txn.begin();
+            try {
+                /*
+                 * Every transaction overwrites the same keys of one or two
+                 * trees, so only replay in commit order per tree leaves the
+                 * final values.
+                 */
+                final Exchange ex1 = exchanges[i % 4];
+                ex1.clear().append(i % 10).getValue().put(i);
+                ex1.store();
+                if (i % 7 == 0) {
+                    final Exchange ex2 = exchanges[(i + 1) % 4];
+                    ex2.clear().append(i % 10).getValue().put(i);
+                    ex2.store();
+                }
+                txn.commit();
+            } finally {
+                txn.end();
+            }
+        }
+        _persistit.getJournalManager().flush();
+        _persistit.crash();
+        _persistit = new Persistit();
+        _persistit.getJournalManager().setAppendOnly(true);
+        final RecoveryManager rman = _persistit.getRecoveryManager();
+        rman.setRecoveryDisabledForTestMode(true);
+        _persistit.setConfiguration(_config);
+        _persistit.initialize();
+        assertEquals(1000, rman.getCommittedCount());
+        rman.setRecoveryDisabledForTestMode(false);
+        rman.setReplayThreadCount(4);
+        rman.applyAllRecoveredTransactions(rman.getDefaultCommitListener(), rman.getDefaultRollbackListener());
+        assertEquals(1000, rman.getAppliedTransactionCount());
+        assertEquals(0, rman.getErrorCount());
+        assertTrue(rman.getAppliedUpdateCount() >= 1000);
+
+        for (int t = 0; t < exchanges.length; t++) {
+            final Exchange ex = _persistit.getExchange(_volumeName, "RecoveryTest" + t, false);
+            for (int k = 0; k < 10; k++) {
+                int expected = -1;
+                for (int i = 0; i < 1000; i++) {
+                    if (i % 10 == k && (i % 4 == t || (i % 7 == 0 && (i + 1) % 4 == t))) {
+                        expected = i;
+                    }
+                }
+                ex.clear().append(k).fetch();
+                if (expected < 0) {
+                    assertTrue(!ex.getValue().isDefined());
+                } else {
+                    assertEquals(expected, ex.getValue().getInt());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEarlyOpenRecovery() throws Exception {
+        _persistit.getJournalManager().setAppendOnly(true);
+        final Exchange[] exchanges = new Exchange[4];
+        for (int t = 0; t < exchanges.length; t++) {
+            exchanges[t] = _persistit.getExchange(_volumeName, "RecoveryTest" + t, true);
+        }
+        final Transaction txn = _persistit.getTransaction();
+        for (int i = 0; i < 1000; i++) {
+            txn.begin();
+            try {
+                final Exchange ex = exchanges[i % 4];
+                ex.clear().append(i).getValue().put(i);
+                ex.store();
+                txn.commit();
+            } finally {
+                txn.end();
+            }
+        }
+        _persistit.getJournalManager().flush();
+        _persistit.crash();
+        _config.setRecoveryEarlyOpen(true);
+        _persistit = new Persistit(_config);
+        final RecoveryManager rman = _persistit.getRecoveryManager();
+        /*
+         * Trees are readable while transactions are still being applied, and
+         * each tree already holds every recovered update.
+         */
+        for (int t = 0; t < exchanges.length; t++) {
+            final Exchange ex = _persistit.getExchange(_volumeName, "RecoveryTest" + t, false);
+            for (int i = t; i < 1000; i += 4) {
+                ex.clear().append(i).fetch();
+                assertEquals(i, ex.getValue().getInt());
+            }
+        }
+        final Checkpoint cp = _persistit.checkpoint();
+        assertTrue(!rman.isReplayPending());
+        assertEquals(0, rman.getPendingTreeCount());
+        assertEquals(1000, rman.getAppliedTransactionCount());
+        assertTrue(cp.getTimestamp() > rman.getLastValidCheckpointTimestamp());
+
+        _persistit.close();
+        _config.setRecoveryEarlyOpen(false);
+        _persistit = new Persistit(_config);
+        final Exchange ex = _persistit.getExchange(_volumeName, "RecoveryTest3", false);
+        ex.clear().append(999).fetch();
+        assertEquals(999, ex.getValue().getInt());
+    }
+
+    @Test
+    public void testEarlyOpenRecoveryFailure() throws Exception {
+        _persistit.getJournalManager().setAppendOnly(true);
+        final Exchange[] exchanges = new Exchange[4];
+        for (int t = 0; t < exchanges.length; t++) {
+            exchanges[t] = _persistit.getExchange(_volumeName, "RecoveryTest" + t, true);
+        }
+        final Transaction txn = _persistit.getTransaction();
+        for (int i = 0; i < 1000; i++) {
+            txn.begin();
+            try {
+                final Exchange ex = exchanges[i % 4];
+                ex.clear().append(i).getValue().put(i);
+                ex.store();
+                txn.commit();
+            } finally {
+                txn.end();
+            }
+        }
+        _persistit.getJournalManager().flush();
+        _persistit.crash();
+        /*
+         * Fail the replay on the first transaction that updates RecoveryTest3.
+         * Trees that still have unapplied transactions must not become
+         * readable.
+         */
+        _config.setRecoveryEarlyOpen(true);
+        _persistit = new Persistit();
+        _persistit.getRecoveryManager().setDefaultCommitListener(new RecoveryManager.DefaultRecoveryListener() {
+            @Override
+            public void store(final long address, final long timestamp, final Exchange exchange)
+                    throws PersistitException {
+                if ("RecoveryTest3".equals(exchange.getTree().getName())) {
+                    throw new ReplayFailure();
+                }
+                super.store(address, timestamp, exchange);
+            }
+        });
+        _persistit.setConfiguration(_config);
+        _persistit.initialize();
+        try {
+            _persistit.getExchange(_volumeName, "RecoveryTest0", false);
+            fail("Expected FatalErrorException");
+        } catch (final FatalErrorException e) {
+            // expected
+        }
+        assertTrue(_persistit.isFatal());
+        assertTrue(_persistit.getRecoveryManager().isReplayPending());
+        _persistit.crash();
+        /*
+         * No checkpoint was written, so the next startup recovers every
+         * transaction again.
+         */
+        _config.setRecoveryEarlyOpen(false);
+        _persistit = new Persistit(_config);
+        for (int t = 0; t < exchanges.length; t++) {
+            final Exchange ex = _persistit.getExchange(_volumeName, "RecoveryTest" + t, false);
+            for (int i = t; i < 1000; i += 4) {
+                ex.clear().append(i).fetch();
+                assertEquals(i, ex.getValue().getInt());
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class ReplayFailure extends TestException {
+    }
+
     @Test
     public void testRolloverDoesntDeleteLiveTransactions() throws Exception {
         final JournalManager jman = _persistit.getJournalManager();
@@ -344,8 +588,8 @@ public class RecoveryTest extends PersistitUnitTestCase {
         rman.init(path);
         rman.buildRecoveryPlan();
         assertTrue(rman.getKeystoneAddress() != -1);
-        final Map<PageNode, PageNode> pageMapCopy = new HashMap<PageNode, PageNode>();
-        final Map<PageNode, PageNode> branchMapCopy = new HashMap<PageNode, PageNode>();
+        final PageMap pageMapCopy = new PageMap();
+        final PageMap branchMapCopy = new PageMap();
         rman.collectRecoveredPages(pageMapCopy, branchMapCopy);
         assertEquals(pageMap.size(), pageMapCopy.size());
         final PageNode key = new PageNode(1, 42, -1, -1);
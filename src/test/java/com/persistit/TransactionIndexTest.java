@@ -18,7 +18,16 @@ package com.persistit;
 
 import static com.persistit.TransactionStatus.ABORTED;
 import static com.persistit.TransactionStatus.UNCOMMITTED;
-
+import static com.persistit.util.SequencerConstants.TRANSACTION_INDEX_NOTIFY_B;
+import static com.persistit.util.SequencerConstants.TRANSACTION_INDEX_NOTIFY_C;
+import static com.persistit.util.SequencerConstants.TRANSACTION_INDEX_NOTIFY_SCHEDULED;
+import static com.persistit.util.ThreadSequencer.addSchedules;
+import static com.persistit.util.ThreadSequencer.disableSequencer;
+import static com.persistit.util.ThreadSequencer.enableSequencer;
+import static com.persistit.util.ThreadSequencer.sequence;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import junit.framework.TestCase;
@@ -359,4 +368,200 @@ public class TransactionIndexTest extends TestCase {
         ti.cleanup();
         assertTrue(ti.wwDependency(TransactionIndex.ts2vh(ts2.getTs()), ts1, 0) != 0);
     }
+
+    @Test
+    public void testNotifyCompletedWithoutBucketLock() throws Exception {
+        final TransactionIndex ti = new TransactionIndex(_tsa, 1);
+        final TransactionStatus ts1 = ti.registerTransaction();
+        final TransactionStatus ts2 = ti.registerTransaction();
+        final TransactionIndexBucket bucket = ts2.getBucket();
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        /*
+         * Hold the bucket lock in another thread while ts2 commits. Completion
+         * of a transaction on the current list must not wait for it.
+         */
+        final Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                bucket.lock();
+                try {
+                    locked.countDown();
+                    release.await();
+                } catch (final InterruptedException e) {
+                    // done
+                } finally {
+                    bucket.unlock();
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+
+        final long tc = _tsa.updateTimestamp();
+        ts2.commit(tc);
+        ti.notifyCompleted(ts2, tc);
+        assertTrue(ts2.isNotified());
+        assertEquals(tc, ts2.getTc());
+
+        release.countDown();
+        holder.join();
+
+        assertEquals(tc, ti.commitStatus(TransactionIndex.ts2vh(ts2.getTs()), _tsa.updateTimestamp(), 0));
+        ts1.commit(_tsa.updateTimestamp());
+        ti.notifyCompleted(ts1, _tsa.getCurrentTimestamp());
+        ti.cleanup();
+        assertEquals(0, ti.getCurrentCount());
+    }
+
+    @Test
+    public void testReduceRequestedWhileLocked() throws Exception {
+        final TransactionIndex ti = new TransactionIndex(_tsa, 1);
+        final TransactionStatus ts1 = ti.registerTransaction();
+        final TransactionStatus ts2 = ti.registerTransaction();
+        final TransactionIndexBucket bucket = ts1.getBucket();
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                bucket.lock();
+                try {
+                    locked.countDown();
+                    release.await();
+                } catch (final InterruptedException e) {
+                    // done
+                } finally {
+                    bucket.unlock();
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+        /*
+         * ts1 is at the floor, so aborting it calls for a reduce that can't
+         * be done now. The holder of the lock must do it on release.
+         */
+        ts1.abort();
+        ti.notifyCompleted(ts1, _tsa.getCurrentTimestamp());
+        assertEquals(ts1.getTs(), bucket.getFloor());
+
+        release.countDown();
+        holder.join();
+        assertEquals(ts2.getTs(), bucket.getFloor());
+        assertEquals(1, bucket.getCurrentCount());
+        assertEquals(1, bucket.getAbortedCount());
+        ts2.commit(_tsa.updateTimestamp());
+        ti.notifyCompleted(ts2, _tsa.getCurrentTimestamp());
+    }
+
+    @Test
+    public void testAbortAfterConcurrentMoveToLongRunning() throws Exception {
+        final TransactionIndex ti = new TransactionIndex(_tsa, 1);
+        final TransactionStatus ts1 = ti.registerTransaction();
+        final TransactionIndexBucket bucket = ts1.getBucket();
+        ti.addDelta(ts1);
+        final TransactionStatus[] others = new TransactionStatus[ti.getLongRunningThreshold()];
+        for (int index = 0; index < others.length - 1; index++) {
+            others[index] = ti.registerTransaction();
+        }
+        /*
+         * ts1 passes the floor check in notifyCompletedCurrent and stops
+         * before completing. Meanwhile one more registration raises the
+         * current count over the threshold and its reduce moves ts1 to the
+         * long-running list. ts1 then aborts there without the lock.
+         */
+        final Thread aborter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ts1.abort();
+                ti.notifyCompleted(ts1, _tsa.getCurrentTimestamp());
+            }
+        });
+        enableSequencer(false);
+        addSchedules(TRANSACTION_INDEX_NOTIFY_SCHEDULED);
+        try {
+            aborter.start();
+            sequence(TRANSACTION_INDEX_NOTIFY_B);
+            others[others.length - 1] = ti.registerTransaction();
+            assertEquals(1, bucket.getLongRunningCount());
+            sequence(TRANSACTION_INDEX_NOTIFY_C);
+            aborter.join();
+        } finally {
+            disableSequencer();
+        }
+        assertTrue(ts1.isNotified());
+        assertEquals(1, bucket.getLongRunningCount());
+        assertEquals(0, bucket.getAbortedCount());
+        assertTrue(ti.getStatus(ts1.getTs()) == ts1);
+        assertEquals(ABORTED, ti.commitStatus(TransactionIndex.ts2vh(ts1.getTs()), _tsa.updateTimestamp(), 0));
+
+        bucket.lock();
+        try {
+            bucket.cleanup(ti.getActiveTransactionFloor());
+        } finally {
+            bucket.unlock();
+        }
+        assertEquals(0, bucket.getLongRunningCount());
+        assertEquals(1, bucket.getAbortedCount());
+        assertTrue("Deltas of the aborted transaction should be released", ts1.getDelta() == null);
+        assertTrue(ti.getStatus(ts1.getTs()) == ts1);
+
+        for (final TransactionStatus status : others) {
+            status.commit(_tsa.updateTimestamp());
+            ti.notifyCompleted(status, _tsa.getCurrentTimestamp());
+        }
+    }
+
+    @Test
+    public void testUnlockedStatusLookupDuringReduce() throws Exception {
+        final TransactionIndex ti = new TransactionIndex(_tsa, 1);
+        final TransactionStatus ts1 = ti.registerTransaction();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong lookups = new AtomicLong();
+        /*
+         * Look up ts1 without locking while the other thread's transactions
+         * cause ts1 to move from the current list to the long-running list
+         * and the lists to be reduced repeatedly.
+         */
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    if (ti.getStatus(ts1.getTs()) != ts1) {
+                        misses.incrementAndGet();
+                    }
+                    lookups.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        try {
+            final TransactionStatus[] running = new TransactionStatus[ti.getLongRunningThreshold() * 2];
+            for (int round = 0; round < 1000; round++) {
+                for (int index = 0; index < running.length; index++) {
+                    running[index] = ti.registerTransaction();
+                }
+                for (int index = 0; index < running.length; index++) {
+                    if ((index + round) % 3 == 0) {
+                        running[index].abort();
+                    } else {
+                        running[index].commit(_tsa.updateTimestamp());
+                    }
+                    ti.notifyCompleted(running[index], _tsa.getCurrentTimestamp());
+                }
+                if (round % 100 == 0) {
+                    ti.updateActiveTransactionCache();
+                }
+            }
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+        assertTrue(lookups.get() > 0);
+        assertEquals(0, misses.get());
+        ts1.commit(_tsa.updateTimestamp());
+        ti.notifyCompleted(ts1, _tsa.getCurrentTimestamp());
+    }
 }
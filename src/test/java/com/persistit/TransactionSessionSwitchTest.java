@@ -17,6 +17,8 @@
 package com.persistit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -120,4 +122,52 @@ public class TransactionSessionSwitchTest extends PersistitUnitTestCase {
             assertEquals("Mismatched count", expected, count);
         }
     }
+
+    @Test
+    public void sessionResourcesLifetime() throws Exception {
+        final Tree tree = _persistit.getVolume("persistit").getTree("tt", true);
+        /*
+         * Resources of a session whose thread is alive survive cleanup
+         */
+        final Exchange ex1 = _persistit.getExchange(tree.getVolume(), tree.getName(), false);
+        _persistit.releaseExchange(ex1);
+        _persistit.cleanup();
+        final Exchange ex2 = _persistit.getExchange(tree.getVolume(), tree.getName(), false);
+        assertSame(ex1, ex2);
+        _persistit.releaseExchange(ex2);
+
+        /*
+         * Resources of a session whose thread has ended are discarded by
+         * cleanup
+         */
+        final SessionId session = new SessionId();
+        final Exchange[] pooled = new Exchange[1];
+        final Transaction[] transactions = new Transaction[1];
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    _persistit.setSessionId(session);
+                    transactions[0] = _persistit.getTransaction();
+                    pooled[0] = _persistit.getExchange(tree.getVolume(), tree.getName(), false);
+                    _persistit.releaseExchange(pooled[0]);
+                } catch (final PersistitException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        ConcurrentUtil.startAndJoinAssertSuccess(TIMEOUT, thread);
+        _persistit.cleanup();
+
+        final SessionId saveSessionId = _persistit.getSessionId();
+        try {
+            _persistit.setSessionId(session);
+            assertNotSame(transactions[0], _persistit.getTransaction());
+            final Exchange ex3 = _persistit.getExchange(tree.getVolume(), tree.getName(), false);
+            assertNotSame(pooled[0], ex3);
+            _persistit.releaseExchange(ex3);
+        } finally {
+            _persistit.setSessionId(saveSessionId);
+        }
+    }
 }
@@ -17,8 +17,11 @@
 package com.persistit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.junit.Test;
@@ -120,4 +123,84 @@ public class WarmupTest extends PersistitUnitTestCase {
         assertTrue("Preload should have loaded pages from journal file", tfc.getReadPositionList().size() > 0);
         tfc.assertOrdered(true, true);
     }
+
+    @Test
+    public void preloadRecordsAccessCountsAndCoalescesReads() throws Exception {
+        Exchange ex = _persistit.getExchange("persistit", "WarmupTest", true);
+        BufferPool pool = ex.getBufferPool();
+
+        final int full = pool.getBufferCount() * (pool.getBufferSize() / RED_FOX.length());
+        for (int i = 1; i <= full * 3; i++) {
+            ex.getValue().put(RED_FOX);
+            ex.clear().append(i).store();
+        }
+        /*
+         * Make one data page much hotter than the others
+         */
+        final int hot = full * 3;
+        for (int i = 0; i < 1000; i++) {
+            ex.clear().append(hot).fetch();
+        }
+        final long hotPage = ex.fetchBufferCopy(0).getPageAddress();
+
+        ex = null;
+        pool = null;
+        _persistit.copyBackPages();
+        _persistit.close();
+
+        _persistit = new Persistit();
+        _config.setBufferInventoryEnabled(false);
+        _config.setBufferPreloadEnabled(false);
+        _persistit.setConfiguration(_config);
+        _persistit.initialize();
+
+        /*
+         * The page fetched repeatedly should have been recorded with an access
+         * count exceeding that of most other pages
+         */
+        final Exchange inventory = _persistit.getExchange(_persistit.getSystemVolume(), "_buffers", false);
+        inventory.clear().append(_persistit.getVolume("persistit").getPageSize()).append(Key.AFTER);
+        assertTrue(inventory.previous());
+        inventory.append(Key.BEFORE);
+        int hotCount = -1;
+        int colder = 0;
+        final List<Integer> counts = new ArrayList<Integer>();
+        while (inventory.next()) {
+            final Value value = inventory.getValue();
+            value.setStreamMode(true);
+            value.getInt();
+            final long page = value.getLong();
+            final int count = value.getInt();
+            if (page == hotPage) {
+                hotCount = count;
+            }
+            counts.add(count);
+        }
+        for (final int count : counts) {
+            if (count < hotCount) {
+                colder++;
+            }
+        }
+        assertTrue("Hot page should have been counted", hotCount >= 1000);
+        assertTrue("Most pages should be colder than the hot page", colder > counts.size() / 2);
+
+        final Volume volume = _persistit.getVolume("persistit");
+        final MediatedFileChannel mfc = (MediatedFileChannel) volume.getStorage().getChannel();
+        final TrackingFileChannel tfc = new TrackingFileChannel();
+        mfc.injectChannelForTests(tfc);
+        pool = volume.getStructure().getPool();
+        pool.preloadBufferInventory();
+        assertFalse(pool.isPreloading());
+        assertTrue(pool.getPreloadTotal() > 0);
+        assertEquals(pool.getPreloadTotal(), pool.getPreloadCounter());
+        assertTrue("Adjacent pages should be read together", tfc.getReadPositionList().size() < pool
+                .getPreloadTotal());
+        tfc.assertOrdered(true, true);
+
+        ex = _persistit.getExchange("persistit", "WarmupTest", false);
+        for (int i = 1; i <= full * 3; i += 100) {
+            ex.clear().append(i).fetch();
+            assertEquals(RED_FOX, ex.getValue().getString());
+        }
+    }
 }